@@ -0,0 +1,345 @@
+/**
+ * A headless arena for playing ComputerPlayers against each other. Games are run through a GameEngine with no view,
+ * many at a time on a thread pool, and the arena reports wins, draws and losses, move latencies and games per second.
+ * 
+ * Usage: Arena [games] [threads] [first strategy] [second strategy] [random opening plies] [record file]
+ * A strategy is "heuristic", "random", "search:depth", "timed:millis", "parallel:depth", "mcts:playouts"
+ * or "mctstimed:millis". Given a record file, every game is appended to it in the GameRecordWriter format.
+ * 
+ * @author Brandon Belna (bbelna@stetson.edu)
+ */
+package connectarena;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import connectcontrol.Controller;
+import connectmodel.ComputerPlayer;
+import connectmodel.GameBoard;
+import connectmodel.GameEngine;
+import connectmodel.GameRecordWriter;
+import connectmodel.PieceType;
+import connectmodel.Strategy;
+import connectmodel.TranspositionTable;
+import connectview.ConnectView;
+
+public class Arena
+{
+    public static final int DEFAULT_GAMES = 1000;
+    public static final int DEFAULT_OPENING_PLIES = 2;
+    public static final int DEFAULT_TABLE_MEGABYTES = 2; // per player, there are two players per running game
+    private String[] myStrategies;
+    private int myThreads;
+    private int myOpeningPlies;
+    private int myNumRows;
+    private int myNumColumns;
+    private int myWinLength;
+    private long mySeed;
+    private GameRecordWriter myRecorder;
+    
+    /**
+     * Constructor for the Arena.
+     * @param first The strategy of the first player.
+     * @param second The strategy of the second player.
+     * @param threads How many games to play at once.
+     */
+    public Arena(String first, String second, int threads)
+    {
+        myStrategies = new String[] {first, second};
+        myThreads = Math.max(1, threads);
+        myOpeningPlies = DEFAULT_OPENING_PLIES;
+        myNumRows = ConnectView.myRows;
+        myNumColumns = ConnectView.myColumns;
+        myWinLength = Controller.myWinLength;
+        mySeed = 1L;
+    }
+    
+    /**
+     * Entry point. Plays a match and prints the results.
+     * @param args Command line arguments: games, threads, first strategy, second strategy, opening plies and a record
+     * file, all optional.
+     * @throws InterruptedException If we are interrupted while the games are running.
+     * @throws IOException If the record file can't be written.
+     */
+    public static void main(String[] args) throws InterruptedException, IOException
+    {
+        int games = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_GAMES;
+        int threads = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        String first = (args.length > 2) ? args[2] : "search:6";
+        String second = (args.length > 3) ? args[3] : "heuristic";
+        Arena arena = new Arena(first, second, threads);
+        if (args.length > 4) arena.setOpeningPlies(Integer.parseInt(args[4]));
+        GameRecordWriter recorder = (args.length > 5) ? new GameRecordWriter(args[5]) : null;
+        arena.setRecorder(recorder);
+        try
+        {
+            System.out.println(arena.play(games));
+        }
+        finally
+        {
+            if (recorder != null) recorder.close();
+        }
+        if (recorder != null) System.out.println(recorder.getNumGames() + " games recorded to " + args[5]);
+    }
+    
+    /**
+     * Plays a match. The players take turns going first, and every game starts with a few seeded random moves
+     * so that two deterministic strategies don't just play the same game over and over.
+     * @param games How many games to play.
+     * @return The results of the match.
+     * @throws InterruptedException If we are interrupted while the games are running.
+     */
+    public ArenaResult play(int games) throws InterruptedException
+    {
+        ExecutorService pool = Executors.newFixedThreadPool(myThreads);
+        List<Future<GameOutcome>> futures = new ArrayList<Future<GameOutcome>>(games);
+        long start = System.nanoTime();
+        for (int i = 0; i < games; i++)
+        {
+            final int game = i;
+            futures.add(pool.submit(new Callable<GameOutcome>() {
+                public GameOutcome call()
+                {
+                    return playGame(game);
+                }
+            }));
+        }
+        ArenaResult result = new ArenaResult(myStrategies[0], myStrategies[1]);
+        try
+        {
+            for (int i = 0; i < futures.size(); i++)
+            {
+                result.add(futures.get(i).get());
+            }
+        }
+        catch(ExecutionException exception)
+        {
+            throw new IllegalStateException("An arena game failed!", exception.getCause());
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+        result.setElapsedNanos(System.nanoTime() - start);
+        return result;
+    }
+    
+    /**
+     * Plays one game through a GameEngine.
+     * @param game The number of the game, used to pick who starts and to seed the random moves.
+     * @return What happened in the game.
+     */
+    private GameOutcome playGame(int game)
+    {
+        PieceType[] types = {PieceType.RED, PieceType.BLACK};
+        GameBoard board = new GameBoard(myNumRows, myNumColumns, myWinLength, types);
+        ComputerPlayer first = new ComputerPlayer("Arena1", types[0], board);
+        GameEngine engine = new GameEngine(first, board);
+        ComputerPlayer second = (ComputerPlayer) engine.getPlayers().get(1);
+        first.setOpponentType(second.getPieceType());
+        ComputerPlayer[] players = {first, second};
+        Random random = new Random(mySeed * 31 + game);
+        for (int i = 0; i < players.length; i++)
+        {
+            configure(players[i], myStrategies[i]);
+            players[i].setRandomSeed(random.nextLong());
+        }
+        int starter = game % 2;
+        engine.selectStartingPlayer(players[starter]);
+        engine.startGame();
+        engine.selectStartingPlayer(players[starter]); // startGame only alternates the starter, so pick it again
+        
+        GameOutcome outcome = new GameOutcome();
+        PieceType[] turnOrder = {types[starter], types[1 - starter]};
+        int up = starter;
+        try
+        {
+            for (int ply = 0; ; ply++)
+            {
+                int col;
+                if (ply < myOpeningPlies)
+                {
+                    do
+                    {
+                        col = random.nextInt(myNumColumns);
+                    }
+                    while (board.isColumnFull(col));
+                }
+                else
+                {
+                    long moveStart = System.nanoTime();
+                    col = players[up].nextMove();
+                    outcome.addLatency(up, System.nanoTime() - moveStart);
+                }
+                if (!engine.placePiece(col)) throw new IllegalStateException(myStrategies[up] + " played an illegal move in column " + col);
+                boolean win = board.checkIfWin();
+                if (win) outcome.setWinner(up);
+                if (win || board.isBoardFull()) // a win, or a draw
+                {
+                    this.record(board, turnOrder);
+                    return outcome;
+                }
+                engine.switchPlayerUp();
+                up = 1 - up;
+            }
+        }
+        finally
+        {
+            for (int i = 0; i < players.length; i++)
+            {
+                if (players[i].getStrategy() == Strategy.PARALLEL_ALPHA_BETA) players[i].getParallelSearch().shutdown();
+                if (players[i].getStrategy() == Strategy.MONTE_CARLO) players[i].getMonteCarloSearch().shutdown();
+            }
+        }
+    }
+    
+    /**
+     * Appends a finished game to the record file, if there is one.
+     * @param board The board the game was played on.
+     * @param turnOrder The PieceType of each player, in the order they moved from the start.
+     */
+    private void record(GameBoard board, PieceType[] turnOrder)
+    {
+        if (myRecorder == null) return;
+        try
+        {
+            myRecorder.write(board, turnOrder);
+        }
+        catch(IOException exception)
+        {
+            throw new IllegalStateException("The game couldn't be recorded!", exception);
+        }
+    }
+    
+    /**
+     * Sets a player up for a strategy string.
+     * @param player The player.
+     * @param strategy The strategy string.
+     */
+    static void configure(ComputerPlayer player, String strategy)
+    {
+        player.configure(strategy);
+        if (player.getStrategy() == Strategy.ALPHA_BETA)
+        {
+            player.getSearchEngine().setTranspositionTable(new TranspositionTable(DEFAULT_TABLE_MEGABYTES));
+        }
+        else if (player.getStrategy() == Strategy.MONTE_CARLO)
+        {
+            player.getMonteCarloSearch().setThreads(1); // the arena already runs a game per thread
+        }
+    }
+    
+    /**
+     * Sets how many random moves start each game.
+     * @param plies The number of random moves.
+     */
+    public void setOpeningPlies(int plies)
+    {
+        myOpeningPlies = plies;
+    }
+    
+    /**
+     * Sets the board used for every game. With a recorder set, the board has to fit in a game record.
+     * @param rows Number of rows.
+     * @param cols Number of columns.
+     * @param winLength How big a run must be to win.
+     */
+    public void setBoard(int rows, int cols, int winLength)
+    {
+        if (myRecorder != null) checkRecordable(cols);
+        myNumRows = rows;
+        myNumColumns = cols;
+        myWinLength = winLength;
+    }
+    
+    /**
+     * Sets the seed for the random opening moves.
+     * @param seed The new seed.
+     */
+    public void setSeed(long seed)
+    {
+        mySeed = seed;
+    }
+    
+    /**
+     * Sets where finished games are recorded. The arena doesn't close it.
+     * @param recorder The writer to append every game to, or null to not record.
+     */
+    public void setRecorder(GameRecordWriter recorder)
+    {
+        if (recorder != null) checkRecordable(myNumColumns);
+        myRecorder = recorder;
+    }
+    
+    /**
+     * Checks that games on a board this wide can be recorded, so a match doesn't fail on its first finished game.
+     * @param cols Number of columns.
+     */
+    private static void checkRecordable(int cols)
+    {
+        if (cols > GameRecordWriter.MAX_COLUMNS)
+        {
+            throw new IllegalArgumentException("Games with more than " + GameRecordWriter.MAX_COLUMNS + " columns can't be recorded!");
+        }
+    }
+    
+    /**
+     * What happened in a single arena game.
+     */
+    static class GameOutcome
+    {
+        private int myWinner = -1; // -1 for a draw
+        private long[][] myLatencies = {new long[8], new long[8]};
+        private int[] myNumMoves = new int[2];
+        
+        /**
+         * Records how long a move took.
+         * @param side Which player moved.
+         * @param nanos How long the move took.
+         */
+        void addLatency(int side, long nanos)
+        {
+            if (myNumMoves[side] == myLatencies[side].length)
+            {
+                myLatencies[side] = Arrays.copyOf(myLatencies[side], myNumMoves[side] * 2);
+            }
+            myLatencies[side][myNumMoves[side]++] = nanos;
+        }
+        
+        /**
+         * Sets who won.
+         * @param side The winning player.
+         */
+        void setWinner(int side)
+        {
+            myWinner = side;
+        }
+        
+        /**
+         * Gets who won.
+         * @return The winning player, or -1 for a draw.
+         */
+        int getWinner()
+        {
+            return myWinner;
+        }
+        
+        /**
+         * Gets the latencies of a player's moves.
+         * @param side The player.
+         * @return The move latencies in nanoseconds.
+         */
+        long[] getLatencies(int side)
+        {
+            return Arrays.copyOf(myLatencies[side], myNumMoves[side]);
+        }
+    }
+}
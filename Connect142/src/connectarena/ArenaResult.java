@@ -0,0 +1,156 @@
+/**
+ * The results of an Arena match: wins, draws and losses from the first player's point of view, move latencies
+ * for each player, and how fast the games went.
+ * 
+ * @author Brandon Belna (bbelna@stetson.edu)
+ */
+package connectarena;
+
+import java.util.Arrays;
+
+public class ArenaResult
+{
+    private String[] myStrategies;
+    private int myWins;
+    private int myDraws;
+    private int myLosses;
+    private long[][] myLatencies; // every move latency of each player, in nanoseconds
+    private int[] myNumMoves;
+    private long myElapsedNanos;
+    
+    /**
+     * Constructor for the ArenaResult.
+     * @param first The strategy of the first player.
+     * @param second The strategy of the second player.
+     */
+    public ArenaResult(String first, String second)
+    {
+        myStrategies = new String[] {first, second};
+        myLatencies = new long[][] {new long[1024], new long[1024]};
+        myNumMoves = new int[2];
+    }
+    
+    /**
+     * Adds a finished game.
+     * @param outcome What happened in the game.
+     */
+    void add(Arena.GameOutcome outcome)
+    {
+        if (outcome.getWinner() == 0) myWins++;
+        else if (outcome.getWinner() == 1) myLosses++;
+        else myDraws++;
+        for (int side = 0; side < 2; side++)
+        {
+            long[] latencies = outcome.getLatencies(side);
+            if (myNumMoves[side] + latencies.length > myLatencies[side].length)
+            {
+                myLatencies[side] = Arrays.copyOf(myLatencies[side], Math.max(myLatencies[side].length * 2, myNumMoves[side] + latencies.length));
+            }
+            System.arraycopy(latencies, 0, myLatencies[side], myNumMoves[side], latencies.length);
+            myNumMoves[side] += latencies.length;
+        }
+    }
+    
+    /**
+     * Gets how many games the first player won.
+     * @return The number of wins.
+     */
+    public int getWins()
+    {
+        return myWins;
+    }
+    
+    /**
+     * Gets how many games were drawn.
+     * @return The number of draws.
+     */
+    public int getDraws()
+    {
+        return myDraws;
+    }
+    
+    /**
+     * Gets how many games the first player lost.
+     * @return The number of losses.
+     */
+    public int getLosses()
+    {
+        return myLosses;
+    }
+    
+    /**
+     * Gets how many games were played.
+     * @return The number of games.
+     */
+    public int getGames()
+    {
+        return myWins + myDraws + myLosses;
+    }
+    
+    /**
+     * Gets the average time a player took to move.
+     * @param side 0 for the first player, 1 for the second.
+     * @return The average move latency in microseconds.
+     */
+    public double getAverageLatencyMicros(int side)
+    {
+        if (myNumMoves[side] == 0) return 0.0;
+        long total = 0;
+        for (int i = 0; i < myNumMoves[side]; i++)
+        {
+            total += myLatencies[side][i];
+        }
+        return total / 1000.0 / myNumMoves[side];
+    }
+    
+    /**
+     * Gets a percentile of the time a player took to move.
+     * @param side 0 for the first player, 1 for the second.
+     * @param percentile The percentile, such as 99.
+     * @return The move latency at that percentile in microseconds.
+     */
+    public double getLatencyPercentileMicros(int side, double percentile)
+    {
+        if (myNumMoves[side] == 0) return 0.0;
+        long[] sorted = Arrays.copyOf(myLatencies[side], myNumMoves[side]);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1000.0;
+    }
+    
+    /**
+     * Gets how fast the games were played.
+     * @return Games per second.
+     */
+    public double getGamesPerSecond()
+    {
+        return this.getGames() * 1e9 / Math.max(1L, myElapsedNanos);
+    }
+    
+    /**
+     * Sets how long the match took.
+     * @param nanos The time in nanoseconds.
+     */
+    void setElapsedNanos(long nanos)
+    {
+        myElapsedNanos = nanos;
+    }
+    
+    /**
+     * Formats the results for printing.
+     * @return The results as text.
+     */
+    public String toString()
+    {
+        StringBuilder text = new StringBuilder();
+        text.append(myStrategies[0]).append(" vs ").append(myStrategies[1]).append(": ");
+        text.append(myWins).append(" wins, ").append(myDraws).append(" draws, ").append(myLosses).append(" losses");
+        text.append(String.format(" in %d games, %.1f games/sec%n", this.getGames(), this.getGamesPerSecond()));
+        for (int side = 0; side < 2; side++)
+        {
+            text.append(String.format("  %-14s %8d moves, avg %10.1f us, p99 %10.1f us%n", myStrategies[side], myNumMoves[side],
+                    this.getAverageLatencyMicros(side), this.getLatencyPercentileMicros(side, 99)));
+        }
+        return text.toString();
+    }
+}
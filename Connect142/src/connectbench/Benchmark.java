@@ -0,0 +1,37 @@
+/**
+ * A single operation to be timed by the BenchmarkRunner. Each call to run does one operation, and whatever it
+ * returns is folded into a sink so the JIT can't throw the work away.
+ * 
+ * @author Brandon Belna (bbelna@stetson.edu)
+ */
+package connectbench;
+
+public abstract class Benchmark
+{
+    private String myName;
+    
+    /**
+     * Constructor for the Benchmark.
+     * @param name The name printed with the results.
+     */
+    public Benchmark(String name)
+    {
+        myName = name;
+    }
+    
+    /**
+     * Does one operation.
+     * @param op How many operations have been done before this one in the iteration.
+     * @return Something computed by the operation.
+     */
+    public abstract long run(long op);
+    
+    /**
+     * Gets the name of the benchmark.
+     * @return The name.
+     */
+    public String getName()
+    {
+        return myName;
+    }
+}
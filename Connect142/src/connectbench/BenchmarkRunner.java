@@ -0,0 +1,108 @@
+/**
+ * BenchmarkRunner times a Benchmark the same way every run: a few warmup iterations to let the JIT settle, then
+ * measured iterations of a fixed length, each reported as nanoseconds per operation. The result is the mean of the
+ * measured iterations with the error taken as their standard deviation.
+ * 
+ * @author Brandon Belna (bbelna@stetson.edu)
+ */
+package connectbench;
+
+public class BenchmarkRunner
+{
+    public static final int DEFAULT_WARMUP = 5;
+    public static final int DEFAULT_ITERATIONS = 10;
+    public static final long DEFAULT_ITERATION_MILLIS = 200;
+    private static final int CLOCK_CHECK = 256; // operations between looks at the clock
+    private int myWarmup;
+    private int myIterations;
+    private long myIterationNanos;
+    private volatile long mySink;
+    
+    /**
+     * Constructor for the BenchmarkRunner.
+     * @param warmup How many iterations to throw away first.
+     * @param iterations How many iterations to measure.
+     * @param iterationMillis How long each iteration lasts, in milliseconds.
+     */
+    public BenchmarkRunner(int warmup, int iterations, long iterationMillis)
+    {
+        myWarmup = Math.max(0, warmup);
+        myIterations = Math.max(1, iterations);
+        myIterationNanos = Math.max(1L, iterationMillis) * 1000000L;
+    }
+    
+    /**
+     * Times a benchmark.
+     * @param benchmark The benchmark.
+     * @return The nanoseconds per operation of each measured iteration.
+     */
+    public double[] measure(Benchmark benchmark)
+    {
+        for (int i = 0; i < myWarmup; i++)
+        {
+            this.iterate(benchmark);
+        }
+        double[] samples = new double[myIterations];
+        for (int i = 0; i < myIterations; i++)
+        {
+            samples[i] = this.iterate(benchmark);
+        }
+        return samples;
+    }
+    
+    /**
+     * Runs one iteration.
+     * @param benchmark The benchmark.
+     * @return The nanoseconds per operation.
+     */
+    private double iterate(Benchmark benchmark)
+    {
+        long sink = 0;
+        long ops = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do
+        {
+            for (int i = 0; i < CLOCK_CHECK; i++)
+            {
+                sink += benchmark.run(ops++);
+            }
+            elapsed = System.nanoTime() - start;
+        }
+        while (elapsed < myIterationNanos);
+        mySink += sink;
+        return (double) elapsed / ops;
+    }
+    
+    /**
+     * Formats the samples of a benchmark as one line.
+     * @param name The name of the benchmark.
+     * @param samples The nanoseconds per operation of each iteration.
+     * @return The line to print.
+     */
+    public static String format(String name, double[] samples)
+    {
+        double mean = 0.0;
+        for (int i = 0; i < samples.length; i++)
+        {
+            mean += samples[i];
+        }
+        mean /= samples.length;
+        double variance = 0.0;
+        for (int i = 0; i < samples.length; i++)
+        {
+            variance += (samples[i] - mean) * (samples[i] - mean);
+        }
+        double error = (samples.length > 1) ? Math.sqrt(variance / (samples.length - 1)) : 0.0;
+        return String.format("%-44s %12.1f ns/op  +- %8.1f  %14.0f ops/s", name, mean, error, 1e9 / mean);
+    }
+    
+    /**
+     * Gets the sink, which only exists so the work of the benchmarks can't be optimized away.
+     * @return The sum of everything the benchmarks returned.
+     */
+    public long getSink()
+    {
+        return mySink;
+    }
+}
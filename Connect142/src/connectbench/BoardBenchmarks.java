@@ -0,0 +1,216 @@
+/**
+ * BoardBenchmarks times the GameBoard hot paths on a fixed corpus of seeded random positions, so numbers taken
+ * before and after a board or AI change can be compared. Every board size is run in each BoardMode it fits, and
+ * the read only benchmarks are run on empty, mid-game and near-full positions.
+ * 
+ * Usage: BoardBenchmarks [sizes, like 6x7,12x14] [warmup iterations] [iterations] [iteration millis] [name filter]
+ * 
+ * @author Brandon Belna (bbelna@stetson.edu)
+ */
+package connectbench;
+
+import connectcontrol.Controller;
+import connectmodel.BoardMode;
+import connectmodel.GameBoard;
+import connectmodel.PieceType;
+import connectview.ConnectView;
+
+public class BoardBenchmarks
+{
+    public static final String DEFAULT_SIZES = ConnectView.myRows + "x" + ConnectView.myColumns + ",12x14,20x24";
+    public static final int CORPUS_SIZE = 64;
+    public static final long SEED = 20140331L;
+    public static final String[] PHASES = {"empty", "mid", "full"};
+    public static final double[] FILLS = {0.0, 0.5, 0.9}; // how much of the board each phase fills
+    private BenchmarkRunner myRunner;
+    private String myFilter;
+    
+    /**
+     * Constructor for the BoardBenchmarks.
+     * @param runner The runner to time the benchmarks with.
+     * @param filter Only benchmarks with names containing this are run. Empty runs them all.
+     */
+    public BoardBenchmarks(BenchmarkRunner runner, String filter)
+    {
+        myRunner = runner;
+        myFilter = filter;
+    }
+    
+    /**
+     * Entry point. Runs the benchmarks and prints one line for each.
+     * @param args Command line arguments: sizes, warmup iterations, iterations, iteration millis and a filter, all optional.
+     */
+    public static void main(String[] args)
+    {
+        String sizes = (args.length > 0) ? args[0] : DEFAULT_SIZES;
+        int warmup = (args.length > 1) ? Integer.parseInt(args[1]) : BenchmarkRunner.DEFAULT_WARMUP;
+        int iterations = (args.length > 2) ? Integer.parseInt(args[2]) : BenchmarkRunner.DEFAULT_ITERATIONS;
+        long millis = (args.length > 3) ? Long.parseLong(args[3]) : BenchmarkRunner.DEFAULT_ITERATION_MILLIS;
+        String filter = (args.length > 4) ? args[4] : "";
+        BenchmarkRunner runner = new BenchmarkRunner(warmup, iterations, millis);
+        BoardBenchmarks benchmarks = new BoardBenchmarks(runner, filter);
+        System.out.println("java " + System.getProperty("java.version") + ", " + Runtime.getRuntime().availableProcessors()
+                + " cpus, seed " + SEED + ", " + warmup + " warmup and " + iterations + " x " + millis + "ms iterations");
+        String[] list = sizes.split(",");
+        for (int i = 0; i < list.length; i++)
+        {
+            String[] size = list[i].trim().split("x");
+            int rows = Integer.parseInt(size[0]);
+            int cols = Integer.parseInt(size[1]);
+            if (GameBoard.fitsBitboard(rows, cols)) benchmarks.runAll(rows, cols, Controller.myWinLength, BoardMode.BITBOARD);
+            benchmarks.runAll(rows, cols, Controller.myWinLength, BoardMode.DENSE);
+            benchmarks.runAll(rows, cols, Controller.myWinLength, BoardMode.SPARSE);
+        }
+        if (runner.getSink() == 42) System.out.println(); // keeps the sink alive
+    }
+    
+    /**
+     * Runs every benchmark on one board size and mode.
+     * @param rows Number of rows.
+     * @param cols Number of columns.
+     * @param winLength How big a run must be to win.
+     * @param mode How the boards store their pieces.
+     */
+    public void runAll(int rows, int cols, int winLength, BoardMode mode)
+    {
+        String suffix = " " + rows + "x" + cols + " " + mode.getMode().toLowerCase();
+        PositionCorpus[] corpora = new PositionCorpus[PHASES.length];
+        for (int i = 0; i < PHASES.length; i++)
+        {
+            corpora[i] = new PositionCorpus(rows, cols, winLength, mode, FILLS[i], CORPUS_SIZE, SEED + i);
+        }
+        this.run(placePiece(corpora[PHASES.length - 1]), suffix);
+        for (int i = 0; i < PHASES.length; i++)
+        {
+            this.run(checkIfWin(corpora[i]), "/" + PHASES[i] + suffix);
+            this.run(scanForWin(corpora[i]), "/" + PHASES[i] + suffix);
+            this.run(findBestMoveColumn(corpora[i]), "/" + PHASES[i] + suffix);
+            this.run(isBoardFull(corpora[i]), "/" + PHASES[i] + suffix);
+        }
+        this.run(resetBoard(corpora[0]), suffix);
+    }
+    
+    /**
+     * Runs a benchmark if it passes the filter and prints its line.
+     * @param benchmark The benchmark.
+     * @param suffix What to add to its name.
+     */
+    private void run(Benchmark benchmark, String suffix)
+    {
+        String name = benchmark.getName() + suffix;
+        if (!name.contains(myFilter)) return;
+        System.out.println(BenchmarkRunner.format(name, myRunner.measure(benchmark)));
+    }
+    
+    /**
+     * Replays the near-full games one placePiece at a time, resetting the board after each game.
+     * The resets are spread over every placement of the game.
+     * @param corpus The positions whose moves are replayed.
+     * @return The benchmark.
+     */
+    public static Benchmark placePiece(final PositionCorpus corpus)
+    {
+        return new Benchmark("placePiece") {
+            private GameBoard myBoard = corpus.newBoard();
+            private int myGame;
+            private int myPly;
+            
+            public long run(long op)
+            {
+                int[] moves = corpus.getMoves(myGame);
+                if (myPly == moves.length)
+                {
+                    myBoard.resetBoard();
+                    myGame = (myGame + 1) % corpus.size();
+                    myPly = 0;
+                    moves = corpus.getMoves(myGame);
+                    if (moves.length == 0) return 0;
+                }
+                boolean placed = myBoard.placePiece(moves[myPly], PositionCorpus.TYPES[myPly % 2]);
+                myPly++;
+                return placed ? 1 : 0;
+            }
+        };
+    }
+    
+    /**
+     * Asks each position if it has a win.
+     * @param corpus The positions.
+     * @return The benchmark.
+     */
+    public static Benchmark checkIfWin(final PositionCorpus corpus)
+    {
+        return new Benchmark("checkIfWin") {
+            public long run(long op)
+            {
+                return corpus.getBoard((int) (op % corpus.size())).checkIfWin() ? 1 : 0;
+            }
+        };
+    }
+    
+    /**
+     * Rescans each position for a win.
+     * @param corpus The positions.
+     * @return The benchmark.
+     */
+    public static Benchmark scanForWin(final PositionCorpus corpus)
+    {
+        return new Benchmark("scanForWin") {
+            public long run(long op)
+            {
+                return corpus.getBoard((int) (op % corpus.size())).scanForWin() ? 1 : 0;
+            }
+        };
+    }
+    
+    /**
+     * Picks the heuristic move in each position for the player to move.
+     * @param corpus The positions.
+     * @return The benchmark.
+     */
+    public static Benchmark findBestMoveColumn(final PositionCorpus corpus)
+    {
+        return new Benchmark("findBestMoveColumn") {
+            public long run(long op)
+            {
+                int index = (int) (op % corpus.size());
+                PieceType type = corpus.getTypeToMove(index);
+                return corpus.getBoard(index).findBestMoveColumn(type);
+            }
+        };
+    }
+    
+    /**
+     * Asks each position if the board is full.
+     * @param corpus The positions.
+     * @return The benchmark.
+     */
+    public static Benchmark isBoardFull(final PositionCorpus corpus)
+    {
+        return new Benchmark("isBoardFull") {
+            public long run(long op)
+            {
+                return corpus.getBoard((int) (op % corpus.size())).isBoardFull() ? 1 : 0;
+            }
+        };
+    }
+    
+    /**
+     * Resets a board over and over. resetBoard clears every cell whatever is on it, so an empty board costs the
+     * same as a full one.
+     * @param corpus Gives the size of the board.
+     * @return The benchmark.
+     */
+    public static Benchmark resetBoard(final PositionCorpus corpus)
+    {
+        return new Benchmark("resetBoard") {
+            private GameBoard myBoard = corpus.newBoard();
+            
+            public long run(long op)
+            {
+                myBoard.resetBoard();
+                return myBoard.getNumPieces();
+            }
+        };
+    }
+}
@@ -0,0 +1,159 @@
+/**
+ * PositionCorpus is a fixed set of seeded random positions for the benchmarks. Every position is built by playing
+ * random moves which never make a win, so the same seed always gives the same boards and no board is already over.
+ * On big boards the players can run out of safe moves before the board is as full as asked, and then the fullest
+ * of a few tries is kept.
+ * 
+ * @author Brandon Belna (bbelna@stetson.edu)
+ */
+package connectbench;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import connectmodel.BoardMode;
+import connectmodel.GameBoard;
+import connectmodel.PieceType;
+
+public class PositionCorpus
+{
+    public static final PieceType[] TYPES = {PieceType.RED, PieceType.BLACK};
+    private static final int MAX_ATTEMPTS = 20;
+    private int myNumRows;
+    private int myNumColumns;
+    private int myWinLength;
+    private BoardMode myMode;
+    private int[][] myMoves; // the columns played to reach each position
+    private GameBoard[] myBoards;
+    
+    /**
+     * Constructor for the PositionCorpus.
+     * @param rows Number of rows.
+     * @param cols Number of columns.
+     * @param winLength How big a run must be to win.
+     * @param mode How the boards store their pieces.
+     * @param fill The fraction of each board to fill, from 0 to 1.
+     * @param count How many positions to make.
+     * @param seed The seed for the random moves.
+     */
+    public PositionCorpus(int rows, int cols, int winLength, BoardMode mode, double fill, int count, long seed)
+    {
+        myNumRows = rows;
+        myNumColumns = cols;
+        myWinLength = winLength;
+        myMode = mode;
+        int pieces = (int) Math.round(Math.max(0.0, Math.min(1.0, fill)) * rows * cols);
+        Random random = new Random(seed);
+        myMoves = new int[count][];
+        myBoards = new GameBoard[count];
+        for (int i = 0; i < count; i++)
+        {
+            for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++)
+            {
+                int[] moves = this.playRandomGame(pieces, random);
+                if (myMoves[i] == null || moves.length > myMoves[i].length) myMoves[i] = moves;
+                if (moves.length == pieces) break;
+            }
+            myBoards[i] = this.replay(myMoves[i]);
+        }
+    }
+    
+    /**
+     * Plays random moves which don't win until the board has enough pieces.
+     * @param pieces How many pieces to play.
+     * @param random The random moves.
+     * @return The columns played, which stop early if every move would have won.
+     */
+    private int[] playRandomGame(int pieces, Random random)
+    {
+        GameBoard board = this.newBoard();
+        int[] moves = new int[pieces];
+        int[] columns = new int[myNumColumns];
+        for (int ply = 0; ply < pieces; ply++)
+        {
+            // try the columns in a random order until one doesn't end the game
+            for (int col = 0; col < myNumColumns; col++)
+            {
+                columns[col] = col;
+            }
+            int chosen = -1;
+            for (int left = myNumColumns; left > 0 && chosen == -1; left--)
+            {
+                int pick = random.nextInt(left);
+                int col = columns[pick];
+                columns[pick] = columns[left - 1];
+                if (board.isColumnFull(col)) continue;
+                GameBoard trial = new GameBoard(board);
+                trial.placePiece(col, TYPES[ply % 2]);
+                if (!trial.checkIfWin()) chosen = col;
+            }
+            if (chosen == -1) return Arrays.copyOf(moves, ply);
+            board.placePiece(chosen, TYPES[ply % 2]);
+            moves[ply] = chosen;
+        }
+        return moves;
+    }
+    
+    /**
+     * Makes an empty board the size of the corpus.
+     * @return The new board.
+     */
+    public GameBoard newBoard()
+    {
+        return new GameBoard(myNumRows, myNumColumns, myWinLength, TYPES, myMode);
+    }
+    
+    /**
+     * Plays a list of moves on a new board.
+     * @param moves The columns to play, the players taking turns.
+     * @return The new board.
+     */
+    public GameBoard replay(int[] moves)
+    {
+        GameBoard board = this.newBoard();
+        for (int i = 0; i < moves.length; i++)
+        {
+            board.placePiece(moves[i], TYPES[i % 2]);
+        }
+        return board;
+    }
+    
+    /**
+     * Gets how many positions there are.
+     * @return The number of positions.
+     */
+    public int size()
+    {
+        return myBoards.length;
+    }
+    
+    /**
+     * Gets a position. Benchmarks which change the board should work on a copy.
+     * @param index Which position.
+     * @return The board.
+     */
+    public GameBoard getBoard(int index)
+    {
+        return myBoards[index];
+    }
+    
+    /**
+     * Gets the moves that lead to a position.
+     * @param index Which position.
+     * @return The columns played.
+     */
+    public int[] getMoves(int index)
+    {
+        return myMoves[index];
+    }
+    
+    /**
+     * Gets the player to move in a position.
+     * @param index Which position.
+     * @return The PieceType to move.
+     */
+    public PieceType getTypeToMove(int index)
+    {
+        return TYPES[myMoves[index].length % 2];
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * RecordBenchmarks measures the game record format. It plays seeded random games and appends each to a temporary
+ * record file, then reads the file back twice, once only unpacking the games and once replaying every move onto a
+ * GameBoard. It prints the bytes per game and how fast games are written, read and replayed.
+ * 
+ * Usage: RecordBenchmarks [games] [rows] [cols]
+ * 
+ * @author Brandon Belna (bbelna@stetson.edu)
+ */
+package connectbench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import connectcontrol.Controller;
+import connectmodel.GameBoard;
+import connectmodel.GameRecordReader;
+import connectmodel.GameRecordWriter;
+import connectview.ConnectView;
+
+public class RecordBenchmarks
+{
+    public static final int DEFAULT_GAMES = 1000000;
+    
+    /**
+     * Entry point. Writes, reads and replays the games and prints a line for each.
+     * @param args Command line arguments: games, rows and cols, all optional.
+     * @throws IOException If the temporary file can't be written or read.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        int games = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_GAMES;
+        int rows = (args.length > 1) ? Integer.parseInt(args[1]) : ConnectView.myRows;
+        int cols = (args.length > 2) ? Integer.parseInt(args[2]) : ConnectView.myColumns;
+        File file = File.createTempFile("games", ".c4gr");
+        file.deleteOnExit();
+        System.out.println("java " + System.getProperty("java.version") + ", seed " + BoardBenchmarks.SEED + ", " + games
+                + " random games on " + rows + "x" + cols);
+        try
+        {
+            write(file.getPath(), games, rows, cols);
+            for (int i = 0; i < 2; i++) // the first passes also warm the JIT up
+            {
+                read(file.getPath(), false);
+                read(file.getPath(), true);
+            }
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+    
+    /**
+     * Plays random games and records them. Only the time spent in the writer is counted.
+     * @param fileName The record file.
+     * @param games How many games to play.
+     * @param rows Number of rows.
+     * @param cols Number of columns.
+     * @throws IOException If the file can't be written.
+     */
+    private static void write(String fileName, int games, int rows, int cols) throws IOException
+    {
+        Random random = new Random(BoardBenchmarks.SEED);
+        GameBoard board = new GameBoard(rows, cols, Controller.myWinLength, PositionCorpus.TYPES);
+        GameRecordWriter writer = new GameRecordWriter(fileName);
+        long moves = 0;
+        long nanos = 0;
+        try
+        {
+            for (int i = 0; i < games; i++)
+            {
+                board.resetBoard();
+                int up = 0;
+                while (!board.checkIfWin() && !board.isBoardFull())
+                {
+                    int col;
+                    do
+                    {
+                        col = random.nextInt(cols);
+                    }
+                    while (board.isColumnFull(col));
+                    board.placePiece(col, PositionCorpus.TYPES[up]);
+                    up = 1 - up;
+                }
+                moves += board.getNumPieces();
+                long start = System.nanoTime();
+                writer.write(board, PositionCorpus.TYPES);
+                nanos += System.nanoTime() - start;
+            }
+            long start = System.nanoTime();
+            writer.close();
+            nanos += System.nanoTime() - start;
+        }
+        finally
+        {
+            writer.close();
+        }
+        long bytes = new File(fileName).length();
+        System.out.println(String.format("write   %d games, %d moves, %d bytes (%.2f bytes/game), %.0f games/s",
+                games, moves, bytes, (double) bytes / games, games / (nanos / 1e9)));
+    }
+    
+    /**
+     * Reads every game back.
+     * @param fileName The record file.
+     * @param replay If every game is replayed onto a board, or only unpacked.
+     * @throws IOException If the file can't be read.
+     */
+    private static void read(String fileName, boolean replay) throws IOException
+    {
+        GameRecordReader reader = new GameRecordReader(fileName);
+        GameBoard board = null;
+        long games = 0;
+        long moves = 0;
+        long wins = 0;
+        long start = System.nanoTime();
+        try
+        {
+            while (reader.next())
+            {
+                games++;
+                moves += reader.getNumMoves();
+                if (!replay) continue;
+                if (board == null) board = reader.toGameBoard();
+                else reader.replay(board);
+                if (board.checkIfWin()) wins++;
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format("%s  %d games (%.0f/s), %d moves (%.0f/s)%s", replay ? "replay" : "read  ",
+                games, games / seconds, moves, moves / seconds, replay ? ", " + wins + " wins" : ""));
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * SearchBenchmarks measures how well the SearchEngine orders its moves. Every position of a seeded corpus is
+ * searched to a fixed depth twice, once with only the static center-first order and once with the MoveOrderer's
+ * threats, killers and history, and the nodes, cutoffs and time of the two are compared. The better the ordering,
+ * the fewer nodes and the more of the cutoffs come from the first move tried.
+ * 
+ * Usage: SearchBenchmarks [sizes, like 6x7,12x14] [depth] [positions] [fill]
+ * 
+ * @author Brandon Belna (bbelna@stetson.edu)
+ */
+package connectbench;
+
+import connectcontrol.Controller;
+import connectmodel.BoardMode;
+import connectmodel.GameBoard;
+import connectmodel.PieceType;
+import connectmodel.SearchEngine;
+import connectmodel.TranspositionTable;
+import connectview.ConnectView;
+
+public class SearchBenchmarks
+{
+    public static final String DEFAULT_SIZES = ConnectView.myRows + "x" + ConnectView.myColumns + ",12x14";
+    public static final int DEFAULT_DEPTH = 8;
+    public static final int DEFAULT_POSITIONS = 32;
+    public static final double DEFAULT_FILL = 0.25;
+    public static final int TABLE_MEGABYTES = 4;
+    private int myDepth;
+    private int myPositions;
+    private double myFill;
+    
+    /**
+     * Constructor for the SearchBenchmarks.
+     * @param depth How many plies to search each position.
+     * @param positions How many positions to search.
+     * @param fill How much of the board the positions fill.
+     */
+    public SearchBenchmarks(int depth, int positions, double fill)
+    {
+        myDepth = depth;
+        myPositions = positions;
+        myFill = fill;
+    }
+    
+    /**
+     * Entry point. Searches the corpus of each size with the ordering off and on, and prints a line for each.
+     * @param args Command line arguments: sizes, depth, positions and fill, all optional.
+     */
+    public static void main(String[] args)
+    {
+        String sizes = (args.length > 0) ? args[0] : DEFAULT_SIZES;
+        int depth = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_DEPTH;
+        int positions = (args.length > 2) ? Integer.parseInt(args[2]) : DEFAULT_POSITIONS;
+        double fill = (args.length > 3) ? Double.parseDouble(args[3]) : DEFAULT_FILL;
+        SearchBenchmarks benchmarks = new SearchBenchmarks(depth, positions, fill);
+        System.out.println("java " + System.getProperty("java.version") + ", seed " + BoardBenchmarks.SEED + ", depth " + depth
+                + ", " + positions + " positions at " + Math.round(fill * 100) + "% full");
+        String[] list = sizes.split(",");
+        for (int i = 0; i < list.length; i++)
+        {
+            String[] size = list[i].trim().split("x");
+            int rows = Integer.parseInt(size[0]);
+            int cols = Integer.parseInt(size[1]);
+            BoardMode mode = new GameBoard(rows, cols, Controller.myWinLength, PositionCorpus.TYPES).getMode();
+            PositionCorpus corpus = new PositionCorpus(rows, cols, Controller.myWinLength, mode, fill, positions, BoardBenchmarks.SEED);
+            benchmarks.run(corpus, false); // the first runs also warm the JIT up, so run them again after
+            benchmarks.run(corpus, true);
+            String off = benchmarks.run(corpus, false);
+            String on = benchmarks.run(corpus, true);
+            System.out.println(rows + "x" + cols + " static  " + off);
+            System.out.println(rows + "x" + cols + " ordered " + on);
+        }
+    }
+    
+    /**
+     * Searches every position of a corpus, each with a cleared table.
+     * @param corpus The positions.
+     * @param ordering If the MoveOrderer's dynamic ordering is on.
+     * @return A line with the totals.
+     */
+    public String run(PositionCorpus corpus, boolean ordering)
+    {
+        SearchEngine engine = new SearchEngine(myDepth);
+        TranspositionTable table = new TranspositionTable(TABLE_MEGABYTES);
+        engine.setTranspositionTable(table);
+        engine.setMoveOrdering(ordering);
+        long nodes = 0;
+        long cutoffs = 0;
+        long firstMoveCutoffs = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < corpus.size(); i++)
+        {
+            table.clear();
+            PieceType type = corpus.getTypeToMove(i);
+            PieceType opponentType = (type == PositionCorpus.TYPES[0]) ? PositionCorpus.TYPES[1] : PositionCorpus.TYPES[0];
+            engine.findBestMove(corpus.getBoard(i), type, opponentType);
+            nodes += engine.getNodeCount();
+            cutoffs += engine.getCutoffCount();
+            firstMoveCutoffs += engine.getFirstMoveCutoffCount();
+        }
+        long millis = (System.nanoTime() - start) / 1000000L;
+        return String.format("%12d nodes %10d cutoffs %5.1f%% first move %7d ms", nodes, cutoffs,
+                100.0 * firstMoveCutoffs / Math.max(1L, cutoffs), millis);
+    }
+}
@@ -1,182 +1,117 @@
 /**
- * A button listener to implement reflection with.
+ * A button listener that runs the actions it was bound to. The actions are plain Runnables, bound once when the
+ * view sets up its listeners, so a mouse event is a direct call with no reflection, boxing or argument arrays.
  * 
  * @author Brandon Belna (bbelna@stetson.edu)
  */
 package connectcontrol;
 
-import java.lang.reflect.*;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseAdapter;
-import java.lang.IllegalAccessException;
 
 public class ButtonListener extends MouseAdapter
 {
-    private Object myController;
-    private Method[] myMethods;
-    private Object[] myArguments;
+    private Runnable myReleaseAction;
+    private Runnable myEnterAction;
+    private Runnable myExitAction;
+    
+    /**
+     * Constructor for a ButtonListener that only acts when the mouse is released.
+     * @param releaseAction What to run when the mouse is released.
+     */
+    public ButtonListener(Runnable releaseAction)
+    {
+        this(releaseAction, null, null);
+    }
     
     /**
      * Constructor for our ButtonListener.
-     * @param controller The controller handling the game.
-     * @param methods Which methods to invoke upon requested actions.
-     * @param args The arguments to pass through.
+     * @param releaseAction What to run when the mouse is released.
+     * @param enterAction What to run when the mouse enters, or null for nothing.
+     * @param exitAction What to run when the mouse exits, or null for nothing.
      */
-    public ButtonListener(Object controller, Method[] methods, Object[] args)
+    public ButtonListener(Runnable releaseAction, Runnable enterAction, Runnable exitAction)
     {
-        myController = controller;
-        myMethods = methods;
-        myArguments = args;
+        myReleaseAction = releaseAction;
+        myEnterAction = enterAction;
+        myExitAction = exitAction;
     }
     
     /**
-     * Mouse released method invoker. Calls myMethods[0].
+     * Mouse released action runner.
      */
     public void mouseReleased(MouseEvent event)
     {
-        Method releaseMethod;
-        Object controller;
-        Object[] arguments;
-        
-        releaseMethod = this.getMethods()[0];
-        controller = this.getController();
-        arguments = this.getArguments();
-        
-        try
-        {
-            releaseMethod.invoke(controller, arguments);
-        }
-        catch(InvocationTargetException exception)
-        {
-            System.out.println("InvocationTargetException");
-        }
-        catch(IllegalAccessException exception)
-        {
-            System.out.println("IllegalAccessException");
-        }
-        catch(IllegalArgumentException exception)
-        {
-            System.out.println("IllegalArgumentException");
-        }
+        if (myReleaseAction != null) myReleaseAction.run();
     }
     
     /**
-     * Mouse entered method invoker. Calls myMethods[1].
+     * Mouse entered action runner.
      */
     public void mouseEntered(MouseEvent event)
     {
-        if (this.getMethods().length > 1)
-        {
-            Method enterMethod;
-            Object controller;
-            Object[] arguments;
-            
-            enterMethod = this.getMethods()[1];
-            controller = this.getController();
-            arguments = this.getArguments();
-            
-            try
-            {
-                enterMethod.invoke(controller, arguments);
-            }
-            catch(InvocationTargetException exception)
-            {
-                System.out.println("InvocationTargetException");
-            }
-            catch(IllegalAccessException exception)
-            {
-                System.out.println("IllegalAccessException");
-            }
-            catch(IllegalArgumentException exception)
-            {
-                System.out.println("IllegalArgumentException");
-            }
-        }
+        if (myEnterAction != null) myEnterAction.run();
     }
     
     /**
-     * Mouse exited method invoker. Calls myMethods[2].
+     * Mouse exited action runner.
      */
     public void mouseExited(MouseEvent event)
     {
-        if (this.getMethods().length > 2)
-        {
-            Method exitMethod;
-            Object controller;
-            
-            exitMethod = this.getMethods()[2];
-            controller = this.getController();
-            
-            try
-            {
-                exitMethod.invoke(controller, null);
-            }
-            catch(InvocationTargetException exception)
-            {
-                System.out.println("InvocationTargetException");
-            }
-            catch(IllegalAccessException exception)
-            {
-                System.out.println("IllegalAccessException");
-            }
-            catch(IllegalArgumentException exception)
-            {
-                System.out.println("IllegalArgumentException");
-            }
-        }
+        if (myExitAction != null) myExitAction.run();
     }
     
     /**
-     * Return the methods associated with this listener.
-     * @return Methods associated with this listener.
+     * Get the action run when the mouse is released.
+     * @return The release action.
      */
-    protected Method[] getMethods()
+    protected Runnable getReleaseAction()
     {
-        return myMethods;
+        return myReleaseAction;
     }
     
     /**
-     * Set the methods for this listener.
-     * @param methods New methods to set for listener.
+     * Set the action run when the mouse is released.
+     * @param action The new release action.
      */
-    protected void setMethod(Method[] methods)
+    protected void setReleaseAction(Runnable action)
     {
-        myMethods = methods;
+        myReleaseAction = action;
     }
-
+    
     /**
-     * Get the controller of this listener.
-     * @return Controller of listener.
+     * Get the action run when the mouse enters.
+     * @return The enter action, or null.
      */
-    protected Object getController()
+    protected Runnable getEnterAction()
     {
-        return myController;
+        return myEnterAction;
     }
     
     /**
-     * Set the controller of this listener.
-     * @param controller The new controller of the listener.
+     * Set the action run when the mouse enters.
+     * @param action The new enter action, or null for nothing.
      */
-    protected void setController(Object controller)
+    protected void setEnterAction(Runnable action)
     {
-        myController = controller;
+        myEnterAction = action;
     }
     
     /**
-     * Get the arguments associated with this listener.
-     * @return The arguments of the listener.
+     * Get the action run when the mouse exits.
+     * @return The exit action, or null.
      */
-    protected Object[] getArguments()
+    protected Runnable getExitAction()
     {
-        return myArguments;
+        return myExitAction;
     }
     
     /**
-     * Set the arguments associated with this listener.
-     * @param arguments The new arguments for this listener.
+     * Set the action run when the mouse exits.
+     * @param action The new exit action, or null for nothing.
      */
-    protected void setArguments(Object[] arguments)
+    protected void setExitAction(Runnable action)
     {
-        myArguments = arguments;
+        myExitAction = action;
     }
-}
\ No newline at end of file
+}
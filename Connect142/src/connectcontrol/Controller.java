@@ -7,29 +7,52 @@
 package connectcontrol;
 
 import javax.swing.JOptionPane;
+import connectmodel.BoardSnapshot;
+import connectmodel.ColumnAnalysis;
+import connectmodel.ColumnAnalyzer;
 import connectmodel.ComputerPlayer;
 import connectmodel.GameBoard;
 import connectmodel.GameEngine;
+import connectmodel.OpeningBook;
 import connectmodel.PieceType;
 import connectmodel.Player;
+import connectmodel.SearchStats;
+import connectmodel.Strategy;
 import connectview.ConnectView;
 
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Logger;
 
 public class Controller
 {
     public final static int myWinLength = 4;
+    public final static int myCpuThinkTime = 2000; // how many milliseconds the cpu searches for each move
+    public final static int myStatsLogTime = 60000; // how many milliseconds between lines of search stats in the log
+    private final static Logger myStatsLog = Logger.getLogger(SearchStats.LOGGER_NAME);
     private ConnectView myView;
     private GameEngine myGameEngine;
     private GameBoard myGameBoard;
     private PieceType[] myPieces;
     private Player myPlayer;
     private ComputerPlayer myCPUPlayer;
+    private OpeningBook myOpeningBook; // null if no book has been generated
     private int myMouseCurrentColumn = 0;
     private boolean myWait = true; // myWait is the universal game lock. When it is switched to true,
                                    // no actions on the board can be performed by the user.
-    private Timer myCpuTimer = new Timer(); // this timer allows our cpu to 'think'.
+    private ExecutorService myCpuThread; // the one thread our cpu 'thinks' on, so no two of its moves ever overlap
+    private Future<?> myCpuTask; // the cpu's last move, null if it hasn't moved yet
+    private volatile int myGameCount = 0; // bumped for every new game, so a cpu move from an old game is thrown away
+    private volatile BoardSnapshot mySnapshot; // the position after the last change to the board, for other threads to read
+    private boolean myPondering = false; // if the cpu searches the human's replies while they think
+    private boolean myHints = false; // if the columns are tinted by how good they are for the human
+    private ColumnAnalyzer myAnalyzer; // made the first time hints are turned on
+    private SearchStats myStats; // the cpu's searches over every match, also on JMX as connect142:type=SearchStats,name="cpu"
     
     /**
      * Constructor for the controller.
@@ -40,9 +63,33 @@ public class Controller
         myPieces[0] = PieceType.RED;
         myPieces[1] = PieceType.BLACK;
         myGameBoard = new GameBoard(ConnectView.myRows, ConnectView.myColumns, myWinLength, myPieces);
+        mySnapshot = myGameBoard.snapshot();
         myPlayer = new Player("NA", myPieces[0]);
+        myOpeningBook = OpeningBook.open(OpeningBook.DEFAULT_FILE);
         myView = new ConnectView(this);
-        myCpuTimer = new Timer();
+        myCpuThread = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "CPU");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        myStats = new SearchStats();
+        myStats.register("cpu");
+        // log the stats every so often, but only if the cpu has moved since the last line
+        new Timer("Search stats", true).schedule(new TimerTask() {
+            private long myLoggedMoves = 0;
+            
+            public void run()
+            {
+                if (!myStatsLog.isLoggable(SearchStats.LOG_LEVEL)) return; // silenced, so don't bother summing up
+                long moves = myStats.getMovesSearched() + myStats.getBookMoves() + myStats.getPonderHits();
+                if (moves == myLoggedMoves) return;
+                myLoggedMoves = moves;
+                myStatsLog.log(SearchStats.LOG_LEVEL, "search stats: " + myStats);
+            }
+        }, myStatsLogTime, myStatsLogTime);
     }
     
     /**
@@ -53,7 +100,9 @@ public class Controller
     {
         if (!myGameBoard.isColumnFull(col) && !myWait)
         {
+            this.clearHints();
             myGameBoard.placePiece(col, myPlayer.getPieceType());
+            mySnapshot = myGameBoard.snapshot();
             myView.updateBoard();
             if (myGameBoard.checkIfWin())
             {
@@ -70,7 +119,9 @@ public class Controller
         {
             JOptionPane.showMessageDialog(null, "Stalemate!");
             myGameBoard.resetBoard();
+            mySnapshot = myGameBoard.snapshot();
             myView.updateBoard();
+            this.showHints();
         }
     }
     
@@ -89,7 +140,7 @@ public class Controller
             }
         }
         // reset cpu stack
-        myCpuTimer.cancel();
+        this.stopCpu();
         
         // get our name
         String name = (String)JOptionPane.showInputDialog(null, "Enter your name. Only letters and numbers allowed!", "Start Match!",
@@ -114,7 +165,12 @@ public class Controller
         // start the GameEngine
         myGameEngine = new GameEngine(myPlayer, myGameBoard);
         myGameEngine.startGame();
+        mySnapshot = myGameBoard.snapshot();
         myCPUPlayer = (ComputerPlayer) myGameEngine.getPlayers().get(1);
+        myCPUPlayer.setStrategy(Strategy.ALPHA_BETA);
+        myCPUPlayer.setThinkTime(myCpuThinkTime);
+        myCPUPlayer.setOpeningBook(myOpeningBook);
+        myCPUPlayer.setSearchStats(myStats);
         myPieces[1] = myGameEngine.getPlayers().get(1).getPieceType();
         
         // refresh board
@@ -123,6 +179,7 @@ public class Controller
         
         // release the game lock
         myWait = false;
+        this.showHints();
     }
     
     /**
@@ -131,7 +188,7 @@ public class Controller
     public void newGame()
     {
         // reset cpu tasks
-        myCpuTimer.cancel();
+        this.stopCpu();
         
         // use game engine to start model
         if (myGameEngine == null) 
@@ -143,6 +200,7 @@ public class Controller
         
         // clear board and redraw
         myGameBoard.resetBoard();
+        mySnapshot = myGameBoard.snapshot();
         myView.updateBoard();
         
         // release game lock
@@ -153,21 +211,40 @@ public class Controller
         {
             this.cpuTurn();
         }
+        else this.showHints();
     }
     
     /**
-     * The CPU turn. Creates a TimerTask which runs after a small delay.
+     * The CPU turn. Hands the cpu thread a task which searches for myCpuThinkTime and then places the CPU's piece.
+     * Any earlier move has to be over by now, since it was either played or stopped by stopCpu.
      */
     public void cpuTurn()
     {
-        int cpuCol = myCPUPlayer.nextMove();
-        // we will wait a bit before having the cpu place its piece
+        // the cpu does its thinking on its own thread so the view stays responsive
         myWait = true;
-        myCpuTimer = new Timer();
-        myCpuTimer.schedule(new TimerTask() {
+        final int gameCount = myGameCount;
+        myCPUPlayer.clearStop(); // here rather than on the cpu thread, so a stopCpu from now on isn't lost
+        myCpuTask = myCpuThread.submit(new Runnable() {
             public void run()
             {
+                long start = System.currentTimeMillis();
+                int cpuCol = myCPUPlayer.nextMove();
+                // a strategy which answers instantly still waits out the think time, unless it pondered the answer
+                long timeLeft = myCpuThinkTime - (System.currentTimeMillis() - start);
+                if (timeLeft > 0 && !myCPUPlayer.isPonderHit())
+                {
+                    try
+                    {
+                        Thread.sleep(timeLeft);
+                    }
+                    catch(InterruptedException exception)
+                    {
+                        return;
+                    }
+                }
+                if (gameCount != myGameCount) return; // a new game was started while we were thinking
                 myGameBoard.placePiece(cpuCol, myPieces[1]); // place the piece
+                mySnapshot = myGameBoard.snapshot();
                 myView.updateBoard(); // update our board to draw the new piece
                 if (myGameBoard.checkIfWin())
                 {
@@ -178,10 +255,108 @@ public class Controller
                 }
                 myGameEngine.switchPlayerUp();
                 myView.updateBoard();
+                if (myPondering) myCPUPlayer.startPondering(); // think about the human's replies while they do
                 myWait = false;
+                showHints();
                 if (myMouseCurrentColumn != -1) possiblePiece(myMouseCurrentColumn); // -1 would mean the mouse has left the frame
             }  
-        }, 2000);
+        });
+    }
+    
+    /**
+     * Stops any CPU turn in progress and waits for it to finish, so the next turn can't clear the stop before the old
+     * search has seen it, or search on the same engine at the same time.
+     */
+    private void stopCpu()
+    {
+        myGameCount++;
+        if (myCPUPlayer != null) myCPUPlayer.stopThinking();
+        if (myCpuTask != null)
+        {
+            myCpuTask.cancel(true); // wakes it if it is waiting out the think time
+            try
+            {
+                myCpuThread.submit(new Runnable() {
+                    public void run()
+                    {
+                        // nothing to do, the cpu thread only gets here once the cancelled move is over
+                    }
+                }).get();
+            }
+            catch(InterruptedException exception)
+            {
+                Thread.currentThread().interrupt();
+            }
+            catch(ExecutionException exception)
+            {
+                System.out.println(exception.toString());
+            }
+            myCpuTask = null;
+        }
+        this.clearHints();
+    }
+    
+    /**
+     * Turns pondering on or off. The cpu starts pondering after its next move.
+     */
+    public void togglePondering()
+    {
+        myPondering = !myPondering;
+        if (!myPondering && myCPUPlayer != null) myCPUPlayer.stopPondering();
+    }
+    
+    /**
+     * Checks if the cpu ponders.
+     * @return If pondering is on.
+     */
+    public boolean isPondering()
+    {
+        return myPondering;
+    }
+    
+    /**
+     * Turns hints on or off. With hints on, every column is tinted by how good it is on the human's turn.
+     */
+    public void toggleHints()
+    {
+        myHints = !myHints;
+        if (myHints) this.showHints();
+        else this.clearHints();
+    }
+    
+    /**
+     * Checks if hints are shown.
+     * @return If hints are on.
+     */
+    public boolean isShowingHints()
+    {
+        return myHints;
+    }
+    
+    /**
+     * Starts analyzing the position for the human, if hints are on and it is their turn. The columns are tinted
+     * when the analysis is done, unless the board has changed by then.
+     */
+    private void showHints()
+    {
+        if (!myHints || myGameEngine == null || myWait) return;
+        if (myAnalyzer == null) myAnalyzer = new ColumnAnalyzer(Runtime.getRuntime().availableProcessors(), ColumnAnalyzer.DEFAULT_DEPTH);
+        final BoardSnapshot snapshot = mySnapshot;
+        myAnalyzer.analyze(snapshot, myPieces[0], myPieces[1], new ColumnAnalyzer.Listener() {
+            public void analysisDone(ColumnAnalysis analysis)
+            {
+                if (snapshot == mySnapshot) myView.getBoardPanel().setHints(analysis); // otherwise it's for an old position
+            }
+        });
+    }
+    
+    /**
+     * Cancels any analysis and takes the hints off the board.
+     */
+    private void clearHints()
+    {
+        if (myAnalyzer != null) myAnalyzer.cancel();
+        myView.getBoardPanel().setHints(null);
     }
     
     /**
@@ -214,6 +389,16 @@ public class Controller
         return myGameBoard;
     }
     
+    /**
+     * Gets a snapshot of the board after its last change. Unlike the live GameBoard, it can be read
+     * from any thread, even while the cpu is playing.
+     * @return The latest snapshot.
+     */
+    public BoardSnapshot getSnapshot()
+    {
+        return mySnapshot;
+    }
+    
     /**
      * Get GameEngine associated with this listener.
      * @return The GameEngine associated with the listener.
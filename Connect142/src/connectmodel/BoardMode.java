@@ -0,0 +1,32 @@
+/**
+ * A simple enumeration class for the ways a GameBoard can store its pieces.
+ * 
+ * @author Brandon Belna (bbelna@stetson.edu)
+ */
+package connectmodel;
+
+public enum BoardMode
+{
+    DENSE ("Dense"),
+    BITBOARD ("Bitboard"),
+    SPARSE ("Sparse");
+    private final String myMode;
+    
+    /**
+     * Set the name for our specific mode.
+     * @param mode The name of our mode.
+     */
+    private BoardMode(String mode)
+    {
+        myMode = mode;
+    }
+    
+    /**
+     * Get the name of this specific mode.
+     * @return The name of the mode.
+     */
+    public String getMode()
+    {
+        return myMode;
+    }
+}
@@ -0,0 +1,180 @@
+/**
+ * BoardModeCheck plays seeded random games on a board of every BoardMode at once and checks that they all agree after
+ * each move and each undo: the tracked win and a full rescan for one, both hashes, the piece count, the column
+ * heights and every cell of the board. The win points are checked to mark a real run on each board rather than the
+ * same one, since a move that makes a run longer than the win length can be marked anywhere along it. A rescan moves
+ * the win points to the first run it finds, so it is done on a copy. The sizes it plays cover the default board,
+ * boards too big for a bitboard, and SPARSE rows that take more than one 64 bit word. A game is played until it is
+ * won or the board is full, then taken back to the empty board one move at a time.
+ * 
+ * Usage: BoardModeCheck [games] [seed]
+ * 
+ * @author Brandon Belna (bbelna@stetson.edu)
+ */
+package connectmodel;
+
+import java.awt.Point;
+import java.util.Random;
+
+public class BoardModeCheck
+{
+    public static final int DEFAULT_GAMES = 1800;
+    public static final long DEFAULT_SEED = 142L;
+    public static final int[][] SIZES = {{6, 7, 4}, {4, 12, 4}, {8, 9, 5}, {5, 70, 5}, {4, 130, 4}, {3, 3, 3}}; // rows, columns, win length
+    private static final PieceType[] TYPES = {PieceType.RED, PieceType.BLACK};
+    private static final int UNDO_ODDS = 5; // one move in this many is taken back during the game
+    
+    /**
+     * Entry point. Plays the games, stopping at the first disagreement.
+     * @param args Command line arguments: the number of games and the seed, both optional.
+     */
+    public static void main(String[] args)
+    {
+        int games = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_GAMES;
+        long seed = (args.length > 1) ? Long.parseLong(args[1]) : DEFAULT_SEED;
+        Random random = new Random(seed);
+        long moves = 0;
+        for (int game = 0; game < games; game++)
+        {
+            int[] size = SIZES[game % SIZES.length];
+            GameBoard[] boards = createBoards(size[0], size[1], size[2]);
+            String failure = null;
+            int turn = 0;
+            while (failure == null && !boards[0].checkIfWin() && !boards[0].isBoardFull())
+            {
+                int col = random.nextInt(size[1]);
+                if (boards[0].isColumnFull(col)) continue;
+                for (int i = 0; i < boards.length; i++)
+                {
+                    boards[i].placePiece(col, TYPES[turn]);
+                }
+                turn = 1 - turn;
+                moves++;
+                failure = compare(boards, "move " + boards[0].getNumPieces() + " in column " + col);
+                if (failure == null && random.nextInt(UNDO_ODDS) == 0)
+                {
+                    undo(boards);
+                    turn = 1 - turn;
+                    failure = compare(boards, "undo to " + boards[0].getNumPieces() + " pieces");
+                }
+            }
+            while (failure == null && boards[0].canUndo())
+            {
+                undo(boards);
+                failure = compare(boards, "undo to " + boards[0].getNumPieces() + " pieces");
+            }
+            if (failure != null)
+            {
+                System.out.println("game " + game + ", " + size[0] + "x" + size[1] + " connect " + size[2] + ": " + failure);
+                System.exit(1);
+            }
+        }
+        System.out.println(games + " games, " + moves + " moves, every mode agreed");
+    }
+    
+    /**
+     * Makes an empty board of every mode the size can be stored in.
+     * @param rows Number of rows.
+     * @param cols Number of columns.
+     * @param winLength How big a run must be to win.
+     * @return The boards, DENSE first.
+     */
+    private static GameBoard[] createBoards(int rows, int cols, int winLength)
+    {
+        BoardMode[] modes = GameBoard.fitsBitboard(rows, cols) ? new BoardMode[] {BoardMode.DENSE, BoardMode.SPARSE,
+                BoardMode.BITBOARD} : new BoardMode[] {BoardMode.DENSE, BoardMode.SPARSE};
+        GameBoard[] boards = new GameBoard[modes.length];
+        for (int i = 0; i < modes.length; i++)
+        {
+            boards[i] = new GameBoard(rows, cols, winLength, TYPES, modes[i]);
+        }
+        return boards;
+    }
+    
+    /**
+     * Takes the last move back on every board.
+     * @param boards The boards.
+     */
+    private static void undo(GameBoard[] boards)
+    {
+        for (int i = 0; i < boards.length; i++)
+        {
+            boards[i].undoLastMove();
+        }
+    }
+    
+    /**
+     * Compares every board against the first one.
+     * @param boards The boards, the first being DENSE.
+     * @param when What was just done, for the message.
+     * @return What disagreed, or null if they all agree.
+     */
+    private static String compare(GameBoard[] boards, String when)
+    {
+        GameBoard dense = boards[0];
+        if (dense.checkIfWin() != new GameBoard(dense).scanForWin()) return "dense tracked win and rescan disagree after " + when;
+        if (!marksRun(dense)) return "dense win points are wrong after " + when;
+        PieceType[][] denseCells = dense.getBoard();
+        for (int i = 1; i < boards.length; i++)
+        {
+            GameBoard board = boards[i];
+            String mode = board.getMode().getMode().toLowerCase() + " ";
+            if (board.checkIfWin() != dense.checkIfWin()) return mode + "win disagrees after " + when;
+            if (new GameBoard(board).scanForWin() != dense.checkIfWin()) return mode + "rescanned win disagrees after " + when;
+            if (!marksRun(board)) return mode + "win points are wrong after " + when;
+            if (board.getHash() != dense.getHash() || board.getMirrorHash() != dense.getMirrorHash())
+            {
+                return mode + "hash disagrees after " + when;
+            }
+            if (board.getNumPieces() != dense.getNumPieces()) return mode + "piece count disagrees after " + when;
+            PieceType[][] cells = board.getBoard();
+            for (int col = 0; col < dense.getNumColumns(); col++)
+            {
+                if (board.getNextFreeRow(col) != dense.getNextFreeRow(col) || board.isColumnFull(col) != dense.isColumnFull(col))
+                {
+                    return mode + "height of column " + col + " disagrees after " + when;
+                }
+                for (int row = 0; row < dense.getNumRows(); row++)
+                {
+                    if (cells[row][col] != denseCells[row][col])
+                    {
+                        return mode + "cell (" + col + "," + row + ") disagrees after " + when;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Checks that a board's win points mark a run of one type, win length long, in a straight line.
+     * @param board The board.
+     * @return If the points mark a run, or if there is no win and no points.
+     */
+    private static boolean marksRun(GameBoard board)
+    {
+        Point begin = board.getWinBegin();
+        Point end = board.getWinEnd();
+        if (!board.checkIfWin()) return begin == null && end == null;
+        if (begin == null || end == null) return false;
+        int span = board.getWinLength() - 1;
+        int colStep = (span == 0) ? 0 : (end.x - begin.x) / span;
+        int rowStep = (span == 0) ? 0 : (end.y - begin.y) / span;
+        if (Math.abs(colStep) > 1 || Math.abs(rowStep) > 1 || begin.x + span * colStep != end.x
+                || begin.y + span * rowStep != end.y || (span > 0 && colStep == 0 && rowStep == 0))
+        {
+            return false;
+        }
+        PieceType type = board.getPieceOnBoard(begin);
+        for (int k = 0; k <= span; k++)
+        {
+            Point point = new Point(begin.x + k * colStep, begin.y + k * rowStep);
+            if (point.x < 0 || point.x >= board.getNumColumns() || point.y < 0 || point.y >= board.getNumRows()
+                    || type == null || board.getPieceOnBoard(point) != type)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
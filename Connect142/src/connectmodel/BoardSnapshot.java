@@ -0,0 +1,285 @@
+/**
+ * BoardSnapshot is an immutable copy of a GameBoard position, taken with GameBoard.snapshot(). The cells are kept as
+ * a byte each along with the moves that led to them, so a snapshot is cheap to take and small to keep. Nothing in it
+ * ever changes, so once taken it can be handed to background analysis, hints or spectators on any thread and read
+ * without locks, while the game goes on on the live board.
+ * 
+ * @author Brandon Belna (bbelna@stetson.edu)
+ */
+package connectmodel;
+
+import java.awt.Point;
+import java.util.Arrays;
+
+public final class BoardSnapshot
+{
+    private static final PieceType[] PIECE_TYPES = PieceType.values();
+    private final int myNumRows;
+    private final int myNumColumns;
+    private final int myWinLength;
+    private final PieceType[] myTypes;
+    private final BoardMode myMode;
+    private final byte[] myCells; // row * cols + col, the PieceType ordinal plus one, 0 for empty
+    private final int[] myHeights;
+    private final int[] myMoves;
+    private final byte[] myMoveTypes; // the PieceType ordinal of each move
+    private final long myHash;
+    private final long myMirrorHash;
+    private final boolean myIsAWin;
+    private final Point myWinBegin;
+    private final Point myWinEnd;
+    
+    /**
+     * Constructor for the BoardSnapshot. The cells are built from the moves, so any BoardMode costs the same.
+     * @param board The board being snapshotted, for its size and types.
+     * @param moves The columns of the moves on the board, which the snapshot keeps.
+     * @param moveTypes The PieceType ordinals of the moves, which the snapshot keeps.
+     * @param winBegin The beginning of the win, or null.
+     * @param winEnd The end of the win, or null.
+     */
+    BoardSnapshot(GameBoard board, int[] moves, byte[] moveTypes, Point winBegin, Point winEnd)
+    {
+        myNumRows = board.getNumRows();
+        myNumColumns = board.getNumColumns();
+        myWinLength = board.getWinLength();
+        myTypes = board.getTypes().toArray(new PieceType[0]);
+        myMode = board.getMode();
+        myMoves = moves;
+        myMoveTypes = moveTypes;
+        myCells = new byte[myNumRows * myNumColumns];
+        myHeights = new int[myNumColumns];
+        for (int i = 0; i < moves.length; i++)
+        {
+            int col = moves[i];
+            int row = myNumRows - 1 - myHeights[col]++;
+            myCells[row * myNumColumns + col] = (byte) (moveTypes[i] + 1);
+        }
+        myHash = board.getHash();
+        myMirrorHash = board.getMirrorHash();
+        myIsAWin = board.checkIfWin();
+        myWinBegin = (winBegin == null) ? null : new Point(winBegin);
+        myWinEnd = (winEnd == null) ? null : new Point(winEnd);
+    }
+    
+    /**
+     * Makes a new live GameBoard with the snapshot's position, by replaying its moves.
+     * @return The new board, in the same BoardMode as the one snapshotted.
+     */
+    public GameBoard toGameBoard()
+    {
+        GameBoard board = new GameBoard(myNumRows, myNumColumns, myWinLength, myTypes, myMode);
+        for (int i = 0; i < myMoves.length; i++)
+        {
+            board.placePiece(myMoves[i], PIECE_TYPES[myMoveTypes[i]]);
+        }
+        return board;
+    }
+    
+    /**
+     * Gets what piece type is in a cell.
+     * @param row The row, 0 at the top.
+     * @param col The column.
+     * @return The piece type in the cell, or null if it is empty.
+     */
+    public PieceType getPiece(int row, int col)
+    {
+        int cell = myCells[row * myNumColumns + col];
+        return (cell == 0) ? null : PIECE_TYPES[cell - 1];
+    }
+    
+    /**
+     * Returns what piece type is at a position, like GameBoard.getPieceOnBoard.
+     * @param point The point of the piece, in the form (x,y).
+     * @return What piece type is located at (x,y).
+     */
+    public PieceType getPieceOnBoard(Point point)
+    {
+        return this.getPiece(point.y, point.x);
+    }
+    
+    /**
+     * Gets a copy of the board as an array, like GameBoard.getBoard.
+     * @return A new array of the pieces, indexed [row][col].
+     */
+    public PieceType[][] getBoard()
+    {
+        PieceType[][] board = new PieceType[myNumRows][myNumColumns];
+        for (int i = 0; i < myNumRows; i++)
+        {
+            for (int j = 0; j < myNumColumns; j++)
+            {
+                board[i][j] = this.getPiece(i, j);
+            }
+        }
+        return board;
+    }
+    
+    /**
+     * Finds the next free row in the given column.
+     * @param col The column to check.
+     * @return The next free row in the given column. -1 if no such row exists.
+     */
+    public int getNextFreeRow(int col)
+    {
+        return myNumRows - 1 - myHeights[col];
+    }
+    
+    /**
+     * Checks to see if a column is full.
+     * @param col The column to check.
+     * @return If the column is full.
+     */
+    public boolean isColumnFull(int col)
+    {
+        if (col < 0 || col >= myNumColumns) return false;
+        return myHeights[col] == myNumRows;
+    }
+    
+    /**
+     * Checks to see if the board was full.
+     * @return Whether or not the board was full.
+     */
+    public boolean isBoardFull()
+    {
+        return myMoves.length == myNumRows * myNumColumns;
+    }
+    
+    /**
+     * Checks if there was a victory.
+     * @return Whether there was a victory or not.
+     */
+    public boolean checkIfWin()
+    {
+        return myIsAWin;
+    }
+    
+    /**
+     * Returns the beginning of the win.
+     * @return A copy of the beginning of the win. Null if there was no win.
+     */
+    public Point getWinBegin()
+    {
+        return (myWinBegin == null) ? null : new Point(myWinBegin);
+    }
+    
+    /**
+     * Returns the end of the win.
+     * @return A copy of the end of the win. Null if there was no win.
+     */
+    public Point getWinEnd()
+    {
+        return (myWinEnd == null) ? null : new Point(myWinEnd);
+    }
+    
+    /**
+     * Gets the moves that led to the position.
+     * @return A copy of the column of every move, oldest first.
+     */
+    public int[] getMoveHistory()
+    {
+        return myMoves.clone();
+    }
+    
+    /**
+     * Gets how many pieces were on the board.
+     * @return The number of pieces.
+     */
+    public int getNumPieces()
+    {
+        return myMoves.length;
+    }
+    
+    /**
+     * Gets the Zobrist hash of the position, the same as the board's when the snapshot was taken.
+     * @return The hash of the position.
+     */
+    public long getHash()
+    {
+        return myHash;
+    }
+    
+    /**
+     * Gets the Zobrist hash of the position flipped left to right, as GameBoard.getMirrorHash.
+     * @return The hash of the mirror image of the position.
+     */
+    public long getMirrorHash()
+    {
+        return myMirrorHash;
+    }
+    
+    /**
+     * Gets the hash the position shares with its mirror image, as GameBoard.getCanonicalHash.
+     * @return The smaller of the hash and the mirror hash.
+     */
+    public long getCanonicalHash()
+    {
+        return Math.min(myHash, myMirrorHash);
+    }
+    
+    /**
+     * Checks if the canonical hash is the mirror image's, as GameBoard.isCanonicalMirrored.
+     * @return If getCanonicalHash is the mirror hash.
+     */
+    public boolean isCanonicalMirrored()
+    {
+        return myMirrorHash < myHash;
+    }
+    
+    /**
+     * Gets the number of rows on the board.
+     * @return The number of rows.
+     */
+    public int getNumRows()
+    {
+        return myNumRows;
+    }
+    
+    /**
+     * Gets the number of columns on the board.
+     * @return The number of columns.
+     */
+    public int getNumColumns()
+    {
+        return myNumColumns;
+    }
+    
+    /**
+     * Gets how big a run must be to win.
+     * @return The win length.
+     */
+    public int getWinLength()
+    {
+        return myWinLength;
+    }
+    
+    /**
+     * Gets the piece types of the board.
+     * @return A copy of the piece types.
+     */
+    public PieceType[] getTypes()
+    {
+        return myTypes.clone();
+    }
+    
+    /**
+     * Checks if two snapshots hold the same position.
+     * @param other The other object.
+     * @return If the other is a snapshot of the same size and pieces.
+     */
+    public boolean equals(Object other)
+    {
+        if (!(other instanceof BoardSnapshot)) return false;
+        BoardSnapshot snapshot = (BoardSnapshot) other;
+        return myHash == snapshot.myHash && myNumRows == snapshot.myNumRows && myNumColumns == snapshot.myNumColumns
+                && myWinLength == snapshot.myWinLength && Arrays.equals(myCells, snapshot.myCells);
+    }
+    
+    /**
+     * Hashes the snapshot by its position.
+     * @return The hash code.
+     */
+    public int hashCode()
+    {
+        return (int) (myHash ^ (myHash >>> 32));
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * BruteForcePerft is the independent check on Perft and its known counts. It counts the same tree of moves without
+ * anything from GameBoard: a plain grid of ints, a height for each column, and a win check that walks out from the
+ * piece just placed. Its main counts each depth this way, and with Perft on a board of every BoardMode the size fits,
+ * and fails if any of them disagree with each other or with Perft.KNOWN_COUNTS.
+ * 
+ * Usage: BruteForcePerft [depth] [rows] [columns] [win length]
+ * 
+ * @author Brandon Belna (bbelna@stetson.edu)
+ */
+package connectmodel;
+
+import connectcontrol.Controller;
+import connectview.ConnectView;
+
+public class BruteForcePerft
+{
+    public static final int DEFAULT_DEPTH = 8;
+    private static final PieceType[] TYPES = {PieceType.RED, PieceType.BLACK};
+    private static final int[][] STEPS = {{0, 1}, {1, 0}, {1, 1}, {1, -1}}; // row step and column step
+    private int myNumRows;
+    private int myNumColumns;
+    private int myWinLength;
+    private int[][] myGrid; // 0 for empty, otherwise the player, 1 or 2. row 0 is the bottom
+    private int[] myHeights;
+    private int myNumPieces;
+    
+    /**
+     * Constructor for the BruteForcePerft. The grid starts out empty.
+     * @param rows Number of rows.
+     * @param cols Number of columns.
+     * @param winLength How big a run must be to win.
+     */
+    public BruteForcePerft(int rows, int cols, int winLength)
+    {
+        myNumRows = rows;
+        myNumColumns = cols;
+        myWinLength = winLength;
+        myGrid = new int[rows][cols];
+        myHeights = new int[cols];
+    }
+    
+    /**
+     * Entry point. Counts the board to each depth in turn, brute force and with Perft in every mode.
+     * @param args Command line arguments: depth, rows, columns and win length, all optional.
+     */
+    public static void main(String[] args)
+    {
+        int depth = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_DEPTH;
+        int rows = (args.length > 1) ? Integer.parseInt(args[1]) : ConnectView.myRows;
+        int cols = (args.length > 2) ? Integer.parseInt(args[2]) : ConnectView.myColumns;
+        int winLength = (args.length > 3) ? Integer.parseInt(args[3]) : Controller.myWinLength;
+        boolean known = (rows == 6 && cols == 7 && winLength == 4);
+        BruteForcePerft brute = new BruteForcePerft(rows, cols, winLength);
+        Perft perft = new Perft(1);
+        BoardMode[] modes = BoardMode.values();
+        boolean passed = true;
+        for (int d = 1; d <= depth; d++)
+        {
+            long count = brute.count(d);
+            StringBuilder line = new StringBuilder("perft(" + d + ") = " + count + " brute force");
+            if (known && d < Perft.KNOWN_COUNTS.length)
+            {
+                line.append((count == Perft.KNOWN_COUNTS[d]) ? ", known ok" : ", known WRONG (" + Perft.KNOWN_COUNTS[d] + ")");
+                passed &= (count == Perft.KNOWN_COUNTS[d]);
+            }
+            for (int i = 0; i < modes.length; i++)
+            {
+                if (modes[i] == BoardMode.BITBOARD && !GameBoard.fitsBitboard(rows, cols)) continue;
+                long modeCount = perft.count(new GameBoard(rows, cols, winLength, TYPES, modes[i]), TYPES[0], TYPES[1], d);
+                line.append(", " + modes[i].getMode().toLowerCase() + ((modeCount == count) ? " ok" : " WRONG (" + modeCount + ")"));
+                passed &= (modeCount == count);
+            }
+            System.out.println(line);
+        }
+        if (!passed) System.exit(1);
+    }
+    
+    /**
+     * Counts the positions a given number of moves away from the empty board.
+     * @param depth How many moves to look ahead.
+     * @return The number of positions at that depth.
+     */
+    public long count(int depth)
+    {
+        return this.count(depth, 1);
+    }
+    
+    /**
+     * Counts by making every move on the grid and taking it back.
+     * @param depth How many moves are left.
+     * @param player The player to move, 1 or 2.
+     * @return The number of positions at the depth.
+     */
+    private long count(int depth, int player)
+    {
+        if (depth == 0) return 1;
+        long count = 0;
+        for (int col = 0; col < myNumColumns; col++)
+        {
+            int row = myHeights[col];
+            if (row == myNumRows) continue;
+            myGrid[row][col] = player;
+            myHeights[col]++;
+            myNumPieces++;
+            if (depth == 1) count++;
+            else if (!this.wins(row, col) && myNumPieces < myNumRows * myNumColumns) count += this.count(depth - 1, 3 - player);
+            myNumPieces--;
+            myHeights[col]--;
+            myGrid[row][col] = 0;
+        }
+        return count;
+    }
+    
+    /**
+     * Checks if the piece in a cell is part of a run long enough to win.
+     * @param row The row of the piece, 0 on the bottom.
+     * @param col The column of the piece.
+     * @return If it makes a win.
+     */
+    private boolean wins(int row, int col)
+    {
+        int player = myGrid[row][col];
+        for (int s = 0; s < STEPS.length; s++)
+        {
+            int run = 1;
+            for (int sign = -1; sign <= 1; sign += 2)
+            {
+                int r = row + sign * STEPS[s][0];
+                int c = col + sign * STEPS[s][1];
+                while (r >= 0 && r < myNumRows && c >= 0 && c < myNumColumns && myGrid[r][c] == player)
+                {
+                    run++;
+                    r += sign * STEPS[s][0];
+                    c += sign * STEPS[s][1];
+                }
+            }
+            if (run >= myWinLength) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * ColumnAnalysis is what the ColumnAnalyzer found out about every column of a position: the search score of playing
+ * there for the player to move, and whether that is a forced win, a forced loss, a certain draw or still unknown.
+ * Like a BoardSnapshot it never changes once made, so it can be cached and read on any thread.
+ * 
+ * @author Brandon Belna (bbelna@stetson.edu)
+ */
+package connectmodel;
+
+public final class ColumnAnalysis
+{
+    /**
+     * What playing a column leads to, with best play from both sides after.
+     */
+    public enum Outcome
+    {
+        WIN, LOSS, DRAW, UNKNOWN
+    }
+    
+    private final PieceType myType;
+    private final int myDepth;
+    private final int[] myScores;
+    private final Outcome[] myOutcomes; // null for a column that can't be played
+    
+    /**
+     * Constructor for the ColumnAnalysis. The arrays are kept, not copied.
+     * @param type The PieceType of the player to move.
+     * @param depth How many plies each column was searched, its own move included.
+     * @param scores The score of each column, from the point of view of the player to move.
+     * @param outcomes The outcome of each column, null where the column is full.
+     */
+    ColumnAnalysis(PieceType type, int depth, int[] scores, Outcome[] outcomes)
+    {
+        myType = type;
+        myDepth = depth;
+        myScores = scores;
+        myOutcomes = outcomes;
+    }
+    
+    /**
+     * Checks if a column could be played.
+     * @param col The column.
+     * @return If the column was open, and so has a score.
+     */
+    public boolean isLegal(int col)
+    {
+        return myOutcomes[col] != null;
+    }
+    
+    /**
+     * Gets the score of a column. Scores beyond SearchEngine.WIN_SCORE / 2 either way are forced wins or losses,
+     * the bigger the sooner.
+     * @param col The column.
+     * @return The score, from the point of view of the player to move, or 0 if the column is full.
+     */
+    public int getScore(int col)
+    {
+        return myScores[col];
+    }
+    
+    /**
+     * Gets what playing a column leads to.
+     * @param col The column.
+     * @return The outcome, or null if the column is full.
+     */
+    public Outcome getOutcome(int col)
+    {
+        return myOutcomes[col];
+    }
+    
+    /**
+     * Gets the best column to play, the first of the highest scored on a tie.
+     * @return The column, or -1 if no column could be played.
+     */
+    public int getBestColumn()
+    {
+        int best = -1;
+        for (int col = 0; col < myScores.length; col++)
+        {
+            if (myOutcomes[col] != null && (best == -1 || myScores[col] > myScores[best])) best = col;
+        }
+        return best;
+    }
+    
+    /**
+     * Gets the player the analysis is for.
+     * @return The PieceType of the player to move.
+     */
+    public PieceType getType()
+    {
+        return myType;
+    }
+    
+    /**
+     * Gets how deep the columns were searched.
+     * @return The depth in plies, counting the column's own move.
+     */
+    public int getDepth()
+    {
+        return myDepth;
+    }
+    
+    /**
+     * Gets the number of columns.
+     * @return The number of columns of the board analyzed.
+     */
+    public int getNumColumns()
+    {
+        return myScores.length;
+    }
+    
+    /**
+     * Makes the analysis of the mirror image of the position, with every column's result moved to the other side.
+     * @return The mirrored analysis.
+     */
+    public ColumnAnalysis mirror()
+    {
+        int cols = myScores.length;
+        int[] scores = new int[cols];
+        Outcome[] outcomes = new Outcome[cols];
+        for (int col = 0; col < cols; col++)
+        {
+            scores[cols - 1 - col] = myScores[col];
+            outcomes[cols - 1 - col] = myOutcomes[col];
+        }
+        return new ColumnAnalysis(myType, myDepth, scores, outcomes);
+    }
+    
+    /**
+     * Lists the columns' outcomes and scores on one line.
+     * @return The analysis, like "0:UNKNOWN(-12) 1:WIN(999993) ...", with full columns left out.
+     */
+    public String toString()
+    {
+        StringBuilder line = new StringBuilder();
+        for (int col = 0; col < myScores.length; col++)
+        {
+            if (myOutcomes[col] == null) continue;
+            if (line.length() > 0) line.append(' ');
+            line.append(col).append(':').append(myOutcomes[col]).append('(').append(myScores[col]).append(')');
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,356 @@
+/**
+ * ColumnAnalyzer scores every column of a position at once, for hints. Each open column is played on its own copy
+ * of the board and searched as its own task on a pool of threads, all of them sharing one TranspositionTable. The
+ * analysis runs in the background: analyze returns at once, and the listener hears about the result from a pool
+ * thread when the last column is done. Asking about a new position cancels the one being worked on, since the board
+ * has moved on, and finished analyses are cached by position so going back to one is free. The cache is keyed by the
+ * canonical hash, so a position and its mirror image share one entry, stored the way round the canonical hash is.
+ * 
+ * @author Brandon Belna (bbelna@stetson.edu)
+ */
+package connectmodel;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ColumnAnalyzer
+{
+    public static final int DEFAULT_DEPTH = SearchEngine.DEFAULT_DEPTH;
+    public static final int DEFAULT_MEGABYTES = 8;
+    public static final int MAX_CACHED = 256; // analyses kept, the least recently used go first
+    
+    /**
+     * Hears about finished analyses.
+     */
+    public interface Listener
+    {
+        /**
+         * Called when an analysis is done, on a pool thread, or on the caller's thread if it was cached.
+         * @param analysis The analysis.
+         */
+        void analysisDone(ColumnAnalysis analysis);
+    }
+    
+    private int myDepth;
+    private ForkJoinPool myPool;
+    private TranspositionTable myTable;
+    private String myTableKey; // the board shape the table's entries are for
+    private Map<String, ColumnAnalysis> myCache;
+    private Job myJob; // the analysis being worked on, or null
+    private long myAnalyses;
+    private long myCacheHits;
+    
+    /**
+     * Constructor for the ColumnAnalyzer.
+     * @param threads How many columns to search at once.
+     * @param depth How many plies to search each column, its own move included.
+     */
+    public ColumnAnalyzer(int threads, int depth)
+    {
+        myDepth = Math.max(1, depth);
+        myPool = new ForkJoinPool(Math.max(1, threads)); // its threads are daemons, so they don't keep the game open
+        myCache = new LinkedHashMap<String, ColumnAnalysis>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<String, ColumnAnalysis> eldest)
+            {
+                return size() > MAX_CACHED;
+            }
+        };
+    }
+    
+    /**
+     * Starts analyzing a position, or hands back the analysis if it is cached or already being worked on. Any
+     * analysis of a different position is cancelled.
+     * @param snapshot The position.
+     * @param type The PieceType of the player to move.
+     * @param opponentType The PieceType of the other player.
+     * @param listener Told when the analysis is done, or null.
+     * @return The analysis to come. Cancelling it cancels the analysis.
+     */
+    public synchronized Future<ColumnAnalysis> analyze(BoardSnapshot snapshot, PieceType type, PieceType opponentType, Listener listener)
+    {
+        String key = snapshot.getNumRows() + "x" + snapshot.getNumColumns() + "x" + snapshot.getWinLength() + ":" + type + ":"
+                + snapshot.getNumPieces() + ":" + snapshot.getCanonicalHash();
+        ColumnAnalysis cached = myCache.get(key);
+        if (cached != null)
+        {
+            myCacheHits++;
+            if (snapshot.isCanonicalMirrored()) cached = cached.mirror();
+            if (listener != null) listener.analysisDone(cached);
+            return CompletableFuture.completedFuture(cached);
+        }
+        if (myJob != null && myJob.myKey.equals(key) && myJob.mySnapshot.isCanonicalMirrored() == snapshot.isCanonicalMirrored()
+                && !myJob.myFuture.isDone())
+        {
+            myJob.myListener = listener; // the same position the same way round, so just tell the new listener instead
+            return myJob.myFuture;
+        }
+        this.cancel();
+        // the table's entries only make sense for one board shape, the cells' keys are only told apart by their index
+        String tableKey = snapshot.getNumRows() + "x" + snapshot.getNumColumns() + "x" + snapshot.getWinLength();
+        if (!tableKey.equals(myTableKey))
+        {
+            myTable = new TranspositionTable(DEFAULT_MEGABYTES); // a new table, not a cleared one, since cancelled searches may still be writing
+            myTableKey = tableKey;
+        }
+        myAnalyses++;
+        myJob = new Job(key, snapshot, type, opponentType, listener);
+        myJob.start();
+        return myJob.myFuture;
+    }
+    
+    /**
+     * Starts analyzing the position on a board. The board is snapshotted, so the game can go on on it.
+     * @param board The board.
+     * @param type The PieceType of the player to move.
+     * @param opponentType The PieceType of the other player.
+     * @param listener Told when the analysis is done, or null.
+     * @return The analysis to come.
+     */
+    public Future<ColumnAnalysis> analyze(GameBoard board, PieceType type, PieceType opponentType, Listener listener)
+    {
+        return this.analyze(board.snapshot(), type, opponentType, listener);
+    }
+    
+    /**
+     * Cancels the analysis being worked on, if there is one. Its listener isn't told.
+     */
+    public synchronized void cancel()
+    {
+        if (myJob == null) return;
+        Job job = myJob;
+        myJob = null;
+        job.cancel();
+    }
+    
+    /**
+     * Finishes a job: caches its analysis and tells its listener, unless it was cancelled first.
+     * @param job The job.
+     * @param analysis What it found.
+     */
+    private void finish(Job job, ColumnAnalysis analysis)
+    {
+        Listener listener;
+        synchronized (this)
+        {
+            if (job.myIsCancelled) return;
+            myCache.put(job.myKey, job.mySnapshot.isCanonicalMirrored() ? analysis.mirror() : analysis);
+            if (myJob == job) myJob = null;
+            listener = job.myListener;
+        }
+        job.myFuture.complete(analysis);
+        if (listener != null) listener.analysisDone(analysis); // outside the lock, the listener may ask for more
+    }
+    
+    /**
+     * Gets how many analyses have been started, not counting the ones found in the cache.
+     * @return The number of analyses.
+     */
+    public synchronized long getAnalysisCount()
+    {
+        return myAnalyses;
+    }
+    
+    /**
+     * Gets how many analyses were found in the cache.
+     * @return The number of cache hits.
+     */
+    public synchronized long getCacheHits()
+    {
+        return myCacheHits;
+    }
+    
+    /**
+     * Empties the cache.
+     */
+    public synchronized void clearCache()
+    {
+        myCache.clear();
+    }
+    
+    /**
+     * Gets how deep each column is searched.
+     * @return The depth in plies, the column's own move included.
+     */
+    public synchronized int getDepth()
+    {
+        return myDepth;
+    }
+    
+    /**
+     * Sets how deep each column is searched. Cached analyses of other depths are thrown away.
+     * @param depth The new depth in plies, the column's own move included.
+     */
+    public synchronized void setDepth(int depth)
+    {
+        myDepth = Math.max(1, depth);
+        myCache.clear();
+    }
+    
+    /**
+     * Cancels any analysis and shuts the pool down.
+     */
+    public void shutdown()
+    {
+        this.cancel();
+        myPool.shutdown();
+    }
+    
+    /**
+     * One analysis: a task for every open column, the last one to finish putting the results together.
+     */
+    private class Job
+    {
+        private String myKey;
+        private BoardSnapshot mySnapshot;
+        private PieceType myType;
+        private PieceType myOpponentType;
+        private Listener myListener;
+        private int myJobDepth;
+        private TranspositionTable myJobTable;
+        private SearchEngine[] myEngines;
+        private int[] myScores;
+        private ColumnAnalysis.Outcome[] myOutcomes;
+        private AtomicInteger myColumnsLeft;
+        private CompletableFuture<ColumnAnalysis> myFuture;
+        private volatile boolean myIsCancelled;
+        
+        /**
+         * Constructor for the Job.
+         * @param key The position's cache key.
+         * @param snapshot The position.
+         * @param type The PieceType of the player to move.
+         * @param opponentType The PieceType of the other player.
+         * @param listener Told when the analysis is done, or null.
+         */
+        Job(String key, BoardSnapshot snapshot, PieceType type, PieceType opponentType, Listener listener)
+        {
+            myKey = key;
+            mySnapshot = snapshot;
+            myType = type;
+            myOpponentType = opponentType;
+            myListener = listener;
+            myJobDepth = myDepth;
+            myJobTable = myTable;
+            myEngines = new SearchEngine[snapshot.getNumColumns()];
+            myScores = new int[snapshot.getNumColumns()];
+            myOutcomes = new ColumnAnalysis.Outcome[snapshot.getNumColumns()];
+            myFuture = new CompletableFuture<ColumnAnalysis>() {
+                public boolean cancel(boolean mayInterruptIfRunning)
+                {
+                    ColumnAnalyzer.this.cancel(Job.this);
+                    return super.cancel(mayInterruptIfRunning);
+                }
+            };
+        }
+        
+        /**
+         * Hands a task for every open column to the pool.
+         */
+        void start()
+        {
+            int open = 0;
+            for (int col = 0; col < myScores.length; col++)
+            {
+                if (!mySnapshot.isColumnFull(col)) open++;
+            }
+            myColumnsLeft = new AtomicInteger(open);
+            if (open == 0 || mySnapshot.checkIfWin()) // a finished game has nothing to play
+            {
+                myPool.execute(new Runnable() {
+                    public void run()
+                    {
+                        finish(Job.this, new ColumnAnalysis(myType, myJobDepth, myScores, myOutcomes));
+                    }
+                });
+                return;
+            }
+            int[] order = SearchEngine.centerFirstOrder(myScores.length); // the likely best columns come back first
+            for (int i = 0; i < order.length; i++)
+            {
+                final int col = order[i];
+                if (mySnapshot.isColumnFull(col)) continue;
+                myEngines[col] = new SearchEngine(Math.max(1, myJobDepth - 1));
+                myEngines[col].setTranspositionTable(myJobTable);
+                myPool.execute(new Runnable() {
+                    public void run()
+                    {
+                        try
+                        {
+                            analyzeColumn(col);
+                        }
+                        catch(RuntimeException exception)
+                        {
+                            myFuture.completeExceptionally(exception); // or whoever waits on it would wait forever
+                        }
+                    }
+                });
+            }
+        }
+        
+        /**
+         * Plays a column and searches the opponent's replies, then finishes the job if it was the last column.
+         * @param col The column.
+         */
+        private void analyzeColumn(int col)
+        {
+            if (myIsCancelled) return;
+            GameBoard child = mySnapshot.toGameBoard();
+            child.placePiece(col, myType);
+            int emptyCells = child.getNumRows() * child.getNumColumns() - child.getNumPieces();
+            if (child.checkIfWin())
+            {
+                myScores[col] = SearchEngine.WIN_SCORE - 1; // a win right away
+                myOutcomes[col] = ColumnAnalysis.Outcome.WIN;
+            }
+            else if (emptyCells == 0 || myJobDepth <= 1)
+            {
+                myScores[col] = 0;
+                myOutcomes[col] = (emptyCells == 0) ? ColumnAnalysis.Outcome.DRAW : ColumnAnalysis.Outcome.UNKNOWN;
+            }
+            else
+            {
+                SearchEngine engine = myEngines[col];
+                engine.findBestMove(child, myOpponentType, myType);
+                if (myIsCancelled) return;
+                // the engine scored it for the opponent, one ply further from our root
+                int score = -engine.getLastScore();
+                if (score > SearchEngine.WIN_SCORE / 2) score--;
+                if (score < -SearchEngine.WIN_SCORE / 2) score++;
+                myScores[col] = score;
+                if (score > SearchEngine.WIN_SCORE / 2) myOutcomes[col] = ColumnAnalysis.Outcome.WIN;
+                else if (score < -SearchEngine.WIN_SCORE / 2) myOutcomes[col] = ColumnAnalysis.Outcome.LOSS;
+                else if (engine.getDepthReached() >= emptyCells) myOutcomes[col] = ColumnAnalysis.Outcome.DRAW; // searched to the end
+                else myOutcomes[col] = ColumnAnalysis.Outcome.UNKNOWN;
+            }
+            // the counter's write and read order the other columns' results before the last one reads them
+            if (myColumnsLeft.decrementAndGet() == 0) finish(this, new ColumnAnalysis(myType, myJobDepth, myScores, myOutcomes));
+        }
+        
+        /**
+         * Stops every column's search as soon as it can.
+         */
+        void cancel()
+        {
+            myIsCancelled = true;
+            for (int i = 0; i < myEngines.length; i++)
+            {
+                if (myEngines[i] != null) myEngines[i].stop();
+            }
+            myFuture.cancel(false);
+        }
+    }
+    
+    /**
+     * Cancels a job through its future, if it is still the one being worked on.
+     * @param job The job.
+     */
+    private synchronized void cancel(Job job)
+    {
+        if (myJob == job) this.cancel();
+        else job.myIsCancelled = true;
+    }
+}
@@ -5,15 +5,28 @@
  */
 package connectmodel;
 
-/*
- * This class may not be necessary...
- */
+import java.util.Random;
 
 public class ComputerPlayer extends Player
 {
     private GameBoard myGameBoard;
+    private Strategy myStrategy;
+    private SearchEngine mySearchEngine;
+    private ParallelSearch myParallelSearch; // only made once the parallel strategy is picked
+    private MonteCarloSearch myMonteCarloSearch; // likewise for the Monte Carlo strategy
+    private MultiPlayerSearch myMultiPlayerSearch; // likewise for games of more than two players
+    private Ponderer myPonderer; // only made once the AI is asked to ponder
+    private boolean myIsPonderHit; // if the last move came straight from pondering
+    private int myLastDepthReached; // how deep the last real search went, pondered answers have to be as deep
+    private OpeningBook myOpeningBook;
+    private Random myRandom;
+    private PieceType myOpponentType;
+    private PieceType[] myOpponentTypes; // everyone else in the order they play after us, for games of more than two
+    private long myThinkTime; // milliseconds to search for, 0 searches to a fixed depth
+    private SearchStats myStats; // what the ALPHA_BETA and PARALLEL_ALPHA_BETA searches did
+    
     /**
-     * AI Constructor.
+     * AI Constructor. The AI starts out using the heuristic strategy.
      * @param name Name of the AI.
      * @param type The PieceType for the AI to use.
      */
@@ -21,14 +34,410 @@ public class ComputerPlayer extends Player
     {
         super(name, type);
         myGameBoard = board;
+        myStrategy = Strategy.HEURISTIC;
+        mySearchEngine = new SearchEngine(SearchEngine.DEFAULT_DEPTH);
+        myRandom = new Random();
+        myStats = new SearchStats();
     }
+    
     /**
-     * This is supposed to figure out the next move the AI, however, this is done in GameBoard
-     * under findNextBestMoveColumn, so...
+     * Figures out the next move of the AI using its current strategy. HEURISTIC uses findBestMoveColumn in
+     * GameBoard, ALPHA_BETA searches the game tree with the SearchEngine, deepening until the think time is
+     * up if one is set. PARALLEL_ALPHA_BETA does the same search on every core with the ParallelSearch.
+     * MONTE_CARLO runs playouts with the MonteCarloSearch, for the think time if one is set. RANDOM picks any
+     * open column. The searching strategies play straight from the opening book while the position is in it.
+     * With more than one opponent, every searching strategy uses the MultiPlayerSearch instead. Any pondering
+     * is stopped first, and ALPHA_BETA plays a pondered answer straight away if it was searched deep enough.
+     * The alpha-beta searches, book moves and ponder hits are counted in the SearchStats.
      * @return The column for the AI to place its token.
      */
     public int nextMove()
     {
+        this.stopPondering();
+        myIsPonderHit = false;
+        if (myStrategy == Strategy.RANDOM) return this.randomMove();
+        if (myStrategy != Strategy.HEURISTIC && myOpponentTypes != null && myOpponentTypes.length > 1)
+        {
+            MultiPlayerSearch search = this.getMultiPlayerSearch();
+            PieceType[] turnOrder = new PieceType[myOpponentTypes.length + 1];
+            turnOrder[0] = myPieceType;
+            System.arraycopy(myOpponentTypes, 0, turnOrder, 1, myOpponentTypes.length);
+            if (myThinkTime > 0) return search.findBestMove(myGameBoard, turnOrder, myThinkTime);
+            return search.findBestMove(myGameBoard, turnOrder);
+        }
+        if (myStrategy != Strategy.HEURISTIC && myOpeningBook != null && myOpeningBook.covers(myGameBoard))
+        {
+            int bookMove = myOpeningBook.lookup(myGameBoard, myPieceType);
+            if (bookMove != -1 && !myGameBoard.isColumnFull(bookMove))
+            {
+                myStats.bookMove();
+                return bookMove;
+            }
+        }
+        if (myStrategy == Strategy.MONTE_CARLO)
+        {
+            MonteCarloSearch search = this.getMonteCarloSearch();
+            if (myThinkTime > 0) return search.findBestMove(myGameBoard, myPieceType, this.getOpponentType(), myThinkTime);
+            return search.findBestMove(myGameBoard, myPieceType, this.getOpponentType());
+        }
+        if (myStrategy == Strategy.PARALLEL_ALPHA_BETA)
+        {
+            ParallelSearch search = this.getParallelSearch();
+            TranspositionTable table = search.isDeterministic() ? null : search.getTranspositionTable(); // a root split has a table per column
+            long hits = (table == null) ? 0 : table.getHits();
+            long misses = (table == null) ? 0 : table.getMisses();
+            long start = System.nanoTime();
+            int move;
+            if (myThinkTime > 0) move = search.findBestMove(myGameBoard, myPieceType, this.getOpponentType(), myThinkTime);
+            else move = search.findBestMove(myGameBoard, myPieceType, this.getOpponentType());
+            if (table != null)
+            {
+                hits = table.getHits() - hits;
+                misses = table.getMisses() - misses;
+            }
+            int depth = search.getDepthReached();
+            if (move != -1) myStats.searched(search.getNodeCount(), depth, System.nanoTime() - start, hits, hits + misses,
+                    (depth == 0) ? 0.0 : Math.pow(search.getNodeCount(), 1.0 / depth)); // only the total nodes are known
+            return move;
+        }
+        if (myStrategy == Strategy.ALPHA_BETA)
+        {
+            if (myPonderer != null)
+            {
+                int ponderedMove = myPonderer.getAnswer(myGameBoard, Math.max(myLastDepthReached, mySearchEngine.getDepth()));
+                myIsPonderHit = (ponderedMove != -1 && !myGameBoard.isColumnFull(ponderedMove));
+                if (myIsPonderHit)
+                {
+                    myStats.ponderHit();
+                    return ponderedMove;
+                }
+            }
+            TranspositionTable table = mySearchEngine.getTranspositionTable();
+            long hits = (table == null) ? 0 : table.getHits();
+            long misses = (table == null) ? 0 : table.getMisses();
+            long start = System.nanoTime();
+            int move;
+            if (myThinkTime > 0) move = mySearchEngine.findBestMove(myGameBoard, myPieceType, this.getOpponentType(), myThinkTime);
+            else move = mySearchEngine.findBestMove(myGameBoard, myPieceType, this.getOpponentType());
+            if (move != -1) myStats.searched(mySearchEngine, System.nanoTime() - start, hits, misses); // a new table starts at 0 anyway
+            myLastDepthReached = mySearchEngine.getDepthReached();
+            return move;
+        }
         return myGameBoard.findBestMoveColumn(myPieceType);
     }
-}
\ No newline at end of file
+    
+    /**
+     * Picks an open column at random.
+     * @return The column, or -1 if the board is full.
+     */
+    private int randomMove()
+    {
+        int open = 0;
+        for (int i = 0; i < myGameBoard.getNumColumns(); i++)
+        {
+            if (!myGameBoard.isColumnFull(i)) open++;
+        }
+        if (open == 0) return -1;
+        int pick = myRandom.nextInt(open);
+        for (int i = 0; i < myGameBoard.getNumColumns(); i++)
+        {
+            if (!myGameBoard.isColumnFull(i) && pick-- == 0) return i;
+        }
+        return -1;
+    }
+    
+    /**
+     * Sets the seed of the random numbers used by the RANDOM strategy, so its games can be repeated.
+     * @param seed The new seed.
+     */
+    public void setRandomSeed(long seed)
+    {
+        myRandom.setSeed(seed);
+    }
+    
+    /**
+     * Gets the PieceType of the opponent. If none has been set, the first other type on the board is used.
+     * @return The PieceType of the opponent.
+     */
+    public PieceType getOpponentType()
+    {
+        if (myOpponentType != null && myOpponentType != myPieceType) return myOpponentType;
+        for (int i = 0; i < myGameBoard.getTypes().size(); i++)
+        {
+            if (myGameBoard.getTypes().get(i) != myPieceType) return myGameBoard.getTypes().get(i);
+        }
+        return null;
+    }
+    
+    /**
+     * Sets the PieceType of the opponent.
+     * @param type The PieceType of the opponent.
+     */
+    public void setOpponentType(PieceType type)
+    {
+        myOpponentType = type;
+    }
+    
+    /**
+     * Gets the PieceTypes of all the opponents.
+     * @return The opponents in the order they play after the AI, or null if only one has been set.
+     */
+    public PieceType[] getOpponentTypes()
+    {
+        return myOpponentTypes;
+    }
+    
+    /**
+     * Sets the PieceTypes of all the opponents. With more than one, the AI searches with the MultiPlayerSearch.
+     * @param types The opponents in the order they play after the AI.
+     */
+    public void setOpponentTypes(PieceType[] types)
+    {
+        myOpponentTypes = types;
+    }
+    
+    /**
+     * Gets the strategy the AI is using.
+     * @return The current strategy.
+     */
+    public Strategy getStrategy()
+    {
+        return myStrategy;
+    }
+    
+    /**
+     * Sets the strategy for the AI to use.
+     * @param strategy The new strategy.
+     */
+    public void setStrategy(Strategy strategy)
+    {
+        myStrategy = strategy;
+    }
+    
+    /**
+     * Sets the AI up from a strategy string, the way the arena and the server name their cpus: "heuristic", "random",
+     * "search:depth", "timed:millis", "parallel:depth", "mcts:playouts" or "mctstimed:millis".
+     * @param strategy The strategy string.
+     */
+    public void configure(String strategy)
+    {
+        myStrategy = parseStrategy(strategy);
+        String name = strategy.split(":")[0];
+        int value = (myStrategy == Strategy.HEURISTIC || myStrategy == Strategy.RANDOM) ? 0 : parseStrategyValue(strategy);
+        myThinkTime = (name.equals("timed") || name.equals("mctstimed")) ? value : 0;
+        if (name.equals("search")) mySearchEngine.setDepth(value);
+        else if (name.equals("parallel")) this.getParallelSearch().setDepth(value);
+        else if (name.equals("mcts")) this.getMonteCarloSearch().setPlayouts(value);
+    }
+    
+    /**
+     * Gets the strategy a strategy string names, without setting anything up.
+     * @param strategy The strategy string, as for configure.
+     * @return The strategy.
+     */
+    public static Strategy parseStrategy(String strategy)
+    {
+        String name = strategy.split(":")[0];
+        if (name.equals("heuristic")) return Strategy.HEURISTIC;
+        if (name.equals("random")) return Strategy.RANDOM;
+        if (name.equals("search") || name.equals("timed")) return Strategy.ALPHA_BETA;
+        if (name.equals("parallel")) return Strategy.PARALLEL_ALPHA_BETA;
+        if (name.equals("mcts") || name.equals("mctstimed")) return Strategy.MONTE_CARLO;
+        throw new IllegalArgumentException("Unknown strategy: " + strategy);
+    }
+    
+    /**
+     * Gets the number after the colon of a strategy string, which every strategy but HEURISTIC and RANDOM needs.
+     * @param strategy The strategy string.
+     * @return The depth, milliseconds or playouts.
+     */
+    private static int parseStrategyValue(String strategy)
+    {
+        String[] parts = strategy.split(":");
+        int value;
+        try
+        {
+            value = (parts.length == 2) ? Integer.parseInt(parts[1]) : 0;
+        }
+        catch(NumberFormatException exception)
+        {
+            value = 0;
+        }
+        if (value < 1) throw new IllegalArgumentException("Bad strategy: " + strategy);
+        return value;
+    }
+    
+    /**
+     * Starts searching the opponent's replies in the background, while it is their turn. Only ALPHA_BETA
+     * against a single opponent ponders, since the other strategies don't keep a table to ponder into.
+     * The pondering is stopped by the next call to nextMove or stopThinking.
+     */
+    public void startPondering()
+    {
+        if (myStrategy != Strategy.ALPHA_BETA || (myOpponentTypes != null && myOpponentTypes.length > 1)) return;
+        this.getPonderer().start(myGameBoard, myPieceType, this.getOpponentType());
+    }
+    
+    /**
+     * Stops any pondering, waiting until the search engine is free again.
+     */
+    public void stopPondering()
+    {
+        if (myPonderer != null) myPonderer.stop();
+    }
+    
+    /**
+     * Checks if the last move was played straight from pondering, without a search.
+     * @return If the last move was a ponder hit.
+     */
+    public boolean isPonderHit()
+    {
+        return myIsPonderHit;
+    }
+    
+    /**
+     * Stops the AI if it is in the middle of figuring out a move. nextMove will return what it has so far.
+     */
+    public void stopThinking()
+    {
+        if (myPonderer != null) myPonderer.stop();
+        mySearchEngine.stop();
+        if (myParallelSearch != null) myParallelSearch.stop();
+        if (myMonteCarloSearch != null) myMonteCarloSearch.stop();
+        if (myMultiPlayerSearch != null) myMultiPlayerSearch.stop();
+    }
+    
+    /**
+     * Clears a stopThinking, ready for the next move. Call it when the move is asked for, before nextMove gets going
+     * on its thread, so a stop that comes in between still stops the search instead of being cleared by it.
+     */
+    public void clearStop()
+    {
+        mySearchEngine.clearStop();
+        if (myParallelSearch != null) myParallelSearch.clearStop();
+        if (myMonteCarloSearch != null) myMonteCarloSearch.clearStop();
+        if (myMultiPlayerSearch != null) myMultiPlayerSearch.clearStop();
+    }
+    
+    /**
+     * Gets how long the AI searches for each move.
+     * @return The think time in milliseconds, 0 if it searches to a fixed depth.
+     */
+    public long getThinkTime()
+    {
+        return myThinkTime;
+    }
+    
+    /**
+     * Sets how long the AI searches for each move.
+     * @param millis The think time in milliseconds, 0 to search to a fixed depth.
+     */
+    public void setThinkTime(long millis)
+    {
+        myThinkTime = millis;
+    }
+    
+    /**
+     * Gets the search engine used by the ALPHA_BETA strategy.
+     * @return The search engine.
+     */
+    public SearchEngine getSearchEngine()
+    {
+        return mySearchEngine;
+    }
+    
+    /**
+     * Gets the stats the AI's searches are counted in.
+     * @return The search stats.
+     */
+    public SearchStats getSearchStats()
+    {
+        return myStats;
+    }
+    
+    /**
+     * Sets the stats the AI's searches are counted in, so they can be kept across matches.
+     * @param stats The search stats.
+     */
+    public void setSearchStats(SearchStats stats)
+    {
+        if (stats == null) throw new IllegalArgumentException("The search stats can't be null!");
+        myStats = stats;
+    }
+    
+    /**
+     * Gets the parallel search used by the PARALLEL_ALPHA_BETA strategy, making it the first time.
+     * It starts out with a thread per core and the same depth as the single threaded engine.
+     * @return The parallel search.
+     */
+    public synchronized ParallelSearch getParallelSearch()
+    {
+        if (myParallelSearch == null)
+        {
+            myParallelSearch = new ParallelSearch(Runtime.getRuntime().availableProcessors(), mySearchEngine.getDepth());
+        }
+        return myParallelSearch;
+    }
+    
+    /**
+     * Gets the Monte Carlo search used by the MONTE_CARLO strategy, making it the first time.
+     * It starts out with a thread per core.
+     * @return The Monte Carlo search.
+     */
+    public synchronized MonteCarloSearch getMonteCarloSearch()
+    {
+        if (myMonteCarloSearch == null)
+        {
+            myMonteCarloSearch = new MonteCarloSearch(Runtime.getRuntime().availableProcessors());
+        }
+        return myMonteCarloSearch;
+    }
+    
+    /**
+     * Gets the Ponderer, making it the first time. It ponders with the ALPHA_BETA search engine.
+     * @return The Ponderer.
+     */
+    public synchronized Ponderer getPonderer()
+    {
+        if (myPonderer == null) myPonderer = new Ponderer(mySearchEngine);
+        return myPonderer;
+    }
+    
+    /**
+     * Gets the multi-player search used against more than one opponent, making it the first time.
+     * It starts out paranoid.
+     * @return The multi-player search.
+     */
+    public synchronized MultiPlayerSearch getMultiPlayerSearch()
+    {
+        if (myMultiPlayerSearch == null) myMultiPlayerSearch = new MultiPlayerSearch(MultiPlayerSearch.DEFAULT_DEPTH);
+        return myMultiPlayerSearch;
+    }
+    
+    /**
+     * Gets the opening book the AI plays from.
+     * @return The opening book, or null if there is none.
+     */
+    public OpeningBook getOpeningBook()
+    {
+        return myOpeningBook;
+    }
+    
+    /**
+     * Sets the opening book for the AI to play from.
+     * @param book The opening book, or null for none.
+     */
+    public void setOpeningBook(OpeningBook book)
+    {
+        myOpeningBook = book;
+    }
+    
+    /**
+     * Sets the GameBoard the AI plays on.
+     * @param board The new GameBoard.
+     */
+    public void setGameBoard(GameBoard board)
+    {
+        myGameBoard = board;
+    }
+}
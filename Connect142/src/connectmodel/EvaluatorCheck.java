@@ -0,0 +1,212 @@
+/**
+ * EvaluatorCheck plays seeded random games on boards with a ThreatEvaluator set and checks the evaluator against a
+ * full rescan of the board after each move and each undo. The rescan works every line out from the cells on its own:
+ * a line with pieces of only one type is worth 4^(n-1) to it for n pieces, a line one piece short is a threat, and a
+ * threat counts double on its owner's rows when there is a starter. Before each move it also checks wouldWin against
+ * really placing a piece in every open column. The games cover two, three and four players, with and without a
+ * starter, and are played until they are won or the board is full, then taken back to the empty board.
+ * 
+ * Usage: EvaluatorCheck [games] [seed]
+ * 
+ * @author Brandon Belna (bbelna@stetson.edu)
+ */
+package connectmodel;
+
+import java.util.Random;
+
+public class EvaluatorCheck
+{
+    public static final int DEFAULT_GAMES = 3000;
+    public static final long DEFAULT_SEED = 142L;
+    public static final int[][] SIZES = {{6, 7, 4, 2}, {12, 14, 4, 2}, {3, 3, 1, 2}, {5, 5, 5, 2}, {4, 9, 3, 3}, {7, 8, 4, 4}}; // rows, columns, win length, players
+    private static final PieceType[] TYPES = PieceType.values();
+    private static final int[][] STEPS = {{0, 1}, {1, 0}, {1, 1}, {1, -1}}; // row step and column step
+    private static final int MAX_SHIFT = 12;
+    private static final int UNDO_ODDS = 4; // one move in this many is taken back during the game
+    private int myNumPlayers;
+    private PieceType myStarter;
+    private GameBoard myBoard;
+    private ThreatEvaluator myEvaluator;
+    private int myMoves; // the moves played, not counting the ones taken back
+    
+    /**
+     * Constructor for the EvaluatorCheck. Sets up an empty board with an evaluator.
+     * @param size The rows, columns, win length and number of players.
+     * @param starter The PieceType the evaluator is told went first, or null for none.
+     */
+    public EvaluatorCheck(int[] size, PieceType starter)
+    {
+        myNumPlayers = size[3];
+        myStarter = starter;
+        PieceType[] types = new PieceType[myNumPlayers];
+        System.arraycopy(TYPES, 0, types, 0, myNumPlayers);
+        myBoard = new GameBoard(size[0], size[1], size[2], types);
+        myEvaluator = new ThreatEvaluator(size[0], size[1], size[2]);
+        myEvaluator.setStarter(starter);
+        myBoard.setEvaluator(myEvaluator);
+    }
+    
+    /**
+     * Entry point. Plays the games, stopping at the first disagreement.
+     * @param args Command line arguments: the number of games and the seed, both optional.
+     */
+    public static void main(String[] args)
+    {
+        int games = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_GAMES;
+        long seed = (args.length > 1) ? Long.parseLong(args[1]) : DEFAULT_SEED;
+        Random random = new Random(seed);
+        long moves = 0;
+        for (int game = 0; game < games; game++)
+        {
+            int[] size = SIZES[game % SIZES.length];
+            PieceType starter = (size[3] == 2 && (game / SIZES.length) % 2 == 0) ? TYPES[0] : null;
+            EvaluatorCheck check = new EvaluatorCheck(size, starter);
+            String failure = check.play(random);
+            moves += check.getMoves();
+            if (failure != null)
+            {
+                System.out.println("game " + game + ", " + size[0] + "x" + size[1] + " connect " + size[2] + ", " + size[3]
+                        + " players, starter " + starter + ": " + failure);
+                System.exit(1);
+            }
+        }
+        System.out.println(games + " games, " + moves + " moves, every score, threat count and wouldWin agreed with a rescan");
+    }
+    
+    /**
+     * Plays a random game with random moves taken back, then takes every move back, checking all along.
+     * @param random The random moves.
+     * @return What disagreed, or null if nothing did.
+     */
+    public String play(Random random)
+    {
+        String failure = this.compare("the empty board");
+        int turn = 0;
+        while (failure == null && !myBoard.checkIfWin() && !myBoard.isBoardFull())
+        {
+            failure = this.checkWouldWin(TYPES[turn]);
+            int col = random.nextInt(myBoard.getNumColumns());
+            if (failure != null || myBoard.isColumnFull(col)) continue;
+            myBoard.placePiece(col, TYPES[turn]);
+            myMoves++;
+            turn = (turn + 1) % myNumPlayers;
+            failure = this.compare("move " + myBoard.getNumPieces() + " in column " + col);
+            if (failure == null && random.nextInt(UNDO_ODDS) == 0)
+            {
+                myBoard.undoLastMove();
+                myMoves--;
+                turn = (turn + myNumPlayers - 1) % myNumPlayers;
+                failure = this.compare("undo to " + myBoard.getNumPieces() + " pieces");
+            }
+        }
+        while (failure == null && myBoard.canUndo())
+        {
+            myBoard.undoLastMove();
+            failure = this.compare("undo to " + myBoard.getNumPieces() + " pieces");
+        }
+        return failure;
+    }
+    
+    /**
+     * Gets how many moves the game played, not counting the ones taken back.
+     * @return The number of moves.
+     */
+    public int getMoves()
+    {
+        return myMoves;
+    }
+    
+    /**
+     * Checks wouldWin for a player in every open column against placing the piece and taking it back.
+     * @param type The PieceType to move.
+     * @return What disagreed, or null if nothing did.
+     */
+    private String checkWouldWin(PieceType type)
+    {
+        for (int col = 0; col < myBoard.getNumColumns(); col++)
+        {
+            if (myBoard.isColumnFull(col)) continue;
+            boolean predicted = myEvaluator.wouldWin(myBoard.getNextFreeRow(col), col, type);
+            myBoard.placePiece(col, type);
+            boolean won = myBoard.checkIfWin();
+            myBoard.undoLastMove();
+            if (predicted != won)
+            {
+                return "wouldWin says " + predicted + " for " + type + " in column " + col + " at " + myBoard.getNumPieces() + " pieces";
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Compares the evaluator's scores and threat counts for every player against a rescan.
+     * @param when What was just done, for the message.
+     * @return What disagreed, or null if nothing did.
+     */
+    private String compare(String when)
+    {
+        int[] scores = new int[TYPES.length];
+        int[] threats = new int[TYPES.length];
+        this.rescan(scores, threats);
+        for (int i = 0; i < myNumPlayers; i++)
+        {
+            if (myEvaluator.getScore(TYPES[i]) != scores[i] || myEvaluator.getThreatCount(TYPES[i]) != threats[i])
+            {
+                return TYPES[i] + " has score " + myEvaluator.getScore(TYPES[i]) + " and " + myEvaluator.getThreatCount(TYPES[i])
+                        + " threats, the rescan " + scores[i] + " and " + threats[i] + ", after " + when;
+            }
+        }
+        int expected = Math.max(-ThreatEvaluator.MAX_SCORE, Math.min(ThreatEvaluator.MAX_SCORE, scores[0] - scores[1]));
+        if (myEvaluator.evaluate(TYPES[0], TYPES[1]) != expected) return "evaluate disagrees after " + when;
+        return null;
+    }
+    
+    /**
+     * Works out every player's score and threats from the cells of the board.
+     * @param scores Filled with each type's score, by ordinal.
+     * @param threats Filled with each type's threat count, by ordinal.
+     */
+    private void rescan(int[] scores, int[] threats)
+    {
+        PieceType[][] cells = myBoard.getBoard();
+        int rows = myBoard.getNumRows();
+        int cols = myBoard.getNumColumns();
+        int winLength = myBoard.getWinLength();
+        for (int s = 0; s < STEPS.length && (s == 0 || winLength > 1); s++) // a single cell is one line, not four
+        {
+            for (int row = 0; row < rows; row++)
+            {
+                for (int col = 0; col < cols; col++)
+                {
+                    int endRow = row + (winLength - 1) * STEPS[s][0];
+                    int endCol = col + (winLength - 1) * STEPS[s][1];
+                    if (endRow >= rows || endCol < 0 || endCol >= cols) continue;
+                    PieceType owner = null;
+                    boolean blocked = false;
+                    int pieces = 0;
+                    int emptyRow = -1;
+                    for (int k = 0; k < winLength; k++)
+                    {
+                        PieceType piece = cells[row + k * STEPS[s][0]][col + k * STEPS[s][1]];
+                        if (piece == null) emptyRow = row + k * STEPS[s][0];
+                        else if (owner == null || owner == piece)
+                        {
+                            owner = piece;
+                            pieces++;
+                        }
+                        else blocked = true;
+                    }
+                    if (owner == null || blocked) continue;
+                    int value = 1 << Math.min(2 * (pieces - 1), MAX_SHIFT);
+                    if (pieces == winLength - 1)
+                    {
+                        threats[owner.ordinal()]++;
+                        int height = rows - emptyRow; // 1 on the bottom row
+                        if (myStarter != null && (height % 2 == 1) == (owner == myStarter)) value *= 2;
+                    }
+                    scores[owner.ordinal()] += value;
+                }
+            }
+        }
+    }
+}
@@ -1,7 +1,9 @@
 /**
  * GameBoard is where all of game action happens. GameBoard checks for wins, handles piece placement,
  * and handles the board itself (which is constructed through myBoard[][]). GameBoard itself is accessed and controlled
- * through GameEngine.
+ * through GameEngine. Small boards also keep a bitboard, and large ones keep a bitset per row instead of myBoard[][]
+ * and only offer moves near the pieces already played (see BoardMode). Every move goes on a history stack, so moves
+ * can be taken back and played again in O(1) without copying the board.
  * 
  * @author Brandon Belna (bbelna@stetson.edu)
  */
@@ -9,10 +11,17 @@ package connectmodel;
 
 import java.awt.Point;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
 import java.util.Vector;
 
 public class GameBoard
 {
+    public static final long ZOBRIST_SEED = 0x434F4E4E45435434L; // fixed so hashes are the same from run to run
+    public static final int SPARSE_CELLS = 1024; // boards this big which don't fit a bitboard are stored sparsely
+    public static final int DEFAULT_CANDIDATE_RADIUS = 2;
+    private static final PieceType[] PIECE_TYPES = PieceType.values(); // by ordinal, values() makes a new array every call
+    private static final long[] MOVER_KEYS = createMoverKeys(); // a random key per PieceType for being the one to move
     private int myNumRows;
     private int myNumColumns;
     private PieceType[][] myBoard;
@@ -23,9 +32,29 @@ public class GameBoard
     private Point myWinBegin;
     private Point myWinEnd;
     private boolean myIsAWin;
+    private BoardMode myMode;
+    private int[] myHeights; // how many pieces are in each column
+    private int myNumPieces;
+    private long[] myBitboards; // one bitboard per PieceType, only kept up in BITBOARD mode
+    private int myBitsPerColumn; // myNumRows plus a sentinel bit so runs can't wrap between columns
+    private int[] myBitShifts; // vertical, horizontal and both diagonal directions in bitboard terms
+    private long[][] myZobristKeys; // a random key per PieceType per cell, shared between copies
+    private long myHash; // XOR of the keys of every piece on the board
+    private long myMirrorHash; // the same, with every piece keyed as if it were in the mirrored column
+    private long[][] myRowBits; // SPARSE mode: a bitset per row for each PieceType, column c is bit c % 64 of word c / 64
+    private int myWordsPerRow;
+    private PieceType[][] myBoardCache; // SPARSE mode: the dense board, only made when someone asks for it
+    private int[] myNearCounts; // SPARSE mode: how many occupied columns are within the candidate radius of each column
+    private int myCandidateRadius;
+    private int[] myMoveHistory; // the column of every move in order, with any moves that can be redone after them
+    private byte[] myMoveTypes; // the PieceType ordinal of every move in myMoveHistory
+    private int myRedoLength; // moves myNumPieces up to this in myMoveHistory were taken back and can be redone
+    private int myWinMove; // the index in myMoveHistory of the move that made the win, -1 if there is none
+    private ThreatEvaluator myEvaluator; // told about every piece placed or taken back, if there is one
     
     /**
-     * Constructor for the GameBoard.
+     * Constructor for the GameBoard. Boards small enough to fit in a bitboard (such as the standard 6x7)
+     * will use one, boards of SPARSE_CELLS or more are stored sparsely, and the rest are stored densely.
      * @param rows Number of rows for our GameBoard.
      * @param cols Number of columns for our GameBoard.
      * @param winLength How big a run must be to win.
@@ -33,6 +62,24 @@ public class GameBoard
      */
     public GameBoard(int rows, int cols, int winLength, PieceType[] types) 
     {
+        this(rows, cols, winLength, types, fitsBitboard(rows, cols) ? BoardMode.BITBOARD
+                : (rows * cols >= SPARSE_CELLS) ? BoardMode.SPARSE : BoardMode.DENSE);
+    }
+    
+    /**
+     * Constructor for the GameBoard with a specific storage mode.
+     * @param rows Number of rows for our GameBoard.
+     * @param cols Number of columns for our GameBoard.
+     * @param winLength How big a run must be to win.
+     * @param types An array containing the piece types.
+     * @param mode How the board should store its pieces.
+     */
+    public GameBoard(int rows, int cols, int winLength, PieceType[] types, BoardMode mode) 
+    {
+        if (mode == BoardMode.BITBOARD && !fitsBitboard(rows, cols))
+        {
+            throw new IllegalArgumentException("A " + rows + "x" + cols + " board does not fit in a bitboard!");
+        }
     	// initialize our member data
         myNumRows = rows;
         myNumColumns = cols;
@@ -42,7 +89,117 @@ public class GameBoard
         {
             myTypes.add(types[i]);
         }
-        myBoard = new PieceType[myNumRows][myNumColumns];
+        myMode = mode;
+        if (myMode == BoardMode.SPARSE)
+        {
+            myWordsPerRow = (myNumColumns + Long.SIZE - 1) / Long.SIZE;
+            myRowBits = new long[PIECE_TYPES.length][myNumRows * myWordsPerRow];
+            myNearCounts = new int[myNumColumns];
+        }
+        else myBoard = new PieceType[myNumRows][myNumColumns];
+        myCandidateRadius = DEFAULT_CANDIDATE_RADIUS;
+        myHeights = new int[myNumColumns];
+        myBitboards = new long[PieceType.values().length];
+        myBitsPerColumn = myNumRows + 1;
+        myBitShifts = new int[] {1, myBitsPerColumn, myBitsPerColumn - 1, myBitsPerColumn + 1};
+        myLastPoint = new Point(-1, -1);
+        myZobristKeys = createZobristKeys(myNumRows * myNumColumns);
+        myMoveHistory = new int[myNumRows * myNumColumns];
+        myMoveTypes = new byte[myNumRows * myNumColumns];
+        myWinMove = -1;
+    }
+    
+    /**
+     * Copy constructor for the GameBoard. The copy shares nothing with the original, so it can be searched on freely.
+     * @param other The GameBoard to copy.
+     */
+    public GameBoard(GameBoard other)
+    {
+        myNumRows = other.myNumRows;
+        myNumColumns = other.myNumColumns;
+        myWinLength = other.myWinLength;
+        myTypes = new Vector<PieceType>(other.myTypes);
+        if (other.myBoard != null)
+        {
+            myBoard = new PieceType[myNumRows][];
+            for (int i = 0; i < myNumRows; i++)
+            {
+                myBoard[i] = other.myBoard[i].clone();
+            }
+        }
+        myMode = other.myMode;
+        if (other.myRowBits != null)
+        {
+            myWordsPerRow = other.myWordsPerRow;
+            myRowBits = new long[other.myRowBits.length][];
+            for (int i = 0; i < myRowBits.length; i++)
+            {
+                myRowBits[i] = other.myRowBits[i].clone();
+            }
+            myNearCounts = other.myNearCounts.clone();
+        }
+        myCandidateRadius = other.myCandidateRadius;
+        myHeights = other.myHeights.clone();
+        myNumPieces = other.myNumPieces;
+        myBitboards = other.myBitboards.clone();
+        myBitsPerColumn = other.myBitsPerColumn;
+        myBitShifts = other.myBitShifts;
+        myLastPoint = new Point(other.myLastPoint);
+        myZobristKeys = other.myZobristKeys;
+        myHash = other.myHash;
+        myMirrorHash = other.myMirrorHash;
+        myIsAWin = other.myIsAWin;
+        if (other.myWinBegin != null) myWinBegin = new Point(other.myWinBegin);
+        if (other.myWinEnd != null) myWinEnd = new Point(other.myWinEnd);
+        myMoveHistory = other.myMoveHistory.clone();
+        myMoveTypes = other.myMoveTypes.clone();
+        myRedoLength = other.myRedoLength;
+        myWinMove = other.myWinMove;
+    }
+    
+    /**
+     * Creates the Zobrist keys for a board with the given number of cells.
+     * @param cells The number of cells on the board.
+     * @return A random key for every PieceType on every cell.
+     */
+    private static long[][] createZobristKeys(int cells)
+    {
+        Random random = new Random(ZOBRIST_SEED);
+        long[][] keys = new long[PieceType.values().length][cells];
+        for (int i = 0; i < keys.length; i++)
+        {
+            for (int j = 0; j < cells; j++)
+            {
+                keys[i][j] = random.nextLong();
+            }
+        }
+        return keys;
+    }
+    
+    /**
+     * Creates the Zobrist keys for whose turn it is. They don't depend on the board, so every board shares them.
+     * @return A random key for every PieceType.
+     */
+    private static long[] createMoverKeys()
+    {
+        Random random = new Random(~ZOBRIST_SEED); // not the cells' seed, or the keys would be the same as the first cells'
+        long[] keys = new long[PIECE_TYPES.length];
+        for (int i = 0; i < keys.length; i++)
+        {
+            keys[i] = random.nextLong();
+        }
+        return keys;
+    }
+    
+    /**
+     * Checks if a board of the given size fits in a single long per piece type.
+     * @param rows Number of rows of the board.
+     * @param cols Number of columns of the board.
+     * @return If the board fits in a bitboard.
+     */
+    public static boolean fitsBitboard(int rows, int cols)
+    {
+        return rows > 0 && cols > 0 && (rows + 1) * cols <= Long.SIZE;
     }
     
     /**
@@ -56,21 +213,169 @@ public class GameBoard
         if (col < 0 || col >= myNumColumns) return false; // invalid column
         if (isColumnFull(col)) return false; // if the column is full, do nothing
         // otherwise, we will proceed to placing the piece
-        int placementRow = myNumRows - 1;
-        while (placementRow != -1)
-        {
-        	if (myBoard[placementRow][col] == null) break; // we've found our row
-        	else placementRow--; // otherwise, we go up and check the next one
-        }
+        int placementRow = myNumRows - 1 - myHeights[col];
         if (placementRow == -1) // we couldn't find an empty row. if this occurs, there must be a bug in isColumnFull.
         {
         	assert placementRow != -1 : "isColumnFull() failed to list " + col + " as being full in placePiece()!";
         	return false;
         }
-        myBoard[placementRow][col] = type; // place our piece
+        if (myMode == BoardMode.SPARSE)
+        {
+            myRowBits[type.ordinal()][placementRow * myWordsPerRow + (col >>> 6)] |= 1L << col;
+            myBoardCache = null;
+            if (myHeights[col] == 0) this.markNear(col, 1);
+        }
+        else myBoard[placementRow][col] = type; // place our piece
+        if (myMode == BoardMode.BITBOARD) myBitboards[type.ordinal()] |= 1L << (col * myBitsPerColumn + myHeights[col]);
+        myHash ^= myZobristKeys[type.ordinal()][placementRow * myNumColumns + col];
+        myMirrorHash ^= myZobristKeys[type.ordinal()][placementRow * myNumColumns + myNumColumns - 1 - col];
+        if (myEvaluator != null) myEvaluator.place(placementRow, col, type);
+        myHeights[col]++;
+        myMoveHistory[myNumPieces] = col;
+        myMoveTypes[myNumPieces] = (byte) type.ordinal();
+        myNumPieces++;
+        myRedoLength = myNumPieces; // a new move throws away anything that could have been redone
+        myLastPoint.setLocation(col, placementRow);
+        if (!myIsAWin) // only the piece we just placed can make a new win
+        {
+            myIsAWin = checkLastMoveWin();
+            if (myIsAWin) myWinMove = myNumPieces - 1;
+        }
         return true; // we did it successfully
     }
     
+    /**
+     * Takes the top piece back out of a column. Used by the search engines to unmake their moves
+     * instead of copying the board. Only the last move can be taken back, so the column has to be its column.
+     * @param col The column to take the piece from.
+     * @return If the last move was in the column and was taken back.
+     */
+    boolean removePiece(int col)
+    {
+        if (myNumPieces == 0 || myMoveHistory[myNumPieces - 1] != col) return false;
+        return this.undoLastMove() != -1;
+    }
+    
+    /**
+     * Takes back the last move. This is O(1) and allocates nothing: the column is popped off the move history
+     * and its top cell cleared. The win state goes back to what it was before the move, and the move can be redone.
+     * @return The column of the move taken back, or -1 if there are no moves to take back.
+     */
+    public int undoLastMove()
+    {
+        if (myNumPieces == 0) return -1;
+        int col = myMoveHistory[myNumPieces - 1];
+        PieceType type = PIECE_TYPES[myMoveTypes[myNumPieces - 1]];
+        myHeights[col]--;
+        myNumPieces--;
+        int row = myNumRows - 1 - myHeights[col];
+        if (myMode == BoardMode.SPARSE)
+        {
+            myRowBits[type.ordinal()][row * myWordsPerRow + (col >>> 6)] &= ~(1L << col);
+            myBoardCache = null;
+            if (myHeights[col] == 0) this.markNear(col, -1);
+        }
+        else myBoard[row][col] = null;
+        if (myMode == BoardMode.BITBOARD) myBitboards[type.ordinal()] &= ~(1L << (col * myBitsPerColumn + myHeights[col]));
+        myHash ^= myZobristKeys[type.ordinal()][row * myNumColumns + col];
+        myMirrorHash ^= myZobristKeys[type.ordinal()][row * myNumColumns + myNumColumns - 1 - col];
+        if (myEvaluator != null) myEvaluator.remove(row, col, type);
+        if (myWinMove >= myNumPieces) // the win came with this move, so it goes with it
+        {
+            myIsAWin = false;
+            myWinBegin = null;
+            myWinEnd = null;
+            myWinMove = -1;
+        }
+        if (myNumPieces == 0) myLastPoint.setLocation(-1, -1);
+        else
+        {
+            int lastCol = myMoveHistory[myNumPieces - 1];
+            myLastPoint.setLocation(lastCol, myNumRows - myHeights[lastCol]);
+        }
+        return col;
+    }
+    
+    /**
+     * Plays the last move taken back again.
+     * @return If there was a move to redo.
+     */
+    public boolean redo()
+    {
+        if (myRedoLength <= myNumPieces) return false;
+        int redoLength = myRedoLength;
+        this.placePiece(myMoveHistory[myNumPieces], PIECE_TYPES[myMoveTypes[myNumPieces]]);
+        myRedoLength = redoLength; // placePiece thinks it's a new move, but the rest can still be redone
+        return true;
+    }
+    
+    /**
+     * Checks if there is a move to take back.
+     * @return If undoLastMove would take a move back.
+     */
+    public boolean canUndo()
+    {
+        return myNumPieces > 0;
+    }
+    
+    /**
+     * Checks if there is a move to play again.
+     * @return If redo would play a move.
+     */
+    public boolean canRedo()
+    {
+        return myRedoLength > myNumPieces;
+    }
+    
+    /**
+     * Takes an immutable snapshot of the position. It has to be taken on the thread playing on the board,
+     * but can then be read on any thread without locks. It costs O(moves + rows * cols).
+     * @return The snapshot.
+     */
+    public BoardSnapshot snapshot()
+    {
+        return new BoardSnapshot(this, Arrays.copyOf(myMoveHistory, myNumPieces), Arrays.copyOf(myMoveTypes, myNumPieces),
+                myWinBegin, myWinEnd);
+    }
+    
+    /**
+     * Gets the moves played so far, in order. The players' turns can be worked out from the starting player,
+     * so a game can be replayed from this.
+     * @return The column of every move on the board, oldest first.
+     */
+    public int[] getMoveHistory()
+    {
+        return Arrays.copyOf(myMoveHistory, myNumPieces);
+    }
+    
+    /**
+     * Sets the evaluator to keep up with this board. It is loaded with the pieces already down, and from then on
+     * every piece placed or taken back is passed on to it. Copies of the board don't get the evaluator.
+     * @param evaluator The evaluator, made for a board this size, or null for none.
+     */
+    public void setEvaluator(ThreatEvaluator evaluator)
+    {
+        if (evaluator != null && !evaluator.fits(this)) throw new IllegalArgumentException("The evaluator is for a different board size!");
+        myEvaluator = evaluator;
+        if (evaluator == null) return;
+        evaluator.clear();
+        int[] heights = new int[myNumColumns];
+        for (int i = 0; i < myNumPieces; i++)
+        {
+            int col = myMoveHistory[i];
+            evaluator.place(myNumRows - 1 - heights[col]++, col, PIECE_TYPES[myMoveTypes[i]]);
+        }
+    }
+    
+    /**
+     * Gets the evaluator keeping up with this board.
+     * @return The evaluator, or null if there is none.
+     */
+    public ThreatEvaluator getEvaluator()
+    {
+        return myEvaluator;
+    }
+    
     /**
      * Finds the next free row in the given column.
      * @param col The column to check.
@@ -78,13 +383,7 @@ public class GameBoard
      */
     public int getNextFreeRow(int col)
     {
-        int placementRow = myNumRows - 1;
-        while (placementRow != -1)
-        {
-            if (myBoard[placementRow][col] == null) break; // we've found our row
-            else placementRow--; // otherwise, we go up and check the next one
-        }
-        return placementRow;
+        return myNumRows - 1 - myHeights[col];
     }
     
     /**
@@ -92,24 +391,103 @@ public class GameBoard
      */
     public void resetBoard() 
     {
-    	for (int i = 0; i < myNumRows; i++) 
+    	for (int i = 0; myBoard != null && i < myNumRows; i++) 
     	{
     	    for (int j = 0; j < myNumColumns; j++)
     	    {
     	        myBoard[i][j] = null;
     	    }
     	}
+    	if (myMode == BoardMode.SPARSE)
+    	{
+    	    for (int i = 0; i < myRowBits.length; i++)
+    	    {
+    	        Arrays.fill(myRowBits[i], 0L);
+    	    }
+    	    Arrays.fill(myNearCounts, 0);
+    	    myBoardCache = null;
+    	}
+    	Arrays.fill(myHeights, 0);
+    	Arrays.fill(myBitboards, 0L);
+    	myNumPieces = 0;
+    	myRedoLength = 0;
+    	myWinMove = -1;
+    	myHash = 0L;
+    	myMirrorHash = 0L;
+    	myWinBegin = null;
+    	myWinEnd = null;
+    	myIsAWin = false;
+    	myLastPoint.setLocation(-1, -1);
+    	if (myEvaluator != null) myEvaluator.clear();
     }
     
     /**
-     * Checks for a victory.
+     * Checks for a victory. The win is tracked as pieces are placed, so this is O(1).
      * @return Whether if there is a victory or not.
      */
     public boolean checkIfWin()
     {
+        return myIsAWin;
+    }
+    
+    /**
+     * Checks for a victory by rescanning the entire board. Much slower than checkIfWin, but it does not
+     * rely on the tracked win state.
+     * @return Whether if there is a victory or not.
+     */
+    public boolean scanForWin()
+    {
+        if (myMode == BoardMode.BITBOARD)
+        {
+            for (int i = 0; i < myBitboards.length; i++)
+            {
+                if (checkBitboardWin(i)) return true;
+            }
+            return false;
+        }
+        if (myMode == BoardMode.SPARSE) return checkSparseWin();
         return checkVerticalWin() || checkHorizontalWin() || checkDiagonalWin();
     }
     
+    /**
+     * Checks if the last placed piece made a win by only walking the four lines through it.
+     * This is O(winLength) and fills in the win begin and end points.
+     * @return If the last placed piece made a win.
+     */
+    private boolean checkLastMoveWin()
+    {
+        int col = myLastPoint.x;
+        int row = myLastPoint.y;
+        if (col == -1) return false; // nothing has been placed yet
+        PieceType type = this.getCell(row, col);
+        if (myMode == BoardMode.BITBOARD) return checkBitboardWin(type.ordinal());
+        // walk down, right, down right and down left, counting both ways from our piece
+        for (int dir = 0; dir < 4; dir++)
+        {
+            int rowStep = (dir == 1) ? 0 : 1;
+            int colStep = (dir == 0) ? 0 : (dir == 3) ? -1 : 1;
+            int forward = 0, backward = 0;
+            for (int r = row + rowStep, c = col + colStep; r >= 0 && r < myNumRows && c >= 0 && c < myNumColumns
+                    && this.hasPiece(r, c, type); r += rowStep, c += colStep)
+            {
+                forward++;
+            }
+            for (int r = row - rowStep, c = col - colStep; r >= 0 && r < myNumRows && c >= 0 && c < myNumColumns
+                    && this.hasPiece(r, c, type); r -= rowStep, c -= colStep)
+            {
+                backward++;
+            }
+            if (forward + backward + 1 >= myWinLength)
+            {
+                // store the win locations, starting from the far end of the run
+                myWinBegin = new Point(col - backward * colStep, row - backward * rowStep);
+                myWinEnd = new Point(myWinBegin.x + (myWinLength - 1) * colStep, myWinBegin.y + (myWinLength - 1) * rowStep);
+                return true;
+            }
+        }
+        return false;
+    }
+    
     /**
      * Determines, according to Plante's algorithm, the 'next best move' for our ComputerPlayer.
      * @param type The PieceType to determine the next best move for.
@@ -126,23 +504,21 @@ public class GameBoard
                         || this.countDiagonalLengthIfPiecePlaced(i, type) == myWinLength) return i;
             }
         }
-        // then we check to block. we must figure out what piecetype is the opponent's piece type
-        // this code assumes that the type is in the Vector and the size is of 2
-        PieceType opponentType = null;
-        for (int i = 0; i < myTypes.size(); i++)
-        {
-            if (type != myTypes.get(i)) opponentType = myTypes.get(i);
-        }
-        assert opponentType != null : "OpponentType was selected as null!";
-        for (int i = 0; i < myNumColumns; i++)
+        // then we check to block. with more than two players, any opponent about to win has to be blocked
+        for (int t = 0; t < myTypes.size(); t++)
         {
-            if (!this.isColumnFull(i))
+            PieceType opponentType = myTypes.get(t);
+            if (opponentType == type) continue;
+            for (int i = 0; i < myNumColumns; i++)
             {
-                if (this.countVerticalLengthIfPiecePlaced(i, opponentType) == myWinLength || this.countHorizontalLengthIfPiecePlaced(i, opponentType) == myWinLength
-                        || this.countDiagonalLengthIfPiecePlaced(i, opponentType) == myWinLength) 
-                    {
-                        return i;
-                    }
+                if (!this.isColumnFull(i))
+                {
+                    if (this.countVerticalLengthIfPiecePlaced(i, opponentType) == myWinLength || this.countHorizontalLengthIfPiecePlaced(i, opponentType) == myWinLength
+                            || this.countDiagonalLengthIfPiecePlaced(i, opponentType) == myWinLength) 
+                        {
+                            return i;
+                        }
+                }
             }
         }
         // otherwise, find the maximum of the countLengths and return that
@@ -176,6 +552,181 @@ public class GameBoard
         return currentPlaceCol;
     }
     
+    /**
+     * Checks for a win of a piece type with shift-and-AND on its bitboard.
+     * @param typeIndex The ordinal of the PieceType to check.
+     * @return If a win occurred.
+     */
+    private boolean checkBitboardWin(int typeIndex)
+    {
+        // a run in direction 'shift' exists wherever a bit survives being ANDed with itself shifted 1..(myWinLength-1) times.
+        long bitboard = myBitboards[typeIndex];
+        if (bitboard != 0L) // otherwise this type has no pieces down
+        {
+            for (int s = 0; s < myBitShifts.length; s++)
+            {
+                long run = bitboard;
+                for (int k = 1; k < myWinLength && run != 0L; k++)
+                {
+                    int shift = k * myBitShifts[s];
+                    run = shift < Long.SIZE ? run & (bitboard >>> shift) : 0L; // a run that long can't fit
+                }
+                if (run != 0L)
+                {
+                    // store the win locations
+                    int bit = Long.numberOfTrailingZeros(run);
+                    myWinBegin = bitToPoint(bit);
+                    myWinEnd = bitToPoint(bit + (myWinLength - 1) * myBitShifts[s]);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Checks for a win of any type on a SPARSE board, a word at a time. For each direction a run of myWinLength
+     * starting at a cell is the AND of myWinLength rows, each shifted along by how far the run has moved sideways,
+     * so one pass of ANDs checks 64 starting columns at once.
+     * @return If a win occurred.
+     */
+    private boolean checkSparseWin()
+    {
+        int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}}; // row step and column step
+        for (int t = 0; t < myTypes.size(); t++)
+        {
+            long[] bits = myRowBits[myTypes.get(t).ordinal()];
+            for (int d = 0; d < directions.length; d++)
+            {
+                int rowStep = directions[d][0];
+                int colStep = directions[d][1];
+                for (int row = 0; row + (myWinLength - 1) * rowStep < myNumRows; row++)
+                {
+                    for (int word = 0; word < myWordsPerRow; word++)
+                    {
+                        long run = bits[row * myWordsPerRow + word];
+                        for (int k = 1; k < myWinLength && run != 0L; k++)
+                        {
+                            run &= shiftedWord(bits, (row + k * rowStep) * myWordsPerRow, word, k * colStep);
+                        }
+                        if (run != 0L)
+                        {
+                            // store the win locations
+                            int col = word * Long.SIZE + Long.numberOfTrailingZeros(run);
+                            myWinBegin = new Point(col, row);
+                            myWinEnd = new Point(col + (myWinLength - 1) * colStep, row + (myWinLength - 1) * rowStep);
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Gets one word of a row bitset after the row is moved so that column c + shift lands on column c.
+     * @param bits The row bitsets.
+     * @param base Where the row starts in bits.
+     * @param word Which word of the moved row to get.
+     * @param shift How many columns to move by. Negative moves the other way.
+     * @return The word.
+     */
+    private long shiftedWord(long[] bits, int base, int word, int shift)
+    {
+        if (shift < 0)
+        {
+            // column c - shift lands on column c, so the bits move up
+            int from = word - ((-shift) >>> 6);
+            int offset = (-shift) & 63;
+            long low = (from >= 0) ? bits[base + from] : 0L;
+            long lower = (from - 1 >= 0 && offset != 0) ? bits[base + from - 1] >>> (Long.SIZE - offset) : 0L;
+            return (low << offset) | lower;
+        }
+        int from = word + (shift >>> 6);
+        int offset = shift & 63;
+        long low = (from < myWordsPerRow) ? bits[base + from] : 0L;
+        long high = (from + 1 < myWordsPerRow && offset != 0) ? bits[base + from + 1] << (Long.SIZE - offset) : 0L;
+        return (low >>> offset) | high;
+    }
+    
+    /**
+     * Marks the columns around a column as near an occupied one, or takes the mark away again.
+     * @param col The column which just got its first piece or lost its last.
+     * @param delta 1 to mark, -1 to unmark.
+     */
+    private void markNear(int col, int delta)
+    {
+        for (int c = Math.max(0, col - myCandidateRadius); c <= Math.min(myNumColumns - 1, col + myCandidateRadius); c++)
+        {
+            myNearCounts[c] += delta;
+        }
+    }
+    
+    /**
+     * Checks if a column is worth trying as a move. On a SPARSE board that is an open column within the candidate
+     * radius of an occupied column, or the center column of an empty board. Otherwise it's any open column.
+     * @param col The column to check.
+     * @return If the column is a candidate move.
+     */
+    public boolean isCandidateColumn(int col)
+    {
+        if (col < 0 || col >= myNumColumns || myHeights[col] == myNumRows) return false;
+        if (myMode != BoardMode.SPARSE) return true;
+        if (myNumPieces == 0) return col == (myNumColumns - 1) / 2;
+        return myNearCounts[col] > 0;
+    }
+    
+    /**
+     * Lists the candidate columns, the ones isCandidateColumn accepts, from left to right.
+     * @param columns Room for the columns, at least as long as the number of columns.
+     * @return How many candidate columns there are.
+     */
+    public int getCandidateColumns(int[] columns)
+    {
+        int count = 0;
+        for (int col = 0; col < myNumColumns; col++)
+        {
+            if (this.isCandidateColumn(col)) columns[count++] = col;
+        }
+        return count;
+    }
+    
+    /**
+     * Gets how far from an occupied column a SPARSE board looks for moves.
+     * @return The candidate radius in columns.
+     */
+    public int getCandidateRadius()
+    {
+        return myCandidateRadius;
+    }
+    
+    /**
+     * Sets how far from an occupied column a SPARSE board looks for moves. It is at least 1, so a board with room
+     * left always has a candidate: some empty column is next to an occupied one.
+     * @param radius The new candidate radius in columns. Anything below 1 is taken as 1.
+     */
+    public void setCandidateRadius(int radius)
+    {
+        myCandidateRadius = Math.max(1, radius); // with 0 only occupied columns count, and they fill up
+        if (myMode != BoardMode.SPARSE) return;
+        Arrays.fill(myNearCounts, 0);
+        for (int col = 0; col < myNumColumns; col++)
+        {
+            if (myHeights[col] > 0) this.markNear(col, 1);
+        }
+    }
+    
+    /**
+     * Converts a bitboard index into a board position.
+     * @param bit The bit index.
+     * @return The position of the bit, in the form (x,y).
+     */
+    private Point bitToPoint(int bit)
+    {
+        return new Point(bit / myBitsPerColumn, myNumRows - 1 - bit % myBitsPerColumn);
+    }
+    
     /**
      * Checks for a vertical win.
      * @return If a vertical win occurred. 
@@ -281,7 +832,7 @@ public class GameBoard
                 	    myPoints.add(new Point(iCheck, jCheck));
                 	    checkedArray[iCheck][jCheck] = 1;
                 	}
-                	
+                
                 	// and down left
                     for (int iCheck = i+1, jCheck = j-1; iCheck < myNumRows && jCheck >= 0; iCheck++, jCheck--)
                     {
@@ -289,7 +840,7 @@ public class GameBoard
                         myPoints.add(0, new Point(iCheck, jCheck));
                         checkedArray[iCheck][jCheck] = 1;
                     }
-                	
+                    
                     // create a run length array
                     int[] myRunArray = new int[myPieces.size()];
                     PieceType currentType;
@@ -302,7 +853,7 @@ public class GameBoard
                             else break;
                         }
                     } 
-
+                    
                     // check for runs
                     for (int k = 0; k < myRunArray.length; k++)
                     {
@@ -317,7 +868,7 @@ public class GameBoard
                     myPieces.clear();
                 	myPoints.clear();
                 }
-                
+            
             }
         }
         for (int i = 0; i < myNumRows; i++)
@@ -354,7 +905,7 @@ public class GameBoard
                             else break;
                         }
                     } 
-
+                    
                     // check for runs
                     for (int k = 0; k < myRunArray.length; k++)
                     {
@@ -369,7 +920,7 @@ public class GameBoard
                     myPieces.clear();
                     myPoints.clear();
                 }
-                
+            
             }
         }
         return false;
@@ -391,7 +942,7 @@ public class GameBoard
     	int placementRow = myNumRows - 1;
         while (placementRow != -1)
         {
-        	if (myBoard[placementRow][col] == null) break; // we've found our row
+        	if (this.getCell(placementRow, col) == null) break; // we've found our row
         	else placementRow--; // otherwise, we go up and check the next one
         }
         // we are guaranteed that our current position is null by the previous code
@@ -400,7 +951,7 @@ public class GameBoard
     	{
     		currentShiftIndex--;
     		if (col + currentShiftIndex >= 0 && col + currentShiftIndex < myNumColumns && 
-    		        myBoard[placementRow][col + currentShiftIndex] != null && myBoard[placementRow][col + currentShiftIndex].equals(type)) lrSum++;
+    		        this.getCell(placementRow, col + currentShiftIndex) != null && this.getCell(placementRow, col + currentShiftIndex).equals(type)) lrSum++;
     		else break;
     	}
         // then right
@@ -409,7 +960,7 @@ public class GameBoard
     	{
     		currentShiftIndex++;
     		if (col + currentShiftIndex >= 0 && col + currentShiftIndex < myNumColumns &&
-    		        myBoard[placementRow][col + currentShiftIndex] != null && myBoard[placementRow][col + currentShiftIndex].equals(type)) lrSum++;
+    		        this.getCell(placementRow, col + currentShiftIndex) != null && this.getCell(placementRow, col + currentShiftIndex).equals(type)) lrSum++;
     		else break;
     	}
         return lrSum;
@@ -431,7 +982,7 @@ public class GameBoard
         int placementRow = myNumRows - 1;
         while (placementRow != -1)
         {
-            if (myBoard[placementRow][col] == null) break; // we've found our row
+            if (this.getCell(placementRow, col) == null) break; // we've found our row
             else placementRow--; // otherwise, we go up and check the next one
         }
         // we are guaranteed that our current position is null by the previous code
@@ -440,7 +991,7 @@ public class GameBoard
         {
             currentShiftIndex--;
             if (placementRow + currentShiftIndex >= 0 && placementRow + currentShiftIndex < myNumRows &&
-                    myBoard[placementRow + currentShiftIndex][col] != null && myBoard[placementRow + currentShiftIndex][col].equals(type)) udSum++;
+                    this.getCell(placementRow + currentShiftIndex, col) != null && this.getCell(placementRow + currentShiftIndex, col).equals(type)) udSum++;
             else break;
         }
         // then down
@@ -449,7 +1000,7 @@ public class GameBoard
         {
             currentShiftIndex++;
             if (placementRow + currentShiftIndex >= 0 && placementRow + currentShiftIndex < myNumRows && 
-                    myBoard[placementRow + currentShiftIndex][col] != null && myBoard[placementRow + currentShiftIndex][col].equals(type)) udSum++;
+                    this.getCell(placementRow + currentShiftIndex, col) != null && this.getCell(placementRow + currentShiftIndex, col).equals(type)) udSum++;
             else break;
         }
         return udSum;
@@ -468,32 +1019,32 @@ public class GameBoard
         int placementRow = myNumRows - 1;
         while (placementRow != -1)
         {
-            if (myBoard[placementRow][col] == null) break; // we've found our row
+            if (this.getCell(placementRow, col) == null) break; // we've found our row
             else placementRow--; // otherwise, we go up and check the next one
         }
         // check upright
         for (int iCheck = placementRow, jCheck = col; iCheck >= 0 && jCheck < myNumColumns; iCheck--, jCheck++)
         {
-            if (myBoard[iCheck][jCheck] == type) diagSum1++;
+            if (this.getCell(iCheck, jCheck) == type) diagSum1++;
             else break;
         }
         
         // and down left
         for (int iCheck = placementRow+1, jCheck = col-1; iCheck < myNumRows && jCheck >= 0; iCheck++, jCheck--)
         {
-            if (myBoard[iCheck][jCheck] == type) diagSum1++;
+            if (this.getCell(iCheck, jCheck) == type) diagSum1++;
             else break;
         }
         for (int iCheck = placementRow, jCheck = col; iCheck >= 0 && jCheck >= 0; iCheck--, jCheck--)
         {
-            if (myBoard[iCheck][jCheck] == type) diagSum2++;
+            if (this.getCell(iCheck, jCheck) == type) diagSum2++;
             else break;
         }
         
         // and down right
         for (int iCheck = placementRow+1, jCheck = col+1; iCheck < myNumRows && jCheck < myNumColumns; iCheck++, jCheck++)
         {
-            if (myBoard[iCheck][jCheck] == type) diagSum2++;
+            if (this.getCell(iCheck, jCheck) == type) diagSum2++;
             else break;
         }
         return Math.max(diagSum1, diagSum2);
@@ -533,16 +1084,62 @@ public class GameBoard
      */
     public PieceType getPieceOnBoard(Point point) 
     {
-        return myBoard[point.y][point.x];
+        return this.getCell(point.y, point.x);
     }
     
     /**
-     * Gets the current board.
+     * Gets the current board. In SPARSE mode the array is built on the first call after a change, so it costs
+     * O(rows * cols) then, and it should only be read. The array is live and changes as the game goes on,
+     * so other threads should read a snapshot instead.
      * @return A PieceType[][] representing the current board.
      */
     public PieceType[][] getBoard() 
     {
-        return myBoard;
+        if (myMode != BoardMode.SPARSE) return myBoard;
+        if (myBoardCache == null)
+        {
+            PieceType[][] cells = new PieceType[myNumRows][myNumColumns];
+            for (int i = 0; i < myNumRows; i++)
+            {
+                for (int j = 0; j < myNumColumns; j++)
+                {
+                    cells[i][j] = this.getCell(i, j);
+                }
+            }
+            myBoardCache = cells;
+        }
+        return myBoardCache;
+    }
+    
+    /**
+     * Gets the piece in a cell, whatever the storage mode.
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return The piece type there, or null if it's empty.
+     */
+    private PieceType getCell(int row, int col)
+    {
+        if (myMode != BoardMode.SPARSE) return myBoard[row][col];
+        int index = row * myWordsPerRow + (col >>> 6);
+        long bit = 1L << col;
+        for (int i = 0; i < myRowBits.length; i++)
+        {
+            if ((myRowBits[i][index] & bit) != 0L) return PIECE_TYPES[i];
+        }
+        return null;
+    }
+    
+    /**
+     * Checks if a cell holds a piece of the given type.
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @param type The piece type.
+     * @return If the cell holds that type.
+     */
+    private boolean hasPiece(int row, int col, PieceType type)
+    {
+        if (myMode != BoardMode.SPARSE) return myBoard[row][col] == type;
+        return (myRowBits[type.ordinal()][row * myWordsPerRow + (col >>> 6)] & (1L << col)) != 0L;
     }
     
     /**
@@ -551,14 +1148,7 @@ public class GameBoard
      */
     public boolean isBoardFull() 
     {
-    	for (int i = 0; i < myNumRows; i++) 
-    	{
-    	    for (int j = 0; j < myNumColumns; j++)
-    	    {
-    	        if (myBoard[i][j] == null) return false;
-    	    }
-    	}
-    	return true;
+    	return myNumPieces == myNumRows * myNumColumns;
     }
     
     /**
@@ -569,11 +1159,7 @@ public class GameBoard
     public boolean isColumnFull(int col) 
     {
         if (col < 0 || col >= myNumColumns) return false;
-        for (int i = 0; i < myNumRows; i++)
-        {
-        	if (myBoard[i][col] == null) return false;
-        }
-        return true;
+        return myHeights[col] == myNumRows;
     }
     
     /**
@@ -591,13 +1177,136 @@ public class GameBoard
      */
     public boolean checkAllNull()
     {
-    	for (int i = 0; i < myNumRows; i++) 
-    	{
-    	    for (int j = 0; j < myNumColumns; j++)
-    	    {
-    	        if (myBoard[i][j] != null) return false;
-    	    }
-    	}
-    	return true;
+    	return myNumPieces == 0;
+    }
+    
+    /**
+     * Gets the number of rows on the board.
+     * @return The number of rows.
+     */
+    public int getNumRows()
+    {
+        return myNumRows;
+    }
+    
+    /**
+     * Gets the number of columns on the board.
+     * @return The number of columns.
+     */
+    public int getNumColumns()
+    {
+        return myNumColumns;
+    }
+    
+    /**
+     * Gets how big a run must be to win.
+     * @return The win length.
+     */
+    public int getWinLength()
+    {
+        return myWinLength;
+    }
+    
+    /**
+     * Gets how many pieces have been placed on the board.
+     * @return The number of pieces on the board.
+     */
+    public int getNumPieces()
+    {
+        return myNumPieces;
+    }
+    
+    /**
+     * Gets the Zobrist hash of the current position. It is kept up as pieces are placed and removed,
+     * and is the same for the same position no matter what order the pieces went in.
+     * @return The hash of the position.
+     */
+    public long getHash()
+    {
+        return myHash;
+    }
+    
+    /**
+     * Gets the Zobrist hash of the current position flipped left to right, kept up alongside getHash.
+     * @return The hash the mirror image of the position would have.
+     */
+    public long getMirrorHash()
+    {
+        return myMirrorHash;
+    }
+    
+    /**
+     * Gets the same hash for a position and its mirror image, the smaller of the two hashes. A position and its
+     * mirror are worth the same, so caches keyed by this hold one entry for both.
+     * @return The canonical hash of the position.
+     */
+    public long getCanonicalHash()
+    {
+        return Math.min(myHash, myMirrorHash);
+    }
+    
+    /**
+     * Gets the canonical hash with the player to move keyed in. The same pieces are a different position with someone
+     * else to move, so anything caching search results, whose scores are for the player to move, has to key by this.
+     * @param toMove The PieceType of the player to move.
+     * @return The canonical hash of the position and the player to move.
+     */
+    public long getCanonicalHash(PieceType toMove)
+    {
+        return Math.min(myHash, myMirrorHash) ^ MOVER_KEYS[toMove.ordinal()];
+    }
+    
+    /**
+     * Checks if the canonical hash is the mirror image's. If so, columns stored under it are mirrored columns,
+     * and have to go through mirrorColumn before being played on this board.
+     * @return If getCanonicalHash is the hash of the mirror image.
+     */
+    public boolean isCanonicalMirrored()
+    {
+        return myMirrorHash < myHash;
+    }
+    
+    /**
+     * Gets the column on the other side of the board.
+     * @param col The column.
+     * @return The column it becomes when the board is flipped left to right.
+     */
+    public int mirrorColumn(int col)
+    {
+        return myNumColumns - 1 - col;
+    }
+    
+    /**
+     * Gets the storage mode of the board.
+     * @return The current BoardMode.
+     */
+    public BoardMode getMode()
+    {
+        return myMode;
+    }
+    
+    /**
+     * Gets the bitboard for a piece type. Bit (col * (rows + 1) + height) is set for every piece of that type,
+     * where height counts up from the bottom of the column.
+     * @param type The piece type.
+     * @return The bitboard of the piece type. Always 0 if the board is not in BITBOARD mode.
+     */
+    public long getBitboard(PieceType type)
+    {
+        return myBitboards[type.ordinal()];
+    }
+    
+    /**
+     * Gets the bitboard of every piece on the board, whatever its type.
+     * @return The bitboard of all the pieces. Always 0 if the board is not in BITBOARD mode.
+     */
+    public long getOccupiedBitboard()
+    {
+        long occupied = 0L;
+        for (int i = 0; i < myBitboards.length; i++)
+        {
+            occupied |= myBitboards[i];
+        }
+        return occupied;
     }
-}
\ No newline at end of file
+}
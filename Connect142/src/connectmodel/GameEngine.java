@@ -1,7 +1,8 @@
 /**
  * GameEngine is the glue of the Connect 4 project. However, it does a lot less work than GameBoard
  * does when it comes to actually managing the game. GameEngine simply controls players who need to play, as well
- * as handling piece placement for individual players.
+ * as handling piece placement for individual players. Games of three or four players take turns around the table,
+ * with a ComputerPlayer in every seat but the first.
  * 
  * @author Brandon Belna (bbelna@stetson.edu)
  */
@@ -24,17 +25,69 @@ public class GameEngine
      */
     public GameEngine(Player player, GameBoard gameBoard) 
     {
-    	myPlayers = new Vector<Player>(2);
+        this(player, gameBoard, 2);
+    }
+    
+    /**
+     * GameEngine constructor for a game of two to four players. With two, the computer takes the color paired
+     * with the human's. With more, the computers take the board's other PieceTypes in order, and play after
+     * the human in that order.
+     * @param player The human player.
+     * @param gameBoard Which GameBoard to use.
+     * @param numPlayers How many players there are, counting the human.
+     */
+    public GameEngine(Player player, GameBoard gameBoard, int numPlayers) 
+    {
+        if (numPlayers < 2 || numPlayers > MultiPlayerSearch.MAX_PLAYERS)
+        {
+            throw new IllegalArgumentException("A game needs 2 to " + MultiPlayerSearch.MAX_PLAYERS + " players, not " + numPlayers + "!");
+        }
+    	myPlayers = new Vector<Player>(numPlayers);
         myPlayers.add(player);
         myGameBoard = gameBoard;
-        PieceType cpuType;
-        cpuType = PieceType.BLACK;
-        if (player.getPieceType() == PieceType.RED) cpuType = PieceType.BLACK;
-        if (player.getPieceType() == PieceType.BLACK) cpuType = PieceType.RED;
-        if (player.getPieceType() == PieceType.YELLOW) cpuType = PieceType.GREEN;
-        if (player.getPieceType() == PieceType.GREEN) cpuType = PieceType.YELLOW;
-        compPlayer = new ComputerPlayer("ComputerPlayer", cpuType, myGameBoard);
-        myPlayers.add(compPlayer);
+        if (numPlayers == 2)
+        {
+            PieceType cpuType;
+            cpuType = PieceType.BLACK;
+            if (player.getPieceType() == PieceType.RED) cpuType = PieceType.BLACK;
+            if (player.getPieceType() == PieceType.BLACK) cpuType = PieceType.RED;
+            if (player.getPieceType() == PieceType.YELLOW) cpuType = PieceType.GREEN;
+            if (player.getPieceType() == PieceType.GREEN) cpuType = PieceType.YELLOW;
+            compPlayer = new ComputerPlayer("ComputerPlayer", cpuType, myGameBoard);
+            myPlayers.add(compPlayer);
+        }
+        else
+        {
+            Vector<PieceType> types = gameBoard.getTypes();
+            for (int i = 0; i < types.size() && myPlayers.size() < numPlayers; i++)
+            {
+                if (types.get(i) == player.getPieceType()) continue;
+                String name = (myPlayers.size() == 1) ? "ComputerPlayer" : "ComputerPlayer" + myPlayers.size();
+                myPlayers.add(new ComputerPlayer(name, types.get(i), myGameBoard));
+            }
+            if (myPlayers.size() < numPlayers) throw new IllegalArgumentException("The board needs a PieceType for each of the " + numPlayers + " players!");
+            compPlayer = (ComputerPlayer) myPlayers.get(1);
+        }
+        this.assignOpponents();
+    }
+    
+    /**
+     * Tells each ComputerPlayer who it is playing against, in the order they play after it.
+     */
+    private void assignOpponents()
+    {
+        for (int i = 0; i < myPlayers.size(); i++)
+        {
+            if (!(myPlayers.get(i) instanceof ComputerPlayer)) continue;
+            ComputerPlayer computer = (ComputerPlayer) myPlayers.get(i);
+            PieceType[] opponents = new PieceType[myPlayers.size() - 1];
+            for (int j = 0; j < opponents.length; j++)
+            {
+                opponents[j] = myPlayers.get((i + 1 + j) % myPlayers.size()).getPieceType();
+            }
+            computer.setOpponentType(opponents[0]);
+            computer.setOpponentTypes(opponents);
+        }
     }
     
     /**
@@ -67,21 +120,20 @@ public class GameEngine
     	if (myPlayers.size() == 0) return false;
     	if (myGameBoard == null || myPlayers.get(0) == null) return false; // can't have null objects
     	if (myStartingPlayer == null) this.selectStartingPlayer(myPlayers.get(0));
-    	else if (myStartingPlayer != null && myStartingPlayer == myPlayers.get(0)) this.selectStartingPlayer(myPlayers.get(1));
-    	else this.selectStartingPlayer(myPlayers.get(0));
+    	else this.selectStartingPlayer(myPlayers.get((myPlayers.indexOf(myStartingPlayer) + 1) % myPlayers.size())); // the next player starts
     	myGameBoard.resetBoard();
     	if (!myGameBoard.checkAllNull()) return false;
     	return true;
     }
     
     /**
-     * Switches players.
+     * Switches to the next player around the table.
      * @return The new player.
      */
     public Player switchPlayerUp() 
     {
-        if (myPlayerUp.equals(myPlayers.get(0))) myPlayerUp = myPlayers.get(1);
-        else if (myPlayerUp.equals(myPlayers.get(1))) myPlayerUp = myPlayers.get(0);
+        int up = myPlayers.indexOf(myPlayerUp);
+        if (up != -1) myPlayerUp = myPlayers.get((up + 1) % myPlayers.size());
         return myPlayerUp;
     }
     
@@ -95,6 +147,31 @@ public class GameEngine
         return myGameBoard.placePiece(column, myPlayerUp.getPieceType());
     }
     
+    /**
+     * Takes back the last move, for a takeback in the UI. The turn goes back to whoever made it,
+     * unless it won the game, since the turn never moved on from the winner.
+     * @return If there was a move to take back.
+     */
+    public boolean undoLastMove()
+    {
+        boolean wasWin = myGameBoard.checkIfWin();
+        if (myGameBoard.undoLastMove() == -1) return false;
+        int up = myPlayers.indexOf(myPlayerUp);
+        if (!wasWin && up != -1) myPlayerUp = myPlayers.get((up + myPlayers.size() - 1) % myPlayers.size());
+        return true;
+    }
+    
+    /**
+     * Plays the last move taken back again, and moves the turn on unless it wins.
+     * @return If there was a move to redo.
+     */
+    public boolean redo()
+    {
+        if (!myGameBoard.redo()) return false;
+        if (!myGameBoard.checkIfWin()) this.switchPlayerUp();
+        return true;
+    }
+    
     /**
      * Gets the current player up.
      * @return Current player up.
@@ -129,6 +206,10 @@ public class GameEngine
     public void setGameBoard(GameBoard gameboard)
     {
         myGameBoard = gameboard;
+        for (int i = 0; i < myPlayers.size(); i++)
+        {
+            if (myPlayers.get(i) instanceof ComputerPlayer) ((ComputerPlayer) myPlayers.get(i)).setGameBoard(gameboard);
+        }
     }
     
     /**
@@ -139,22 +220,33 @@ public class GameEngine
     {
         return myGameBoard;
     }
-
+    
     /**
-     * Sets a new human player.
+     * Sets a new human player. With more than two players, a computer which had the human's new color
+     * takes the old one instead.
      * @param player The new human player.
      */
     public void setPlayer(Player player)
     {
         boolean resetStartingPlayer = false;
         if (myStartingPlayer == myPlayers.get(0)) resetStartingPlayer = true;
-        myPlayers.clear();
-        myPlayers.add(player);
-        myPlayers.add(compPlayer);
+        PieceType oldType = myPlayers.get(0).getPieceType();
+        myPlayers.set(0, player);
         if (resetStartingPlayer) myStartingPlayer = myPlayers.get(0);
-        if (player.getPieceType() == PieceType.RED) compPlayer.setPieceType(PieceType.BLACK);
-        if (player.getPieceType() == PieceType.BLACK) compPlayer.setPieceType(PieceType.RED);
-        if (player.getPieceType() == PieceType.YELLOW) compPlayer.setPieceType(PieceType.GREEN);
-        if (player.getPieceType() == PieceType.GREEN) compPlayer.setPieceType(PieceType.YELLOW);
+        if (myPlayers.size() == 2)
+        {
+            if (player.getPieceType() == PieceType.RED) compPlayer.setPieceType(PieceType.BLACK);
+            if (player.getPieceType() == PieceType.BLACK) compPlayer.setPieceType(PieceType.RED);
+            if (player.getPieceType() == PieceType.YELLOW) compPlayer.setPieceType(PieceType.GREEN);
+            if (player.getPieceType() == PieceType.GREEN) compPlayer.setPieceType(PieceType.YELLOW);
+        }
+        else
+        {
+            for (int i = 1; i < myPlayers.size(); i++)
+            {
+                if (myPlayers.get(i).getPieceType() == player.getPieceType()) myPlayers.get(i).setPieceType(oldType);
+            }
+        }
+        this.assignOpponents();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,260 @@
+/**
+ * GameRecordReader reads the games of a game record file written by the GameRecordWriter, one after another. The file
+ * is read through its channel into a large direct buffer, and each game is unpacked into arrays the reader reuses,
+ * so going through millions of games makes no garbage. A game can be replayed onto a GameBoard, and the offset of
+ * any game can be kept and sought back to later.
+ * 
+ * @author Brandon Belna (bbelna@stetson.edu)
+ */
+package connectmodel;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+public class GameRecordReader implements Closeable
+{
+    private static final PieceType[] PIECE_TYPES = PieceType.values();
+    private String myFileName;
+    private FileChannel myChannel;
+    private ByteBuffer myBuffer; // left in read mode
+    private long myBufferOffset; // the file offset of the start of the buffer
+    private long myRecordOffset; // the file offset of the game last read
+    private int myNumRows;
+    private int myNumColumns;
+    private int myWinLength;
+    private int myResult;
+    private PieceType[] myTurnOrder;
+    private int myNumPlayers;
+    private byte[] myMoves;
+    private int myNumMoves;
+    
+    /**
+     * Opens a game record file.
+     * @param fileName The file.
+     * @throws IOException If the file can't be read or isn't a game record file.
+     */
+    public GameRecordReader(String fileName) throws IOException
+    {
+        myFileName = fileName;
+        myChannel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+        myBuffer = ByteBuffer.allocateDirect(GameRecordWriter.BUFFER_SIZE);
+        myBuffer.limit(0);
+        myTurnOrder = new PieceType[4];
+        myMoves = new byte[64];
+        try
+        {
+            if (!this.fill(GameRecordWriter.HEADER_SIZE) || myBuffer.getInt() != GameRecordWriter.MAGIC || myBuffer.getInt() != GameRecordWriter.VERSION)
+            {
+                throw new IOException(fileName + " is not a game record file!");
+            }
+        }
+        catch(IOException exception)
+        {
+            myChannel.close();
+            throw exception;
+        }
+    }
+    
+    /**
+     * Reads the next game.
+     * @return If there was one; false at the end of the file.
+     * @throws IOException If the read fails or the file ends partway through a game.
+     */
+    public boolean next() throws IOException
+    {
+        if (!this.fill(GameRecordWriter.RECORD_HEADER_SIZE))
+        {
+            if (myBuffer.hasRemaining()) throw new IOException(myFileName + " is truncated!");
+            return false;
+        }
+        myRecordOffset = myBufferOffset + myBuffer.position();
+        myNumRows = myBuffer.get() & 0xFF;
+        myNumColumns = myBuffer.get() & 0xFF;
+        myWinLength = myBuffer.get() & 0xFF;
+        int players = myBuffer.get() & 0xFF;
+        myNumPlayers = (players >>> 4) + 1;
+        myResult = players & 0xF;
+        int types = myBuffer.get() & 0xFF;
+        for (int i = 0; i < myNumPlayers; i++)
+        {
+            myTurnOrder[i] = PIECE_TYPES[(types >>> (2 * i)) & 3];
+        }
+        myNumMoves = myBuffer.getShort() & 0xFFFF;
+        if (myNumMoves > myNumRows * myNumColumns || myNumColumns > GameRecordWriter.MAX_COLUMNS)
+        {
+            throw new IOException(myFileName + " has a bad game at offset " + myRecordOffset + "!");
+        }
+        int packed = (myNumMoves + 1) / 2;
+        if (!this.fill(packed)) throw new IOException(myFileName + " is truncated!");
+        if (myMoves.length < packed * 2) myMoves = new byte[Math.max(packed * 2, myMoves.length * 2)];
+        for (int i = 0; i < packed; i++)
+        {
+            int pair = myBuffer.get();
+            myMoves[2 * i] = (byte) ((pair >>> 4) & 0xF);
+            myMoves[2 * i + 1] = (byte) (pair & 0xF);
+        }
+        return true;
+    }
+    
+    /**
+     * Makes sure some bytes are in the buffer, reading more of the file if they aren't.
+     * @param bytes How many bytes are needed.
+     * @return If they are there; false if the file ended first.
+     * @throws IOException If the read fails.
+     */
+    private boolean fill(int bytes) throws IOException
+    {
+        if (myBuffer.remaining() >= bytes) return true;
+        myBufferOffset += myBuffer.position();
+        myBuffer.compact();
+        while (myBuffer.position() < bytes)
+        {
+            if (myChannel.read(myBuffer) == -1) break;
+        }
+        myBuffer.flip();
+        return myBuffer.remaining() >= bytes;
+    }
+    
+    /**
+     * Moves to a game, so the next call to next reads it.
+     * @param offset The game's offset, from getRecordOffset.
+     * @throws IOException If the file can't be sought.
+     */
+    public void seek(long offset) throws IOException
+    {
+        if (offset < GameRecordWriter.HEADER_SIZE) throw new IllegalArgumentException("Offset " + offset + " is in the file header!");
+        myChannel.position(offset);
+        myBufferOffset = offset;
+        myBuffer.clear();
+        myBuffer.limit(0);
+    }
+    
+    /**
+     * Replays the game last read onto a board. The board is reset first, and must be the size the game was played on.
+     * @param board The board.
+     * @return The board, with every move of the game on it.
+     */
+    public GameBoard replay(GameBoard board)
+    {
+        if (board.getNumRows() != myNumRows || board.getNumColumns() != myNumColumns || board.getWinLength() != myWinLength)
+        {
+            throw new IllegalArgumentException("The game was played on a " + myNumRows + "x" + myNumColumns + " board!");
+        }
+        board.resetBoard();
+        int up = 0;
+        for (int i = 0; i < myNumMoves; i++)
+        {
+            board.placePiece(myMoves[i], myTurnOrder[up]);
+            if (++up == myNumPlayers) up = 0;
+        }
+        return board;
+    }
+    
+    /**
+     * Replays the game last read onto a new board of the right size.
+     * @return The new board.
+     */
+    public GameBoard toGameBoard()
+    {
+        return this.replay(new GameBoard(myNumRows, myNumColumns, myWinLength, this.getTurnOrder()));
+    }
+    
+    /**
+     * Gets the file offset of the game last read, to seek back to it later.
+     * @return The offset.
+     */
+    public long getRecordOffset()
+    {
+        return myRecordOffset;
+    }
+    
+    /**
+     * Gets the number of rows the game was played on.
+     * @return The number of rows.
+     */
+    public int getNumRows()
+    {
+        return myNumRows;
+    }
+    
+    /**
+     * Gets the number of columns the game was played on.
+     * @return The number of columns.
+     */
+    public int getNumColumns()
+    {
+        return myNumColumns;
+    }
+    
+    /**
+     * Gets how big a run had to be to win.
+     * @return The win length.
+     */
+    public int getWinLength()
+    {
+        return myWinLength;
+    }
+    
+    /**
+     * Gets the players of the game.
+     * @return A new array of their PieceTypes, in the order they moved from the start.
+     */
+    public PieceType[] getTurnOrder()
+    {
+        PieceType[] turnOrder = new PieceType[myNumPlayers];
+        System.arraycopy(myTurnOrder, 0, turnOrder, 0, myNumPlayers);
+        return turnOrder;
+    }
+    
+    /**
+     * Gets how the game ended.
+     * @return GameRecordWriter.RESULT_UNFINISHED, RESULT_DRAW, or one more than the turn order index of the winner.
+     */
+    public int getResult()
+    {
+        return myResult;
+    }
+    
+    /**
+     * Gets who won the game.
+     * @return The winner's PieceType, or null for a draw or an unfinished game.
+     */
+    public PieceType getWinner()
+    {
+        if (myResult == GameRecordWriter.RESULT_UNFINISHED || myResult == GameRecordWriter.RESULT_DRAW) return null;
+        return myTurnOrder[myResult - 1];
+    }
+    
+    /**
+     * Gets how many moves the game had.
+     * @return The number of moves.
+     */
+    public int getNumMoves()
+    {
+        return myNumMoves;
+    }
+    
+    /**
+     * Gets a move of the game.
+     * @param index The move, 0 for the first.
+     * @return The column played.
+     */
+    public int getMove(int index)
+    {
+        if (index < 0 || index >= myNumMoves) throw new IndexOutOfBoundsException("The game has " + myNumMoves + " moves!");
+        return myMoves[index];
+    }
+    
+    /**
+     * Closes the file.
+     * @throws IOException If closing fails.
+     */
+    public void close() throws IOException
+    {
+        myChannel.close();
+    }
+}
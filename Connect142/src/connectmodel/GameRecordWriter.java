@@ -0,0 +1,206 @@
+/**
+ * GameRecordWriter appends finished games to a game record file, as many as wanted and from any number of threads.
+ * Each game is written as a short header and then its moves packed two to a byte, so an ordinary game of Connect4
+ * takes about twenty bytes and millions of them fit in a few tens of megabytes. Records are gathered in a buffer and
+ * written to the file's channel in large blocks. Read them back with the GameRecordReader.
+ * 
+ * File layout: a header of magic and version, followed by the records one after another. A record is the rows,
+ * columns and win length a byte each, a byte of the number of players less one in the high four bits and the result
+ * in the low four, a byte of the players' PieceType ordinals two bits each in turn order from the lowest bits up, a
+ * 2 byte move count, and then the moves' columns four bits each, the first move in the high bits. Four bits only
+ * go up to MAX_COLUMNS, so the wider boards the GameServer allows can't be recorded.
+ * 
+ * @author Brandon Belna (bbelna@stetson.edu)
+ */
+package connectmodel;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Vector;
+
+public class GameRecordWriter implements Closeable
+{
+    public static final int MAGIC = 0x43344752; // "C4GR"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 8;
+    public static final int RECORD_HEADER_SIZE = 7;
+    public static final int MAX_COLUMNS = 16; // a move is four bits
+    public static final int RESULT_UNFINISHED = 0;
+    public static final int RESULT_DRAW = 15; // in between, a win by the player n - 1 in turn order is stored as n
+    public static final int BUFFER_SIZE = 1 << 16;
+    private FileChannel myChannel;
+    private ByteBuffer myBuffer;
+    private long myNumGames;
+    
+    /**
+     * Opens a game record file for appending, making it if it isn't there.
+     * @param fileName The file.
+     * @throws IOException If the file can't be opened or isn't a game record file.
+     */
+    public GameRecordWriter(String fileName) throws IOException
+    {
+        myChannel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        myBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+        try
+        {
+            if (myChannel.size() == 0)
+            {
+                myBuffer.putInt(MAGIC);
+                myBuffer.putInt(VERSION);
+            }
+            else
+            {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                while (header.hasRemaining() && myChannel.read(header, header.position()) > 0)
+                {
+                    // a file channel can read short, keep going until the header is in
+                }
+                if (header.position() < HEADER_SIZE || header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+                {
+                    throw new IOException(fileName + " is not a game record file!");
+                }
+                myChannel.position(myChannel.size());
+            }
+        }
+        catch(IOException exception)
+        {
+            myChannel.close();
+            throw exception;
+        }
+    }
+    
+    /**
+     * Appends a game played through a GameEngine. The players are taken in turn order from the one who started.
+     * @param engine The engine, with the game on its board.
+     * @throws IOException If the record can't be written.
+     */
+    public void write(GameEngine engine) throws IOException
+    {
+        Vector<Player> players = engine.getPlayers();
+        Player starter = (engine.getStartingPlayer() == null) ? players.get(0) : engine.getStartingPlayer();
+        int first = players.indexOf(starter);
+        PieceType[] turnOrder = new PieceType[players.size()];
+        for (int i = 0; i < turnOrder.length; i++)
+        {
+            turnOrder[i] = players.get((first + i) % turnOrder.length).getPieceType();
+        }
+        this.write(engine.getGameBoard(), turnOrder);
+    }
+    
+    /**
+     * Appends the game on a board. The result is worked out from the board: the last player to move won if there is
+     * a win, it is a draw if the board is full, and otherwise the game is unfinished.
+     * @param board The board.
+     * @param turnOrder The PieceType of each player, in the order they move from the start.
+     * @throws IOException If the record can't be written.
+     */
+    public void write(GameBoard board, PieceType[] turnOrder) throws IOException
+    {
+        int[] moves = board.getMoveHistory();
+        int result = RESULT_UNFINISHED;
+        if (board.checkIfWin()) result = 1 + (moves.length - 1) % turnOrder.length;
+        else if (board.isBoardFull()) result = RESULT_DRAW;
+        this.write(board.getNumRows(), board.getNumColumns(), board.getWinLength(), turnOrder, moves, moves.length, result);
+    }
+    
+    /**
+     * Appends a game.
+     * @param rows Number of rows.
+     * @param cols Number of columns, at most MAX_COLUMNS.
+     * @param winLength How big a run must be to win.
+     * @param turnOrder The PieceType of each player, in the order they move from the start.
+     * @param moves The column of each move.
+     * @param numMoves How many of the moves to write.
+     * @param result RESULT_UNFINISHED, RESULT_DRAW, or one more than the turn order index of the winner.
+     * @throws IOException If the record can't be written.
+     */
+    public synchronized void write(int rows, int cols, int winLength, PieceType[] turnOrder, int[] moves, int numMoves, int result)
+            throws IOException
+    {
+        if (rows < 1 || rows > 255 || cols < 1 || cols > MAX_COLUMNS || winLength < 1 || winLength > 255)
+        {
+            throw new IllegalArgumentException("A " + rows + "x" + cols + " board can't be recorded!");
+        }
+        if (turnOrder.length < 2 || turnOrder.length > 4) throw new IllegalArgumentException("A game needs 2 to 4 players to be recorded!");
+        if (numMoves > rows * cols || numMoves > 0xFFFF) throw new IllegalArgumentException("Too many moves to record!");
+        if (result != RESULT_DRAW && (result < RESULT_UNFINISHED || result > turnOrder.length)) throw new IllegalArgumentException("Bad result " + result + "!");
+        for (int i = 0; i < numMoves; i++)
+        {
+            if (moves[i] < 0 || moves[i] >= cols) throw new IllegalArgumentException("Move " + i + " is off the board!");
+        }
+        if (myChannel == null) throw new IllegalStateException("The writer is closed!");
+        int size = RECORD_HEADER_SIZE + (numMoves + 1) / 2;
+        if (myBuffer.remaining() < size) this.drain(); // the biggest record is a few kilobytes, the buffer always has room after
+        int types = 0;
+        for (int i = 0; i < turnOrder.length; i++)
+        {
+            types |= turnOrder[i].ordinal() << (2 * i);
+        }
+        myBuffer.put((byte) rows);
+        myBuffer.put((byte) cols);
+        myBuffer.put((byte) winLength);
+        myBuffer.put((byte) ((turnOrder.length - 1) << 4 | result));
+        myBuffer.put((byte) types);
+        myBuffer.putShort((short) numMoves);
+        for (int i = 0; i < numMoves; i += 2)
+        {
+            int low = (i + 1 < numMoves) ? moves[i + 1] : 0;
+            myBuffer.put((byte) (moves[i] << 4 | low));
+        }
+        myNumGames++;
+    }
+    
+    /**
+     * Writes everything buffered to the file.
+     * @throws IOException If the write fails.
+     */
+    public synchronized void flush() throws IOException
+    {
+        if (myChannel != null) this.drain();
+    }
+    
+    /**
+     * Writes the buffer out to the channel and empties it.
+     * @throws IOException If the write fails.
+     */
+    private void drain() throws IOException
+    {
+        myBuffer.flip();
+        while (myBuffer.hasRemaining())
+        {
+            myChannel.write(myBuffer);
+        }
+        myBuffer.clear();
+    }
+    
+    /**
+     * Flushes and closes the file.
+     * @throws IOException If the last write fails.
+     */
+    public synchronized void close() throws IOException
+    {
+        if (myChannel == null) return;
+        try
+        {
+            this.drain();
+        }
+        finally
+        {
+            myChannel.close();
+            myChannel = null;
+        }
+    }
+    
+    /**
+     * Gets how many games this writer has appended.
+     * @return The number of games.
+     */
+    public synchronized long getNumGames()
+    {
+        return myNumGames;
+    }
+}
@@ -0,0 +1,607 @@
+/**
+ * MonteCarloSearch picks moves by Monte Carlo Tree Search instead of looking the whole tree over. Each playout walks
+ * down the tree by UCT, adds one new node, plays the game out with quick random moves and passes the result back up.
+ * It needs no evaluation and no fixed depth, so it still plays sensibly on boards far too big for alpha-beta.
+ * 
+ * Playouts run on several threads over one shared tree. A thread passing through a node gives it a virtual loss,
+ * which makes the other threads try different lines until the real result comes back. The tree below the move
+ * actually played is kept for the next search.
+ * 
+ * @author Brandon Belna (bbelna@stetson.edu)
+ */
+package connectmodel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class MonteCarloSearch
+{
+    public static final int DEFAULT_PLAYOUTS = 20000;
+    public static final double DEFAULT_EXPLORATION = Math.sqrt(2.0);
+    public static final int VIRTUAL_LOSS = 1; // visits added, as losses, by each thread passing through a node
+    public static final int DEFAULT_MAX_NODES = 1 << 21;
+    private static final double WIN = 1.0;
+    private static final double DRAW = 0.5;
+    private int myThreads;
+    private int myPlayouts;
+    private double myExploration;
+    private int myMaxNodes;
+    private boolean myHeuristicPlayouts;
+    private long mySeed;
+    private int myNumSearches; // mixed into the seed so each search plays different playouts
+    private ForkJoinPool myPool;
+    private Node myRoot;
+    private AtomicInteger myNodeCount;
+    private AtomicLong myPlayoutCount;
+    private long myDeadline; // System.nanoTime() to stop at, or 0 for none
+    private volatile boolean myStopRequested;
+    private volatile boolean myIsFinished; // the first thread is done, so the others stop too
+    private long myElapsedNanos;
+    private double myLastScore;
+    private boolean myReusedTree;
+    
+    /**
+     * Constructor for the MonteCarloSearch.
+     * @param threads How many threads to run playouts on.
+     */
+    public MonteCarloSearch(int threads)
+    {
+        myPlayouts = DEFAULT_PLAYOUTS;
+        myExploration = DEFAULT_EXPLORATION;
+        myMaxNodes = DEFAULT_MAX_NODES;
+        myHeuristicPlayouts = true;
+        mySeed = System.nanoTime();
+        myNodeCount = new AtomicInteger();
+        myPlayoutCount = new AtomicLong();
+        this.setThreads(threads);
+    }
+    
+    /**
+     * Finds the best column for a player to move in, running the set number of playouts.
+     * @param board The board to search. It is left untouched.
+     * @param type The PieceType of the player to move.
+     * @param opponentType The PieceType of the other player.
+     * @return The best column, or -1 if there is no legal move.
+     */
+    public int findBestMove(GameBoard board, PieceType type, PieceType opponentType)
+    {
+        return this.search(board, type, opponentType, 0L);
+    }
+    
+    /**
+     * Finds the best column for a player to move in, running playouts until the time is up.
+     * @param board The board to search. It is left untouched.
+     * @param type The PieceType of the player to move.
+     * @param opponentType The PieceType of the other player.
+     * @param millis How long the search may take, in milliseconds.
+     * @return The best column, or -1 if there is no legal move.
+     */
+    public int findBestMove(GameBoard board, PieceType type, PieceType opponentType, long millis)
+    {
+        return this.search(board, type, opponentType, System.nanoTime() + millis * 1000000L);
+    }
+    
+    /**
+     * Runs the playouts. The caller's thread does the work of the first thread while the pool does the rest.
+     * @param board The board to search.
+     * @param type The PieceType of the player to move.
+     * @param opponentType The PieceType of the other player.
+     * @param deadline The System.nanoTime() to stop at, or 0 to stop after the set number of playouts.
+     * @return The best column, or -1 if there is no legal move.
+     */
+    private int search(final GameBoard board, final PieceType type, final PieceType opponentType, long deadline)
+    {
+        long start = System.nanoTime();
+        myIsFinished = false;
+        myDeadline = deadline;
+        myNumSearches++;
+        myPlayoutCount.set(0);
+        if (board.checkIfWin() || board.isBoardFull()) return -1;
+        this.findRoot(board);
+        List<Future<Integer>> workers = new ArrayList<Future<Integer>>(myThreads - 1);
+        for (int i = 1; i < myThreads; i++)
+        {
+            final int index = i;
+            workers.add(myPool.submit(new Callable<Integer>() {
+                public Integer call()
+                {
+                    return runPlayouts(board, type, opponentType, index);
+                }
+            }));
+        }
+        this.runPlayouts(board, type, opponentType, 0);
+        myIsFinished = true; // the budget is shared, but stop the others if we finished on a deadline
+        for (int i = 0; i < workers.size(); i++)
+        {
+            this.waitFor(workers.get(i));
+        }
+        myElapsedNanos = System.nanoTime() - start;
+        
+        // play the most visited move, which is the one the search trusts the most
+        Node best = null;
+        for (int i = 0; i < myRoot.myChildren.size(); i++)
+        {
+            Node child = myRoot.myChildren.get(i);
+            if (best == null || child.myVisits > best.myVisits) best = child;
+        }
+        if (best == null) return -1;
+        myLastScore = best.myWins / Math.max(1, best.myVisits);
+        return best.myMove;
+    }
+    
+    /**
+     * Picks the root for this search. If the board is one or two moves on from the last search,
+     * that part of the old tree becomes the new root, otherwise a new tree is started.
+     * @param board The board to search.
+     */
+    private void findRoot(GameBoard board)
+    {
+        Node found = null;
+        if (myRoot != null)
+        {
+            for (int i = 0; i < myRoot.myChildren.size() && found == null; i++)
+            {
+                Node child = myRoot.myChildren.get(i);
+                if (child.matches(board)) found = child;
+                for (int j = 0; j < child.myChildren.size() && found == null; j++)
+                {
+                    if (child.myChildren.get(j).matches(board)) found = child.myChildren.get(j);
+                }
+            }
+        }
+        myReusedTree = (found != null);
+        if (found == null)
+        {
+            found = new Node(-1, board.getHash(), board.getNumPieces());
+            found.setUntried(board);
+            myNodeCount.set(1);
+        }
+        else myNodeCount.set(Math.max(1, found.myVisits)); // each visit added at most one node, so this is an upper bound
+        myRoot = found;
+    }
+    
+    /**
+     * The loop each thread runs: select, expand, play out, back up, until the budget is spent.
+     * @param rootBoard The board at the root.
+     * @param type The PieceType of the player to move at the root.
+     * @param opponentType The PieceType of the other player.
+     * @param index Which thread this is.
+     * @return How many playouts this thread ran.
+     */
+    private int runPlayouts(GameBoard rootBoard, PieceType type, PieceType opponentType, int index)
+    {
+        GameBoard board = new GameBoard(rootBoard);
+        Random random = new Random((mySeed + myNumSearches) * 31 + index);
+        PieceType[] sides = {type, opponentType};
+        Node[] path = new Node[board.getNumRows() * board.getNumColumns() + 1];
+        int[] moves = new int[path.length];
+        int[] played = new int[path.length]; // the playout moves, to take them back
+        int[] candidates = new int[board.getNumColumns()];
+        int playouts = 0;
+        while (!myStopRequested && !myIsFinished)
+        {
+            if (myDeadline != 0L)
+            {
+                if ((playouts & 0xF) == 0 && System.nanoTime() > myDeadline) break;
+            }
+            else if (myPlayoutCount.getAndIncrement() >= myPlayouts) break;
+            
+            // selection and expansion, leaving a virtual loss on every node we pass
+            Node node = myRoot;
+            int length = 0;
+            path[length++] = node;
+            node.addVirtualLoss();
+            int side = 0;
+            while (node.myResult < 0)
+            {
+                Node next = node.expand(board, sides[side], myNodeCount.get() < myMaxNodes ? myNodeCount : null);
+                boolean expanded = (next != null);
+                if (!expanded) next = node.select(myExploration);
+                if (next == null) break; // out of nodes, play out from here
+                board.placePiece(next.myMove, sides[side]);
+                moves[length] = next.myMove;
+                path[length++] = next;
+                node = next;
+                side = 1 - side;
+                if (expanded) break; // a new node is played out straight away
+            }
+            
+            // the playout gives a result for the player who moved into the last node
+            double result;
+            if (node.myResult >= 0) result = node.myResult;
+            else result = 1.0 - this.playout(board, sides, side, random, played, candidates);
+            
+            // back up, flipping the result at each level and taking the virtual losses away again
+            for (int i = length - 1; i >= 0; i--)
+            {
+                path[i].update(result);
+                result = 1.0 - result;
+                if (i > 0) board.removePiece(moves[i]);
+            }
+            playouts++;
+        }
+        if (myDeadline != 0L) myPlayoutCount.addAndGet(playouts);
+        return playouts;
+    }
+    
+    /**
+     * Plays random moves to the end of the game and takes them back again. Heuristic playouts take a win
+     * when there is one, which makes the results much less noisy for little cost.
+     * @param board The board to play on.
+     * @param sides The two PieceTypes.
+     * @param side Which of the sides is to move.
+     * @param random The random numbers for this thread.
+     * @param played Room to remember the moves played.
+     * @param candidates Room to list the candidate columns of a SPARSE board.
+     * @return The result for the player to move at the start: 1 for a win, 0.5 for a draw, 0 for a loss.
+     */
+    private double playout(GameBoard board, PieceType[] sides, int side, Random random, int[] played, int[] candidates)
+    {
+        int cols = board.getNumColumns();
+        int count = 0;
+        int mover = side;
+        double result = DRAW;
+        while (!board.isBoardFull())
+        {
+            int col = -1;
+            if (myHeuristicPlayouts) col = this.findWinningMove(board, sides[mover]);
+            if (col == -1 && board.getMode() == BoardMode.SPARSE)
+            {
+                col = candidates[random.nextInt(board.getCandidateColumns(candidates))]; // stay near the pieces
+            }
+            else if (col == -1)
+            {
+                col = random.nextInt(cols);
+                while (board.isColumnFull(col))
+                {
+                    col = (col + 1) % cols;
+                }
+            }
+            board.placePiece(col, sides[mover]);
+            played[count++] = col;
+            if (board.checkIfWin())
+            {
+                result = (mover == side) ? WIN : 1.0 - WIN;
+                break;
+            }
+            mover = 1 - mover;
+        }
+        while (count > 0)
+        {
+            board.removePiece(played[--count]);
+        }
+        return result;
+    }
+    
+    /**
+     * Looks for a move which wins on the spot.
+     * @param board The board.
+     * @param type The PieceType to move.
+     * @return The winning column, or -1 if there is none.
+     */
+    private int findWinningMove(GameBoard board, PieceType type)
+    {
+        for (int col = 0; col < board.getNumColumns(); col++)
+        {
+            if (!board.isCandidateColumn(col)) continue;
+            board.placePiece(col, type);
+            boolean win = board.checkIfWin();
+            board.removePiece(col);
+            if (win) return col;
+        }
+        return -1;
+    }
+    
+    /**
+     * Waits for a playout thread, passing any failure along.
+     * @param future The thread's task.
+     * @return How many playouts it ran.
+     */
+    private int waitFor(Future<Integer> future)
+    {
+        boolean interrupted = false;
+        try
+        {
+            while (true)
+            {
+                try
+                {
+                    return future.get();
+                }
+                catch(InterruptedException exception)
+                {
+                    interrupted = true; // finish waiting, the threads are already told to stop
+                }
+            }
+        }
+        catch(ExecutionException exception)
+        {
+            throw new IllegalStateException("A playout thread failed!", exception.getCause());
+        }
+        finally
+        {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Asks a running search to stop as soon as it can. It will still return the best move it has.
+     */
+    public void stop()
+    {
+        myStopRequested = true;
+    }
+    
+    /**
+     * Clears a stop request, ready for the next search. As with SearchEngine.clearStop, searches don't clear it
+     * themselves, so call it when the search is handed out rather than when it starts.
+     */
+    public void clearStop()
+    {
+        myStopRequested = false;
+    }
+    
+    /**
+     * Throws the tree away, so the next search starts fresh.
+     */
+    public void clearTree()
+    {
+        myRoot = null;
+    }
+    
+    /**
+     * Gets how many playouts the last search ran.
+     * @return The playout count.
+     */
+    public long getPlayoutCount()
+    {
+        return Math.min(myPlayoutCount.get(), (myDeadline == 0L) ? myPlayouts : Long.MAX_VALUE);
+    }
+    
+    /**
+     * Gets how fast the last search went over all threads.
+     * @return Playouts per second.
+     */
+    public double getPlayoutsPerSecond()
+    {
+        return this.getPlayoutCount() * 1e9 / Math.max(1L, myElapsedNanos);
+    }
+    
+    /**
+     * Gets how many times the root has been visited, including visits kept from earlier searches.
+     * @return The root visit count.
+     */
+    public int getRootVisits()
+    {
+        return (myRoot == null) ? 0 : myRoot.myVisits;
+    }
+    
+    /**
+     * Checks if the last search started from part of the tree of the search before it.
+     * @return If the tree was reused.
+     */
+    public boolean getReusedTree()
+    {
+        return myReusedTree;
+    }
+    
+    /**
+     * Gets how often the chosen move won its playouts.
+     * @return The win rate of the move played, between 0 and 1.
+     */
+    public double getLastScore()
+    {
+        return myLastScore;
+    }
+    
+    /**
+     * Gets how many threads run playouts.
+     * @return The thread count.
+     */
+    public int getThreads()
+    {
+        return myThreads;
+    }
+    
+    /**
+     * Sets how many threads run playouts.
+     * @param threads The new thread count.
+     */
+    public void setThreads(int threads)
+    {
+        myThreads = Math.max(1, threads);
+        if (myPool != null) myPool.shutdown();
+        myPool = new ForkJoinPool(myThreads);
+    }
+    
+    /**
+     * Sets how many playouts a search without a time limit runs.
+     * @param playouts The new playout count.
+     */
+    public void setPlayouts(int playouts)
+    {
+        myPlayouts = Math.max(1, playouts);
+    }
+    
+    /**
+     * Sets how much UCT favors trying less visited moves over the ones that look best.
+     * @param exploration The exploration constant.
+     */
+    public void setExploration(double exploration)
+    {
+        myExploration = exploration;
+    }
+    
+    /**
+     * Sets how many nodes the tree may hold. Once it's full, playouts start from the leaves without adding more.
+     * @param nodes The new node limit.
+     */
+    public void setMaxNodes(int nodes)
+    {
+        myMaxNodes = Math.max(1, nodes);
+    }
+    
+    /**
+     * Turns heuristic playouts on or off. Off, the playouts are purely random.
+     * @param heuristic If playouts should take wins when they see them.
+     */
+    public void setHeuristicPlayouts(boolean heuristic)
+    {
+        myHeuristicPlayouts = heuristic;
+    }
+    
+    /**
+     * Sets the seed for the playouts. A single thread with a fixed number of playouts then repeats exactly.
+     * @param seed The new seed.
+     */
+    public void setSeed(long seed)
+    {
+        mySeed = seed;
+    }
+    
+    /**
+     * Shuts the playout threads down.
+     */
+    public void shutdown()
+    {
+        myPool.shutdown();
+    }
+    
+    /**
+     * A position in the search tree. Every field that threads share is only touched while holding the node.
+     */
+    private static class Node
+    {
+        private int myMove; // the column played to get here
+        private long myHash;
+        private int myNumPieces;
+        private int myVisits;
+        private double myWins; // for the player who moved into this node
+        private double myResult = -1; // the result if the game is over here, otherwise -1
+        private int[] myUntried;
+        private int myNumUntried;
+        private List<Node> myChildren = new ArrayList<Node>();
+        
+        /**
+         * Constructor for the Node.
+         * @param move The column played to get here.
+         * @param hash The hash of the board here.
+         * @param pieces How many pieces are on the board here.
+         */
+        Node(int move, long hash, int pieces)
+        {
+            myMove = move;
+            myHash = hash;
+            myNumPieces = pieces;
+        }
+        
+        /**
+         * Fills in the moves not yet tried, the center columns last so they are tried first.
+         * @param board The board here.
+         */
+        void setUntried(GameBoard board)
+        {
+            int[] order = SearchEngine.centerFirstOrder(board.getNumColumns());
+            myUntried = new int[order.length];
+            for (int i = order.length - 1; i >= 0; i--)
+            {
+                if (board.isCandidateColumn(order[i])) myUntried[myNumUntried++] = order[i];
+            }
+        }
+        
+        /**
+         * Checks if this node is the given board.
+         * @param board The board.
+         * @return If the board is the position of this node.
+         */
+        boolean matches(GameBoard board)
+        {
+            return myHash == board.getHash() && myNumPieces == board.getNumPieces();
+        }
+        
+        /**
+         * Adds a virtual loss for a thread passing through.
+         */
+        synchronized void addVirtualLoss()
+        {
+            myVisits += VIRTUAL_LOSS;
+        }
+        
+        /**
+         * Records the result of a playout through this node and takes back the virtual loss.
+         * @param result The result for the player who moved into this node.
+         */
+        synchronized void update(double result)
+        {
+            myVisits += 1 - VIRTUAL_LOSS;
+            myWins += result;
+        }
+        
+        /**
+         * Adds a child for one of the untried moves, with a virtual loss on it.
+         * @param board The board here. It is put back the way it was.
+         * @param type The PieceType to move here.
+         * @param nodeCount The count of nodes in the tree, or null if the tree is full.
+         * @return The new child, or null if every move has been tried or there is no room.
+         */
+        synchronized Node expand(GameBoard board, PieceType type, AtomicInteger nodeCount)
+        {
+            if (myNumUntried == 0 || nodeCount == null) return null;
+            int move = myUntried[--myNumUntried];
+            board.placePiece(move, type);
+            Node child = new Node(move, board.getHash(), board.getNumPieces());
+            if (board.checkIfWin()) child.myResult = WIN;
+            else if (board.isBoardFull()) child.myResult = DRAW;
+            else child.setUntried(board);
+            board.removePiece(move);
+            nodeCount.incrementAndGet();
+            myChildren.add(child);
+            child.addVirtualLoss();
+            return child;
+        }
+        
+        /**
+         * Picks the child with the best UCT score and gives it a virtual loss.
+         * @param exploration The UCT exploration constant.
+         * @return The best child, or null if there are no children.
+         */
+        synchronized Node select(double exploration)
+        {
+            double logVisits = Math.log(Math.max(1, myVisits));
+            double bestValue = -Double.MAX_VALUE;
+            Node best = null;
+            for (int i = 0; i < myChildren.size(); i++)
+            {
+                Node child = myChildren.get(i);
+                double value = child.getUctValue(logVisits, exploration);
+                if (value > bestValue)
+                {
+                    bestValue = value;
+                    best = child;
+                }
+            }
+            if (best != null) best.addVirtualLoss();
+            return best;
+        }
+        
+        /**
+         * Works out the UCT score of this node from its parent's point of view.
+         * @param logParentVisits The log of the parent's visits.
+         * @param exploration The UCT exploration constant.
+         * @return The UCT score.
+         */
+        synchronized double getUctValue(double logParentVisits, double exploration)
+        {
+            if (myResult == WIN) return Double.MAX_VALUE; // a move that wins on the spot is always taken
+            int visits = Math.max(1, myVisits);
+            return myWins / visits + exploration * Math.sqrt(logParentVisits / visits);
+        }
+    }
+}
@@ -0,0 +1,285 @@
+/**
+ * MoveOrderer sorts the moves of a SearchEngine node so the best ones are searched first, which is what lets
+ * alpha-beta cut the rest off. After the principal variation and table moves come threats: moves that win on
+ * the spot, then moves that block the opponent's win, then moves that leave two wins open at once. Then the
+ * killer moves of the ply, which caused cutoffs in sibling positions, and last everything else by a history table
+ * of which cells have caused cutoffs before. The sort is stable, so the center-first order breaks ties.
+ * 
+ * @author Brandon Belna (bbelna@stetson.edu)
+ */
+package connectmodel;
+
+import java.util.Arrays;
+
+public class MoveOrderer
+{
+    public static final int THREAT_DEPTH = 3; // only look for wins and blocks with at least this many plies left
+    public static final int DOUBLE_THREAT_DEPTH = 6; // double threats cost a lot more to find, so they need more depth
+    public static final int KILLERS = 2; // killer moves kept per ply
+    private static final int PV_SCORE = 1 << 30;
+    private static final int TABLE_SCORE = PV_SCORE - 1;
+    private static final int WIN_SCORE = 1 << 29;
+    private static final int BLOCK_SCORE = 1 << 28;
+    private static final int DOUBLE_THREAT_SCORE = 1 << 27;
+    private static final int KILLER_SCORE = 1 << 26; // the first killer gets this, the second one less
+    private static final int MAX_HISTORY = KILLER_SCORE / 2; // the table is halved if any cell gets this big
+    private int myNumRows;
+    private int myNumColumns;
+    private int[][] myHistory; // myHistory[side][row * cols + col], bigger for cells that caused more cutoffs
+    private int[][] myKillers; // myKillers[ply][k], or -1
+    private int[][] myScores; // the order scores of the moves at each ply
+    private boolean myIsEnabled;
+    private long myThreatMoves;
+    private long myKillerMoves;
+    
+    /**
+     * Constructor for the MoveOrderer.
+     * @param rows The number of rows of the board.
+     * @param cols The number of columns of the board.
+     * @param plies How many plies deep the search can go.
+     */
+    public MoveOrderer(int rows, int cols, int plies)
+    {
+        myNumRows = rows;
+        myNumColumns = cols;
+        myHistory = new int[2][rows * cols];
+        myKillers = new int[plies][KILLERS];
+        myScores = new int[plies][cols];
+        myIsEnabled = true;
+        this.newSearch();
+    }
+    
+    /**
+     * Checks if the orderer fits a board.
+     * @param board The board.
+     * @return If it was made for a board this size.
+     */
+    boolean fits(GameBoard board)
+    {
+        return board.getNumRows() == myNumRows && board.getNumColumns() == myNumColumns;
+    }
+    
+    /**
+     * Gets ready for a new search. The killers are forgotten, since the plies have moved on,
+     * and the history is halved so it follows the game along.
+     */
+    public void newSearch()
+    {
+        for (int i = 0; i < myKillers.length; i++)
+        {
+            Arrays.fill(myKillers[i], -1);
+        }
+        for (int side = 0; side < myHistory.length; side++)
+        {
+            for (int i = 0; i < myHistory[side].length; i++)
+            {
+                myHistory[side][i] >>= 1;
+            }
+        }
+        myThreatMoves = 0;
+        myKillerMoves = 0;
+    }
+    
+    /**
+     * Forgets everything learned so far, the history as well as the killers, as if the orderer were new.
+     */
+    public void clear()
+    {
+        for (int side = 0; side < myHistory.length; side++)
+        {
+            Arrays.fill(myHistory[side], 0);
+        }
+        this.newSearch();
+    }
+    
+    /**
+     * Lists the candidate moves of a position in the order to search them.
+     * @param board The board, which is put back the way it was.
+     * @param sides The two PieceTypes.
+     * @param side Which of the sides is to move.
+     * @param ply How many plies we are from the root.
+     * @param depth How many plies are left to search.
+     * @param pvMove The move of the last principal variation, or NO_MOVE.
+     * @param tableMove The best move from the transposition table, or NO_MOVE.
+     * @param columnOrder The static column order.
+     * @param moves Where to put the moves.
+     * @return How many moves were listed.
+     */
+    int order(GameBoard board, PieceType[] sides, int side, int ply, int depth, int pvMove, int tableMove, int[] columnOrder,
+            int[] moves)
+    {
+        int[] scores = myScores[ply];
+        int count = 0;
+        for (int i = 0; i < columnOrder.length; i++)
+        {
+            int col = columnOrder[i];
+            if (!board.isCandidateColumn(col)) continue;
+            int score;
+            if (col == pvMove) score = PV_SCORE;
+            else if (col == tableMove) score = TABLE_SCORE;
+            else if (!myIsEnabled) score = 0; // just the static order
+            else score = this.scoreMove(board, sides, side, ply, depth, col);
+            // a stable insertion sort, the lists are short
+            int j = count++;
+            while (j > 0 && scores[j - 1] < score)
+            {
+                scores[j] = scores[j - 1];
+                moves[j] = moves[j - 1];
+                j--;
+            }
+            scores[j] = score;
+            moves[j] = col;
+        }
+        return count;
+    }
+    
+    /**
+     * Scores a move that isn't from the principal variation or the table.
+     * @param board The board.
+     * @param sides The two PieceTypes.
+     * @param side Which of the sides is to move.
+     * @param ply How many plies we are from the root.
+     * @param depth How many plies are left to search.
+     * @param col The move.
+     * @return The order score of the move.
+     */
+    private int scoreMove(GameBoard board, PieceType[] sides, int side, int ply, int depth, int col)
+    {
+        if (depth >= THREAT_DEPTH)
+        {
+            if (this.wins(board, col, sides[side]))
+            {
+                myThreatMoves++;
+                return WIN_SCORE;
+            }
+            if (this.wins(board, col, sides[1 - side]))
+            {
+                myThreatMoves++;
+                return BLOCK_SCORE;
+            }
+            if (depth >= DOUBLE_THREAT_DEPTH)
+            {
+                board.placePiece(col, sides[side]);
+                int threats = this.countWinningMoves(board, sides[side], 2);
+                board.removePiece(col);
+                if (threats >= 2)
+                {
+                    myThreatMoves++;
+                    return DOUBLE_THREAT_SCORE;
+                }
+            }
+        }
+        for (int k = 0; k < KILLERS; k++)
+        {
+            if (myKillers[ply][k] == col)
+            {
+                myKillerMoves++;
+                return KILLER_SCORE - k;
+            }
+        }
+        int row = board.getNextFreeRow(col);
+        return myHistory[side][row * myNumColumns + col];
+    }
+    
+    /**
+     * Checks if a piece in a column would win on the spot.
+     * @param board The board, which is put back the way it was.
+     * @param col The column.
+     * @param type The PieceType to place.
+     * @return If the piece would win.
+     */
+    private boolean wins(GameBoard board, int col, PieceType type)
+    {
+        ThreatEvaluator evaluator = board.getEvaluator();
+        if (evaluator != null) return evaluator.wouldWin(board.getNextFreeRow(col), col, type); // no need to make the move
+        board.placePiece(col, type);
+        boolean win = board.checkIfWin();
+        board.removePiece(col);
+        return win;
+    }
+    
+    /**
+     * Counts the columns where a piece would win on the spot.
+     * @param board The board, which is put back the way it was.
+     * @param type The PieceType to place.
+     * @param limit Stop counting once this many are found.
+     * @return The number of winning columns, at most limit.
+     */
+    private int countWinningMoves(GameBoard board, PieceType type, int limit)
+    {
+        int count = 0;
+        for (int col = 0; col < myNumColumns && count < limit; col++)
+        {
+            if (board.isCandidateColumn(col) && this.wins(board, col, type)) count++;
+        }
+        return count;
+    }
+    
+    /**
+     * Learns from a move which caused a cutoff. It becomes the ply's first killer, and its cell's history
+     * goes up by the square of the depth, so cutoffs high in the tree count for more.
+     * @param side Which side made the move.
+     * @param ply How many plies from the root it was made.
+     * @param depth How many plies were left to search.
+     * @param row The row the piece went in.
+     * @param col The column of the move.
+     */
+    void recordCutoff(int side, int ply, int depth, int row, int col)
+    {
+        if (myKillers[ply][0] != col)
+        {
+            for (int k = KILLERS - 1; k > 0; k--)
+            {
+                myKillers[ply][k] = myKillers[ply][k - 1];
+            }
+            myKillers[ply][0] = col;
+        }
+        int[] history = myHistory[side];
+        int cell = row * myNumColumns + col;
+        history[cell] += depth * depth;
+        if (history[cell] > MAX_HISTORY)
+        {
+            for (int i = 0; i < history.length; i++)
+            {
+                history[i] >>= 1;
+            }
+        }
+    }
+    
+    /**
+     * Gets how many moves were put first for being a win, a block or a double threat since the last new search.
+     * @return The number of threat moves.
+     */
+    public long getThreatMoves()
+    {
+        return myThreatMoves;
+    }
+    
+    /**
+     * Gets how many moves were put first for being a killer since the last new search.
+     * @return The number of killer moves.
+     */
+    public long getKillerMoves()
+    {
+        return myKillerMoves;
+    }
+    
+    /**
+     * Checks if the dynamic ordering is on.
+     * @return If threats, killers and history are used.
+     */
+    public boolean isEnabled()
+    {
+        return myIsEnabled;
+    }
+    
+    /**
+     * Turns the dynamic ordering on or off. Off, moves are searched in the principal variation, table and
+     * center-first order only, which is useful to measure what the ordering saves.
+     * @param enabled If threats, killers and history should be used.
+     */
+    public void setEnabled(boolean enabled)
+    {
+        myIsEnabled = enabled;
+    }
+}
@@ -0,0 +1,371 @@
+/**
+ * MultiPlayerSearch searches the game tree for games of three or four players, where the two player SearchEngine's
+ * negamax no longer works. It has two ways to look at the other players. Paranoid search assumes they have all
+ * ganged up on us, which turns the game back into two sides so alpha-beta can prune as usual. Max^n lets every
+ * player chase their own score, and prunes with shallow pruning: every player's score is kept positive and their
+ * sum bounded, so once a player can take more than what is left over from their parent's best, the parent won't
+ * pick that move.
+ * 
+ * Like the SearchEngine, moves are made and unmade on a single copy of the GameBoard, the center columns are tried
+ * first, and the search deepens a ply at a time so it can be given a time budget.
+ * 
+ * @author Brandon Belna (bbelna@stetson.edu)
+ */
+package connectmodel;
+
+import java.util.Arrays;
+
+public class MultiPlayerSearch
+{
+    public static final int DEFAULT_DEPTH = 6;
+    public static final int MAX_DEPTH = SearchEngine.MAX_DEPTH;
+    public static final int MAX_PLAYERS = 4;
+    public static final int WIN_SCORE = SearchEngine.WIN_SCORE; // paranoid scores within the board size of this are forced wins
+    private static final int WIN_THRESHOLD = WIN_SCORE - MAX_DEPTH - 1;
+    private int myDepth;
+    private boolean myIsParanoid;
+    private GameBoard myBoard;
+    private PieceType[] mySides; // mySides[0] is the player we are searching for, the rest follow in turn order
+    private int myNumSides;
+    private int[] myColumnOrder;
+    private int[][] myCellWeights;
+    private int[] myPositionalScores; // the sum of each side's cell weights, kept up as we make moves
+    private int myMaxSum; // the bound on the sum of a max^n score vector, a win scores just under it
+    private int[][] myValues; // the max^n score vector returned from each ply
+    private int[][] myBestValues; // the best max^n score vector found so far at each ply
+    private int myBestMove;
+    private int myLastScore;
+    private int myDepthReached;
+    private long myNodes;
+    private long myShallowCutoffs;
+    private long myDeadline; // System.nanoTime() to stop at, 0 for no limit
+    private volatile boolean myStopRequested;
+    private boolean myAborted;
+    
+    /**
+     * Constructor for the MultiPlayerSearch. It starts out paranoid.
+     * @param depth How many plies to search.
+     */
+    public MultiPlayerSearch(int depth)
+    {
+        myDepth = depth;
+        myIsParanoid = true;
+    }
+    
+    /**
+     * Finds the best column for a player to move in, searching to the search's depth.
+     * The given board is copied once and left untouched.
+     * @param board The board to search.
+     * @param turnOrder The PieceTypes of the players, starting with the one to move and then in the order they play.
+     * @return The best column, or -1 if there is no legal move.
+     */
+    public int findBestMove(GameBoard board, PieceType[] turnOrder)
+    {
+        return this.search(board, turnOrder, Math.min(Math.max(1, myDepth), MAX_DEPTH), 0L);
+    }
+    
+    /**
+     * Finds the best column for a player to move in, deepening until the time is up. The move comes from
+     * the deepest iteration which finished in time. The given board is copied once and left untouched.
+     * @param board The board to search.
+     * @param turnOrder The PieceTypes of the players, starting with the one to move and then in the order they play.
+     * @param millis How long the search may take, in milliseconds.
+     * @return The best column, or -1 if there is no legal move.
+     */
+    public int findBestMove(GameBoard board, PieceType[] turnOrder, long millis)
+    {
+        return this.search(board, turnOrder, MAX_DEPTH, System.nanoTime() + millis * 1000000L);
+    }
+    
+    /**
+     * Runs the iterative deepening search.
+     * @param board The board to search.
+     * @param turnOrder The PieceTypes of the players, starting with the one to move.
+     * @param maxDepth The deepest iteration to run.
+     * @param deadline The System.nanoTime() to stop at, or 0 for no limit.
+     * @return The best column, or -1 if there is no legal move.
+     */
+    private int search(GameBoard board, PieceType[] turnOrder, int maxDepth, long deadline)
+    {
+        if (turnOrder.length < 2 || turnOrder.length > MAX_PLAYERS)
+        {
+            throw new IllegalArgumentException("A game needs 2 to " + MAX_PLAYERS + " players, not " + turnOrder.length + "!");
+        }
+        prepare(board, turnOrder);
+        myNodes = 0;
+        myShallowCutoffs = 0;
+        myDepthReached = 0;
+        myDeadline = deadline;
+        myAborted = false;
+        int bestMove = -1;
+        if (myBoard.isBoardFull() || myBoard.checkIfWin()) return -1;
+        int emptyCells = myBoard.getNumRows() * myBoard.getNumColumns() - myBoard.getNumPieces();
+        for (int depth = 1; depth <= maxDepth; depth++)
+        {
+            myBestMove = -1;
+            int score;
+            if (myIsParanoid) score = paranoid(depth, -Integer.MAX_VALUE, Integer.MAX_VALUE, 0, 0, bestMove);
+            else
+            {
+                maxN(depth, 0, 0, Integer.MAX_VALUE, bestMove);
+                score = myValues[0][0];
+            }
+            if (myAborted) break; // this iteration didn't finish, so keep the last one's move
+            bestMove = myBestMove;
+            myLastScore = score;
+            myDepthReached = depth;
+            if (depth >= emptyCells) break; // the result can't change any more
+            if (myIsParanoid ? Math.abs(score) > WIN_THRESHOLD : score > myMaxSum - MAX_DEPTH - 1) break; // a forced win
+        }
+        return bestMove;
+    }
+    
+    /**
+     * Asks a running search to stop as soon as it can. It will still return the best move it has.
+     */
+    public void stop()
+    {
+        myStopRequested = true;
+    }
+    
+    /**
+     * Clears a stop request, ready for the next search. As with SearchEngine.clearStop, searches don't clear it
+     * themselves, so call it when the search is handed out rather than when it starts.
+     */
+    public void clearStop()
+    {
+        myStopRequested = false;
+    }
+    
+    /**
+     * Sets up the search copy of the board, the move order and the evaluation tables.
+     * @param board The board to search.
+     * @param turnOrder The PieceTypes of the players, starting with the one to move.
+     */
+    private void prepare(GameBoard board, PieceType[] turnOrder)
+    {
+        mySides = Arrays.copyOf(turnOrder, turnOrder.length);
+        myNumSides = turnOrder.length;
+        if (myColumnOrder == null || myColumnOrder.length != board.getNumColumns() || myCellWeights.length != board.getNumRows()
+                || myBoard.getWinLength() != board.getWinLength())
+        {
+            myColumnOrder = SearchEngine.centerFirstOrder(board.getNumColumns());
+            myCellWeights = SearchEngine.computeCellWeights(board.getNumRows(), board.getNumColumns(), board.getWinLength());
+        }
+        myBoard = new GameBoard(board);
+        myPositionalScores = new int[myNumSides];
+        myValues = new int[MAX_DEPTH + 2][myNumSides];
+        myBestValues = new int[MAX_DEPTH + 2][myNumSides];
+        myMaxSum = MAX_DEPTH + 1; // so a win late in the game still scores above nothing
+        PieceType[][] cells = myBoard.getBoard();
+        for (int i = 0; i < cells.length; i++)
+        {
+            for (int j = 0; j < cells[i].length; j++)
+            {
+                myMaxSum += myCellWeights[i][j];
+                for (int side = 0; side < myNumSides; side++)
+                {
+                    if (cells[i][j] == mySides[side]) myPositionalScores[side] += myCellWeights[i][j];
+                }
+            }
+        }
+    }
+    
+    /**
+     * Checks the clock and any stop request every so often. The first iteration always finishes.
+     * @return If the search has to stop.
+     */
+    private boolean checkAbort()
+    {
+        myNodes++;
+        if (myDepthReached > 0 && (myNodes & 0x3FF) == 0 && (myStopRequested || myDeadline != 0L && System.nanoTime() > myDeadline))
+        {
+            myAborted = true;
+        }
+        return myAborted;
+    }
+    
+    /**
+     * Paranoid alpha-beta search. Side 0 maximizes, and every other side minimizes, as if they were one player.
+     * @param depth How many plies are left to search.
+     * @param alpha The score side 0 is already guaranteed.
+     * @param beta The score the other sides are already guaranteed.
+     * @param side Which of mySides is to move.
+     * @param ply How many plies we are from the root.
+     * @param firstMove The move to try first at the root, or -1.
+     * @return The score of the position for side 0.
+     */
+    private int paranoid(int depth, int alpha, int beta, int side, int ply, int firstMove)
+    {
+        if (checkAbort()) return 0;
+        if (myBoard.isBoardFull()) return 0; // draw
+        if (depth == 0) return this.paranoidScore();
+        boolean maximizing = (side == 0);
+        int best = maximizing ? -Integer.MAX_VALUE : Integer.MAX_VALUE;
+        for (int i = -1; i < myColumnOrder.length; i++)
+        {
+            int col = (i == -1) ? firstMove : myColumnOrder[i];
+            if (col == -1 || (i >= 0 && col == firstMove) || myBoard.isColumnFull(col)) continue;
+            int row = myBoard.getNextFreeRow(col);
+            myBoard.placePiece(col, mySides[side]);
+            myPositionalScores[side] += myCellWeights[row][col];
+            int score;
+            if (myBoard.checkIfWin()) score = maximizing ? WIN_SCORE - ply : -WIN_SCORE + ply; // quicker wins count for more
+            else score = paranoid(depth - 1, alpha, beta, (side + 1) % myNumSides, ply + 1, -1);
+            myPositionalScores[side] -= myCellWeights[row][col];
+            myBoard.removePiece(col);
+            if (myAborted) return 0;
+            if (maximizing && score > best)
+            {
+                best = score;
+                if (ply == 0) myBestMove = col;
+                alpha = Math.max(alpha, best);
+            }
+            else if (!maximizing && score < best)
+            {
+                best = score;
+                beta = Math.min(beta, best);
+            }
+            if (alpha >= beta) break; // whoever moved before us won't let the game get here
+        }
+        return best;
+    }
+    
+    /**
+     * The paranoid score of a position: our cell weights against each of the others' in turn.
+     * @return The score for side 0.
+     */
+    private int paranoidScore()
+    {
+        int score = 0;
+        for (int side = 1; side < myNumSides; side++)
+        {
+            score += myPositionalScores[0] - myPositionalScores[side];
+        }
+        return score;
+    }
+    
+    /**
+     * Max^n search with shallow pruning. The score vector of the position, one score per side, ends up in myValues[ply].
+     * @param depth How many plies are left to search.
+     * @param side Which of mySides is to move.
+     * @param ply How many plies we are from the root.
+     * @param bound Once the side to move can score this much, the side before it won't come here, so we can stop.
+     * @param firstMove The move to try first at the root, or -1.
+     */
+    private void maxN(int depth, int side, int ply, int bound, int firstMove)
+    {
+        int[] result = myValues[ply];
+        if (checkAbort()) return;
+        if (depth == 0 || myBoard.isBoardFull())
+        {
+            System.arraycopy(myPositionalScores, 0, result, 0, myNumSides);
+            return;
+        }
+        int[] best = myBestValues[ply];
+        boolean found = false;
+        for (int i = -1; i < myColumnOrder.length; i++)
+        {
+            int col = (i == -1) ? firstMove : myColumnOrder[i];
+            if (col == -1 || (i >= 0 && col == firstMove) || myBoard.isColumnFull(col)) continue;
+            int row = myBoard.getNextFreeRow(col);
+            myBoard.placePiece(col, mySides[side]);
+            myPositionalScores[side] += myCellWeights[row][col];
+            int[] child = myValues[ply + 1];
+            if (myBoard.checkIfWin())
+            {
+                Arrays.fill(child, 0);
+                child[side] = myMaxSum - ply; // the winner takes everything, quicker wins count for more
+            }
+            else maxN(depth - 1, (side + 1) % myNumSides, ply + 1, found ? myMaxSum - best[side] : Integer.MAX_VALUE, -1);
+            myPositionalScores[side] -= myCellWeights[row][col];
+            myBoard.removePiece(col);
+            if (myAborted) return;
+            if (!found || child[side] > best[side])
+            {
+                System.arraycopy(child, 0, best, 0, myNumSides);
+                found = true;
+                if (ply == 0) myBestMove = col;
+                if (best[side] >= bound) // whoever moved before us is already better off elsewhere
+                {
+                    myShallowCutoffs++;
+                    break;
+                }
+            }
+        }
+        System.arraycopy(best, 0, result, 0, myNumSides);
+    }
+    
+    /**
+     * Gets the score of the last search, from the searching player's point of view. For paranoid search it is
+     * our weights against everyone else's, for max^n just our own share.
+     * @return The last score.
+     */
+    public int getLastScore()
+    {
+        return myLastScore;
+    }
+    
+    /**
+     * Gets the depth of the deepest iteration the last search finished.
+     * @return The depth reached in plies.
+     */
+    public int getDepthReached()
+    {
+        return myDepthReached;
+    }
+    
+    /**
+     * Gets the number of positions visited by the last search.
+     * @return The node count.
+     */
+    public long getNodeCount()
+    {
+        return myNodes;
+    }
+    
+    /**
+     * Gets how many times the last max^n search cut a node off by shallow pruning.
+     * @return The number of shallow cutoffs.
+     */
+    public long getShallowCutoffCount()
+    {
+        return myShallowCutoffs;
+    }
+    
+    /**
+     * Checks if the search is paranoid or max^n.
+     * @return True for paranoid search, false for max^n.
+     */
+    public boolean isParanoid()
+    {
+        return myIsParanoid;
+    }
+    
+    /**
+     * Picks paranoid or max^n search.
+     * @param paranoid True for paranoid search, false for max^n.
+     */
+    public void setParanoid(boolean paranoid)
+    {
+        myIsParanoid = paranoid;
+    }
+    
+    /**
+     * Gets the search depth.
+     * @return The depth in plies.
+     */
+    public int getDepth()
+    {
+        return myDepth;
+    }
+    
+    /**
+     * Sets the search depth.
+     * @param depth The new depth in plies.
+     */
+    public void setDepth(int depth)
+    {
+        myDepth = depth;
+    }
+}
@@ -0,0 +1,317 @@
+/**
+ * OpeningBook holds precomputed best moves for the opening of a bitboard sized game. The book is a sorted binary
+ * file of fixed size records which is memory-mapped and binary searched, so opening it costs the same no matter
+ * how big it is and looking a position up never touches more than a few pages.
+ * 
+ * Positions are keyed by the bitboard of the player to move plus the bitboard of every piece. That key is unique
+ * for any board where (rows + 1) * cols fits in a long, and it does not care which colors are playing. A position
+ * and its mirror image share one record, under the smaller of their two keys, and the record's column is stored the
+ * way round that key is, so a lookup from the other side mirrors it back.
+ * 
+ * File layout: a header of magic, version, rows, columns, win length, plies and record count, followed by
+ * records of an 8 byte key, a 1 byte column and a 2 byte score, sorted by key.
+ * 
+ * @author Brandon Belna (bbelna@stetson.edu)
+ */
+package connectmodel;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+public class OpeningBook
+{
+    public static final String DEFAULT_FILE = "connect4.book";
+    public static final int MAGIC = 0x43344F42; // "C4OB"
+    public static final int VERSION = 2; // 2 merged mirror images, so books from before would give the wrong columns
+    public static final int HEADER_SIZE = 16;
+    public static final int RECORD_SIZE = 11;
+    private static final int WIN_BASE = Short.MAX_VALUE; // a win in n plies is stored as WIN_BASE - n
+    private static final int MAX_EVAL = 30000; // ordinary scores are clamped below the win scores
+    private MappedByteBuffer myBuffer;
+    private int myNumRows;
+    private int myNumColumns;
+    private int myWinLength;
+    private int myPlies;
+    private int myNumRecords;
+    private long myHits;
+    private long myMisses;
+    
+    /**
+     * Opens a book by memory-mapping its file.
+     * @param fileName The book file.
+     * @throws IOException If the file can't be read or isn't a book.
+     */
+    public OpeningBook(String fileName) throws IOException
+    {
+        FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+        try
+        {
+            myBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // the mapping outlives the channel
+        }
+        finally
+        {
+            channel.close();
+        }
+        if (myBuffer.capacity() < HEADER_SIZE || myBuffer.getInt(0) != MAGIC || myBuffer.getInt(4) != VERSION)
+        {
+            throw new IOException(fileName + " is not an opening book!");
+        }
+        myNumRows = myBuffer.get(8);
+        myNumColumns = myBuffer.get(9);
+        myWinLength = myBuffer.get(10);
+        myPlies = myBuffer.get(11);
+        myNumRecords = myBuffer.getInt(12);
+        if ((long) HEADER_SIZE + (long) myNumRecords * RECORD_SIZE > myBuffer.capacity())
+        {
+            throw new IOException(fileName + " is truncated!");
+        }
+    }
+    
+    /**
+     * Opens the book if its file is there.
+     * @param fileName The book file.
+     * @return The book, or null if it couldn't be opened.
+     */
+    public static OpeningBook open(String fileName)
+    {
+        if (!new File(fileName).isFile()) return null;
+        try
+        {
+            return new OpeningBook(fileName);
+        }
+        catch(IOException exception)
+        {
+            System.out.println(exception.toString());
+            return null;
+        }
+    }
+    
+    /**
+     * Looks up the book move for a position.
+     * @param board The board. It must be in BITBOARD mode and the size the book was made for.
+     * @param type The PieceType of the player to move.
+     * @return The book column, or -1 if the position isn't in the book.
+     */
+    public int lookup(GameBoard board, PieceType type)
+    {
+        int index = this.find(board, type);
+        if (index < 0)
+        {
+            myMisses++;
+            return -1;
+        }
+        myHits++;
+        int col = myBuffer.get(HEADER_SIZE + index * RECORD_SIZE + 8);
+        return isMirrored(board, type) ? board.mirrorColumn(col) : col;
+    }
+    
+    /**
+     * Looks up the book score for a position.
+     * @param board The board. It must be in BITBOARD mode and the size the book was made for.
+     * @param type The PieceType of the player to move.
+     * @return The score in SearchEngine terms, or 0 if the position isn't in the book.
+     */
+    public int lookupScore(GameBoard board, PieceType type)
+    {
+        int index = this.find(board, type);
+        if (index < 0) return 0;
+        return decodeScore(myBuffer.getShort(HEADER_SIZE + index * RECORD_SIZE + 9));
+    }
+    
+    /**
+     * Binary searches the records for a position.
+     * @param board The board.
+     * @param type The PieceType of the player to move.
+     * @return The index of the record, or -1 if it isn't there.
+     */
+    private int find(GameBoard board, PieceType type)
+    {
+        if (!this.covers(board)) return -1;
+        long key = canonicalKey(board, type);
+        int low = 0;
+        int high = myNumRecords - 1;
+        while (low <= high)
+        {
+            int middle = (low + high) >>> 1;
+            long middleKey = myBuffer.getLong(HEADER_SIZE + middle * RECORD_SIZE);
+            if (middleKey < key) low = middle + 1;
+            else if (middleKey > key) high = middle - 1;
+            else return middle;
+        }
+        return -1;
+    }
+    
+    /**
+     * Checks if the book could have a position from this board.
+     * @param board The board.
+     * @return If the board is the right size and early enough in the game.
+     */
+    public boolean covers(GameBoard board)
+    {
+        return board.getMode() == BoardMode.BITBOARD && board.getNumRows() == myNumRows && board.getNumColumns() == myNumColumns
+                && board.getWinLength() == myWinLength && board.getNumPieces() < myPlies;
+    }
+    
+    /**
+     * Makes the book key of a position.
+     * @param board The board. It must be in BITBOARD mode.
+     * @param type The PieceType of the player to move.
+     * @return The key of the position.
+     */
+    public static long positionKey(GameBoard board, PieceType type)
+    {
+        // the mover's pieces plus every piece. within a column that's the mover's bits plus 2^height - 1,
+        // which is different for every height and every arrangement, and never carries into the next column
+        return board.getBitboard(type) + board.getOccupiedBitboard();
+    }
+    
+    /**
+     * Makes the key a position is stored under in the book, the smaller of its key and its mirror image's.
+     * @param board The board. It must be in BITBOARD mode.
+     * @param type The PieceType of the player to move.
+     * @return The canonical key of the position.
+     */
+    public static long canonicalKey(GameBoard board, PieceType type)
+    {
+        long key = positionKey(board, type);
+        return Math.min(key, mirrorKey(key, board.getNumRows(), board.getNumColumns()));
+    }
+    
+    /**
+     * Checks if a position is stored the other way round in the book, so its columns have to be mirrored.
+     * @param board The board. It must be in BITBOARD mode.
+     * @param type The PieceType of the player to move.
+     * @return If the mirror image's key is the smaller one.
+     */
+    public static boolean isMirrored(GameBoard board, PieceType type)
+    {
+        long key = positionKey(board, type);
+        return mirrorKey(key, board.getNumRows(), board.getNumColumns()) < key;
+    }
+    
+    /**
+     * Flips a key left to right. Every column of the key is its own rows + 1 bits, since nothing carries between them,
+     * so the columns can just be moved.
+     * @param key The key.
+     * @param rows Number of rows of the board.
+     * @param cols Number of columns of the board.
+     * @return The key of the mirror image.
+     */
+    static long mirrorKey(long key, int rows, int cols)
+    {
+        if (cols == 1) return key;
+        int bits = rows + 1;
+        long mask = (1L << bits) - 1;
+        long mirrored = 0L;
+        for (int col = 0; col < cols; col++)
+        {
+            mirrored |= ((key >>> (col * bits)) & mask) << ((cols - 1 - col) * bits);
+        }
+        return mirrored;
+    }
+    
+    /**
+     * Packs a SearchEngine score into a short.
+     * @param score The score.
+     * @return The packed score.
+     */
+    static short encodeScore(int score)
+    {
+        if (score > SearchEngine.WIN_SCORE / 2) return (short) (WIN_BASE - (SearchEngine.WIN_SCORE - score));
+        if (score < -SearchEngine.WIN_SCORE / 2) return (short) -(WIN_BASE - (SearchEngine.WIN_SCORE + score));
+        return (short) Math.max(-MAX_EVAL, Math.min(MAX_EVAL, score));
+    }
+    
+    /**
+     * Unpacks a score packed by encodeScore.
+     * @param packed The packed score.
+     * @return The score in SearchEngine terms.
+     */
+    static int decodeScore(short packed)
+    {
+        if (packed > MAX_EVAL) return SearchEngine.WIN_SCORE - (WIN_BASE - packed);
+        if (packed < -MAX_EVAL) return -(SearchEngine.WIN_SCORE - (WIN_BASE + packed));
+        return packed;
+    }
+    
+    /**
+     * Writes a book file.
+     * @param fileName The file to write.
+     * @param rows Number of rows of the board.
+     * @param cols Number of columns of the board.
+     * @param winLength How big a run must be to win.
+     * @param plies How many plies deep the book goes.
+     * @param keys The position keys, sorted.
+     * @param moves The book column for each key.
+     * @param scores The score for each key.
+     * @throws IOException If the file can't be written.
+     */
+    static void write(String fileName, int rows, int cols, int winLength, int plies, long[] keys, int[] moves, int[] scores)
+            throws IOException
+    {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName), 1 << 16));
+        try
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeByte(rows);
+            out.writeByte(cols);
+            out.writeByte(winLength);
+            out.writeByte(plies);
+            out.writeInt(keys.length);
+            for (int i = 0; i < keys.length; i++)
+            {
+                out.writeLong(keys[i]);
+                out.writeByte(moves[i]);
+                out.writeShort(encodeScore(scores[i]));
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+    
+    /**
+     * Gets how many positions are in the book.
+     * @return The number of records.
+     */
+    public int getNumRecords()
+    {
+        return myNumRecords;
+    }
+    
+    /**
+     * Gets how many plies deep the book goes.
+     * @return The number of plies.
+     */
+    public int getPlies()
+    {
+        return myPlies;
+    }
+    
+    /**
+     * Gets how many lookups found their position.
+     * @return The number of hits.
+     */
+    public long getHits()
+    {
+        return myHits;
+    }
+    
+    /**
+     * Gets how many lookups did not find their position.
+     * @return The number of misses.
+     */
+    public long getMisses()
+    {
+        return myMisses;
+    }
+}
@@ -0,0 +1,178 @@
+/**
+ * OpeningBookGenerator builds the OpeningBook offline. It walks every position reachable in the first few plies
+ * of the default board, searches each one with its own SearchEngine per thread, and writes the results out sorted.
+ * A position and its mirror image are only searched once, and the move is stored the way round the book keys it.
+ * 
+ * Usage: OpeningBookGenerator [file] [plies] [depth] [threads]
+ * 
+ * @author Brandon Belna (bbelna@stetson.edu)
+ */
+package connectmodel;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import connectcontrol.Controller;
+import connectview.ConnectView;
+
+public class OpeningBookGenerator
+{
+    public static final int DEFAULT_PLIES = 8;
+    public static final int DEFAULT_DEPTH = 14;
+    private static final PieceType[] TYPES = {PieceType.RED, PieceType.BLACK};
+    private int myNumRows;
+    private int myNumColumns;
+    private int myWinLength;
+    private int myPlies;
+    private int myDepth;
+    private int myThreads;
+    private List<byte[]> myLines; // the moves leading to each position, one list entry per position
+    private HashSet<Long> mySeen; // the canonical keys of the positions collected, so mirror images count as seen
+    
+    /**
+     * Constructor for the OpeningBookGenerator.
+     * @param rows Number of rows of the board.
+     * @param cols Number of columns of the board.
+     * @param winLength How big a run must be to win.
+     * @param plies How many plies deep the book should go.
+     * @param depth How deep to search each position.
+     * @param threads How many threads to search with.
+     */
+    public OpeningBookGenerator(int rows, int cols, int winLength, int plies, int depth, int threads)
+    {
+        if (!GameBoard.fitsBitboard(rows, cols))
+        {
+            throw new IllegalArgumentException("Opening books need a board that fits in a bitboard!");
+        }
+        myNumRows = rows;
+        myNumColumns = cols;
+        myWinLength = winLength;
+        myPlies = plies;
+        myDepth = depth;
+        myThreads = Math.max(1, threads);
+    }
+    
+    /**
+     * Entry point. Generates the book for the default board.
+     * @param args Command line arguments: file, plies, depth and threads, all optional.
+     * @throws Exception If the book can't be generated or written.
+     */
+    public static void main(String[] args) throws Exception
+    {
+        String fileName = (args.length > 0) ? args[0] : OpeningBook.DEFAULT_FILE;
+        int plies = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_PLIES;
+        int depth = (args.length > 2) ? Integer.parseInt(args[2]) : DEFAULT_DEPTH;
+        int threads = (args.length > 3) ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        OpeningBookGenerator generator = new OpeningBookGenerator(ConnectView.myRows, ConnectView.myColumns, Controller.myWinLength,
+                plies, depth, threads);
+        long start = System.currentTimeMillis();
+        int count = generator.generate(fileName);
+        System.out.println("Wrote " + count + " positions to " + fileName + " in " + (System.currentTimeMillis() - start) / 1000 + "s");
+    }
+    
+    /**
+     * Generates the book and writes it.
+     * @param fileName The file to write.
+     * @return How many positions were written.
+     * @throws IOException If the file can't be written.
+     * @throws InterruptedException If we are interrupted while the threads are searching.
+     */
+    public int generate(String fileName) throws IOException, InterruptedException
+    {
+        // first collect every distinct position before the book's last ply which isn't already over
+        myLines = new ArrayList<byte[]>();
+        mySeen = new HashSet<Long>();
+        GameBoard board = new GameBoard(myNumRows, myNumColumns, myWinLength, TYPES, BoardMode.BITBOARD);
+        this.collect(board, new byte[myPlies], 0);
+        mySeen = null;
+        
+        // then search them all
+        final int count = myLines.size();
+        final long[] keys = new long[count];
+        final int[] moves = new int[count];
+        final int[] scores = new int[count];
+        final AtomicInteger next = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(myThreads);
+        for (int t = 0; t < myThreads; t++)
+        {
+            pool.execute(new Runnable() {
+                public void run()
+                {
+                    SearchEngine engine = new SearchEngine(myDepth);
+                    for (int i = next.getAndIncrement(); i < count; i = next.getAndIncrement())
+                    {
+                        byte[] line = myLines.get(i);
+                        GameBoard position = new GameBoard(myNumRows, myNumColumns, myWinLength, TYPES, BoardMode.BITBOARD);
+                        for (int j = 0; j < line.length; j++)
+                        {
+                            position.placePiece(line[j], TYPES[j % 2]);
+                        }
+                        PieceType mover = TYPES[line.length % 2];
+                        keys[i] = OpeningBook.canonicalKey(position, mover);
+                        moves[i] = engine.findBestMove(position, mover, TYPES[(line.length + 1) % 2]);
+                        if (OpeningBook.isMirrored(position, mover)) moves[i] = position.mirrorColumn(moves[i]);
+                        scores[i] = engine.getLastScore();
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        
+        // sort the records by key so the book can binary search them
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++)
+        {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b)
+            {
+                return Long.compare(keys[a], keys[b]);
+            }
+        });
+        long[] sortedKeys = new long[count];
+        int[] sortedMoves = new int[count];
+        int[] sortedScores = new int[count];
+        for (int i = 0; i < count; i++)
+        {
+            sortedKeys[i] = keys[order[i]];
+            sortedMoves[i] = moves[order[i]];
+            sortedScores[i] = scores[order[i]];
+        }
+        OpeningBook.write(fileName, myNumRows, myNumColumns, myWinLength, myPlies, sortedKeys, sortedMoves, sortedScores);
+        return count;
+    }
+    
+    /**
+     * Walks the game tree, remembering the line to every new position which is still being played.
+     * @param board The board, which has the moves of line played on it.
+     * @param line The moves played so far.
+     * @param ply How many moves have been played.
+     */
+    private void collect(GameBoard board, byte[] line, int ply)
+    {
+        if (ply >= myPlies || board.isBoardFull()) return;
+        if (!mySeen.add(OpeningBook.canonicalKey(board, TYPES[ply % 2]))) return; // reached by another move order, or mirrored
+        myLines.add(Arrays.copyOf(line, ply));
+        for (int col = 0; col < myNumColumns; col++)
+        {
+            if (board.isColumnFull(col)) continue;
+            board.placePiece(col, TYPES[ply % 2]);
+            if (!board.checkIfWin())
+            {
+                line[ply] = (byte) col;
+                this.collect(board, line, ply + 1);
+            }
+            board.removePiece(col);
+        }
+    }
+}
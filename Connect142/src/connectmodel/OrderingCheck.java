@@ -0,0 +1,130 @@
+/**
+ * OrderingCheck shows that the MoveOrderer only changes how much a search costs, not what it finds. Every position
+ * of a seeded set is searched to a fixed depth by two fresh engines, one with only the static center-first order and
+ * one with the threats, killers and history, each with a table of its own. The root scores have to be the same, and
+ * the ordered searches have to visit fewer nodes altogether. The share of cutoffs made by the first move tried is
+ * printed alongside.
+ * 
+ * Usage: OrderingCheck [depth] [positions] [rows] [columns] [win length]
+ * 
+ * @author Brandon Belna (bbelna@stetson.edu)
+ */
+package connectmodel;
+
+import java.util.Random;
+
+import connectcontrol.Controller;
+import connectview.ConnectView;
+
+public class OrderingCheck
+{
+    public static final int DEFAULT_DEPTH = 8;
+    public static final int DEFAULT_POSITIONS = 100;
+    public static final long SEED = 142L;
+    public static final int TABLE_MEGABYTES = 2;
+    private static final PieceType[] TYPES = {PieceType.RED, PieceType.BLACK};
+    
+    /**
+     * Entry point. Searches every position both ways and prints the totals.
+     * @param args Command line arguments: depth, positions, rows, columns and win length, all optional.
+     */
+    public static void main(String[] args)
+    {
+        int depth = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_DEPTH;
+        int positions = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_POSITIONS;
+        int rows = (args.length > 2) ? Integer.parseInt(args[2]) : ConnectView.myRows;
+        int cols = (args.length > 3) ? Integer.parseInt(args[3]) : ConnectView.myColumns;
+        int winLength = (args.length > 4) ? Integer.parseInt(args[4]) : Controller.myWinLength;
+        Random random = new Random(SEED);
+        long staticNodes = 0;
+        long orderedNodes = 0;
+        long[] cutoffs = new long[2];
+        long[] firstMoveCutoffs = new long[2];
+        int differences = 0;
+        for (int i = 0; i < positions; i++)
+        {
+            GameBoard board = new GameBoard(rows, cols, winLength, TYPES);
+            int turn = playRandomMoves(board, random.nextInt(rows * cols / 3 + 1), random);
+            SearchEngine off = search(board, turn, depth, false);
+            SearchEngine on = search(board, turn, depth, true);
+            staticNodes += off.getNodeCount();
+            orderedNodes += on.getNodeCount();
+            cutoffs[0] += off.getCutoffCount();
+            cutoffs[1] += on.getCutoffCount();
+            firstMoveCutoffs[0] += off.getFirstMoveCutoffCount();
+            firstMoveCutoffs[1] += on.getFirstMoveCutoffCount();
+            if (off.getLastScore() != on.getLastScore())
+            {
+                differences++;
+                System.out.println("position " + i + " (" + board.getNumPieces() + " pieces): static score " + off.getLastScore()
+                        + ", ordered score " + on.getLastScore());
+            }
+        }
+        System.out.println(String.format("%dx%d connect %d, depth %d, %d positions, %d score differences", rows, cols, winLength,
+                depth, positions, differences));
+        System.out.println(String.format("static  %12d nodes %5.1f%% first move cutoffs", staticNodes,
+                100.0 * firstMoveCutoffs[0] / Math.max(1L, cutoffs[0])));
+        System.out.println(String.format("ordered %12d nodes %5.1f%% first move cutoffs, %.1f%% fewer nodes", orderedNodes,
+                100.0 * firstMoveCutoffs[1] / Math.max(1L, cutoffs[1]), 100.0 * (staticNodes - orderedNodes) / Math.max(1L, staticNodes)));
+        if (differences > 0 || orderedNodes >= staticNodes) System.exit(1);
+    }
+    
+    /**
+     * Searches a position with a fresh engine and table.
+     * @param board The position.
+     * @param turn The index into TYPES of the player to move.
+     * @param depth How many plies to search.
+     * @param ordering If the MoveOrderer's dynamic ordering is on.
+     * @return The engine, holding the results of the search.
+     */
+    private static SearchEngine search(GameBoard board, int turn, int depth, boolean ordering)
+    {
+        SearchEngine engine = new SearchEngine(depth);
+        engine.setTranspositionTable(new TranspositionTable(TABLE_MEGABYTES));
+        engine.setMoveOrdering(ordering);
+        engine.findBestMove(board, TYPES[turn], TYPES[1 - turn]);
+        return engine;
+    }
+    
+    /**
+     * Plays random moves which don't win, stopping early if every move would.
+     * @param board The board to play on.
+     * @param pieces How many pieces to play.
+     * @param random The random moves.
+     * @return The index into TYPES of the player to move next.
+     */
+    private static int playRandomMoves(GameBoard board, int pieces, Random random)
+    {
+        int turn = 0;
+        for (int ply = 0; ply < pieces && !board.isBoardFull(); ply++)
+        {
+            int col = random.nextInt(board.getNumColumns());
+            int tries = 0;
+            while (!safeMove(board, col, TYPES[turn]) && tries < board.getNumColumns())
+            {
+                col = (col + 1) % board.getNumColumns();
+                tries++;
+            }
+            if (tries == board.getNumColumns()) break;
+            board.placePiece(col, TYPES[turn]);
+            turn = 1 - turn;
+        }
+        return turn;
+    }
+    
+    /**
+     * Checks if a move can be made without ending the game.
+     * @param board The board.
+     * @param col The column to move in.
+     * @param type The PieceType to move.
+     * @return If the column is open and the move doesn't win.
+     */
+    private static boolean safeMove(GameBoard board, int col, PieceType type)
+    {
+        if (board.isColumnFull(col)) return false;
+        board.placePiece(col, type);
+        boolean win = board.checkIfWin();
+        board.undoLastMove();
+        return !win;
+    }
+}
@@ -0,0 +1,429 @@
+/**
+ * ParallelSearch spreads a SearchEngine search over several cores. Normally it runs Lazy SMP: every thread
+ * searches the same position with its own copy of the board, and they help each other through one shared
+ * TranspositionTable. The move played always comes from the first thread. In deterministic mode it splits
+ * the root instead, giving each column its own engine and table, so the result never depends on timing. Those are
+ * kept from one search to the next and cleared before each, so a split doesn't allocate a table per column.
+ * 
+ * @author Brandon Belna (bbelna@stetson.edu)
+ */
+package connectmodel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+public class ParallelSearch
+{
+    private int myThreads;
+    private int myDepth;
+    private int myMegabytes;
+    private boolean myIsDeterministic;
+    private ForkJoinPool myPool;
+    private SearchEngine[] myEngines; // myEngines[0] is the main engine, the rest are helpers
+    private TranspositionTable mySharedTable;
+    private volatile SearchEngine[] mySlotEngines; // mySlotEngines[col] searches that column in a root split
+    private TranspositionTable[] mySlotTables; // and mySlotTables[col] is its table
+    private long myNodes;
+    private long myElapsedNanos;
+    private int myDepthReached;
+    private int myLastScore;
+    
+    /**
+     * Constructor for the ParallelSearch.
+     * @param threads How many threads to search with.
+     * @param depth How many plies a search without a time limit goes.
+     */
+    public ParallelSearch(int threads, int depth)
+    {
+        myDepth = depth;
+        myMegabytes = TranspositionTable.DEFAULT_MEGABYTES;
+        this.setThreads(threads);
+    }
+    
+    /**
+     * Finds the best column for a player to move in, searching to the set depth.
+     * @param board The board to search. It is left untouched.
+     * @param type The PieceType of the player to move.
+     * @param opponentType The PieceType of the other player.
+     * @return The best column, or -1 if there is no legal move.
+     */
+    public int findBestMove(GameBoard board, PieceType type, PieceType opponentType)
+    {
+        return this.search(board, type, opponentType, 0L);
+    }
+    
+    /**
+     * Finds the best column for a player to move in, deepening until the time is up.
+     * Deterministic mode ignores the time limit and searches to the set depth.
+     * @param board The board to search. It is left untouched.
+     * @param type The PieceType of the player to move.
+     * @param opponentType The PieceType of the other player.
+     * @param millis How long the search may take, in milliseconds.
+     * @return The best column, or -1 if there is no legal move.
+     */
+    public int findBestMove(GameBoard board, PieceType type, PieceType opponentType, long millis)
+    {
+        return this.search(board, type, opponentType, millis);
+    }
+    
+    /**
+     * Runs the search in the current mode and keeps track of the statistics.
+     * @param board The board to search.
+     * @param type The PieceType of the player to move.
+     * @param opponentType The PieceType of the other player.
+     * @param millis How long the search may take, 0 for no limit.
+     * @return The best column, or -1 if there is no legal move.
+     */
+    private int search(GameBoard board, PieceType type, PieceType opponentType, long millis)
+    {
+        long start = System.nanoTime();
+        int move;
+        if (myIsDeterministic) move = this.searchRootSplit(board, type, opponentType);
+        else move = this.searchLazySmp(board, type, opponentType, millis);
+        myElapsedNanos = System.nanoTime() - start;
+        return move;
+    }
+    
+    /**
+     * Lazy SMP. The helpers are handed out to the pool and the main engine runs on this thread.
+     * Once the main engine is done the helpers are stopped and their nodes are added up.
+     * @param board The board to search.
+     * @param type The PieceType of the player to move.
+     * @param opponentType The PieceType of the other player.
+     * @param millis How long the search may take, 0 for no limit.
+     * @return The best column, or -1 if there is no legal move.
+     */
+    private int searchLazySmp(final GameBoard board, final PieceType type, final PieceType opponentType, final long millis)
+    {
+        List<Future<Integer>> helpers = new ArrayList<Future<Integer>>(myThreads - 1);
+        for (int i = 1; i < myThreads; i++)
+        {
+            final SearchEngine helper = myEngines[i];
+            helper.clearStop();
+            helpers.add(myPool.submit(new Callable<Integer>() {
+                public Integer call()
+                {
+                    if (millis > 0) return helper.findBestMove(board, type, opponentType, millis);
+                    return helper.findBestMove(board, type, opponentType);
+                }
+            }));
+        }
+        SearchEngine main = myEngines[0];
+        int move;
+        if (millis > 0) move = main.findBestMove(board, type, opponentType, millis);
+        else move = main.findBestMove(board, type, opponentType);
+        myNodes = main.getNodeCount();
+        for (int i = 1; i < myThreads; i++)
+        {
+            myEngines[i].stop();
+        }
+        for (int i = 0; i < helpers.size(); i++)
+        {
+            this.waitFor(helpers.get(i));
+            myNodes += myEngines[i + 1].getNodeCount();
+        }
+        myDepthReached = main.getDepthReached();
+        myLastScore = main.getLastScore();
+        return move;
+    }
+    
+    /**
+     * Deterministic root splitting. Every legal column is played on its own copy of the board and searched by
+     * its own engine with a freshly cleared table, then the best column wins, ties going to the center-first order.
+     * The engines' history is cleared along with the tables, since what an engine learned in an earlier search
+     * would change how it orders its moves.
+     * @param board The board to search.
+     * @param type The PieceType of the player to move.
+     * @param opponentType The PieceType of the other player.
+     * @return The best column, or -1 if there is no legal move.
+     */
+    private int searchRootSplit(GameBoard board, final PieceType type, final PieceType opponentType)
+    {
+        int[] order = SearchEngine.centerFirstOrder(board.getNumColumns());
+        if (mySlotEngines == null || mySlotEngines.length != order.length) this.createSlots(order.length);
+        final SearchEngine[] engines = mySlotEngines;
+        List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>(order.length);
+        final List<Integer> columns = new ArrayList<Integer>(order.length);
+        final long[] nodes = new long[order.length]; // only the engines that search this time have a count to add
+        for (int i = 0; i < order.length; i++)
+        {
+            final int col = order[i];
+            if (!board.isCandidateColumn(col)) continue;
+            final GameBoard child = new GameBoard(board);
+            child.placePiece(col, type);
+            final SearchEngine engine = engines[col];
+            engine.setDepth(Math.max(1, myDepth - 1));
+            mySlotTables[col].clear();
+            if (engine.getMoveOrderer() != null) engine.getMoveOrderer().clear();
+            columns.add(col);
+            tasks.add(new Callable<Integer>() {
+                public Integer call()
+                {
+                    if (child.checkIfWin()) return SearchEngine.WIN_SCORE; // a win right away
+                    if (child.isBoardFull() || myDepth <= 1) return 0;
+                    engine.findBestMove(child, opponentType, type);
+                    nodes[col] = engine.getNodeCount();
+                    // the engine scored it for the opponent, one ply further from our root
+                    int score = -engine.getLastScore();
+                    if (score > SearchEngine.WIN_SCORE / 2) score--;
+                    if (score < -SearchEngine.WIN_SCORE / 2) score++;
+                    return score;
+                }
+            });
+        }
+        if (tasks.isEmpty()) return -1;
+        List<Future<Integer>> results = myPool.invokeAll(tasks);
+        int bestMove = -1;
+        int bestScore = -Integer.MAX_VALUE;
+        myNodes = 0;
+        myDepthReached = myDepth;
+        for (int i = 0; i < results.size(); i++)
+        {
+            int score = this.waitFor(results.get(i));
+            myNodes += nodes[columns.get(i)];
+            if (score > bestScore)
+            {
+                bestScore = score;
+                bestMove = columns.get(i);
+            }
+        }
+        myLastScore = bestScore;
+        return bestMove;
+    }
+    
+    /**
+     * Makes the engines and tables of a root split, one of each per column, sharing the memory budget between them.
+     * @param columns The number of columns of the board.
+     */
+    private void createSlots(int columns)
+    {
+        SearchEngine[] engines = new SearchEngine[columns];
+        mySlotTables = new TranspositionTable[columns];
+        for (int col = 0; col < columns; col++)
+        {
+            engines[col] = new SearchEngine(Math.max(1, myDepth - 1));
+            mySlotTables[col] = new TranspositionTable(Math.max(1, myMegabytes / columns));
+            engines[col].setTranspositionTable(mySlotTables[col]);
+        }
+        mySlotEngines = engines;
+    }
+    
+    /**
+     * Waits for a task, passing any failure along.
+     * @param future The task to wait for.
+     * @return The result of the task.
+     */
+    private int waitFor(Future<Integer> future)
+    {
+        boolean interrupted = false;
+        try
+        {
+            while (true)
+            {
+                try
+                {
+                    return future.get();
+                }
+                catch(InterruptedException exception)
+                {
+                    interrupted = true; // finish waiting, the helpers are already told to stop
+                }
+            }
+        }
+        catch(ExecutionException exception)
+        {
+            throw new IllegalStateException("A search thread failed!", exception.getCause());
+        }
+        finally
+        {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Clears a stop request, ready for the next search. As with SearchEngine.clearStop, call it when the search is
+     * handed out rather than when it starts. The helpers are cleared as each search hands them out.
+     */
+    public void clearStop()
+    {
+        myEngines[0].clearStop();
+        SearchEngine[] slotEngines = mySlotEngines;
+        for (int i = 0; slotEngines != null && i < slotEngines.length; i++)
+        {
+            slotEngines[i].clearStop();
+        }
+    }
+    
+    /**
+     * Asks a running search to stop as soon as it can.
+     */
+    public void stop()
+    {
+        for (int i = 0; i < myEngines.length; i++)
+        {
+            myEngines[i].stop();
+        }
+        SearchEngine[] slotEngines = mySlotEngines;
+        for (int i = 0; slotEngines != null && i < slotEngines.length; i++)
+        {
+            slotEngines[i].stop();
+        }
+    }
+    
+    /**
+     * Runs the same fixed depth search with one thread and then with all of them, each with an empty table,
+     * and compares how long they took.
+     * @param board The board to search.
+     * @param type The PieceType of the player to move.
+     * @param opponentType The PieceType of the other player.
+     * @return How many times faster the parallel search was.
+     */
+    public double measureSpeedup(GameBoard board, PieceType type, PieceType opponentType)
+    {
+        int threads = myThreads;
+        this.setThreads(1);
+        this.findBestMove(board, type, opponentType);
+        long single = myElapsedNanos;
+        this.setThreads(threads);
+        this.findBestMove(board, type, opponentType);
+        return (double) single / Math.max(1L, myElapsedNanos);
+    }
+    
+    /**
+     * Gets how many positions the last search visited over all threads.
+     * @return The node count.
+     */
+    public long getNodeCount()
+    {
+        return myNodes;
+    }
+    
+    /**
+     * Gets how fast the last search went over all threads.
+     * @return Nodes per second.
+     */
+    public double getNodesPerSecond()
+    {
+        return myNodes * 1e9 / Math.max(1L, myElapsedNanos);
+    }
+    
+    /**
+     * Gets how long the last search took.
+     * @return The time in milliseconds.
+     */
+    public long getElapsedMillis()
+    {
+        return myElapsedNanos / 1000000L;
+    }
+    
+    /**
+     * Gets the depth the last search finished.
+     * @return The depth in plies.
+     */
+    public int getDepthReached()
+    {
+        return myDepthReached;
+    }
+    
+    /**
+     * Gets the score of the last search, from the searching player's point of view.
+     * @return The last score.
+     */
+    public int getLastScore()
+    {
+        return myLastScore;
+    }
+    
+    /**
+     * Gets the table the threads share in Lazy SMP mode.
+     * @return The shared transposition table.
+     */
+    public TranspositionTable getTranspositionTable()
+    {
+        return mySharedTable;
+    }
+    
+    /**
+     * Gets how many threads search.
+     * @return The thread count.
+     */
+    public int getThreads()
+    {
+        return myThreads;
+    }
+    
+    /**
+     * Sets how many threads search. This empties the shared table and drops the root split's engines and tables.
+     * @param threads The new thread count.
+     */
+    public void setThreads(int threads)
+    {
+        myThreads = Math.max(1, threads);
+        if (myPool != null) myPool.shutdown();
+        myPool = new ForkJoinPool(myThreads);
+        mySharedTable = new TranspositionTable(myMegabytes);
+        myEngines = new SearchEngine[myThreads];
+        for (int i = 0; i < myThreads; i++)
+        {
+            myEngines[i] = new SearchEngine(myDepth);
+            if (i == 0) myEngines[i].setTranspositionTable(mySharedTable);
+            else myEngines[i].makeHelper(mySharedTable, i);
+        }
+        mySlotEngines = null;
+        mySlotTables = null;
+    }
+    
+    /**
+     * Sets how many plies a search without a time limit goes.
+     * @param depth The new depth.
+     */
+    public void setDepth(int depth)
+    {
+        myDepth = depth;
+        for (int i = 0; i < myEngines.length; i++)
+        {
+            myEngines[i].setDepth(depth);
+        }
+    }
+    
+    /**
+     * Sets the memory budget of the tables. This empties the shared table.
+     * @param megabytes The new budget in megabytes.
+     */
+    public void setMegabytes(int megabytes)
+    {
+        myMegabytes = megabytes;
+        this.setThreads(myThreads);
+    }
+    
+    /**
+     * Checks if the search is in deterministic mode.
+     * @return If the search is deterministic.
+     */
+    public boolean isDeterministic()
+    {
+        return myIsDeterministic;
+    }
+    
+    /**
+     * Turns deterministic mode on or off. Deterministic mode gives the same move for the same position every time,
+     * which is what tests want, at the cost of searching each column separately.
+     * @param deterministic If the search should be deterministic.
+     */
+    public void setDeterministic(boolean deterministic)
+    {
+        myIsDeterministic = deterministic;
+    }
+    
+    /**
+     * Shuts the search threads down.
+     */
+    public void shutdown()
+    {
+        myPool.shutdown();
+    }
+}
@@ -0,0 +1,209 @@
+/**
+ * Perft counts every line of play to a fixed depth from a position, the way chess engines test their move generators.
+ * A game that is won or drawn before the depth is not played on, so the count is the number of positions exactly
+ * that many moves away. Every move is really made and checked for a win, which makes the count a check that
+ * placePiece, removePiece and the win detection agree with each other, and the time a benchmark of them.
+ * 
+ * The known counts for the empty 6x7 board were worked out with BruteForcePerft, an independent brute-force counter,
+ * so any change to how GameBoard stores its pieces can be checked against them.
+ * 
+ * Usage: Perft [depth] [threads] [rows] [columns] [win length]
+ * 
+ * @author Brandon Belna (bbelna@stetson.edu)
+ */
+package connectmodel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import connectcontrol.Controller;
+import connectview.ConnectView;
+
+public class Perft
+{
+    public static final int DEFAULT_DEPTH = 8;
+    public static final int SPLIT_DEPTH = 4; // below this many plies left, a parallel count stays on one thread
+    public static final long[] KNOWN_COUNTS = {1L, 7L, 49L, 343L, 2401L, 16807L, 117649L, 823536L, 5673234L, 39394572L,
+            268031646L, 1844590828L}; // the empty 6x7 board, connect four, indexed by depth
+    private static final PieceType[] TYPES = {PieceType.RED, PieceType.BLACK};
+    private int myThreads;
+    private long myElapsedNanos;
+    private long myNodes;
+    
+    /**
+     * Constructor for the Perft.
+     * @param threads How many threads to count with. 1 counts on the calling thread.
+     */
+    public Perft(int threads)
+    {
+        myThreads = Math.max(1, threads);
+    }
+    
+    /**
+     * Entry point. Counts the default board to each depth in turn, checking against the known counts where there are any.
+     * @param args Command line arguments: depth, threads, rows, columns and win length, all optional.
+     */
+    public static void main(String[] args)
+    {
+        int depth = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_DEPTH;
+        int threads = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int rows = (args.length > 2) ? Integer.parseInt(args[2]) : ConnectView.myRows;
+        int cols = (args.length > 3) ? Integer.parseInt(args[3]) : ConnectView.myColumns;
+        int winLength = (args.length > 4) ? Integer.parseInt(args[4]) : Controller.myWinLength;
+        boolean known = (rows == 6 && cols == 7 && winLength == 4);
+        Perft perft = new Perft(threads);
+        GameBoard board = new GameBoard(rows, cols, winLength, TYPES);
+        System.out.println(rows + "x" + cols + " connect " + winLength + ", " + board.getMode().getMode().toLowerCase() + ", "
+                + perft.getThreads() + " threads");
+        boolean passed = true;
+        for (int d = 1; d <= depth; d++)
+        {
+            long count = perft.count(board, TYPES[0], TYPES[1], d);
+            String check = "";
+            if (known && d < KNOWN_COUNTS.length)
+            {
+                check = (count == KNOWN_COUNTS[d]) ? "  ok" : "  WRONG, expected " + KNOWN_COUNTS[d];
+                passed &= (count == KNOWN_COUNTS[d]);
+            }
+            System.out.println(String.format("perft(%d) = %d in %d ms, %.0f nodes/sec%s", d, count, perft.getElapsedMillis(),
+                    perft.getNodesPerSecond(), check));
+        }
+        if (!passed) System.exit(1);
+    }
+    
+    /**
+     * Counts the positions a given number of moves away. The board is copied and left untouched.
+     * @param board The position to count from.
+     * @param type The PieceType to move.
+     * @param opponentType The PieceType of the other player.
+     * @param depth How many moves to look ahead.
+     * @return The number of positions at that depth.
+     */
+    public long count(GameBoard board, PieceType type, PieceType opponentType, int depth)
+    {
+        long start = System.nanoTime();
+        PieceType[] sides = {type, opponentType};
+        long count;
+        if (board.checkIfWin() || board.isBoardFull()) count = (depth == 0) ? 1 : 0;
+        else if (myThreads == 1 || depth <= SPLIT_DEPTH) count = perft(new GameBoard(board), sides, 0, depth);
+        else
+        {
+            ForkJoinPool pool = new ForkJoinPool(myThreads);
+            try
+            {
+                count = pool.invoke(new PerftTask(new GameBoard(board), sides, 0, depth));
+            }
+            finally
+            {
+                pool.shutdown();
+            }
+        }
+        myElapsedNanos = System.nanoTime() - start;
+        myNodes = count;
+        return count;
+    }
+    
+    /**
+     * Counts on one thread with make and unmake.
+     * @param board The board, which is put back the way it was.
+     * @param sides The two PieceTypes.
+     * @param side Which of the sides is to move.
+     * @param depth How many moves are left.
+     * @return The number of positions at the depth.
+     */
+    static long perft(GameBoard board, PieceType[] sides, int side, int depth)
+    {
+        if (depth == 0) return 1;
+        long count = 0;
+        for (int col = 0; col < board.getNumColumns(); col++)
+        {
+            if (board.isColumnFull(col)) continue;
+            board.placePiece(col, sides[side]);
+            if (depth == 1) count++;
+            else if (!board.checkIfWin() && !board.isBoardFull()) count += perft(board, sides, 1 - side, depth - 1);
+            board.removePiece(col);
+        }
+        return count;
+    }
+    
+    /**
+     * A fork-join count. Each move near the top is handed to its own task with its own board, and once only
+     * SPLIT_DEPTH moves are left the task counts the rest itself.
+     */
+    private static class PerftTask extends RecursiveTask<Long>
+    {
+        private static final long serialVersionUID = 1L;
+        private GameBoard myBoard;
+        private PieceType[] mySides;
+        private int mySide;
+        private int myDepth;
+        
+        /**
+         * Constructor for the PerftTask.
+         * @param board The board to count from. The task owns it.
+         * @param sides The two PieceTypes.
+         * @param side Which of the sides is to move.
+         * @param depth How many moves are left.
+         */
+        PerftTask(GameBoard board, PieceType[] sides, int side, int depth)
+        {
+            myBoard = board;
+            mySides = sides;
+            mySide = side;
+            myDepth = depth;
+        }
+        
+        /**
+         * Splits the moves into tasks, or counts them here once the depth is small.
+         * @return The number of positions at the depth.
+         */
+        protected Long compute()
+        {
+            if (myDepth <= SPLIT_DEPTH) return perft(myBoard, mySides, mySide, myDepth);
+            List<PerftTask> tasks = new ArrayList<PerftTask>(myBoard.getNumColumns());
+            for (int col = 0; col < myBoard.getNumColumns(); col++)
+            {
+                if (myBoard.isColumnFull(col)) continue;
+                GameBoard child = new GameBoard(myBoard);
+                child.placePiece(col, mySides[mySide]);
+                if (child.checkIfWin() || child.isBoardFull()) continue; // the game is over, nothing at the depth
+                tasks.add(new PerftTask(child, mySides, 1 - mySide, myDepth - 1));
+            }
+            long count = 0;
+            for (PerftTask task : invokeAll(tasks))
+            {
+                count += task.join();
+            }
+            return count;
+        }
+    }
+    
+    /**
+     * Gets how many threads count.
+     * @return The thread count.
+     */
+    public int getThreads()
+    {
+        return myThreads;
+    }
+    
+    /**
+     * Gets how long the last count took.
+     * @return The time in milliseconds.
+     */
+    public long getElapsedMillis()
+    {
+        return myElapsedNanos / 1000000L;
+    }
+    
+    /**
+     * Gets how fast the last count went.
+     * @return Positions counted per second.
+     */
+    public double getNodesPerSecond()
+    {
+        return myNodes * 1e9 / Math.max(1L, myElapsedNanos);
+    }
+}
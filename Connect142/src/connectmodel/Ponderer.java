@@ -0,0 +1,172 @@
+/**
+ * Ponderer keeps a SearchEngine busy while the opponent thinks. It searches every reply the opponent could make,
+ * one ply deeper each round, on a background thread, and remembers the best answer to each. When the opponent
+ * moves, the pondering is stopped: if that reply was searched deep enough its answer can be played at once, and
+ * otherwise the real search still starts from a table full of the pondered results.
+ * 
+ * The Ponderer searches with the engine it is given, so the engine must not be used anywhere else until stop
+ * has returned.
+ * 
+ * @author Brandon Belna (bbelna@stetson.edu)
+ */
+package connectmodel;
+
+import java.util.Arrays;
+
+public class Ponderer
+{
+    private SearchEngine myEngine;
+    private Thread myThread;
+    private volatile boolean myStopRequested;
+    private long[] myReplyHashes; // the hash of the position after each reply, 0 for replies that weren't possible
+    private int[] myAnswers; // the best answer to each reply, -1 if none has been found yet
+    private int[] myDepths; // how deep each answer was searched
+    
+    /**
+     * Constructor for the Ponderer.
+     * @param engine The engine to ponder with.
+     */
+    public Ponderer(SearchEngine engine)
+    {
+        myEngine = engine;
+    }
+    
+    /**
+     * Starts pondering a position where the opponent is to move. Any pondering already going on is stopped first.
+     * The board is copied, so the game can go on on the original.
+     * @param board The position, with the opponent to move.
+     * @param type The PieceType we play.
+     * @param opponentType The PieceType of the opponent, who is to move.
+     */
+    public synchronized void start(GameBoard board, final PieceType type, final PieceType opponentType)
+    {
+        this.stop();
+        final GameBoard copy = new GameBoard(board);
+        myReplyHashes = new long[copy.getNumColumns()];
+        myAnswers = new int[copy.getNumColumns()];
+        myDepths = new int[copy.getNumColumns()];
+        Arrays.fill(myAnswers, -1);
+        myStopRequested = false;
+        if (copy.checkIfWin() || copy.isBoardFull()) return;
+        myEngine.clearStop();
+        if (myEngine.getTranspositionTable() == null) myEngine.setTranspositionTable(new TranspositionTable(TranspositionTable.DEFAULT_MEGABYTES));
+        myEngine.getTranspositionTable().newSearch(); // once for the whole ponder, so the replies don't push each other out
+        myThread = new Thread(new Runnable() {
+            public void run()
+            {
+                ponder(copy, type, opponentType);
+            }
+        }, "Ponderer");
+        myThread.setDaemon(true);
+        myThread.setPriority(Thread.MIN_PRIORITY); // the view comes first
+        myThread.start();
+    }
+    
+    /**
+     * The pondering loop. Every reply is searched to one depth before any is searched to the next.
+     * @param board The copy of the position, with the opponent to move.
+     * @param type The PieceType we play.
+     * @param opponentType The PieceType of the opponent.
+     */
+    private void ponder(GameBoard board, PieceType type, PieceType opponentType)
+    {
+        int[] order = SearchEngine.centerFirstOrder(board.getNumColumns());
+        int emptyCells = board.getNumRows() * board.getNumColumns() - board.getNumPieces();
+        for (int depth = 1; depth <= Math.min(emptyCells, SearchEngine.MAX_DEPTH); depth++)
+        {
+            boolean searched = false;
+            for (int i = 0; i < order.length; i++)
+            {
+                int col = order[i];
+                if (myStopRequested) return;
+                if (!board.isCandidateColumn(col)) continue;
+                board.placePiece(col, opponentType);
+                if (!board.checkIfWin() && !board.isBoardFull())
+                {
+                    myReplyHashes[col] = board.getHash();
+                    int answer = myEngine.ponder(board, type, opponentType, depth);
+                    if (myStopRequested) // cut short, so the answer is only as deep as the last round
+                    {
+                        board.undoLastMove();
+                        return;
+                    }
+                    myAnswers[col] = answer;
+                    myDepths[col] = depth;
+                    searched = true;
+                }
+                board.undoLastMove();
+            }
+            if (!searched) return; // every reply ends the game
+        }
+    }
+    
+    /**
+     * Stops pondering and waits for the engine to be free again. The engine's stop request is cleared after, so
+     * it is ready for the real search.
+     */
+    public synchronized void stop()
+    {
+        myStopRequested = true;
+        if (myThread == null) return;
+        myEngine.stop(); // the request stays until it is cleared, so once is enough
+        try
+        {
+            myThread.join();
+        }
+        catch(InterruptedException exception)
+        {
+            Thread.currentThread().interrupt();
+            return; // the thread may still be searching, so the engine stays stopped
+        }
+        myThread = null;
+        myEngine.clearStop();
+    }
+    
+    /**
+     * Checks if the Ponderer is still searching.
+     * @return If the pondering thread is running.
+     */
+    public synchronized boolean isPondering()
+    {
+        return myThread != null && myThread.isAlive();
+    }
+    
+    /**
+     * Gets the pondered answer to the opponent's actual reply. Only call this once pondering has stopped.
+     * @param board The position after the opponent's reply.
+     * @param minDepth How deep the answer must have been searched.
+     * @return The answer, or -1 if the reply wasn't pondered that deep.
+     */
+    public synchronized int getAnswer(GameBoard board, int minDepth)
+    {
+        int col = this.getReply(board);
+        if (col == -1 || myDepths[col] < minDepth) return -1;
+        return myAnswers[col];
+    }
+    
+    /**
+     * Gets how deep the answer to the opponent's actual reply was pondered.
+     * @param board The position after the opponent's reply.
+     * @return The depth in plies, 0 if the reply wasn't pondered.
+     */
+    public synchronized int getDepth(GameBoard board)
+    {
+        int col = this.getReply(board);
+        return (col == -1) ? 0 : myDepths[col];
+    }
+    
+    /**
+     * Finds which pondered reply leads to a position.
+     * @param board The position after the opponent's reply.
+     * @return The column of the reply, or -1 if the position wasn't pondered.
+     */
+    private int getReply(GameBoard board)
+    {
+        if (myReplyHashes == null || myReplyHashes.length != board.getNumColumns()) return -1;
+        for (int col = 0; col < myReplyHashes.length; col++)
+        {
+            if (myReplyHashes[col] != 0L && myReplyHashes[col] == board.getHash() && myAnswers[col] != -1) return col;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,539 @@
+/**
+ * SearchEngine is a game-tree search for our ComputerPlayer. It runs negamax with alpha-beta pruning to a fixed depth,
+ * tries the center columns first, and makes and unmakes its moves on a single copy of the GameBoard.
+ * Results are cached in a TranspositionTable keyed by the board's canonical Zobrist hash and the player to move, so a
+ * table can be kept from game to game whoever starts, and a position and its mirror image share an entry, with the
+ * entry's move stored the way round the canonical hash is. Searches deepen one ply at a time, ordering each
+ * iteration by the principal variation of the last, so they can also be given a time budget.
+ * The rest of the moves are ordered by a MoveOrderer, and the leaves are scored by a ThreatEvaluator kept up
+ * with the search board as moves are made and unmade.
+ * 
+ * @author Brandon Belna (bbelna@stetson.edu)
+ */
+package connectmodel;
+
+public class SearchEngine
+{
+    public static final int DEFAULT_DEPTH = 8;
+    public static final int MAX_DEPTH = 64; // the deepest a timed search will go
+    public static final int WIN_SCORE = 1000000; // anything within the board size of this is a forced win
+    private static final int WIN_THRESHOLD = WIN_SCORE / 2;
+    private int myDepth;
+    private long myNodes;
+    private int myLastScore;
+    private int myBestMove;
+    private int myDepthReached;
+    private TranspositionTable myTable;
+    private long myDeadline; // System.nanoTime() to give up at, or 0 for none
+    private boolean myAborted;
+    private volatile boolean myStopRequested;
+    private int[][] myPvTable; // myPvTable[ply] holds the best line found from ply onwards
+    private int[] myPvLength;
+    private int[] myPreviousPv; // the principal variation of the last completed iteration
+    private int myPreviousPvLength;
+    private boolean myFollowingPv;
+    private int[][] myMoveLists; // the ordered moves at each ply, reused to save allocating
+    private MoveOrderer myOrderer;
+    private boolean myIsOrdering; // if the MoveOrderer's threats, killers and history are used
+    private long myCutoffs;
+    private long myFirstMoveCutoffs; // cutoffs by the first move searched, the better the ordering the more of these
+    private long myIterationNodes; // the nodes of the last iteration the last search finished
+    private long myPreviousIterationNodes; // and of the one before it, 0 if there wasn't one
+    private boolean myIsHelper; // helpers share another engine's table and leave aging it to that engine
+    private boolean myIsPondering; // the Ponderer ages the table once for all its searches
+    private int myDepthOffset; // helpers may run their iterations a ply deeper to spread the work out
+    private GameBoard myBoard;
+    private PieceType[] mySides; // mySides[0] is the player we are searching for, mySides[1] the opponent
+    private int[] myColumnOrder;
+    private ThreatEvaluator myEvaluator;
+    
+    /**
+     * Constructor for the SearchEngine.
+     * @param depth How many plies to search.
+     */
+    public SearchEngine(int depth)
+    {
+        myDepth = depth;
+        mySides = new PieceType[2];
+        myPvTable = new int[MAX_DEPTH + 2][MAX_DEPTH + 2];
+        myPvLength = new int[MAX_DEPTH + 2];
+        myPreviousPv = new int[MAX_DEPTH + 2];
+        myIsOrdering = true;
+    }
+    
+    /**
+     * Finds the best column for a player to move in, searching to the engine's depth.
+     * The given board is copied once and left untouched.
+     * @param board The board to search.
+     * @param type The PieceType of the player to move.
+     * @param opponentType The PieceType of the other player.
+     * @return The best column, or -1 if there is no legal move.
+     */
+    public int findBestMove(GameBoard board, PieceType type, PieceType opponentType)
+    {
+        return this.search(board, type, opponentType, Math.min(Math.max(1, myDepth), MAX_DEPTH), 0L);
+    }
+    
+    /**
+     * Finds the best column for a player to move in, deepening until the time is up. The move comes from
+     * the deepest iteration which finished in time. The given board is copied once and left untouched.
+     * @param board The board to search.
+     * @param type The PieceType of the player to move.
+     * @param opponentType The PieceType of the other player.
+     * @param millis How long the search may take, in milliseconds.
+     * @return The best column, or -1 if there is no legal move.
+     */
+    public int findBestMove(GameBoard board, PieceType type, PieceType opponentType, long millis)
+    {
+        return this.search(board, type, opponentType, MAX_DEPTH, System.nanoTime() + millis * 1000000L);
+    }
+    
+    /**
+     * Runs the iterative deepening search.
+     * @param board The board to search.
+     * @param type The PieceType of the player to move.
+     * @param opponentType The PieceType of the other player.
+     * @param maxDepth The deepest iteration to run.
+     * @param deadline The System.nanoTime() to stop at, or 0 for no limit.
+     * @return The best column, or -1 if there is no legal move.
+     */
+    private int search(GameBoard board, PieceType type, PieceType opponentType, int maxDepth, long deadline)
+    {
+        prepare(board, type, opponentType);
+        if (myTable == null) myTable = new TranspositionTable(TranspositionTable.DEFAULT_MEGABYTES);
+        if (!myIsHelper && !myIsPondering) myTable.newSearch();
+        myOrderer.newSearch();
+        myNodes = 0;
+        myCutoffs = 0;
+        myFirstMoveCutoffs = 0;
+        myIterationNodes = 0;
+        myPreviousIterationNodes = 0;
+        myDepthReached = 0;
+        myDeadline = deadline;
+        myAborted = false;
+        myPreviousPvLength = 0;
+        int bestMove = -1;
+        if (myBoard.isBoardFull() || myBoard.checkIfWin()) return -1;
+        int emptyCells = myBoard.getNumRows() * myBoard.getNumColumns() - myBoard.getNumPieces();
+        for (int depth = 1 + myDepthOffset; depth <= Math.min(maxDepth + myDepthOffset, MAX_DEPTH); depth++)
+        {
+            myBestMove = -1;
+            myFollowingPv = true;
+            long nodesBefore = myNodes;
+            int score = negamax(depth, -Integer.MAX_VALUE, Integer.MAX_VALUE, 0, 0);
+            if (myAborted) break; // this iteration didn't finish, so keep the last one's move
+            myPreviousIterationNodes = myIterationNodes;
+            myIterationNodes = myNodes - nodesBefore;
+            bestMove = myBestMove;
+            myLastScore = score;
+            myDepthReached = depth;
+            myPreviousPvLength = myPvLength[0];
+            System.arraycopy(myPvTable[0], 0, myPreviousPv, 0, myPreviousPvLength);
+            if (Math.abs(score) > WIN_THRESHOLD || depth >= emptyCells) break; // the result can't change any more
+        }
+        return bestMove;
+    }
+    
+    /**
+     * Searches a position to a fixed depth for the Ponderer. The table isn't aged, so the results for every reply
+     * pondered stay in it for the real search.
+     * @param board The board to search.
+     * @param type The PieceType of the player to move.
+     * @param opponentType The PieceType of the other player.
+     * @param depth How many plies to search.
+     * @return The best column, or -1 if there is no legal move.
+     */
+    int ponder(GameBoard board, PieceType type, PieceType opponentType, int depth)
+    {
+        myIsPondering = true;
+        try
+        {
+            return this.search(board, type, opponentType, Math.min(Math.max(1, depth), MAX_DEPTH), 0L);
+        }
+        finally
+        {
+            myIsPondering = false;
+        }
+    }
+    
+    /**
+     * Makes this engine a helper for a parallel search, sharing the given table.
+     * @param table The shared transposition table.
+     * @param index Which helper this is, starting from 1.
+     */
+    void makeHelper(TranspositionTable table, int index)
+    {
+        myTable = table;
+        myIsHelper = true;
+        myDepthOffset = index % 2;
+    }
+    
+    /**
+     * Clears a stop request, ready for the next search. Searches don't clear it themselves, or a stop that came just
+     * before one started would be lost, so whoever hands the search out clears it when they do.
+     */
+    public void clearStop()
+    {
+        myStopRequested = false;
+    }
+    
+    /**
+     * Asks a running search to stop as soon as it can. It will still return the best move it has. The request
+     * stays until clearStop, so a search that hasn't started yet stops too, after its first iteration.
+     */
+    public void stop()
+    {
+        myStopRequested = true;
+    }
+    
+    /**
+     * Sets up the search copy of the board, the move order and the evaluator.
+     * @param board The board to search.
+     * @param type The PieceType of the player to move.
+     * @param opponentType The PieceType of the other player.
+     */
+    private void prepare(GameBoard board, PieceType type, PieceType opponentType)
+    {
+        mySides[0] = type;
+        mySides[1] = opponentType;
+        if (myEvaluator == null || !myEvaluator.fits(board))
+        {
+            // the winning lines are only listed again when the board changes size
+            myColumnOrder = centerFirstOrder(board.getNumColumns());
+            myEvaluator = new ThreatEvaluator(board.getNumRows(), board.getNumColumns(), board.getWinLength());
+        }
+        myEvaluator.setStarter((board.getNumPieces() % 2 == 0) ? type : opponentType);
+        myBoard = new GameBoard(board);
+        myBoard.setEvaluator(myEvaluator);
+        if (myMoveLists == null || myMoveLists[0].length != myColumnOrder.length)
+        {
+            myMoveLists = new int[MAX_DEPTH + 1][myColumnOrder.length];
+        }
+        if (myOrderer == null || !myOrderer.fits(board)) myOrderer = new MoveOrderer(board.getNumRows(), board.getNumColumns(), MAX_DEPTH + 1);
+        myOrderer.setEnabled(myIsOrdering);
+    }
+    
+    /**
+     * Negamax search with alpha-beta pruning.
+     * @param depth How many plies are left to search.
+     * @param alpha The score the side to move is already guaranteed.
+     * @param beta The score the opponent is already guaranteed.
+     * @param side Which of mySides is to move.
+     * @param ply How many plies we are from the root.
+     * @return The score of the position for the side to move.
+     */
+    private int negamax(int depth, int alpha, int beta, int side, int ply)
+    {
+        myNodes++;
+        myPvLength[ply] = ply;
+        if (myDepthReached > 0 && (myNodes & 0x3FF) == 0 && (myStopRequested || myDeadline != 0L && System.nanoTime() > myDeadline))
+        {
+            myAborted = true; // only checked every so often, the clock isn't free. the first iteration always finishes
+        }
+        if (myAborted) return 0;
+        if (myBoard.isBoardFull()) return 0; // draw
+        if (depth == 0) return myEvaluator.evaluate(mySides[side], mySides[1 - side]);
+        long hash = myBoard.getCanonicalHash(mySides[side]);
+        boolean mirrored = myBoard.isCanonicalMirrored();
+        int alphaOriginal = alpha;
+        int tableMove = TranspositionTable.NO_MOVE;
+        long entry = myTable.probe(hash);
+        if (entry != 0L)
+        {
+            tableMove = TranspositionTable.getMove(entry);
+            if (mirrored && tableMove != TranspositionTable.NO_MOVE) tableMove = myBoard.mirrorColumn(tableMove);
+            if (ply > 0 && TranspositionTable.getDepth(entry) >= depth) // the root always searches so it has a move to play
+            {
+                int score = fromTable(TranspositionTable.getScore(entry), ply);
+                int bound = TranspositionTable.getBound(entry);
+                if (bound == TranspositionTable.EXACT) return score;
+                if (bound == TranspositionTable.LOWER_BOUND && score >= beta) return score;
+                if (bound == TranspositionTable.UPPER_BOUND && score <= alpha) return score;
+            }
+        }
+        int bestMove = TranspositionTable.NO_MOVE;
+        int[] moves = myMoveLists[ply];
+        int numMoves = orderMoves(ply, depth, side, tableMove);
+        for (int i = 0; i < numMoves; i++)
+        {
+            int col = moves[i];
+            int row = myBoard.getNextFreeRow(col);
+            if (i > 0) myFollowingPv = false; // we've left the principal variation
+            myPvLength[ply + 1] = ply + 1;
+            int score = searchMove(col, depth, alpha, beta, side, ply);
+            if (myAborted) return 0;
+            if (score > alpha)
+            {
+                alpha = score;
+                bestMove = col;
+                if (ply == 0) myBestMove = col;
+                // our line is this move followed by the best line after it
+                myPvTable[ply][ply] = col;
+                for (int j = ply + 1; j < myPvLength[ply + 1]; j++)
+                {
+                    myPvTable[ply][j] = myPvTable[ply + 1][j];
+                }
+                myPvLength[ply] = Math.max(ply + 1, myPvLength[ply + 1]);
+                if (alpha >= beta) // the opponent will never let us get here
+                {
+                    myCutoffs++;
+                    if (i == 0) myFirstMoveCutoffs++;
+                    myOrderer.recordCutoff(side, ply, depth, row, col);
+                    break;
+                }
+            }
+        }
+        int bound = TranspositionTable.EXACT;
+        if (alpha <= alphaOriginal) bound = TranspositionTable.UPPER_BOUND;
+        else if (alpha >= beta) bound = TranspositionTable.LOWER_BOUND;
+        int storeMove = (bestMove == TranspositionTable.NO_MOVE) ? tableMove : bestMove;
+        if (mirrored && storeMove != TranspositionTable.NO_MOVE) storeMove = myBoard.mirrorColumn(storeMove);
+        myTable.store(hash, toTable(alpha, ply), bound, depth, storeMove);
+        return alpha;
+    }
+    
+    /**
+     * Converts a score to store in the table. Win scores count plies from the root, so they are
+     * changed to count from the stored position instead.
+     * @param score The score from the search.
+     * @param ply How many plies the position is from the root.
+     * @return The score to store.
+     */
+    private static int toTable(int score, int ply)
+    {
+        if (score > WIN_THRESHOLD) return score + ply;
+        if (score < -WIN_THRESHOLD) return score - ply;
+        return score;
+    }
+    
+    /**
+     * Converts a score from the table back to count win scores from the root.
+     * @param score The score from the table.
+     * @param ply How many plies the position is from the root.
+     * @return The score for the search.
+     */
+    private static int fromTable(int score, int ply)
+    {
+        if (score > WIN_THRESHOLD) return score - ply;
+        if (score < -WIN_THRESHOLD) return score + ply;
+        return score;
+    }
+    
+    /**
+     * Fills the move list for a ply. The last iteration's principal variation goes first, then the table's
+     * best move, then the rest as the MoveOrderer sees fit.
+     * @param ply How many plies we are from the root.
+     * @param depth How many plies are left to search.
+     * @param side Which of mySides is to move.
+     * @param tableMove The best move from the transposition table, or NO_MOVE.
+     * @return How many moves were listed.
+     */
+    private int orderMoves(int ply, int depth, int side, int tableMove)
+    {
+        int pvMove = TranspositionTable.NO_MOVE;
+        if (myFollowingPv && ply < myPreviousPvLength) pvMove = myPreviousPv[ply];
+        else myFollowingPv = false;
+        return myOrderer.order(myBoard, mySides, side, ply, depth, pvMove, tableMove, myColumnOrder, myMoveLists[ply]);
+    }
+    
+    /**
+     * Makes a move, scores it and unmakes it.
+     * @param col The column to move in.
+     * @param depth How many plies are left to search, including this move.
+     * @param alpha The score the side to move is already guaranteed.
+     * @param beta The score the opponent is already guaranteed.
+     * @param side Which of mySides is moving.
+     * @param ply How many plies we are from the root.
+     * @return The score of the move for the side moving.
+     */
+    private int searchMove(int col, int depth, int alpha, int beta, int side, int ply)
+    {
+        myBoard.placePiece(col, mySides[side]); // the board passes the move on to the evaluator
+        int score;
+        if (myBoard.checkIfWin()) score = WIN_SCORE - ply; // quicker wins score higher
+        else score = -negamax(depth - 1, -beta, -alpha, 1 - side, ply + 1);
+        myBoard.removePiece(col);
+        return score;
+    }
+    
+    /**
+     * Builds a column order which starts in the center and works its way out.
+     * @param cols The number of columns.
+     * @return The columns, center first.
+     */
+    static int[] centerFirstOrder(int cols)
+    {
+        int[] order = new int[cols];
+        int center = (cols - 1) / 2;
+        for (int i = 0; i < cols; i++)
+        {
+            order[i] = (i % 2 == 0) ? center - i / 2 : center + (i + 1) / 2;
+        }
+        return order;
+    }
+    
+    /**
+     * Weighs each cell by how many possible winning runs pass through it.
+     * @param rows The number of rows.
+     * @param cols The number of columns.
+     * @param winLength How big a run must be to win.
+     * @return The weight of each cell.
+     */
+    static int[][] computeCellWeights(int rows, int cols, int winLength)
+    {
+        int[][] weights = new int[rows][cols];
+        int[][] steps = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+        for (int i = 0; i < rows; i++)
+        {
+            for (int j = 0; j < cols; j++)
+            {
+                for (int s = 0; s < steps.length; s++)
+                {
+                    // a run starting here: if it ends on the board, every cell on it gets a point
+                    int endRow = i + (winLength - 1) * steps[s][0];
+                    int endCol = j + (winLength - 1) * steps[s][1];
+                    if (endRow < 0 || endRow >= rows || endCol < 0 || endCol >= cols) continue;
+                    for (int k = 0; k < winLength; k++)
+                    {
+                        weights[i + k * steps[s][0]][j + k * steps[s][1]]++;
+                    }
+                }
+            }
+        }
+        return weights;
+    }
+    
+    /**
+     * Gets the score of the last search, from the searching player's point of view.
+     * @return The last score.
+     */
+    public int getLastScore()
+    {
+        return myLastScore;
+    }
+    
+    /**
+     * Gets the depth of the deepest iteration the last search finished.
+     * @return The depth reached in plies.
+     */
+    public int getDepthReached()
+    {
+        return myDepthReached;
+    }
+    
+    /**
+     * Gets the principal variation of the last search, the line of play it expects.
+     * @return The columns of the expected line, starting with the best move.
+     */
+    public int[] getPrincipalVariation()
+    {
+        int[] line = new int[myPreviousPvLength];
+        System.arraycopy(myPreviousPv, 0, line, 0, myPreviousPvLength);
+        return line;
+    }
+    
+    /**
+     * Gets the number of positions visited by the last search.
+     * @return The node count.
+     */
+    public long getNodeCount()
+    {
+        return myNodes;
+    }
+    
+    /**
+     * Gets the effective branching factor of the last search, how many times more nodes each ply deeper costs.
+     * It is the nodes of the last iteration finished over the nodes of the one before, or the depth reached'th
+     * root of all the nodes if only one iteration finished.
+     * @return The branching factor, or 0 if no iteration finished.
+     */
+    public double getBranchingFactor()
+    {
+        if (myPreviousIterationNodes > 0) return (double) myIterationNodes / myPreviousIterationNodes;
+        if (myDepthReached == 0) return 0.0;
+        return Math.pow(myNodes, 1.0 / myDepthReached);
+    }
+    
+    /**
+     * Gets the number of cutoffs in the last search.
+     * @return The cutoff count.
+     */
+    public long getCutoffCount()
+    {
+        return myCutoffs;
+    }
+    
+    /**
+     * Gets how many cutoffs in the last search came from the first move tried. The closer this is
+     * to getCutoffCount, the better the moves were ordered.
+     * @return The count of first move cutoffs.
+     */
+    public long getFirstMoveCutoffCount()
+    {
+        return myFirstMoveCutoffs;
+    }
+    
+    /**
+     * Gets the move orderer.
+     * @return The move orderer, or null if no search has been run yet.
+     */
+    public MoveOrderer getMoveOrderer()
+    {
+        return myOrderer;
+    }
+    
+    /**
+     * Checks if the search orders its moves by threats, killers and history.
+     * @return If the dynamic move ordering is on.
+     */
+    public boolean isMoveOrdering()
+    {
+        return myIsOrdering;
+    }
+    
+    /**
+     * Turns the ordering by threats, killers and history on or off. Off, moves are only ordered by the
+     * principal variation, the table and the center-first order.
+     * @param ordering If the dynamic move ordering should be on.
+     */
+    public void setMoveOrdering(boolean ordering)
+    {
+        myIsOrdering = ordering;
+    }
+    
+    /**
+     * Gets the transposition table used by the search.
+     * @return The transposition table, or null if no search has been run yet.
+     */
+    public TranspositionTable getTranspositionTable()
+    {
+        return myTable;
+    }
+    
+    /**
+     * Sets the transposition table to use. This is how the memory budget is picked.
+     * @param table The new transposition table.
+     */
+    public void setTranspositionTable(TranspositionTable table)
+    {
+        myTable = table;
+    }
+    
+    /**
+     * Gets the search depth.
+     * @return The depth in plies.
+     */
+    public int getDepth()
+    {
+        return myDepth;
+    }
+    
+    /**
+     * Sets the search depth.
+     * @param depth The new depth in plies.
+     */
+    public void setDepth(int depth)
+    {
+        myDepth = depth;
+    }
+}
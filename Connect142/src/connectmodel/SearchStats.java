@@ -0,0 +1,326 @@
+/**
+ * SearchStats counts what a ComputerPlayer's searches did: nodes, speed, depth, time per move, transposition table
+ * hit rate and effective branching factor, for the last move and over every move since the counts started. It can be
+ * registered as a JMX MBean so the numbers can be watched live from jconsole or any other JMX client, and it sums
+ * itself up on one line for logging to LOGGER_NAME at LOG_LEVEL. A search records itself from the thread it ran on
+ * while JMX reads from its own threads, so every method is synchronized.
+ * 
+ * @author Brandon Belna (bbelna@stetson.edu)
+ */
+package connectmodel;
+
+import java.lang.management.ManagementFactory;
+import java.util.logging.Level;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+public class SearchStats implements SearchStatsMBean
+{
+    public static final String DOMAIN = "connect142";
+    public static final String LOGGER_NAME = "connect142.search"; // set its level to WARNING or above to silence the stats
+    public static final Level LOG_LEVEL = Level.INFO;
+    private ObjectName myName; // null unless registered
+    private long myMoves;
+    private long myBookMoves;
+    private long myPonderHits;
+    private long myNodes;
+    private long myNanos;
+    private long myDepths; // the depths reached, added up
+    private long myTableHits;
+    private long myTableProbes;
+    private double myBranchingFactors; // the branching factors, added up
+    private long myLastNodes;
+    private long myLastNanos;
+    private int myLastDepth;
+    private long myLastTableHits;
+    private long myLastTableProbes;
+    private double myLastBranchingFactor;
+    
+    /**
+     * Records a search.
+     * @param nodes How many positions it visited.
+     * @param depth How deep it got, in plies.
+     * @param nanos How long it took.
+     * @param tableHits How many of its table probes found their position.
+     * @param tableProbes How many table probes it made.
+     * @param branchingFactor Its effective branching factor.
+     */
+    public synchronized void searched(long nodes, int depth, long nanos, long tableHits, long tableProbes, double branchingFactor)
+    {
+        myMoves++;
+        myNodes += nodes;
+        myNanos += nanos;
+        myDepths += depth;
+        myTableHits += tableHits;
+        myTableProbes += tableProbes;
+        myBranchingFactors += branchingFactor;
+        myLastNodes = nodes;
+        myLastNanos = nanos;
+        myLastDepth = depth;
+        myLastTableHits = tableHits;
+        myLastTableProbes = tableProbes;
+        myLastBranchingFactor = branchingFactor;
+    }
+    
+    /**
+     * Records a search by the SearchEngine, which has to be the one that just ran.
+     * @param engine The engine.
+     * @param nanos How long the search took.
+     * @param tableHits The table's hit count before the search.
+     * @param tableMisses The table's miss count before the search.
+     */
+    public void searched(SearchEngine engine, long nanos, long tableHits, long tableMisses)
+    {
+        TranspositionTable table = engine.getTranspositionTable();
+        long hits = table.getHits() - tableHits;
+        this.searched(engine.getNodeCount(), engine.getDepthReached(), nanos, hits, hits + table.getMisses() - tableMisses,
+                engine.getBranchingFactor());
+    }
+    
+    /**
+     * Records a move played from the opening book.
+     */
+    public synchronized void bookMove()
+    {
+        myBookMoves++;
+    }
+    
+    /**
+     * Records a move played straight from pondering.
+     */
+    public synchronized void ponderHit()
+    {
+        myPonderHits++;
+    }
+    
+    /**
+     * Registers the stats with the platform MBean server, as connect142:type=SearchStats,name=name. Any earlier
+     * registration of these stats is dropped first.
+     * @param name What to call them.
+     * @return If they were registered.
+     */
+    public synchronized boolean register(String name)
+    {
+        this.unregister();
+        try
+        {
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=SearchStats,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            myName = objectName;
+            return true;
+        }
+        catch(JMException exception)
+        {
+            System.out.println(exception.toString());
+            return false;
+        }
+    }
+    
+    /**
+     * Takes the stats back off the platform MBean server, if they are on it.
+     */
+    public synchronized void unregister()
+    {
+        if (myName == null) return;
+        try
+        {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(myName);
+        }
+        catch(JMException exception)
+        {
+            System.out.println(exception.toString());
+        }
+        myName = null;
+    }
+    
+    /**
+     * Gets the name the stats are registered under.
+     * @return The name, or null if they aren't registered.
+     */
+    public synchronized ObjectName getObjectName()
+    {
+        return myName;
+    }
+    
+    /**
+     * Gets how many moves were searched for.
+     * @return The number of searched moves.
+     */
+    public synchronized long getMovesSearched()
+    {
+        return myMoves;
+    }
+    
+    /**
+     * Gets how many moves were played from the opening book, without a search.
+     * @return The number of book moves.
+     */
+    public synchronized long getBookMoves()
+    {
+        return myBookMoves;
+    }
+    
+    /**
+     * Gets how many moves were played straight from pondering, without a search.
+     * @return The number of ponder hits.
+     */
+    public synchronized long getPonderHits()
+    {
+        return myPonderHits;
+    }
+    
+    /**
+     * Gets how many positions every search visited altogether.
+     * @return The node count.
+     */
+    public synchronized long getNodesSearched()
+    {
+        return myNodes;
+    }
+    
+    /**
+     * Gets how many positions the last search visited.
+     * @return The node count of the last search.
+     */
+    public synchronized long getLastNodes()
+    {
+        return myLastNodes;
+    }
+    
+    /**
+     * Gets how fast the searches went altogether.
+     * @return Nodes per second of search time.
+     */
+    public synchronized double getNodesPerSecond()
+    {
+        return perSecond(myNodes, myNanos);
+    }
+    
+    /**
+     * Gets how fast the last search went.
+     * @return Nodes per second.
+     */
+    public synchronized double getLastNodesPerSecond()
+    {
+        return perSecond(myLastNodes, myLastNanos);
+    }
+    
+    /**
+     * Gets how deep the last search got.
+     * @return The depth reached in plies.
+     */
+    public synchronized int getLastDepthReached()
+    {
+        return myLastDepth;
+    }
+    
+    /**
+     * Gets how deep the searches got on average.
+     * @return The mean depth reached in plies.
+     */
+    public synchronized double getAverageDepthReached()
+    {
+        return (myMoves == 0) ? 0.0 : (double) myDepths / myMoves;
+    }
+    
+    /**
+     * Gets how long the last search took.
+     * @return The time in milliseconds.
+     */
+    public synchronized double getLastMoveMillis()
+    {
+        return myLastNanos / 1e6;
+    }
+    
+    /**
+     * Gets how long the searches took on average.
+     * @return The mean time in milliseconds.
+     */
+    public synchronized double getAverageMoveMillis()
+    {
+        return (myMoves == 0) ? 0.0 : myNanos / 1e6 / myMoves;
+    }
+    
+    /**
+     * Gets the fraction of transposition table probes which found their position, over every search.
+     * @return The hit rate, between 0 and 1.
+     */
+    public synchronized double getCacheHitRate()
+    {
+        return (myTableProbes == 0) ? 0.0 : (double) myTableHits / myTableProbes;
+    }
+    
+    /**
+     * Gets the transposition table hit rate of the last search.
+     * @return The hit rate, between 0 and 1.
+     */
+    public synchronized double getLastCacheHitRate()
+    {
+        return (myLastTableProbes == 0) ? 0.0 : (double) myLastTableHits / myLastTableProbes;
+    }
+    
+    /**
+     * Gets the effective branching factor of the last search.
+     * @return How many times more nodes each ply deeper cost.
+     */
+    public synchronized double getLastBranchingFactor()
+    {
+        return myLastBranchingFactor;
+    }
+    
+    /**
+     * Gets the effective branching factor averaged over every search.
+     * @return The mean branching factor.
+     */
+    public synchronized double getAverageBranchingFactor()
+    {
+        return (myMoves == 0) ? 0.0 : myBranchingFactors / myMoves;
+    }
+    
+    /**
+     * Starts every count over. The registration is kept.
+     */
+    public synchronized void reset()
+    {
+        myMoves = 0;
+        myBookMoves = 0;
+        myPonderHits = 0;
+        myNodes = 0;
+        myNanos = 0;
+        myDepths = 0;
+        myTableHits = 0;
+        myTableProbes = 0;
+        myBranchingFactors = 0.0;
+        myLastNodes = 0;
+        myLastNanos = 0;
+        myLastDepth = 0;
+        myLastTableHits = 0;
+        myLastTableProbes = 0;
+        myLastBranchingFactor = 0.0;
+    }
+    
+    /**
+     * Works out a rate.
+     * @param count How many things were done.
+     * @param nanos How long they took.
+     * @return How many were done per second, 0 if no time was taken.
+     */
+    private static double perSecond(long count, long nanos)
+    {
+        return (nanos == 0) ? 0.0 : count * 1e9 / nanos;
+    }
+    
+    /**
+     * Sums the stats up on one line, the last search first and then the averages.
+     * @return The stats.
+     */
+    public synchronized String toString()
+    {
+        return String.format("moves %d (book %d, ponder %d), last %d nodes %.0f/s depth %d %.0fms hit %.1f%% ebf %.2f, "
+                + "all %d nodes %.0f/s depth %.1f %.0fms hit %.1f%% ebf %.2f", myMoves, myBookMoves, myPonderHits,
+                myLastNodes, this.getLastNodesPerSecond(), myLastDepth, this.getLastMoveMillis(), 100 * this.getLastCacheHitRate(),
+                myLastBranchingFactor, myNodes, this.getNodesPerSecond(), this.getAverageDepthReached(),
+                this.getAverageMoveMillis(), 100 * this.getCacheHitRate(), this.getAverageBranchingFactor());
+    }
+}
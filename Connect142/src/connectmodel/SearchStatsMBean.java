@@ -0,0 +1,104 @@
+/**
+ * SearchStatsMBean is what SearchStats shows over JMX. Every attribute is read only, and reset starts the counts over.
+ * 
+ * @author Brandon Belna (bbelna@stetson.edu)
+ */
+package connectmodel;
+
+public interface SearchStatsMBean
+{
+    /**
+     * Gets how many moves were searched for.
+     * @return The number of searched moves.
+     */
+    long getMovesSearched();
+    
+    /**
+     * Gets how many moves were played from the opening book, without a search.
+     * @return The number of book moves.
+     */
+    long getBookMoves();
+    
+    /**
+     * Gets how many moves were played straight from pondering, without a search.
+     * @return The number of ponder hits.
+     */
+    long getPonderHits();
+    
+    /**
+     * Gets how many positions every search visited altogether.
+     * @return The node count.
+     */
+    long getNodesSearched();
+    
+    /**
+     * Gets how many positions the last search visited.
+     * @return The node count of the last search.
+     */
+    long getLastNodes();
+    
+    /**
+     * Gets how fast the searches went altogether.
+     * @return Nodes per second of search time.
+     */
+    double getNodesPerSecond();
+    
+    /**
+     * Gets how fast the last search went.
+     * @return Nodes per second.
+     */
+    double getLastNodesPerSecond();
+    
+    /**
+     * Gets how deep the last search got.
+     * @return The depth reached in plies.
+     */
+    int getLastDepthReached();
+    
+    /**
+     * Gets how deep the searches got on average.
+     * @return The mean depth reached in plies.
+     */
+    double getAverageDepthReached();
+    
+    /**
+     * Gets how long the last search took.
+     * @return The time in milliseconds.
+     */
+    double getLastMoveMillis();
+    
+    /**
+     * Gets how long the searches took on average.
+     * @return The mean time in milliseconds.
+     */
+    double getAverageMoveMillis();
+    
+    /**
+     * Gets the fraction of transposition table probes which found their position, over every search.
+     * @return The hit rate, between 0 and 1.
+     */
+    double getCacheHitRate();
+    
+    /**
+     * Gets the transposition table hit rate of the last search.
+     * @return The hit rate, between 0 and 1.
+     */
+    double getLastCacheHitRate();
+    
+    /**
+     * Gets the effective branching factor of the last search.
+     * @return How many times more nodes each ply deeper cost.
+     */
+    double getLastBranchingFactor();
+    
+    /**
+     * Gets the effective branching factor averaged over every search.
+     * @return The mean branching factor.
+     */
+    double getAverageBranchingFactor();
+    
+    /**
+     * Starts every count over.
+     */
+    void reset();
+}
@@ -0,0 +1,34 @@
+/**
+ * A simple enumeration class for the ways a ComputerPlayer can pick its moves.
+ * 
+ * @author Brandon Belna (bbelna@stetson.edu)
+ */
+package connectmodel;
+
+public enum Strategy
+{
+    HEURISTIC ("Heuristic"),
+    ALPHA_BETA ("Alpha-Beta"),
+    PARALLEL_ALPHA_BETA ("Parallel Alpha-Beta"),
+    MONTE_CARLO ("Monte Carlo"),
+    RANDOM ("Random");
+    private final String myStrategy;
+    
+    /**
+     * Set the name for our specific strategy.
+     * @param strategy The name of our strategy.
+     */
+    private Strategy(String strategy)
+    {
+        myStrategy = strategy;
+    }
+    
+    /**
+     * Get the name of this specific strategy.
+     * @return The name of the strategy.
+     */
+    public String getStrategy()
+    {
+        return myStrategy;
+    }
+}
@@ -0,0 +1,318 @@
+/**
+ * ThreatEvaluator scores a position by its winning lines, the runs of winLength cells a player could still fill.
+ * Every line of a board is listed once when the evaluator is made, along with the lines through each cell. A
+ * GameBoard it is set on tells it about every piece placed or taken back, and it keeps a count of each type's pieces
+ * on each line and the score of each type, so keeping up costs only the lines through the cell and a score is O(1).
+ * 
+ * A line with pieces of more than one type can't be won by anyone and is worth nothing. Otherwise it is worth more
+ * to its owner the fuller it is, four times as much for every piece. A line one piece short of winning is a threat,
+ * and in a two player game a threat counts double when its empty cell is on the right row for its owner: odd rows
+ * from the bottom for the player who went first, even rows for the other, because when the board fills up those are
+ * the cells each player ends up getting to play.
+ * 
+ * @author Brandon Belna (bbelna@stetson.edu)
+ */
+package connectmodel;
+
+import java.util.Arrays;
+
+public class ThreatEvaluator
+{
+    public static final int MAX_SCORE = SearchEngine.WIN_SCORE / 4; // scores are clamped so they never look like wins
+    private static final int NUM_TYPES = PieceType.values().length;
+    private static final int MAX_SHIFT = 12; // the most a line is worth is 4^6, so long runs can't overflow
+    private int myNumRows;
+    private int myNumColumns;
+    private int myWinLength;
+    private int myNumLines;
+    private int[] myLineCellSums; // the sum of the cell indices on each line, to find a threat's empty cell
+    private int[] myCellLineStarts; // the lines through cell i are myCellLines[myCellLineStarts[i]] up to the next start
+    private int[] myCellLines;
+    private int[] myLineScores; // what a line with n pieces of one type is worth to that type
+    private int[] myCounts; // myCounts[line * NUM_TYPES + type ordinal], the pieces of each type on each line
+    private int[] myTotals; // the pieces of any type on each line
+    private int[] myOccupiedSums; // the sum of the indices of the occupied cells on each line
+    private int[] myOwners; // the ordinal of the only type on each line, or -1 if it is empty or blocked
+    private int[] myValues; // what each line is worth to its owner
+    private int[] myScores; // the sum of the values of the lines each type owns
+    private int[] myThreats; // how many threats each type has
+    private int myStarter; // the ordinal of the type who went first, or -1 to not look at rows
+    
+    /**
+     * Constructor for the ThreatEvaluator. Lists every winning line of the board.
+     * @param rows Number of rows.
+     * @param cols Number of columns.
+     * @param winLength How big a run must be to win.
+     */
+    public ThreatEvaluator(int rows, int cols, int winLength)
+    {
+        if (rows < 1 || cols < 1 || winLength < 1) throw new IllegalArgumentException("A " + rows + "x" + cols + " board can't be evaluated!");
+        myNumRows = rows;
+        myNumColumns = cols;
+        myWinLength = winLength;
+        int cells = rows * cols;
+        int[][] steps = {{0, 1}, {1, 0}, {1, 1}, {1, -1}}; // row step and column step
+        // count the lines first, so everything can go in flat arrays
+        int[] linesPerCell = new int[cells];
+        for (int s = 0; s < steps.length; s++)
+        {
+            for (int row = 0; row < rows; row++)
+            {
+                for (int col = 0; col < cols; col++)
+                {
+                    if (!fits(row, col, steps[s])) continue;
+                    if (winLength == 1 && s > 0) continue; // a single cell is the same line in every direction
+                    myNumLines++;
+                    for (int k = 0; k < winLength; k++)
+                    {
+                        linesPerCell[(row + k * steps[s][0]) * cols + col + k * steps[s][1]]++;
+                    }
+                }
+            }
+        }
+        myCellLineStarts = new int[cells + 1];
+        for (int i = 0; i < cells; i++)
+        {
+            myCellLineStarts[i + 1] = myCellLineStarts[i] + linesPerCell[i];
+        }
+        myCellLines = new int[myCellLineStarts[cells]];
+        myLineCellSums = new int[myNumLines];
+        int[] next = Arrays.copyOf(myCellLineStarts, cells);
+        int line = 0;
+        for (int s = 0; s < steps.length; s++)
+        {
+            for (int row = 0; row < rows; row++)
+            {
+                for (int col = 0; col < cols; col++)
+                {
+                    if (!fits(row, col, steps[s])) continue;
+                    if (winLength == 1 && s > 0) continue;
+                    for (int k = 0; k < winLength; k++)
+                    {
+                        int cell = (row + k * steps[s][0]) * cols + col + k * steps[s][1];
+                        myCellLines[next[cell]++] = line;
+                        myLineCellSums[line] += cell;
+                    }
+                    line++;
+                }
+            }
+        }
+        myLineScores = new int[winLength + 1];
+        for (int n = 1; n <= winLength; n++)
+        {
+            myLineScores[n] = 1 << Math.min(2 * (n - 1), MAX_SHIFT);
+        }
+        myCounts = new int[myNumLines * NUM_TYPES];
+        myTotals = new int[myNumLines];
+        myOccupiedSums = new int[myNumLines];
+        myOwners = new int[myNumLines];
+        myValues = new int[myNumLines];
+        myScores = new int[NUM_TYPES];
+        myThreats = new int[NUM_TYPES];
+        myStarter = -1;
+        this.clear();
+    }
+    
+    /**
+     * Checks if a line starting at a cell stays on the board.
+     * @param row The row of the first cell.
+     * @param col The column of the first cell.
+     * @param step The row step and column step of the line.
+     * @return If the whole line is on the board.
+     */
+    private boolean fits(int row, int col, int[] step)
+    {
+        int endRow = row + (myWinLength - 1) * step[0];
+        int endCol = col + (myWinLength - 1) * step[1];
+        return endRow >= 0 && endRow < myNumRows && endCol >= 0 && endCol < myNumColumns;
+    }
+    
+    /**
+     * Checks if the evaluator was made for a board's size.
+     * @param board The board.
+     * @return If the board has the same rows, columns and win length.
+     */
+    public boolean fits(GameBoard board)
+    {
+        return board.getNumRows() == myNumRows && board.getNumColumns() == myNumColumns && board.getWinLength() == myWinLength;
+    }
+    
+    /**
+     * Empties every line, as if the board were empty.
+     */
+    public void clear()
+    {
+        Arrays.fill(myCounts, 0);
+        Arrays.fill(myTotals, 0);
+        Arrays.fill(myOccupiedSums, 0);
+        Arrays.fill(myOwners, -1);
+        Arrays.fill(myValues, 0);
+        Arrays.fill(myScores, 0);
+        Arrays.fill(myThreats, 0);
+    }
+    
+    /**
+     * Counts a piece placed on the board.
+     * @param row The row of the piece.
+     * @param col The column of the piece.
+     * @param type The piece type.
+     */
+    void place(int row, int col, PieceType type)
+    {
+        int cell = row * myNumColumns + col;
+        int t = type.ordinal();
+        for (int i = myCellLineStarts[cell]; i < myCellLineStarts[cell + 1]; i++)
+        {
+            int line = myCellLines[i];
+            this.unscore(line);
+            int count = ++myCounts[line * NUM_TYPES + t];
+            int total = ++myTotals[line];
+            myOccupiedSums[line] += cell;
+            this.score(line, (count == total) ? t : -1); // a new piece can only keep a line for its own type
+        }
+    }
+    
+    /**
+     * Counts a piece taken back off the board.
+     * @param row The row of the piece.
+     * @param col The column of the piece.
+     * @param type The piece type.
+     */
+    void remove(int row, int col, PieceType type)
+    {
+        int cell = row * myNumColumns + col;
+        int t = type.ordinal();
+        for (int i = myCellLineStarts[cell]; i < myCellLineStarts[cell + 1]; i++)
+        {
+            int line = myCellLines[i];
+            int owner = myOwners[line];
+            this.unscore(line);
+            myCounts[line * NUM_TYPES + t]--;
+            int total = --myTotals[line];
+            myOccupiedSums[line] -= cell;
+            if (total == 0) owner = -1;
+            else if (owner == -1)
+            {
+                // the line was blocked, taking the piece away may leave only one type on it
+                for (int u = 0; u < NUM_TYPES; u++)
+                {
+                    if (myCounts[line * NUM_TYPES + u] == total) owner = u;
+                }
+            }
+            this.score(line, owner);
+        }
+    }
+    
+    /**
+     * Takes a line's value back off its owner's score.
+     * @param line The line.
+     */
+    private void unscore(int line)
+    {
+        int owner = myOwners[line];
+        if (owner == -1) return;
+        myScores[owner] -= myValues[line];
+        if (myTotals[line] == myWinLength - 1) myThreats[owner]--;
+    }
+    
+    /**
+     * Gives a line to its owner, working out its value and adding it to the owner's score.
+     * @param line The line.
+     * @param owner The ordinal of the only type on the line, or -1 if it is empty or blocked.
+     */
+    private void score(int line, int owner)
+    {
+        int total = myTotals[line];
+        myOwners[line] = owner;
+        if (owner == -1)
+        {
+            myValues[line] = 0;
+            return;
+        }
+        int value = myLineScores[total];
+        if (total == myWinLength - 1)
+        {
+            myThreats[owner]++;
+            if (myStarter != -1)
+            {
+                // the one empty cell is what the line's cells add up to less the occupied ones
+                int height = myNumRows - (myLineCellSums[line] - myOccupiedSums[line]) / myNumColumns; // 1 on the bottom row
+                if ((height % 2 == 1) == (owner == myStarter)) value *= 2;
+            }
+        }
+        myValues[line] = value;
+        myScores[owner] += value;
+    }
+    
+    /**
+     * Checks if a piece would win on the spot, without placing it. It wins if it fills a line its type already has
+     * every other cell of.
+     * @param row The row of the empty cell the piece would go in.
+     * @param col The column of the cell.
+     * @param type The piece type.
+     * @return If the piece would win.
+     */
+    public boolean wouldWin(int row, int col, PieceType type)
+    {
+        if (myWinLength == 1) return true; // any piece is a win
+        int cell = row * myNumColumns + col;
+        int t = type.ordinal();
+        for (int i = myCellLineStarts[cell]; i < myCellLineStarts[cell + 1]; i++)
+        {
+            int line = myCellLines[i];
+            if (myOwners[line] == t && myTotals[line] == myWinLength - 1) return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Scores the position for one player against another.
+     * @param type The player to score for.
+     * @param opponentType The other player.
+     * @return How much better the lines look for type than for opponentType, clamped to MAX_SCORE.
+     */
+    public int evaluate(PieceType type, PieceType opponentType)
+    {
+        int score = myScores[type.ordinal()] - myScores[opponentType.ordinal()];
+        return Math.max(-MAX_SCORE, Math.min(MAX_SCORE, score));
+    }
+    
+    /**
+     * Gets the score of one player's lines.
+     * @param type The player.
+     * @return The sum of the values of the lines only they have pieces on.
+     */
+    public int getScore(PieceType type)
+    {
+        return myScores[type.ordinal()];
+    }
+    
+    /**
+     * Gets how many threats a player has, lines one piece short of a win with no one else's pieces on them.
+     * @param type The player.
+     * @return The number of threats.
+     */
+    public int getThreatCount(PieceType type)
+    {
+        return myThreats[type.ordinal()];
+    }
+    
+    /**
+     * Gets how many winning lines the board has.
+     * @return The number of lines.
+     */
+    public int getNumLines()
+    {
+        return myNumLines;
+    }
+    
+    /**
+     * Sets who went first, which decides the good rows for threats. The evaluator has to be empty, or loaded again
+     * after, since the values already counted were worked out with the old starter.
+     * @param type The PieceType of the player who went first, or null to not look at rows, as with more than two players.
+     */
+    public void setStarter(PieceType type)
+    {
+        myStarter = (type == null) ? -1 : type.ordinal();
+    }
+}
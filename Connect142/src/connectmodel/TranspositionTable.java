@@ -0,0 +1,220 @@
+/**
+ * TranspositionTable caches search results by the Zobrist hash of a GameBoard position, so a position reached
+ * through a different move order does not have to be searched again. The table has a fixed memory budget and
+ * is split into buckets of two entries: one keeps the deepest result, the other always takes the newest.
+ * Keys are stored XORed with their data, so several search threads can share a table without locking: an entry
+ * torn by two threads writing at once simply fails to match. The counters are approximate when shared.
+ * 
+ * @author Brandon Belna (bbelna@stetson.edu)
+ */
+package connectmodel;
+
+import java.util.Arrays;
+
+public class TranspositionTable
+{
+    public static final int DEFAULT_MEGABYTES = 16;
+    public static final int EXACT = 0; // the score is exact
+    public static final int LOWER_BOUND = 1; // the search failed high, the score is at least this
+    public static final int UPPER_BOUND = 2; // the search failed low, the score is at most this
+    public static final int NO_MOVE = 0xFFFF;
+    private static final int BYTES_PER_ENTRY = 16; // a long key and a long of packed data
+    private long[] myKeys;
+    private long[] myData;
+    private int myMask;
+    private int myAge;
+    private long myHits;
+    private long myMisses;
+    private long myStores;
+    
+    /**
+     * Constructor for the TranspositionTable.
+     * @param megabytes How much memory the table may use. Rounded down to a power of two number of entries.
+     */
+    public TranspositionTable(int megabytes)
+    {
+        long budget = Math.max(1, megabytes) * 1024L * 1024L / BYTES_PER_ENTRY;
+        int entries = Integer.highestOneBit((int) Math.min(budget, 1 << 30));
+        myKeys = new long[entries];
+        myData = new long[entries];
+        myMask = (entries - 1) & ~1; // index of the first entry of a bucket
+    }
+    
+    /**
+     * Looks a position up.
+     * @param hash The Zobrist hash of the position.
+     * @return The packed entry for the position, or 0 if it is not in the table.
+     */
+    public long probe(long hash)
+    {
+        int index = (int) hash & myMask;
+        for (int i = index; i < index + 2; i++)
+        {
+            long data = myData[i];
+            if (data != 0L && (myKeys[i] ^ data) == hash)
+            {
+                myHits++;
+                return data;
+            }
+        }
+        myMisses++;
+        return 0L;
+    }
+    
+    /**
+     * Stores the result of a search. The deeper slot of the bucket is only replaced by a result at least as deep,
+     * a result for the same position, or anything once the stored result is from an older search.
+     * @param hash The Zobrist hash of the position.
+     * @param score The score of the position.
+     * @param bound EXACT, LOWER_BOUND or UPPER_BOUND.
+     * @param depth How deep the position was searched.
+     * @param move The best move found, or NO_MOVE.
+     */
+    public void store(long hash, int score, int bound, int depth, int move)
+    {
+        int index = (int) hash & myMask;
+        long data = pack(score, bound, depth, move);
+        long deepest = myData[index];
+        if (deepest == 0L || (myKeys[index] ^ deepest) == hash || depth >= getDepth(deepest) || getAge(deepest) != myAge)
+        {
+            myKeys[index] = hash ^ data;
+            myData[index] = data;
+        }
+        else
+        {
+            myKeys[index + 1] = hash ^ data;
+            myData[index + 1] = data;
+        }
+        myStores++;
+    }
+    
+    /**
+     * Packs an entry into a long. The top bit is always set so an entry is never 0.
+     * @param score The score.
+     * @param bound The bound type.
+     * @param depth The search depth.
+     * @param move The best move.
+     * @return The packed entry.
+     */
+    private long pack(int score, int bound, int depth, int move)
+    {
+        return (score & 0xFFFFFFFFL) | ((long) (move & 0xFFFF) << 32) | ((long) Math.min(depth, 0xFF) << 48)
+                | ((long) bound << 56) | ((long) (myAge & 0x1F) << 58) | (1L << 63);
+    }
+    
+    /**
+     * Gets the score of a packed entry.
+     * @param entry The entry.
+     * @return The score.
+     */
+    public static int getScore(long entry)
+    {
+        return (int) entry;
+    }
+    
+    /**
+     * Gets the best move of a packed entry.
+     * @param entry The entry.
+     * @return The best move, or NO_MOVE.
+     */
+    public static int getMove(long entry)
+    {
+        return (int) (entry >>> 32) & 0xFFFF;
+    }
+    
+    /**
+     * Gets the search depth of a packed entry.
+     * @param entry The entry.
+     * @return The depth.
+     */
+    public static int getDepth(long entry)
+    {
+        return (int) (entry >>> 48) & 0xFF;
+    }
+    
+    /**
+     * Gets the bound type of a packed entry.
+     * @param entry The entry.
+     * @return EXACT, LOWER_BOUND or UPPER_BOUND.
+     */
+    public static int getBound(long entry)
+    {
+        return (int) (entry >>> 56) & 0x3;
+    }
+    
+    /**
+     * Gets which search a packed entry came from.
+     * @param entry The entry.
+     * @return The age of the entry.
+     */
+    private int getAge(long entry)
+    {
+        return (int) (entry >>> 58) & 0x1F;
+    }
+    
+    /**
+     * Marks the start of a new search, so results from older searches get replaced first.
+     */
+    public void newSearch()
+    {
+        myAge = (myAge + 1) & 0x1F;
+    }
+    
+    /**
+     * Empties the table and resets the counters.
+     */
+    public void clear()
+    {
+        Arrays.fill(myKeys, 0L);
+        Arrays.fill(myData, 0L);
+        myHits = 0;
+        myMisses = 0;
+        myStores = 0;
+    }
+    
+    /**
+     * Gets how many probes found their position.
+     * @return The number of hits.
+     */
+    public long getHits()
+    {
+        return myHits;
+    }
+    
+    /**
+     * Gets how many probes did not find their position.
+     * @return The number of misses.
+     */
+    public long getMisses()
+    {
+        return myMisses;
+    }
+    
+    /**
+     * Gets how many results have been stored.
+     * @return The number of stores.
+     */
+    public long getStores()
+    {
+        return myStores;
+    }
+    
+    /**
+     * Gets the fraction of probes which were hits.
+     * @return The hit rate, between 0 and 1.
+     */
+    public double getHitRate()
+    {
+        long probes = myHits + myMisses;
+        return (probes == 0) ? 0.0 : (double) myHits / probes;
+    }
+    
+    /**
+     * Gets how many entries the table holds.
+     * @return The capacity of the table.
+     */
+    public int getCapacity()
+    {
+        return myKeys.length;
+    }
+}
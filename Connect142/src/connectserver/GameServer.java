@@ -0,0 +1,482 @@
+/**
+ * GameServer hosts many Connect4 matches at once with no view, over a simple line protocol on a local socket. One
+ * selector thread does all the networking with non-blocking channels, so thousands of idle sessions cost a buffer
+ * each and no threads. Cpu moves are searched on a bounded pool of workers; when its queue is full a move is turned
+ * away with an error rather than piling up. Every session plays its own Match, with its own GameBoard.
+ * 
+ * The commands, one a line, and their replies:
+ * NEW [rows] [cols] [human|cpu] [strategy] starts a match against the cpu; OK, or OK MOVE col if the cpu goes first.
+ * PLAY col plays the human's move; MOVE col with the cpu's answer, with OVER HUMAN, OVER CPU or OVER DRAW at the end.
+ * AUTO [rows] [cols] [strategy] [strategy] plays cpu against cpu; a MOVE col line a move, then OVER RED, BLACK or DRAW.
+ * BOARD shows the board, STATS the server's metrics and QUIT says BYE and hangs up. Mistakes get ERR and a reason.
+ * A strategy is "heuristic", "random", "search:depth" or "timed:millis".
+ * 
+ * Usage: GameServer [port] [workers] [queue]
+ * 
+ * @author Brandon Belna (bbelna@stetson.edu)
+ */
+package connectserver;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import connectcontrol.Controller;
+import connectview.ConnectView;
+
+public class GameServer implements Runnable
+{
+    public static final int DEFAULT_PORT = 4142;
+    public static final int DEFAULT_QUEUE = 4096; // cpu moves waiting for a worker before new ones are turned away
+    public static final long REPORT_MILLIS = 10000;
+    public static final int MIN_SIZE = 4;
+    public static final int MAX_SIZE = 32;
+    private ServerSocketChannel myServerChannel;
+    private Selector mySelector;
+    private ThreadPoolExecutor myWorkers;
+    private ConcurrentLinkedQueue<Runnable> myCompletions; // results from the workers, run on the selector thread
+    private TableCache myTables;
+    private ServerMetrics myMetrics;
+    private volatile boolean myIsRunning;
+    
+    /**
+     * Constructor for the GameServer. The socket is bound to the loopback address right away.
+     * @param port The port to listen on, 0 for any free one.
+     * @param workers How many cpu moves can be searched at once.
+     * @param queue How many cpu moves can wait for a worker.
+     * @throws IOException If the socket can't be opened.
+     */
+    public GameServer(int port, int workers, int queue) throws IOException
+    {
+        mySelector = Selector.open();
+        myServerChannel = ServerSocketChannel.open();
+        myServerChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        myServerChannel.configureBlocking(false);
+        myServerChannel.register(mySelector, SelectionKey.OP_ACCEPT);
+        myWorkers = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(queue),
+                new ThreadFactory() {
+                    private int myCount;
+                    
+                    public synchronized Thread newThread(Runnable runnable)
+                    {
+                        Thread thread = new Thread(runnable, "Search-" + myCount++);
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        myCompletions = new ConcurrentLinkedQueue<Runnable>();
+        myTables = new TableCache(TableCache.DEFAULT_MEGABYTES);
+        myMetrics = new ServerMetrics();
+    }
+    
+    /**
+     * Entry point. Starts the server and prints its metrics every so often.
+     * @param args Command line arguments: port, workers and queue, all optional.
+     * @throws IOException If the socket can't be opened.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        int port = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int workers = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int queue = (args.length > 2) ? Integer.parseInt(args[2]) : DEFAULT_QUEUE;
+        final GameServer server = new GameServer(port, workers, queue);
+        System.out.println("listening on " + server.getPort() + " with " + workers + " search workers");
+        new Timer("Metrics", true).schedule(new TimerTask() {
+            public void run()
+            {
+                System.out.println(server.getMetrics());
+            }
+        }, REPORT_MILLIS, REPORT_MILLIS);
+        server.run();
+    }
+    
+    /**
+     * Serves until stop is called. This is the selector thread.
+     */
+    public void run()
+    {
+        myIsRunning = true;
+        try
+        {
+            while (myIsRunning)
+            {
+                mySelector.select();
+                Runnable completion;
+                while ((completion = myCompletions.poll()) != null)
+                {
+                    completion.run();
+                }
+                Iterator<SelectionKey> keys = mySelector.selectedKeys().iterator();
+                while (keys.hasNext())
+                {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) this.accept();
+                    else
+                    {
+                        Session session = (Session) key.attachment();
+                        try
+                        {
+                            if (key.isWritable()) session.flush();
+                            if (key.isValid() && key.isReadable()) this.read(session);
+                        }
+                        catch(IOException exception)
+                        {
+                            this.close(session);
+                        }
+                    }
+                }
+            }
+        }
+        catch(IOException exception)
+        {
+            System.out.println(exception.toString());
+        }
+        finally
+        {
+            this.shutdown();
+        }
+    }
+    
+    /**
+     * Stops the server. The selector thread closes every session and the workers on its way out.
+     */
+    public void stop()
+    {
+        myIsRunning = false;
+        mySelector.wakeup();
+    }
+    
+    /**
+     * Closes everything. Called by the selector thread once it stops.
+     */
+    private void shutdown()
+    {
+        myWorkers.shutdownNow();
+        for (SelectionKey key : mySelector.keys())
+        {
+            if (key.attachment() instanceof Session) this.close((Session) key.attachment());
+        }
+        try
+        {
+            myServerChannel.close();
+            mySelector.close();
+        }
+        catch(IOException exception)
+        {
+            System.out.println(exception.toString());
+        }
+    }
+    
+    /**
+     * Accepts every waiting connection.
+     * @throws IOException If the server socket fails.
+     */
+    private void accept() throws IOException
+    {
+        SocketChannel channel;
+        while ((channel = myServerChannel.accept()) != null)
+        {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true); // replies are single short lines
+            SelectionKey key = channel.register(mySelector, SelectionKey.OP_READ);
+            key.attach(new Session(channel, key, myMetrics));
+            myMetrics.sessionOpened();
+        }
+    }
+    
+    /**
+     * Reads from a session and answers every complete command.
+     * @param session The session.
+     * @throws IOException If the connection fails.
+     */
+    private void read(Session session) throws IOException
+    {
+        String[] lines = session.readLines();
+        if (lines == null)
+        {
+            this.close(session);
+            return;
+        }
+        long now = System.nanoTime();
+        for (int i = 0; i < lines.length && !session.isClosed(); i++)
+        {
+            this.handle(session, lines[i].trim(), now);
+        }
+    }
+    
+    /**
+     * Answers a command.
+     * @param session The session it came from.
+     * @param line The command.
+     * @param readNanos When it was read, for the reply latency.
+     * @throws IOException If the reply can't be written.
+     */
+    private void handle(Session session, String line, long readNanos) throws IOException
+    {
+        if (line.isEmpty()) return;
+        String[] words = line.split("\\s+");
+        String command = words[0].toUpperCase();
+        if (command.equals("QUIT"))
+        {
+            session.send("BYE");
+            session.closeAfterReplies();
+            return;
+        }
+        if (command.equals("STATS"))
+        {
+            this.reply(session, "STATS " + myMetrics, readNanos);
+            return;
+        }
+        if (session.isBusy())
+        {
+            this.reply(session, "ERR busy", readNanos);
+            return;
+        }
+        try
+        {
+            if (command.equals("NEW")) this.newMatch(session, words, false, readNanos);
+            else if (command.equals("AUTO")) this.newMatch(session, words, true, readNanos);
+            else if (command.equals("PLAY")) this.play(session, words, readNanos);
+            else if (command.equals("BOARD"))
+            {
+                if (session.getMatch() == null) this.reply(session, "ERR no match", readNanos);
+                else this.reply(session, "BOARD " + session.getMatch().boardString(), readNanos);
+            }
+            else this.reply(session, "ERR unknown command " + words[0], readNanos);
+        }
+        catch(IllegalArgumentException exception)
+        {
+            this.reply(session, "ERR " + exception.getMessage(), readNanos);
+        }
+    }
+    
+    /**
+     * Starts a new match for a session, NEW against the cpu or AUTO for cpu against cpu.
+     * @param session The session.
+     * @param words The command and its arguments.
+     * @param auto If both players are cpus.
+     * @param readNanos When the command was read.
+     * @throws IOException If the reply can't be written.
+     */
+    private void newMatch(Session session, String[] words, boolean auto, long readNanos) throws IOException
+    {
+        int rows = (words.length > 1) ? parseSize(words[1]) : ConnectView.myRows;
+        int cols = (words.length > 2) ? parseSize(words[2]) : ConnectView.myColumns;
+        boolean humanFirst = true;
+        String[] strategies;
+        if (auto)
+        {
+            strategies = new String[] {(words.length > 3) ? words[3] : Match.DEFAULT_STRATEGY, (words.length > 4) ? words[4] : Match.DEFAULT_STRATEGY};
+        }
+        else
+        {
+            if (words.length > 3)
+            {
+                if (!words[3].equalsIgnoreCase("human") && !words[3].equalsIgnoreCase("cpu")) throw new IllegalArgumentException("first must be human or cpu");
+                humanFirst = words[3].equalsIgnoreCase("human");
+            }
+            strategies = new String[] {(words.length > 4) ? words[4] : Match.DEFAULT_STRATEGY};
+        }
+        Match match = new Match(rows, cols, Controller.myWinLength, humanFirst, auto, strategies, myTables);
+        session.setMatch(match);
+        myMetrics.matchStarted();
+        if (match.isCpuTurn()) this.searchCpuMove(session, match, auto ? "" : "OK ", readNanos);
+        else this.reply(session, "OK", readNanos);
+    }
+    
+    /**
+     * Plays the human's move, then has the cpu answer.
+     * @param session The session.
+     * @param words The command and its column.
+     * @param readNanos When the command was read.
+     * @throws IOException If the reply can't be written.
+     */
+    private void play(Session session, String[] words, long readNanos) throws IOException
+    {
+        Match match = session.getMatch();
+        if (match == null || match.isOver() || match.isAuto())
+        {
+            this.reply(session, "ERR no match", readNanos);
+            return;
+        }
+        int col;
+        try
+        {
+            col = Integer.parseInt(words[1]);
+        }
+        catch(RuntimeException exception)
+        {
+            throw new IllegalArgumentException("PLAY needs a column");
+        }
+        if (!match.playHuman(col))
+        {
+            this.reply(session, "ERR illegal move " + col, readNanos);
+            return;
+        }
+        if (match.isOver())
+        {
+            myMetrics.matchFinished();
+            this.reply(session, "OVER " + match.getResult(), readNanos);
+        }
+        else this.searchCpuMove(session, match, "", readNanos);
+    }
+    
+    /**
+     * Hands a cpu move to the workers. The session is busy until the move comes back.
+     * @param session The session.
+     * @param match The session's match.
+     * @param prefix What to put in front of the MOVE reply.
+     * @param readNanos When the command was read.
+     * @throws IOException If the reply can't be written.
+     */
+    private void searchCpuMove(final Session session, final Match match, final String prefix, final long readNanos) throws IOException
+    {
+        session.setBusy(true);
+        try
+        {
+            myWorkers.execute(new Runnable() {
+                public void run()
+                {
+                    long start = System.nanoTime();
+                    int col = -1;
+                    try
+                    {
+                        col = match.playCpu();
+                    }
+                    catch(RuntimeException exception)
+                    {
+                        System.out.println(exception.toString());
+                    }
+                    myMetrics.cpuMoved(System.nanoTime() - start);
+                    final int move = col;
+                    complete(new Runnable() {
+                        public void run()
+                        {
+                            cpuMoved(session, match, move, prefix, readNanos);
+                        }
+                    });
+                }
+            });
+        }
+        catch(RejectedExecutionException exception)
+        {
+            session.setBusy(false);
+            myMetrics.searchRejected();
+            this.reply(session, "ERR overloaded", readNanos);
+        }
+    }
+    
+    /**
+     * Sends a cpu move back to its session. Runs on the selector thread.
+     * @param session The session.
+     * @param match The match the move was played in.
+     * @param col The column played, -1 if the search failed.
+     * @param prefix What to put in front of the MOVE reply.
+     * @param readNanos When the command was read.
+     */
+    private void cpuMoved(Session session, Match match, int col, String prefix, long readNanos)
+    {
+        session.setBusy(false);
+        if (match.isOver()) myMetrics.matchFinished();
+        if (session.isClosed()) return;
+        try
+        {
+            if (col == -1) this.reply(session, "ERR search failed", readNanos);
+            else if (match.isAuto())
+            {
+                session.send("MOVE " + col);
+                if (match.isOver()) this.reply(session, "OVER " + match.getResult(), readNanos);
+                else this.searchCpuMove(session, match, "", readNanos); // each move queues on its own, so long games don't hog a worker
+            }
+            else this.reply(session, prefix + "MOVE " + col + (match.isOver() ? " OVER " + match.getResult() : ""), readNanos);
+        }
+        catch(IOException exception)
+        {
+            this.close(session);
+        }
+    }
+    
+    /**
+     * Queues a runnable for the selector thread and wakes it up.
+     * @param completion What to run.
+     */
+    private void complete(Runnable completion)
+    {
+        myCompletions.add(completion);
+        mySelector.wakeup();
+    }
+    
+    /**
+     * Sends the reply that finishes a command, and counts how long the command took.
+     * @param session The session.
+     * @param line The reply.
+     * @param readNanos When the command was read.
+     * @throws IOException If the reply can't be written.
+     */
+    private void reply(Session session, String line, long readNanos) throws IOException
+    {
+        session.send(line);
+        myMetrics.commandAnswered(System.nanoTime() - readNanos);
+    }
+    
+    /**
+     * Closes a session.
+     * @param session The session.
+     */
+    private void close(Session session)
+    {
+        session.close();
+    }
+    
+    /**
+     * Parses a number of rows or columns.
+     * @param word The number.
+     * @return The size.
+     */
+    private static int parseSize(String word)
+    {
+        try
+        {
+            int size = Integer.parseInt(word);
+            if (size >= MIN_SIZE && size <= MAX_SIZE) return size;
+        }
+        catch(NumberFormatException exception)
+        {
+            // falls through to the error below
+        }
+        throw new IllegalArgumentException("sizes must be from " + MIN_SIZE + " to " + MAX_SIZE);
+    }
+    
+    /**
+     * Gets the port the server is listening on.
+     * @return The port.
+     */
+    public int getPort()
+    {
+        return myServerChannel.socket().getLocalPort();
+    }
+    
+    /**
+     * Gets the server's metrics.
+     * @return The metrics.
+     */
+    public ServerMetrics getMetrics()
+    {
+        return myMetrics;
+    }
+}
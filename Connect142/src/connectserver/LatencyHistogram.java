@@ -0,0 +1,106 @@
+/**
+ * LatencyHistogram counts latencies in power of two buckets of microseconds, so any number of threads can record
+ * into it without locks or garbage and percentiles come out within a factor of two. The exact maximum and the
+ * total are kept alongside, for the worst case and the mean.
+ * 
+ * @author Brandon Belna (bbelna@stetson.edu)
+ */
+package connectserver;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class LatencyHistogram
+{
+    public static final int BUCKETS = 40; // bucket i holds latencies below 2^i microseconds
+    private AtomicLongArray myCounts;
+    private AtomicLong myCount;
+    private AtomicLong myTotalNanos;
+    private AtomicLong myMaxNanos;
+    
+    /**
+     * Constructor for the LatencyHistogram.
+     */
+    public LatencyHistogram()
+    {
+        myCounts = new AtomicLongArray(BUCKETS);
+        myCount = new AtomicLong();
+        myTotalNanos = new AtomicLong();
+        myMaxNanos = new AtomicLong();
+    }
+    
+    /**
+     * Records a latency.
+     * @param nanos The latency in nanoseconds.
+     */
+    public void record(long nanos)
+    {
+        long micros = Math.max(0L, nanos / 1000L);
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        myCounts.incrementAndGet(bucket);
+        myCount.incrementAndGet();
+        myTotalNanos.addAndGet(nanos);
+        long max = myMaxNanos.get();
+        while (nanos > max && !myMaxNanos.compareAndSet(max, nanos))
+        {
+            max = myMaxNanos.get();
+        }
+    }
+    
+    /**
+     * Gets how many latencies have been recorded.
+     * @return The count.
+     */
+    public long getCount()
+    {
+        return myCount.get();
+    }
+    
+    /**
+     * Gets a percentile of the latencies, as the top of the bucket it falls in.
+     * @param percentile The percentile, from 0 to 100.
+     * @return The latency in microseconds, 0 if nothing has been recorded.
+     */
+    public long getPercentileMicros(double percentile)
+    {
+        long count = myCount.get();
+        if (count == 0) return 0L;
+        long rank = (long) Math.ceil(count * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            seen += myCounts.get(i);
+            if (seen >= rank) return (i == 0) ? 1L : Math.min(1L << i, this.getMaxMicros());
+        }
+        return this.getMaxMicros();
+    }
+    
+    /**
+     * Gets the mean latency.
+     * @return The mean in microseconds, 0 if nothing has been recorded.
+     */
+    public long getMeanMicros()
+    {
+        long count = myCount.get();
+        return (count == 0) ? 0L : myTotalNanos.get() / count / 1000L;
+    }
+    
+    /**
+     * Gets the largest latency recorded.
+     * @return The maximum in microseconds.
+     */
+    public long getMaxMicros()
+    {
+        return myMaxNanos.get() / 1000L;
+    }
+    
+    /**
+     * Sums the histogram up on one line.
+     * @return The count, mean, 50th, 99th and maximum latency.
+     */
+    public String toString()
+    {
+        return "n " + this.getCount() + " mean " + this.getMeanMicros() + "us p50 " + this.getPercentileMicros(50)
+                + "us p99 " + this.getPercentileMicros(99) + "us max " + this.getMaxMicros() + "us";
+    }
+}
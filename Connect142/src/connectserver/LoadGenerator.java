@@ -0,0 +1,345 @@
+/**
+ * LoadGenerator plays thousands of games against a GameServer at once, to see how it holds up. Every client is a
+ * non-blocking connection driven from one selector thread, playing random legal moves as the human and keeping its
+ * own GameBoard to know which moves are legal. Half the games let the cpu go first. When every client is done it
+ * prints the games played, the throughput and the round trip latencies, and the server's own metrics if it ran here.
+ * 
+ * Usage: LoadGenerator [port, or local to start a server here] [clients] [games each] [strategy] [rows] [cols]
+ * 
+ * @author Brandon Belna (bbelna@stetson.edu)
+ */
+package connectserver;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Random;
+
+import connectcontrol.Controller;
+import connectmodel.GameBoard;
+import connectview.ConnectView;
+
+public class LoadGenerator
+{
+    public static final int DEFAULT_CLIENTS = 1000;
+    public static final int DEFAULT_GAMES = 5;
+    public static final String DEFAULT_STRATEGY = "search:4";
+    public static final long SEED = 142L;
+    private int myPort;
+    private int myClients;
+    private int myGames;
+    private String myStrategy;
+    private int myNumRows;
+    private int myNumColumns;
+    private LatencyHistogram myRoundTrips;
+    private long myGamesPlayed;
+    private long myRequests;
+    private long myErrors;
+    private long myRetries;
+    private int[] myResults; // human wins, cpu wins, draws
+    private int myClientsLeft;
+    
+    /**
+     * Constructor for the LoadGenerator.
+     * @param port The port of the server, on the loopback address.
+     * @param clients How many connections to play on at once.
+     * @param games How many games each connection plays.
+     * @param strategy The cpu strategy to ask for.
+     */
+    public LoadGenerator(int port, int clients, int games, String strategy)
+    {
+        myPort = port;
+        myClients = clients;
+        myGames = games;
+        myStrategy = strategy;
+        myNumRows = ConnectView.myRows;
+        myNumColumns = ConnectView.myColumns;
+        myRoundTrips = new LatencyHistogram();
+        myResults = new int[3];
+    }
+    
+    /**
+     * Entry point. Runs the load and prints the results.
+     * @param args Command line arguments: port, clients, games, strategy, rows and cols, all optional.
+     * @throws IOException If the server can't be reached or started.
+     * @throws InterruptedException If we are interrupted while stopping a local server.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        String where = (args.length > 0) ? args[0] : "local";
+        int clients = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_CLIENTS;
+        int games = (args.length > 2) ? Integer.parseInt(args[2]) : DEFAULT_GAMES;
+        String strategy = (args.length > 3) ? args[3] : DEFAULT_STRATEGY;
+        GameServer server = null;
+        Thread serverThread = null;
+        int port;
+        if (where.equals("local"))
+        {
+            server = new GameServer(0, Runtime.getRuntime().availableProcessors(), GameServer.DEFAULT_QUEUE);
+            serverThread = new Thread(server, "GameServer");
+            serverThread.start();
+            port = server.getPort();
+        }
+        else port = Integer.parseInt(where);
+        LoadGenerator generator = new LoadGenerator(port, clients, games, strategy);
+        if (args.length > 5) generator.setBoard(Integer.parseInt(args[4]), Integer.parseInt(args[5]));
+        System.out.println(clients + " clients x " + games + " games against " + strategy + " on port " + port);
+        System.out.println(generator.run());
+        if (server != null)
+        {
+            System.out.println("server: " + server.getMetrics());
+            server.stop();
+            serverThread.join();
+        }
+    }
+    
+    /**
+     * Connects every client and plays until they have all finished their games.
+     * @return A line with the results.
+     * @throws IOException If the selector fails.
+     */
+    public String run() throws IOException
+    {
+        Selector selector = Selector.open();
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), myPort);
+        Random random = new Random(SEED);
+        myClientsLeft = myClients;
+        long start = System.nanoTime();
+        for (int i = 0; i < myClients; i++)
+        {
+            SocketChannel channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Client client = new Client(channel, random.nextLong(), i % 2 == 1);
+            if (channel.connect(address))
+            {
+                channel.register(selector, SelectionKey.OP_READ, client);
+                this.newGame(client);
+            }
+            else channel.register(selector, SelectionKey.OP_CONNECT, client);
+        }
+        while (myClientsLeft > 0)
+        {
+            selector.select();
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext())
+            {
+                SelectionKey key = keys.next();
+                keys.remove();
+                Client client = (Client) key.attachment();
+                try
+                {
+                    if (key.isConnectable())
+                    {
+                        client.myChannel.finishConnect();
+                        key.interestOps(SelectionKey.OP_READ);
+                        this.newGame(client);
+                    }
+                    else if (key.isReadable()) this.read(client);
+                }
+                catch(IOException exception)
+                {
+                    myErrors++;
+                    this.finish(client);
+                }
+            }
+        }
+        selector.close();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return String.format("games %d (%.1f/s), requests %d (%.1f/s), human %d cpu %d draw %d, errors %d, retries %d, round trip [%s]",
+                myGamesPlayed, myGamesPlayed / seconds, myRequests, myRequests / seconds, myResults[0], myResults[1], myResults[2],
+                myErrors, myRetries, myRoundTrips);
+    }
+    
+    /**
+     * Starts a client's next game.
+     * @param client The client.
+     * @throws IOException If the request can't be sent.
+     */
+    private void newGame(Client client) throws IOException
+    {
+        client.myBoard = new GameBoard(myNumRows, myNumColumns, Controller.myWinLength, Match.TYPES);
+        client.myCpuFirst = !client.myCpuFirst;
+        this.send(client, "NEW " + myNumRows + " " + myNumColumns + " " + (client.myCpuFirst ? "cpu" : "human") + " " + myStrategy);
+    }
+    
+    /**
+     * Plays a random legal move for a client.
+     * @param client The client.
+     * @throws IOException If the request can't be sent.
+     */
+    private void play(Client client) throws IOException
+    {
+        int col;
+        do
+        {
+            col = client.myRandom.nextInt(myNumColumns);
+        }
+        while (client.myBoard.isColumnFull(col));
+        client.myBoard.placePiece(col, Match.TYPES[0]);
+        this.send(client, "PLAY " + col);
+    }
+    
+    /**
+     * Reads a client's replies and answers each.
+     * @param client The client.
+     * @throws IOException If the connection fails.
+     */
+    private void read(Client client) throws IOException
+    {
+        if (client.myChannel.read(client.myIn) == -1) throw new IOException("server hung up");
+        byte[] bytes = client.myIn.array();
+        int start = 0;
+        for (int i = 0; i < client.myIn.position(); i++)
+        {
+            if (bytes[i] != '\n') continue;
+            this.answer(client, new String(bytes, start, i - start, StandardCharsets.US_ASCII));
+            start = i + 1;
+            if (client.myIsDone) return;
+        }
+        client.myIn.flip();
+        client.myIn.position(start);
+        client.myIn.compact();
+    }
+    
+    /**
+     * Handles one reply from the server.
+     * @param client The client.
+     * @param line The reply.
+     * @throws IOException If the next request can't be sent.
+     */
+    private void answer(Client client, String line) throws IOException
+    {
+        myRoundTrips.record(System.nanoTime() - client.mySentNanos);
+        String[] words = line.split(" ");
+        if (words[0].equals("ERR"))
+        {
+            if (line.equals("ERR overloaded"))
+            {
+                myRetries++;
+                this.send(client, client.myLastRequest); // the server dropped it, so ask again
+                return;
+            }
+            myErrors++;
+            this.gameOver(client, null);
+            return;
+        }
+        int i = words[0].equals("OK") ? 1 : 0;
+        if (i < words.length && words[i].equals("MOVE"))
+        {
+            client.myBoard.placePiece(Integer.parseInt(words[i + 1]), Match.TYPES[1]);
+            i += 2;
+        }
+        if (i < words.length && words[i].equals("OVER")) this.gameOver(client, words[i + 1]);
+        else this.play(client);
+    }
+    
+    /**
+     * Counts a finished game and starts the next, or finishes the client.
+     * @param client The client.
+     * @param result HUMAN, CPU or DRAW, or null if the game was abandoned.
+     */
+    private void gameOver(Client client, String result)
+    {
+        if (result != null)
+        {
+            myGamesPlayed++;
+            if (result.equals("HUMAN")) myResults[0]++;
+            else if (result.equals("CPU")) myResults[1]++;
+            else myResults[2]++;
+        }
+        try
+        {
+            if (++client.myGamesPlayed < myGames) this.newGame(client);
+            else this.finish(client);
+        }
+        catch(IOException exception)
+        {
+            myErrors++;
+            this.finish(client);
+        }
+    }
+    
+    /**
+     * Closes a client's connection.
+     * @param client The client.
+     */
+    private void finish(Client client)
+    {
+        if (client.myIsDone) return;
+        client.myIsDone = true;
+        myClientsLeft--;
+        try
+        {
+            client.myChannel.close();
+        }
+        catch(IOException exception)
+        {
+            System.out.println(exception.toString());
+        }
+    }
+    
+    /**
+     * Sends a request. The replies are a line each, so the whole request fits the socket buffer and is written at once.
+     * @param client The client.
+     * @param request The request, without its newline.
+     * @throws IOException If the write fails.
+     */
+    private void send(Client client, String request) throws IOException
+    {
+        client.myLastRequest = request;
+        client.mySentNanos = System.nanoTime();
+        myRequests++;
+        ByteBuffer buffer = ByteBuffer.wrap((request + "\n").getBytes(StandardCharsets.US_ASCII));
+        while (buffer.hasRemaining())
+        {
+            client.myChannel.write(buffer);
+        }
+    }
+    
+    /**
+     * Sets the board the games are played on.
+     * @param rows Number of rows.
+     * @param cols Number of columns.
+     */
+    public void setBoard(int rows, int cols)
+    {
+        myNumRows = rows;
+        myNumColumns = cols;
+    }
+    
+    /**
+     * One simulated player.
+     */
+    static class Client
+    {
+        private SocketChannel myChannel;
+        private ByteBuffer myIn = ByteBuffer.allocate(Session.MAX_LINE * 4);
+        private GameBoard myBoard;
+        private Random myRandom;
+        private boolean myCpuFirst;
+        private int myGamesPlayed;
+        private String myLastRequest;
+        private long mySentNanos;
+        private boolean myIsDone;
+        
+        /**
+         * Constructor for the Client.
+         * @param channel The connection.
+         * @param seed The seed of its random moves.
+         * @param cpuFirst If the cpu goes first in its first game; it alternates after.
+         */
+        Client(SocketChannel channel, long seed, boolean cpuFirst)
+        {
+            myChannel = channel;
+            myRandom = new Random(seed);
+            myCpuFirst = !cpuFirst; // newGame flips it before every game
+        }
+    }
+}
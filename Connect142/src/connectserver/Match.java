@@ -0,0 +1,183 @@
+/**
+ * Match is one game hosted by the GameServer, human against cpu or cpu against cpu. Each match has its own GameBoard,
+ * GameEngine and ComputerPlayers, so matches never see each other's state. A match is only touched by one thread at
+ * a time: the server's selector thread between moves and a search worker while the cpu thinks.
+ * 
+ * @author Brandon Belna (bbelna@stetson.edu)
+ */
+package connectserver;
+
+import connectmodel.ComputerPlayer;
+import connectmodel.GameBoard;
+import connectmodel.GameEngine;
+import connectmodel.PieceType;
+import connectmodel.Player;
+import connectmodel.Strategy;
+import connectmodel.TranspositionTable;
+
+public class Match
+{
+    public static final PieceType[] TYPES = {PieceType.RED, PieceType.BLACK};
+    public static final String DEFAULT_STRATEGY = "search:6";
+    public static final int MAX_DEPTH = 12; // deeper searches would hog a worker for too long
+    public static final long MAX_THINK_MILLIS = 2000;
+    private GameBoard myGameBoard;
+    private GameEngine myGameEngine;
+    private boolean myIsAuto; // cpu against cpu
+    private String myResult; // null while the game goes on
+    
+    /**
+     * Constructor for the Match. The first player is the human unless the match is cpu against cpu.
+     * @param rows Number of rows.
+     * @param cols Number of columns.
+     * @param winLength How big a run must be to win.
+     * @param humanFirst If the human moves first. Ignored for cpu against cpu.
+     * @param auto If both players are cpus.
+     * @param strategies The strategy of each cpu, like "search:6"; one for a human match, two for cpu against cpu.
+     * @param tables The server's shared transposition tables.
+     */
+    public Match(int rows, int cols, int winLength, boolean humanFirst, boolean auto, String[] strategies, TableCache tables)
+    {
+        myIsAuto = auto;
+        myGameBoard = new GameBoard(rows, cols, winLength, TYPES);
+        Player first = auto ? new ComputerPlayer("Cpu1", TYPES[0], myGameBoard) : new Player("Human", TYPES[0]);
+        myGameEngine = new GameEngine(first, myGameBoard);
+        Player second = myGameEngine.getPlayers().get(1);
+        Player starter = (auto || humanFirst) ? first : second;
+        TranspositionTable table = tables.get(rows, cols, winLength);
+        if (auto)
+        {
+            ((ComputerPlayer) first).setOpponentType(second.getPieceType());
+            configure((ComputerPlayer) first, strategies[0], table);
+        }
+        configure((ComputerPlayer) second, strategies[auto ? 1 : 0], table);
+        myGameEngine.selectStartingPlayer(starter);
+    }
+    
+    /**
+     * Sets a cpu up for a strategy string. Only the single threaded strategies are allowed, the server's worker pool
+     * is what bounds how much searching goes on at once.
+     * @param player The cpu.
+     * @param strategy "heuristic", "random", "search:depth" or "timed:millis".
+     * @param table The shared table for the board and starter, used by the searching strategies.
+     */
+    static void configure(ComputerPlayer player, String strategy, TranspositionTable table)
+    {
+        Strategy parsed = ComputerPlayer.parseStrategy(strategy);
+        if (parsed != Strategy.HEURISTIC && parsed != Strategy.RANDOM && parsed != Strategy.ALPHA_BETA)
+        {
+            throw new IllegalArgumentException("Unknown strategy: " + strategy); // checked first, the others make threads
+        }
+        player.configure(strategy);
+        if (parsed == Strategy.ALPHA_BETA)
+        {
+            player.getSearchEngine().setTranspositionTable(table);
+            player.getSearchEngine().setDepth(Math.min(player.getSearchEngine().getDepth(), MAX_DEPTH));
+            player.setThinkTime(Math.min(player.getThinkTime(), MAX_THINK_MILLIS));
+        }
+    }
+    
+    /**
+     * Plays the human's move.
+     * @param col The column.
+     * @return If the move was legal.
+     */
+    public boolean playHuman(int col)
+    {
+        if (myResult != null || myIsAuto || this.isCpuTurn()) return false;
+        if (col < 0 || col >= myGameBoard.getNumColumns() || myGameBoard.isColumnFull(col)) return false;
+        this.play(col);
+        return true;
+    }
+    
+    /**
+     * Works out and plays the cpu's move. This is the slow part, run on a search worker.
+     * @return The column played.
+     */
+    public int playCpu()
+    {
+        if (myResult != null || !this.isCpuTurn()) throw new IllegalStateException("It isn't the cpu's turn!");
+        int col = ((ComputerPlayer) myGameEngine.getPlayerUp()).nextMove();
+        if (col < 0 || myGameBoard.isColumnFull(col)) throw new IllegalStateException("The cpu played an illegal move in column " + col);
+        this.play(col);
+        return col;
+    }
+    
+    /**
+     * Places a piece for the player up, then either ends the game or passes the turn on.
+     * @param col The column.
+     */
+    private void play(int col)
+    {
+        Player mover = myGameEngine.getPlayerUp();
+        myGameEngine.placePiece(col);
+        if (myGameBoard.checkIfWin()) myResult = myIsAuto ? mover.getPieceType().toString() : (mover instanceof ComputerPlayer ? "CPU" : "HUMAN");
+        else if (myGameBoard.isBoardFull()) myResult = "DRAW";
+        else myGameEngine.switchPlayerUp();
+    }
+    
+    /**
+     * Checks if a cpu is to move.
+     * @return If the player up is a cpu and the game isn't over.
+     */
+    public boolean isCpuTurn()
+    {
+        return myResult == null && myGameEngine.getPlayerUp() instanceof ComputerPlayer;
+    }
+    
+    /**
+     * Checks if the game is over.
+     * @return If someone won or the board is full.
+     */
+    public boolean isOver()
+    {
+        return myResult != null;
+    }
+    
+    /**
+     * Gets how the game ended.
+     * @return HUMAN, CPU or DRAW, or RED, BLACK or DRAW for cpu against cpu. Null while the game goes on.
+     */
+    public String getResult()
+    {
+        return myResult;
+    }
+    
+    /**
+     * Draws the board on one line, a row at a time from the top with the rows split by slashes.
+     * @return The board, with R for red, B for black and . for empty.
+     */
+    public String boardString()
+    {
+        PieceType[][] board = myGameBoard.getBoard();
+        StringBuilder builder = new StringBuilder(myGameBoard.getNumRows() * (myGameBoard.getNumColumns() + 1));
+        for (int row = 0; row < myGameBoard.getNumRows(); row++)
+        {
+            if (row > 0) builder.append('/');
+            for (int col = 0; col < myGameBoard.getNumColumns(); col++)
+            {
+                PieceType type = board[row][col];
+                builder.append((type == null) ? '.' : type.getType().charAt(0));
+            }
+        }
+        return builder.toString();
+    }
+    
+    /**
+     * Gets the match's board.
+     * @return The GameBoard.
+     */
+    public GameBoard getGameBoard()
+    {
+        return myGameBoard;
+    }
+    
+    /**
+     * Checks if both players are cpus.
+     * @return If the match is cpu against cpu.
+     */
+    public boolean isAuto()
+    {
+        return myIsAuto;
+    }
+}
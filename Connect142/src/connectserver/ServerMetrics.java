@@ -0,0 +1,150 @@
+/**
+ * ServerMetrics counts what the GameServer has done: sessions, matches, moves and commands, how long searches
+ * took, how long a command waited for its reply and how many searches were turned away because the worker pool
+ * was full. Every counter can be bumped from any thread.
+ * 
+ * @author Brandon Belna (bbelna@stetson.edu)
+ */
+package connectserver;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ServerMetrics
+{
+    private long myStartNanos;
+    private AtomicLong mySessionsOpened;
+    private AtomicLong mySessionsOpen;
+    private AtomicLong myMatchesStarted;
+    private AtomicLong myMatchesFinished;
+    private AtomicLong myCpuMoves;
+    private AtomicLong myCommands;
+    private AtomicLong myRejected;
+    private LatencyHistogram mySearchLatency; // how long the cpu took to pick its move
+    private LatencyHistogram myReplyLatency; // from a command being read to its reply being queued, waits included
+    
+    /**
+     * Constructor for the ServerMetrics. The clock for throughput starts now.
+     */
+    public ServerMetrics()
+    {
+        myStartNanos = System.nanoTime();
+        mySessionsOpened = new AtomicLong();
+        mySessionsOpen = new AtomicLong();
+        myMatchesStarted = new AtomicLong();
+        myMatchesFinished = new AtomicLong();
+        myCpuMoves = new AtomicLong();
+        myCommands = new AtomicLong();
+        myRejected = new AtomicLong();
+        mySearchLatency = new LatencyHistogram();
+        myReplyLatency = new LatencyHistogram();
+    }
+    
+    /**
+     * Counts a new connection.
+     */
+    public void sessionOpened()
+    {
+        mySessionsOpened.incrementAndGet();
+        mySessionsOpen.incrementAndGet();
+    }
+    
+    /**
+     * Counts a closed connection.
+     */
+    public void sessionClosed()
+    {
+        mySessionsOpen.decrementAndGet();
+    }
+    
+    /**
+     * Counts a new match.
+     */
+    public void matchStarted()
+    {
+        myMatchesStarted.incrementAndGet();
+    }
+    
+    /**
+     * Counts a finished match.
+     */
+    public void matchFinished()
+    {
+        myMatchesFinished.incrementAndGet();
+    }
+    
+    /**
+     * Counts a cpu move.
+     * @param nanos How long the search took.
+     */
+    public void cpuMoved(long nanos)
+    {
+        myCpuMoves.incrementAndGet();
+        mySearchLatency.record(nanos);
+    }
+    
+    /**
+     * Counts a command that has been answered.
+     * @param nanos How long from reading the command to queueing its reply.
+     */
+    public void commandAnswered(long nanos)
+    {
+        myCommands.incrementAndGet();
+        myReplyLatency.record(nanos);
+    }
+    
+    /**
+     * Counts a search turned away because the worker pool was full.
+     */
+    public void searchRejected()
+    {
+        myRejected.incrementAndGet();
+    }
+    
+    /**
+     * Gets how many connections are open.
+     * @return The number of open sessions.
+     */
+    public long getSessionsOpen()
+    {
+        return mySessionsOpen.get();
+    }
+    
+    /**
+     * Gets how many matches have finished.
+     * @return The number of finished matches.
+     */
+    public long getMatchesFinished()
+    {
+        return myMatchesFinished.get();
+    }
+    
+    /**
+     * Gets the search latencies.
+     * @return The histogram of cpu move times.
+     */
+    public LatencyHistogram getSearchLatency()
+    {
+        return mySearchLatency;
+    }
+    
+    /**
+     * Gets the reply latencies.
+     * @return The histogram of command reply times.
+     */
+    public LatencyHistogram getReplyLatency()
+    {
+        return myReplyLatency;
+    }
+    
+    /**
+     * Sums the metrics up on one line, with throughput since the server started.
+     * @return The metrics.
+     */
+    public String toString()
+    {
+        double seconds = Math.max(1e-9, (System.nanoTime() - myStartNanos) / 1e9);
+        return String.format("sessions %d open %d, matches %d finished %d (%.1f/s), cpu moves %d (%.1f/s), commands %d (%.1f/s), rejected %d, search [%s], reply [%s]",
+                mySessionsOpened.get(), mySessionsOpen.get(), myMatchesStarted.get(), myMatchesFinished.get(), myMatchesFinished.get() / seconds,
+                myCpuMoves.get(), myCpuMoves.get() / seconds, myCommands.get(), myCommands.get() / seconds, myRejected.get(), mySearchLatency, myReplyLatency);
+    }
+}
@@ -0,0 +1,189 @@
+/**
+ * Session is one client connection to the GameServer: its channel, the bytes read but not yet split into lines,
+ * the replies not yet written, and the match it is playing. Sessions are only touched by the server's selector
+ * thread; the search workers hand their results back to that thread instead of writing themselves.
+ * 
+ * @author Brandon Belna (bbelna@stetson.edu)
+ */
+package connectserver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+class Session
+{
+    public static final int MAX_LINE = 256; // longer lines are a broken or hostile client
+    public static final int OUT_BUFFER = 512;
+    private SocketChannel myChannel;
+    private SelectionKey myKey;
+    private ServerMetrics myMetrics;
+    private ByteBuffer myIn; // left in write mode between reads
+    private ByteBuffer myOut; // left in write mode between sends
+    private Match myMatch;
+    private boolean myIsBusy; // a cpu move is being searched
+    private boolean myIsClosing; // close once the replies are written
+    private boolean myIsClosed;
+    
+    /**
+     * Constructor for the Session.
+     * @param channel The client's channel, already non-blocking.
+     * @param key The channel's key with the server's selector.
+     * @param metrics The server's metrics, told when the session closes.
+     */
+    Session(SocketChannel channel, SelectionKey key, ServerMetrics metrics)
+    {
+        myChannel = channel;
+        myKey = key;
+        myMetrics = metrics;
+        myIn = ByteBuffer.allocate(MAX_LINE);
+        myOut = ByteBuffer.allocate(OUT_BUFFER);
+    }
+    
+    /**
+     * Reads what the client has sent.
+     * @return The complete lines read, or null if the client has hung up.
+     * @throws IOException If the read fails, or a line is too long.
+     */
+    String[] readLines() throws IOException
+    {
+        if (myChannel.read(myIn) == -1) return null;
+        int count = 0;
+        for (int i = 0; i < myIn.position(); i++)
+        {
+            if (myIn.get(i) == '\n') count++;
+        }
+        if (count == 0)
+        {
+            if (!myIn.hasRemaining()) throw new IOException("line too long");
+            return new String[0];
+        }
+        String[] lines = new String[count];
+        int start = 0;
+        int line = 0;
+        byte[] bytes = myIn.array();
+        for (int i = 0; i < myIn.position(); i++)
+        {
+            if (bytes[i] != '\n') continue;
+            int end = (i > start && bytes[i - 1] == '\r') ? i - 1 : i;
+            lines[line++] = new String(bytes, start, end - start, StandardCharsets.US_ASCII);
+            start = i + 1;
+        }
+        myIn.flip();
+        myIn.position(start);
+        myIn.compact();
+        return lines;
+    }
+    
+    /**
+     * Queues a reply line and writes as much as the channel takes.
+     * @param line The reply, without its newline.
+     * @throws IOException If the write fails.
+     */
+    void send(String line) throws IOException
+    {
+        byte[] bytes = line.getBytes(StandardCharsets.US_ASCII);
+        if (myOut.remaining() < bytes.length + 1)
+        {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(myOut.capacity() * 2, myOut.position() + bytes.length + 1));
+            myOut.flip();
+            bigger.put(myOut);
+            myOut = bigger;
+        }
+        myOut.put(bytes);
+        myOut.put((byte) '\n');
+        this.flush();
+    }
+    
+    /**
+     * Writes queued replies. Whatever the channel doesn't take is written when the selector says it can be.
+     * @throws IOException If the write fails.
+     */
+    void flush() throws IOException
+    {
+        myOut.flip();
+        myChannel.write(myOut);
+        boolean pending = myOut.hasRemaining();
+        myOut.compact();
+        if (!myKey.isValid()) return;
+        if (pending) myKey.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        else if (myIsClosing) this.close();
+        else myKey.interestOps(SelectionKey.OP_READ);
+    }
+    
+    /**
+     * Closes the connection.
+     */
+    void close()
+    {
+        if (myIsClosed) return;
+        myIsClosed = true;
+        myMetrics.sessionClosed();
+        myKey.cancel();
+        try
+        {
+            myChannel.close();
+        }
+        catch(IOException exception)
+        {
+            System.out.println(exception.toString());
+        }
+    }
+    
+    /**
+     * Closes the connection once every queued reply has been written.
+     * @throws IOException If the write fails.
+     */
+    void closeAfterReplies() throws IOException
+    {
+        myIsClosing = true;
+        this.flush();
+    }
+    
+    /**
+     * Checks if the connection has been closed.
+     * @return If the session is closed.
+     */
+    boolean isClosed()
+    {
+        return myIsClosed;
+    }
+    
+    /**
+     * Gets the match being played.
+     * @return The match, or null before the first NEW or AUTO.
+     */
+    Match getMatch()
+    {
+        return myMatch;
+    }
+    
+    /**
+     * Sets the match being played.
+     * @param match The new match.
+     */
+    void setMatch(Match match)
+    {
+        myMatch = match;
+    }
+    
+    /**
+     * Checks if a cpu move is being searched.
+     * @return If the session is busy.
+     */
+    boolean isBusy()
+    {
+        return myIsBusy;
+    }
+    
+    /**
+     * Sets if a cpu move is being searched.
+     * @param busy If the session is busy.
+     */
+    void setBusy(boolean busy)
+    {
+        myIsBusy = busy;
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * TableCache hands out the transposition tables the GameServer's matches search with. Giving every match its own
+ * table would cost megabytes a game, so matches share one table for each board shape instead. The tables are lock
+ * free, and the search keys them by the position and the player to move, so sharing is safe as long as the boards
+ * are the same shape, whichever color moves first. Only the most recently used few are kept, so clients asking for
+ * many board sizes can't run the server out of memory.
+ * 
+ * @author Brandon Belna (bbelna@stetson.edu)
+ */
+package connectserver;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import connectmodel.TranspositionTable;
+
+public class TableCache
+{
+    public static final int DEFAULT_MEGABYTES = 32;
+    public static final int MAX_TABLES = 8;
+    private int myMegabytes;
+    private Map<String, TranspositionTable> myTables;
+    
+    /**
+     * Constructor for the TableCache.
+     * @param megabytes How much memory each table may use.
+     */
+    public TableCache(int megabytes)
+    {
+        myMegabytes = megabytes;
+        myTables = new LinkedHashMap<String, TranspositionTable>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<String, TranspositionTable> eldest)
+            {
+                return size() > MAX_TABLES; // the matches still using it keep it until they end
+            }
+        };
+    }
+    
+    /**
+     * Gets the table for a board, making it the first time.
+     * @param rows Number of rows.
+     * @param cols Number of columns.
+     * @param winLength How big a run must be to win.
+     * @return The shared table.
+     */
+    public synchronized TranspositionTable get(int rows, int cols, int winLength)
+    {
+        String key = rows + "x" + cols + "x" + winLength;
+        TranspositionTable table = myTables.get(key);
+        if (table == null)
+        {
+            table = new TranspositionTable(myMegabytes);
+            myTables.put(key, table);
+        }
+        return table;
+    }
+    
+    /**
+     * Gets how many tables have been made.
+     * @return The number of tables.
+     */
+    public synchronized int size()
+    {
+        return myTables.size();
+    }
+}
@@ -0,0 +1,334 @@
+/**
+ * BoardPanel draws the whole board as one lightweight component. The sprites are read once into an atlas, and the
+ * board is kept drawn in a back buffer. When the board changes only the cells whose piece or hover state changed are
+ * drawn into the buffer and repainted, so a move costs the same on any size of board. The line through a win is drawn
+ * over the cells, without touching the buffer, and so are the hints: each open column tinted by how good it is to
+ * play, green for good and red for bad, strongest for forced wins and losses. The cpu updates the board from its own
+ * thread, so the buffer is only touched while holding the panel's lock.
+ * 
+ * @author Brandon Belna (bbelna@stetson.edu)
+ */
+package connectview;
+
+import javax.imageio.ImageIO;
+import javax.swing.JPanel;
+
+import connectmodel.BoardSnapshot;
+import connectmodel.ColumnAnalysis;
+import connectmodel.PieceType;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+public class BoardPanel extends JPanel
+{
+    private static final long serialVersionUID = 1L;
+    public static final int CELL_SIZE = 64; // the size of the sprites
+    public static final float WIN_LINE_WIDTH = 8f;
+    public static final int HINT_ALPHA = 96; // how strongly a forced win or loss tints its column
+    private static final PieceType[] PIECE_TYPES = PieceType.values();
+    private static final int BLANK = 0; // the sprite of an empty cell, the pieces follow and then the possible pieces
+    private int myRows;
+    private int myColumns;
+    private BufferedImage myAtlas; // every sprite side by side, read once
+    private BufferedImage myBuffer; // the cells as last drawn
+    private int[] mySprites; // the sprite drawn in each cell, row * cols + col
+    private int myHoverCell; // the cell showing a possible piece, -1 for none
+    private Point myWinBegin;
+    private Point myWinEnd;
+    private int myDirtyCells; // how many cells the last update drew
+    private ColumnAnalysis myHints; // the analysis the columns are tinted by, or null for none
+    
+    /**
+     * Constructor for the BoardPanel. The board starts out empty.
+     * @param rows How many rows the board has.
+     * @param cols How many columns the board has.
+     */
+    public BoardPanel(int rows, int cols)
+    {
+        myRows = rows;
+        myColumns = cols;
+        myAtlas = loadAtlas();
+        myBuffer = new BufferedImage(cols * CELL_SIZE, rows * CELL_SIZE, BufferedImage.TYPE_INT_RGB);
+        mySprites = new int[rows * cols];
+        myHoverCell = -1;
+        Graphics g = myBuffer.getGraphics();
+        for (int i = 0; i < mySprites.length; i++)
+        {
+            this.drawSprite(g, i, BLANK);
+        }
+        g.dispose();
+        this.setOpaque(true);
+        this.setPreferredSize(new Dimension(myBuffer.getWidth(), myBuffer.getHeight()));
+    }
+    
+    /**
+     * Reads every sprite into one image. A sprite that can't be read is filled with its piece's color instead.
+     * @return The atlas, CELL_SIZE high and a CELL_SIZE wide slot for each sprite.
+     */
+    private static BufferedImage loadAtlas()
+    {
+        BufferedImage atlas = new BufferedImage((1 + 2 * PIECE_TYPES.length) * CELL_SIZE, CELL_SIZE, BufferedImage.TYPE_INT_RGB);
+        Graphics g = atlas.getGraphics();
+        loadSprite(g, BLANK, "blank.jpg", Color.WHITE);
+        for (int i = 0; i < PIECE_TYPES.length; i++)
+        {
+            String name = PIECE_TYPES[i].getType().toLowerCase();
+            loadSprite(g, pieceSprite(PIECE_TYPES[i]), name + ".jpg", colorOf(PIECE_TYPES[i]));
+            loadSprite(g, possibleSprite(PIECE_TYPES[i]), name + "Possible.jpg", colorOf(PIECE_TYPES[i]).brighter());
+        }
+        g.dispose();
+        return atlas;
+    }
+    
+    /**
+     * Reads one sprite into its slot of the atlas.
+     * @param g The graphics of the atlas.
+     * @param sprite The slot.
+     * @param file The file of the sprite.
+     * @param fallback The color to fill the slot with if the file can't be read.
+     */
+    private static void loadSprite(Graphics g, int sprite, String file, Color fallback)
+    {
+        try
+        {
+            BufferedImage image = ImageIO.read(new File(file));
+            if (image == null) throw new IOException("can't read " + file);
+            g.drawImage(image, sprite * CELL_SIZE, 0, CELL_SIZE, CELL_SIZE, null);
+        }
+        catch(IOException exception)
+        {
+            System.out.println(exception.toString());
+            g.setColor(fallback);
+            g.fillRect(sprite * CELL_SIZE, 0, CELL_SIZE, CELL_SIZE);
+        }
+    }
+    
+    /**
+     * Gets the sprite of a piece.
+     * @param type The piece type, or null for an empty cell.
+     * @return The slot of the sprite in the atlas.
+     */
+    private static int pieceSprite(PieceType type)
+    {
+        return (type == null) ? BLANK : 1 + type.ordinal();
+    }
+    
+    /**
+     * Gets the sprite of a possible piece.
+     * @param type The piece type.
+     * @return The slot of the sprite in the atlas.
+     */
+    private static int possibleSprite(PieceType type)
+    {
+        return 1 + PIECE_TYPES.length + type.ordinal();
+    }
+    
+    /**
+     * Gets the color a piece type is drawn in, for the win line and missing sprites.
+     * @param type The piece type.
+     * @return The color.
+     */
+    public static Color colorOf(PieceType type)
+    {
+        if (type == PieceType.RED) return Color.RED;
+        if (type == PieceType.GREEN) return new Color(0, 183, 45);
+        if (type == PieceType.YELLOW) return new Color(128, 140, 0);
+        return Color.BLACK;
+    }
+    
+    /**
+     * Brings the panel up to date with a position. Only the cells that changed are drawn. Any possible piece is
+     * cleared, and the win line is shown if the position is won.
+     * @param snapshot The position to show.
+     */
+    public synchronized void update(BoardSnapshot snapshot)
+    {
+        myDirtyCells = 0;
+        Graphics g = myBuffer.getGraphics();
+        myHoverCell = -1;
+        for (int row = 0; row < myRows; row++)
+        {
+            for (int col = 0; col < myColumns; col++)
+            {
+                int cell = row * myColumns + col;
+                int sprite = pieceSprite(snapshot.getPiece(row, col));
+                if (mySprites[cell] != sprite) this.drawCell(g, cell, sprite);
+            }
+        }
+        g.dispose();
+        if (snapshot.checkIfWin()) this.setWinLine(snapshot.getWinBegin(), snapshot.getWinEnd());
+        else this.setWinLine(null, null);
+    }
+    
+    /**
+     * Shows a possible piece in an empty cell, clearing the one shown before.
+     * @param row The row of the cell, 0 at the top.
+     * @param col The column of the cell.
+     * @param type The piece type to show.
+     */
+    public synchronized void showPossible(int row, int col, PieceType type)
+    {
+        int cell = row * myColumns + col;
+        int sprite = possibleSprite(type);
+        if (cell == myHoverCell && mySprites[cell] == sprite) return;
+        this.clearPossible();
+        if (mySprites[cell] != BLANK) return; // only empty cells can hold a possible piece
+        Graphics g = myBuffer.getGraphics();
+        this.drawCell(g, cell, sprite);
+        g.dispose();
+        myHoverCell = cell;
+    }
+    
+    /**
+     * Clears the possible piece, if one is shown.
+     */
+    public synchronized void clearPossible()
+    {
+        if (myHoverCell == -1) return;
+        Graphics g = myBuffer.getGraphics();
+        this.drawCell(g, myHoverCell, BLANK);
+        g.dispose();
+        myHoverCell = -1;
+    }
+    
+    /**
+     * Sets the line drawn over a win. Only the area of the old and new lines is repainted.
+     * @param begin The beginning of the win, in the form (col,row), or null for no line.
+     * @param end The end of the win, in the form (col,row), or null for no line.
+     */
+    public synchronized void setWinLine(Point begin, Point end)
+    {
+        if (begin == null || end == null) begin = end = null;
+        if (myWinBegin == null ? begin == null : (myWinBegin.equals(begin) && myWinEnd.equals(end))) return;
+        if (myWinBegin != null) this.repaint(this.lineBounds(myWinBegin, myWinEnd));
+        myWinBegin = begin;
+        myWinEnd = end;
+        if (myWinBegin != null) this.repaint(this.lineBounds(myWinBegin, myWinEnd));
+    }
+    
+    /**
+     * Sets the analysis the columns are tinted by.
+     * @param hints The analysis of the position shown, or null to take the tints away.
+     */
+    public synchronized void setHints(ColumnAnalysis hints)
+    {
+        if (hints == myHints) return;
+        myHints = hints;
+        this.repaint();
+    }
+    
+    /**
+     * Works out the tint of a column from an analysis. Columns that aren't forced wins or losses are tinted
+     * against the best and worst of the rest, so the differences show however small the scores are.
+     * @param hints The analysis.
+     * @param col The column.
+     * @return The tint, or null if the column is full.
+     */
+    public static Color hintColor(ColumnAnalysis hints, int col)
+    {
+        ColumnAnalysis.Outcome outcome = hints.getOutcome(col);
+        if (outcome == null) return null;
+        if (outcome == ColumnAnalysis.Outcome.WIN) return new Color(0, 200, 0, HINT_ALPHA);
+        if (outcome == ColumnAnalysis.Outcome.LOSS) return new Color(220, 0, 0, HINT_ALPHA);
+        if (outcome == ColumnAnalysis.Outcome.DRAW) return new Color(128, 128, 128, HINT_ALPHA / 2);
+        int most = 1;
+        for (int i = 0; i < hints.getNumColumns(); i++)
+        {
+            if (hints.getOutcome(i) == ColumnAnalysis.Outcome.UNKNOWN) most = Math.max(most, Math.abs(hints.getScore(i)));
+        }
+        int alpha = HINT_ALPHA / 2 * Math.abs(hints.getScore(col)) / most;
+        return (hints.getScore(col) >= 0) ? new Color(0, 200, 0, alpha) : new Color(220, 0, 0, alpha);
+    }
+    
+    /**
+     * Draws a sprite into a cell of the buffer and asks for just that cell to be repainted.
+     * @param g The graphics of the buffer.
+     * @param cell The cell, row * cols + col.
+     * @param sprite The slot of the sprite in the atlas.
+     */
+    private void drawCell(Graphics g, int cell, int sprite)
+    {
+        this.drawSprite(g, cell, sprite);
+        mySprites[cell] = sprite;
+        myDirtyCells++;
+        this.repaint((cell % myColumns) * CELL_SIZE, (cell / myColumns) * CELL_SIZE, CELL_SIZE, CELL_SIZE);
+    }
+    
+    /**
+     * Copies a sprite from the atlas into a cell of the buffer.
+     * @param g The graphics of the buffer.
+     * @param cell The cell, row * cols + col.
+     * @param sprite The slot of the sprite in the atlas.
+     */
+    private void drawSprite(Graphics g, int cell, int sprite)
+    {
+        int x = (cell % myColumns) * CELL_SIZE;
+        int y = (cell / myColumns) * CELL_SIZE;
+        g.drawImage(myAtlas, x, y, x + CELL_SIZE, y + CELL_SIZE, sprite * CELL_SIZE, 0, (sprite + 1) * CELL_SIZE, CELL_SIZE, null);
+    }
+    
+    /**
+     * Gets the area covered by a win line.
+     * @param begin The beginning of the win, in the form (col,row).
+     * @param end The end of the win, in the form (col,row).
+     * @return The area, in pixels.
+     */
+    private Rectangle lineBounds(Point begin, Point end)
+    {
+        int x = Math.min(begin.x, end.x) * CELL_SIZE;
+        int y = Math.min(begin.y, end.y) * CELL_SIZE;
+        return new Rectangle(x, y, (Math.abs(end.x - begin.x) + 1) * CELL_SIZE, (Math.abs(end.y - begin.y) + 1) * CELL_SIZE);
+    }
+    
+    /**
+     * Paints the part of the buffer that needs it, then the hints and the win line over it.
+     * @param g The graphics to paint with, clipped to the area being repainted.
+     */
+    protected synchronized void paintComponent(Graphics g)
+    {
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) clip = new Rectangle(0, 0, myBuffer.getWidth(), myBuffer.getHeight());
+        g.drawImage(myBuffer, clip.x, clip.y, clip.x + clip.width, clip.y + clip.height,
+                clip.x, clip.y, clip.x + clip.width, clip.y + clip.height, null);
+        for (int col = 0; myHints != null && col < Math.min(myColumns, myHints.getNumColumns()); col++)
+        {
+            Color tint = hintColor(myHints, col);
+            if (tint == null) continue;
+            g.setColor(tint);
+            g.fillRect(col * CELL_SIZE, 0, CELL_SIZE, myRows * CELL_SIZE);
+        }
+        if (myWinBegin != null)
+        {
+            Graphics2D g2 = (Graphics2D) g.create();
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2.setStroke(new BasicStroke(WIN_LINE_WIDTH, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+            g2.setColor(new Color(255, 255, 255, 200));
+            int half = CELL_SIZE / 2;
+            g2.drawLine(myWinBegin.x * CELL_SIZE + half, myWinBegin.y * CELL_SIZE + half, myWinEnd.x * CELL_SIZE + half, myWinEnd.y * CELL_SIZE + half);
+            g2.dispose();
+        }
+    }
+    
+    /**
+     * Gets the column under a point of the panel.
+     * @param x The x of the point, in pixels.
+     * @return The column, or -1 if the point is off the board.
+     */
+    public int columnAt(int x)
+    {
+        if (x < 0 || x >= myColumns * CELL_SIZE) return -1;
+        return x / CELL_SIZE;
+    }
+    
+    /**
+     * Gets how many cells the last update drew, to check that redraws follow the changes and not the board size.
+     * @return The number of cells drawn.
+     */
+    public int getDirtyCellCount()
+    {
+        return myDirtyCells;
+    }
+}
@@ -10,16 +10,18 @@ import javax.swing.*;
 
 import connectcontrol.ButtonListener;
 import connectcontrol.Controller;
+import connectmodel.BoardSnapshot;
 import connectmodel.PieceType;
 import connectmodel.Player;
 
 import java.awt.*;
-import java.lang.reflect.Method;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 
 public class ConnectView extends JFrame
 {
     public final static int myRows = 6, myColumns = 7;
-    private JPanel myConnectPanel;
+    private BoardPanel myBoardPanel;
     private JPanel myNamePanel;
     private JMenuBar myMenu;
     private JLabel myPlayerName;
@@ -29,8 +31,7 @@ public class ConnectView extends JFrame
     private JMenu myGame;
     private JMenuItem[] myOptions;
     private Controller myControl;
-    private CanvasSquare[][] mySquares;
-    private ButtonListener[] mySquareListener;
+    private int myHoverColumn; // the column the mouse is over, -1 for none
     private ButtonListener[] myMenuOptionListener;
     
     /**
@@ -40,8 +41,7 @@ public class ConnectView extends JFrame
     public ConnectView(Controller controller)
     {
         // variables
-        mySquares = new CanvasSquare[myRows][myColumns];
-        mySquareListener = new ButtonListener[myColumns];
+        myHoverColumn = -1;
         myControl = controller;
         
         // set up JFrame
@@ -53,10 +53,8 @@ public class ConnectView extends JFrame
         this.getContentPane().setLayout(new BoxLayout(this.getContentPane(), BoxLayout.PAGE_AXIS));
         
         // game panel
-        myConnectPanel = new JPanel(new GridLayout(myRows, myColumns));
-        myConnectPanel.setBounds(0, 0, 454, 424);
-        myConnectPanel.setPreferredSize(new Dimension(454, 384));
-
+        myBoardPanel = new BoardPanel(myRows, myColumns);
+        
         // names
         myPlayerName = new JLabel(myControl.getPlayer().getName());
         myPlayerName.setHorizontalAlignment(JLabel.CENTER);
@@ -77,30 +75,26 @@ public class ConnectView extends JFrame
         myNamePanel.add(myCpuWinCounter);
         
         // drop down items
-        myOptions = new JMenuItem[2];
+        myOptions = new JMenuItem[4];
         myOptions[0] = new JMenuItem("New Match");
         myOptions[1] = new JMenuItem("New Game");
+        myOptions[2] = new JCheckBoxMenuItem("Ponder", myControl.isPondering());
+        myOptions[3] = new JCheckBoxMenuItem("Hints", myControl.isShowingHints());
         
         // drop downs
         myGame = new JMenu("Game");
         myGame.add(myOptions[0]);
         myGame.add(myOptions[1]);
+        myGame.addSeparator();
+        myGame.add(myOptions[2]);
+        myGame.add(myOptions[3]);
         
         // menu bar
         myMenu = new JMenuBar();
         myMenu.add(myGame);
         this.setJMenuBar(myMenu);
         
-        // instantiate game panel
-        for (int i = 0; i < myRows; i++)
-        {
-            for (int j = 0; j < myColumns; j++)
-            {
-                mySquares[i][j] = new CanvasSquare(Toolkit.getDefaultToolkit().getImage("blank.jpg"), new Point(j, i));
-                myConnectPanel.add(mySquares[i][j]);
-            }
-        }
-        this.add(myConnectPanel);
+        this.add(myBoardPanel);
         this.add(myNamePanel);
         this.pack();
         this.setLocationRelativeTo(null);
@@ -110,132 +104,74 @@ public class ConnectView extends JFrame
     }
     
     /**
-     * Associates the proper listeners using reflection.
+     * Associates the proper listeners. Each is bound straight to its Controller method once, here.
      */
     private void associateListeners()
     {
-        Class<? extends Controller> controlClass;
-        Method[] pieceMethods, newGameMethod, rematchMethod;
-        Class<?>[] classArgs;
-        controlClass = myControl.getClass();
-        
-        pieceMethods = new Method[3];
-        newGameMethod = new Method[1];
-        rematchMethod = new Method[1];
-        classArgs = new Class[1];
-        
-        try
-        {
-           classArgs[0] = Class.forName("java.lang.Integer");
-        }
-        catch(ClassNotFoundException e)
-        {
-           String error;
-           error = e.toString();
-           System.out.println(error);
-        }
-        
-        try
-        {
-           pieceMethods[0] = controlClass.getMethod("placePiece",classArgs);  
-           pieceMethods[1] = controlClass.getMethod("possiblePiece",classArgs);    
-           pieceMethods[2] = controlClass.getMethod("repaintView",null);    
-           newGameMethod[0] = controlClass.getMethod("startMatch", null);
-           rematchMethod[0] = controlClass.getMethod("newGame", null);
-        }
-        catch(NoSuchMethodException exception)
-        {
-           String error;
-
-           error = exception.toString();
-           System.out.println(error);
-        }
-        catch(SecurityException exception)
-        {
-           String error;
-
-           error = exception.toString();
-           System.out.println(error);
-        }
-        
         // set up the menu options
-        myMenuOptionListener = new ButtonListener[2];
-        myMenuOptionListener[0] = new ButtonListener(myControl, newGameMethod, null);
-        myMenuOptionListener[1] = new ButtonListener(myControl, rematchMethod, null);
-        myOptions[0].addMouseListener(myMenuOptionListener[0]);
-        myOptions[1].addMouseListener(myMenuOptionListener[1]);
-        Integer[] args;
-        for (int i = 0; i < myRows; i++)
+        myMenuOptionListener = new ButtonListener[4];
+        myMenuOptionListener[0] = new ButtonListener(new Runnable() {
+            public void run()
+            {
+                myControl.startMatch();
+            }
+        });
+        myMenuOptionListener[1] = new ButtonListener(new Runnable() {
+            public void run()
+            {
+                myControl.newGame();
+            }
+        });
+        myMenuOptionListener[2] = new ButtonListener(new Runnable() {
+            public void run()
+            {
+                myControl.togglePondering();
+            }
+        });
+        myMenuOptionListener[3] = new ButtonListener(new Runnable() {
+            public void run()
+            {
+                myControl.toggleHints();
+            }
+        });
+        for (int i = 0; i < myOptions.length; i++)
         {
-           for (int j = 0; j < myColumns; j++)
-           {
-               args = new Integer[1];
-               args[0] = new Integer(j);
-               mySquareListener[j] = 
-                       new ButtonListener(myControl, pieceMethods, args);
-               mySquares[i][j].addMouseListener(mySquareListener[j]);
-           }
-
+            myOptions[i].addMouseListener(myMenuOptionListener[i]);
         }
+        
+        // the board is one panel, so the column comes from where the mouse is
+        MouseAdapter boardListener = new MouseAdapter() {
+            public void mouseReleased(MouseEvent event)
+            {
+                int col = myBoardPanel.columnAt(event.getX());
+                if (col != -1) myControl.placePiece(col);
+            }
+            
+            public void mouseMoved(MouseEvent event)
+            {
+                int col = myBoardPanel.columnAt(event.getX());
+                if (col == myHoverColumn) return;
+                myHoverColumn = col;
+                myControl.repaintView();
+                if (col != -1) myControl.possiblePiece(col);
+            }
+            
+            public void mouseExited(MouseEvent event)
+            {
+                myHoverColumn = -1;
+                myControl.repaintView();
+            }
+        };
+        myBoardPanel.addMouseListener(boardListener);
+        myBoardPanel.addMouseMotionListener(boardListener);
     }
     
     /**
-     * Redraws the board. Do NOT call if a possible piece is visible.
+     * Redraws the board. Only the cells that changed since the last redraw are drawn, and any possible piece is cleared.
      */
     public void updateBoard()
     {
-        for (int i = 0; i < myRows; i++)
-        {
-            for (int j = 0; j < myColumns; j++)
-            {
-                if (myControl.getGameBoard().getPieceOnBoard(new Point(j, i)) == null)
-                {
-                    if (mySquares[i][j].getPiece() != null || mySquares[i][j].getHoverStatus() == true)
-                    {
-                        mySquares[i][j].setImage(Toolkit.getDefaultToolkit().getImage("blank.jpg"));
-                        mySquares[i][j].setPiece(null);
-                        mySquares[i][j].repaint();
-                        mySquares[i][j].setHoverStatus(false);
-                    }
-                }
-                if (myControl.getGameBoard().getPieceOnBoard(new Point(j, i)) == PieceType.RED)
-                {
-                    if (mySquares[i][j].getPiece() != PieceType.RED)
-                    {
-                        mySquares[i][j].setImage(Toolkit.getDefaultToolkit().getImage("red.jpg"));
-                        mySquares[i][j].setPiece(PieceType.RED);
-                        mySquares[i][j].repaint();
-                    }
-                }
-                if (myControl.getGameBoard().getPieceOnBoard(new Point(j, i)) == PieceType.YELLOW)
-                {
-                    if (mySquares[i][j].getPiece() != PieceType.YELLOW)
-                    {
-                        mySquares[i][j].setImage(Toolkit.getDefaultToolkit().getImage("yellow.jpg"));
-                        mySquares[i][j].setPiece(PieceType.YELLOW);
-                        mySquares[i][j].repaint();
-                    }
-                }
-                if (myControl.getGameBoard().getPieceOnBoard(new Point(j, i)) == PieceType.GREEN)
-                {
-                    if (mySquares[i][j].getPiece() != PieceType.GREEN)
-                    {
-                        mySquares[i][j].setImage(Toolkit.getDefaultToolkit().getImage("green.jpg"));
-                        mySquares[i][j].setPiece(PieceType.RED);
-                        mySquares[i][j].repaint();
-                    }
-                }
-                if (myControl.getGameBoard().getPieceOnBoard(new Point(j, i)) == PieceType.BLACK)
-                {
-                    if (mySquares[i][j].getPiece() != PieceType.BLACK)
-                    {
-                        mySquares[i][j].setImage(Toolkit.getDefaultToolkit().getImage("black.jpg"));
-                        mySquares[i][j].setPiece(PieceType.BLACK);
-                        mySquares[i][j].repaint();
-                    }
-                }
-            }
-        }
+        myBoardPanel.update(myControl.getSnapshot()); // one position for the whole redraw, even if the cpu moves meanwhile
         myPlayerName.setText(myControl.getPlayer().getName());
         myCpuName.setText("ComputerPlayer");
         if (myControl.getGameEngine().getPlayerUp().equals(myControl.getPlayer())) myPlayerName.setText(myControl.getPlayer().getName() + " is thinking...");
@@ -248,8 +184,7 @@ public class ConnectView extends JFrame
      */
     public void showPossiblePlacement(int col)
     {
-        int row = myControl.getGameBoard().getNextFreeRow(col);
-        mySquares[row][col].setHoverStatus(true);
+        myHoverColumn = col;
         if (!myControl.getWaitStatus())
         {
             this.updatePossiblePlacement();
@@ -257,37 +192,22 @@ public class ConnectView extends JFrame
     }
     
     /**
-     * Catalogs what square to show the possible piece of when our universal game wait unlocks.
+     * Shows the possible piece of the column the mouse is over, once our universal game wait unlocks.
      */
     public void updatePossiblePlacement()
     {
-        for (int i = 0; i < myColumns; i++)
-        {
-            int row = myControl.getGameBoard().getNextFreeRow(i);
-            if (row >= 0 && mySquares[row][i].getHoverStatus() == true)
-            {
-                mySquares[row][i].setImage(Toolkit.getDefaultToolkit().getImage(myControl.getPlayer().getPieceType() + "Possible.jpg"));
-                mySquares[row][i].repaint();
-            }
-        }
-    }
-    
-    /**
-     * Returns the current board.
-     * @return The current board composed of CanvasSquare's.
-     */
-    public CanvasSquare[][] getViewBoard()
-    {
-        return mySquares;
+        if (myHoverColumn == -1) return;
+        int row = myControl.getSnapshot().getNextFreeRow(myHoverColumn);
+        if (row >= 0) myBoardPanel.showPossible(row, myHoverColumn, myControl.getPlayer().getPieceType());
     }
     
     /**
-     * Sets a new board.
-     * @param squares The new board composed of CanvasSquare's.
+     * Returns the panel the board is drawn on.
+     * @return The BoardPanel.
      */
-    public void setViewBoard(CanvasSquare[][] squares)
+    public BoardPanel getBoardPanel()
     {
-        mySquares = squares;
+        return myBoardPanel;
     }
     
     /**
@@ -7,7 +7,6 @@
 package puzzleview;
 
 import java.awt.*;
-import java.lang.reflect.Method;
 
 import puzzlecontrol.*;
 
@@ -139,36 +138,19 @@ public class PuzzleView extends JFrame
      */
     public void associateListeners()
     {
-        Class<? extends PuzzleControl> controlClass;
-        Method[] clickMethods;
-        Class<?>[] classArgs;
-        controlClass = myController.getClass();
-        
-        clickMethods = new Method[2];
-        
-        try
-        {
-           clickMethods[0] = controlClass.getMethod("solvePuzzle", null);  
-           clickMethods[1] = controlClass.getMethod("resetPuzzle", null);    
-        }
-        catch(NoSuchMethodException exception)
-        {
-           String error;
-
-           error = exception.toString();
-           System.out.println(error);
-        }
-        catch(SecurityException exception)
-        {
-           String error;
-
-           error = exception.toString();
-           System.out.println(error);
-        }
-        
-        // set up the menu options
-        mySolveListener = new ButtonListener(myController, clickMethods[0], null);
-        myResetListener = new ButtonListener(myController, clickMethods[1], null);
+        // bound once here, so a click calls the controller directly
+        mySolveListener = new ButtonListener(new Runnable() {
+            public void run()
+            {
+                myController.solvePuzzle();
+            }
+        });
+        myResetListener = new ButtonListener(new Runnable() {
+            public void run()
+            {
+                myController.resetPuzzle();
+            }
+        });
         mySolveButton.addMouseListener(mySolveListener);
         myResetButton.addMouseListener(myResetListener);
     }
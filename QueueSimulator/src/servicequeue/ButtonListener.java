@@ -9,10 +9,8 @@
 
 package servicequeue;
 
-import java.lang.reflect.*;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseAdapter;
-import java.lang.IllegalAccessException;
 
 public class ButtonListener extends MouseAdapter
 {
@@ -20,109 +18,57 @@ public class ButtonListener extends MouseAdapter
     //     Properties       //
     //////////////////////////
     
-    private Object myController;
-    private Method myMethod;
-    private Object[] myArguments;
+    private Runnable myAction;
     
     //////////////////////////
     //       Methods        //
     //////////////////////////
 
     /**
-     * Only constructor, giving the method that should be invoked
-     * when the mouse is released over the button; has the 
-     * responsibility of notifying controller when mouse released.
+     * Only constructor, giving the action that should be run
+     * when the mouse is pressed on the button; the action is
+     * bound once by the view, so no reflection is needed here.
      *
      * <pre>
-     * pre:  controller and method passed in are valid
-     * post: myController and myMethod are set
+     * pre:  action passed in is valid
+     * post: myAction is set
      * </pre>
      *
-     * @param controller the controller this listener has a
-     *        responsible to
-     * @param method the method to invoke when button is pushed
-     * @param args the array of objects that are the parameters
-     *        for the method that will be invoked by the controller
+     * @param action the action to run when button is pushed
      */
-    public ButtonListener(Object controller, Method method, Object[] args)
+    public ButtonListener(Runnable action)
     {
-        myController = controller;
-        myMethod = method;
-        myArguments = args;
+        myAction = action;
     }
 
     /**
-     * Invokes the appropriate method when the mouse
-     * button is released.
+     * Runs the appropriate action when the mouse
+     * button is pressed.
      *
      * <pre>
-     * pre:  a valid MouseEvent has taken place, and the controller
-     *       and method this listener is responsible to and how, are
-     *       set to value values
-     * post: the associated method is invoked
+     * pre:  a valid MouseEvent has taken place, and the action
+     *       this listener is responsible for is set
+     * post: the associated action is run
      * </pre>
      *
      * @param event a mouse event
      */
     public void mousePressed(MouseEvent event)
     {
-        Method method;
-        Object controller;
-        Object[] arguments;
-    
-        method = this.getMethod();
-        controller = this.getController();
-        arguments = this.getArguments();
-        
-        try
-        {
-            method.invoke(controller, arguments);
-        }
-        catch(InvocationTargetException exception)
-        {
-            System.out.println("InvocationTargetException");
-        }
-        catch(IllegalAccessException exception)
-        {
-            System.out.println("IllegalAccessException");
-        }
-        catch(IllegalArgumentException exception)
-        {
-            System.out.println("IllegalArgumentException");
-        }
+        this.getAction().run();
     }
   
     //////////////////////////
     //   Accessor Methods   //
     //////////////////////////
 
-    protected Method getMethod()
-    {
-        return myMethod;
-    }
-
-    protected void setMethod(Method method)
+    protected Runnable getAction()
     {
-        myMethod = method;
+        return myAction;
     }
 
-    protected Object getController()
-    {
-        return myController;
-    }
-      
-    protected void setController(Object controller)
-    {
-        myController = controller;
-    }
-    
-    protected Object[] getArguments()
-    {
-        return myArguments;
-    }
-    
-    protected void setArguments(Object[] arguments)
+    protected void setAction(Runnable action)
     {
-        myArguments = arguments;
+        myAction = action;
     }
 }
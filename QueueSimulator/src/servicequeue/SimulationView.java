@@ -6,7 +6,6 @@
 package servicequeue;
 
 import java.awt.*;
-import java.lang.reflect.Method;
 
 import javax.swing.*;
 import javax.swing.text.DefaultCaret;
@@ -274,53 +273,26 @@ public class SimulationView extends JFrame
     }
     
     /**
-     * Associate mouse listeners using reflection.
+     * Associate mouse listeners, each bound straight to its controller method.
      */
     private void associateListeners()
     {
-        Class<? extends SimulationController> controlClass;
-        Method goAndPauseMethod;
-        Method cashierMethod;
-        Class<?>[] classArgs;
-        
-        controlClass = myController.getClass();
-        goAndPauseMethod = null;
-        cashierMethod = null;
-        classArgs = new Class[1];
-        
-        try
-        {
-           classArgs[0] = Class.forName("java.lang.Integer");
-        }
-        catch(ClassNotFoundException e)
-        {
-           String error;
-           error = e.toString();
-           System.out.println(error);
-        }
-        
-        try
-        {
-            goAndPauseMethod = controlClass.getMethod("goAndPause", (Class<?>[])null);
-            cashierMethod = controlClass.getMethod("setCashierView", classArgs);
-        } 
-        catch (NoSuchMethodException e)
-        {
-            e.printStackTrace();
-        } 
-        catch (SecurityException e)
-        {
-            e.printStackTrace();
-        }
-        
-        myGoPauseListener = new ButtonListener(myController, goAndPauseMethod, null);
+        myGoPauseListener = new ButtonListener(new Runnable() {
+            public void run()
+            {
+                myController.goAndPause();
+            }
+        });
         myGoButton.addMouseListener(myGoPauseListener);
-        Integer[] args;
         for (int i = 0; i < 5; i++)
         {
-            args = new Integer[1];
-            args[0] = new Integer(i);
-            myCashierListener[i] = new ButtonListener(myController, cashierMethod, args);
+            final Integer cashier = i; // boxed once here rather than on every click
+            myCashierListener[i] = new ButtonListener(new Runnable() {
+                public void run()
+                {
+                    myController.setCashierView(cashier);
+                }
+            });
             myCashiers[i].addMouseListener(myCashierListener[i]);
         }
     }
@@ -1,5 +1,4 @@
 import java.awt.*;
-import java.lang.reflect.Method;
 
 import javax.swing.*;
 import javax.swing.border.Border;
@@ -118,24 +117,12 @@ public class View extends JFrame {
 	
 	public void associateListeners()
 	{
-		Class<? extends Controller> controlClass;
-		Method[] clickMethods;
-		Class<?>[] classArgs;
-		controlClass = myControl.getClass();
-		
-		clickMethods = new Method[1];
-		
-		try
-		{
-			clickMethods[0] = controlClass.getMethod("solve", null);  
-		}
-		catch(NoSuchMethodException exception)
-		{
-		}
-		catch(SecurityException exception)
-		{
-		}
-		goListener = new Button(myControl, clickMethods, null);
+		goListener = new Button(new Runnable() {
+			public void run()
+			{
+				myControl.solve();
+			}
+		});
 		goButton.addMouseListener(goListener);
 	}
 	